@@ -0,0 +1,35 @@
+package stockmarket;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Analytics update for one price tick across every symbol: EWMA volatility plus the
+// 1s and 1m bars. Time advances 2s per call, so bars roll over as they would live.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AnalyticsBenchmark {
+    @Param({"1000", "100000"})
+    int symbols;
+    
+    private StockStore stocks;
+    private MarketAnalytics analytics;
+    private long timeMillis = 0;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        stocks = MarketEngine.syntheticStocks(symbols);
+        analytics = new MarketAnalytics(symbols);
+        new SerialPriceUpdateEngine(42).update(stocks);
+    }
+    
+    @Benchmark
+    public MarketAnalytics onPrices() {
+        timeMillis += 2000;
+        analytics.onPrices(timeMillis, stocks, true);
+        return analytics;
+    }
+}
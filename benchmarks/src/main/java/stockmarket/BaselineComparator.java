@@ -0,0 +1,172 @@
+package stockmarket;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+// Compares a JMH JSON result file against the checked-in baseline and exits non-zero
+// when any benchmark got slower, or allocates more per operation, than the tolerance.
+//   java -cp benchmarks/target/benchmarks.jar stockmarket.BaselineComparator \
+//        benchmarks/baseline/results.json benchmarks/target/results.json [tolerance]
+public class BaselineComparator {
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparator <baseline.json> <current.json> [tolerance]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        Map<String, double[]> baseline = load(args[0]);
+        Map<String, double[]> current = load(args[1]);
+        
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %8s %12s %12s%n",
+                          "Benchmark", "baseline", "current", "change", "B/op before", "B/op after");
+        for (Map.Entry<String, double[]> entry : current.entrySet()) {
+            double[] before = baseline.get(entry.getKey());
+            double[] after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-70s %14s %14.3f %8s%n", entry.getKey(), "-", after[0], "new");
+                continue;
+            }
+            double change = (after[0] - before[0]) / before[0];
+            // Throughput scores improve upwards, time scores downwards.
+            boolean slower = after[2] > 0 ? change < -tolerance : change > tolerance;
+            boolean allocates = after[1] > before[1] * (1 + tolerance) + 16;
+            String flag = slower || allocates ? "  REGRESSION" : "";
+            if (!flag.isEmpty()) regressions++;
+            System.out.printf("%-70s %14.3f %14.3f %+7.1f%% %12.0f %12.0f%s%n",
+                              entry.getKey(), before[0], after[0], change * 100, before[1], after[1], flag);
+        }
+        System.out.println(regressions == 0 ? "No regressions" : regressions + " regression(s)");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+    
+    // Benchmark name plus params -> {score, bytes allocated per op, 1 if throughput mode}
+    static Map<String, double[]> load(String file) throws IOException {
+        String json = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+        Map<String, double[]> results = new TreeMap<>();
+        for (Object item : (List<?>) new JsonParser(json).parse()) {
+            Map<?, ?> run = (Map<?, ?>) item;
+            StringBuilder key = new StringBuilder((String) run.get("benchmark"));
+            Map<?, ?> params = (Map<?, ?>) run.get("params");
+            if (params != null) {
+                for (Map.Entry<?, ?> param : new TreeMap<>(params).entrySet()) {
+                    key.append(' ').append(param.getKey()).append('=').append(param.getValue());
+                }
+            }
+            Map<?, ?> primary = (Map<?, ?>) run.get("primaryMetric");
+            Map<?, ?> secondary = (Map<?, ?>) run.get("secondaryMetrics");
+            Map<?, ?> allocation = secondary == null ? null : (Map<?, ?>) secondary.get(ALLOCATION);
+            double bytes = allocation == null ? 0 : ((Number) allocation.get("score")).doubleValue();
+            double throughput = "thrpt".equals(run.get("mode")) ? 1 : 0;
+            results.put(key.toString(), new double[] {((Number) primary.get("score")).doubleValue(), bytes, throughput});
+        }
+        return results;
+    }
+    
+    // Just enough JSON for JMH's own output.
+    private static final class JsonParser {
+        private final String text;
+        private int position = 0;
+        
+        JsonParser(String text) {
+            this.text = text;
+        }
+        
+        Object parse() {
+            skipWhitespace();
+            char c = text.charAt(position);
+            switch (c) {
+                case '{': return parseObject();
+                case '[': return parseArray();
+                case '"': return parseString();
+                case 't': position += 4; return Boolean.TRUE;
+                case 'f': position += 5; return Boolean.FALSE;
+                case 'n': position += 4; return null;
+                default: return parseNumber();
+            }
+        }
+        
+        private Map<String, Object> parseObject() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            position++;
+            skipWhitespace();
+            if (text.charAt(position) == '}') {
+                position++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                String name = parseString();
+                skipWhitespace();
+                expect(':');
+                object.put(name, parse());
+                skipWhitespace();
+                if (text.charAt(position++) == '}') return object;
+            }
+        }
+        
+        private List<Object> parseArray() {
+            List<Object> array = new ArrayList<>();
+            position++;
+            skipWhitespace();
+            if (text.charAt(position) == ']') {
+                position++;
+                return array;
+            }
+            while (true) {
+                array.add(parse());
+                skipWhitespace();
+                if (text.charAt(position++) == ']') return array;
+            }
+        }
+        
+        private String parseString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            char c;
+            while ((c = text.charAt(position++)) != '"') {
+                if (c == '\\') {
+                    c = text.charAt(position++);
+                    switch (c) {
+                        case 'n': value.append('\n'); break;
+                        case 't': value.append('\t'); break;
+                        case 'u':
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                            position += 4;
+                            break;
+                        default: value.append(c);
+                    }
+                } else {
+                    value.append(c);
+                }
+            }
+            return value.toString();
+        }
+        
+        // JMH writes "NaN" for missing scores, quoted, so only plain numbers reach here.
+        private Double parseNumber() {
+            int start = position;
+            while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            return Double.valueOf(text.substring(start, position));
+        }
+        
+        private void expect(char c) {
+            if (text.charAt(position++) != c) {
+                throw new IllegalArgumentException("Expected '" + c + "' at offset " + (position - 1));
+            }
+        }
+        
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+}
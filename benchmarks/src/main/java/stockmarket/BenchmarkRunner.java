@@ -0,0 +1,28 @@
+package stockmarket;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs the suite with the GC profiler attached, so every result carries its allocation
+// rate per operation (gc.alloc.rate.norm), and writes JMH's JSON to the given file.
+//   java -jar benchmarks/target/benchmarks.jar [results.json] [include regex]
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String output = args.length > 0 ? args[0] : "benchmarks/target/results.json";
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(output);
+        if (args.length > 1) {
+            options.include(args[1]);
+        } else {
+            options.include("stockmarket\\..*Benchmark");
+        }
+        new Runner(options.build()).run();
+        System.out.println("Results written to " + output);
+    }
+}
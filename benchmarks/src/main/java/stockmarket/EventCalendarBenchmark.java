@@ -0,0 +1,52 @@
+package stockmarket;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// One simulated second of a calendar with many pending single-symbol events, so the cost
+// is dominated by the event queue rather than by volume updates.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EventCalendarBenchmark {
+    private static final int SYMBOLS = 10_000;
+    
+    @Param({"1000", "200000"})
+    int pending;
+    
+    private MarketEngine engine;
+    private VirtualTimeMarketScheduler scheduler;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        MarketLog.setLevel(MarketLog.Level.OFF);
+        MarketLog.setDetail(MarketLog.Detail.PER_TICK);
+        scheduler = new VirtualTimeMarketScheduler(0);
+        engine = new MarketEngine(MarketEngine.syntheticStocks(SYMBOLS), scheduler, new SerialPriceUpdateEngine(42), 42);
+        StringBuilder calendar = new StringBuilder();
+        for (int i = 0; i < pending; i++) {
+            // Mean gaps scale with the count, so about 50 events fire per simulated second.
+            calendar.append("Event ").append(i).append(" | poisson ").append(pending / 50).append("s | symbol ")
+                    .append(engine.getStocks().getSymbol(i % SYMBOLS)).append(" | +20000/-15000\n");
+        }
+        engine.getEventTimer().setCalendar(EventCalendar.parse(new StringReader(calendar.toString()), engine.getStocks()));
+        engine.getEventTimer().start();
+        scheduler.advance(1, TimeUnit.SECONDS);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+    
+    @Benchmark
+    public long advanceOneSecond() {
+        scheduler.advance(1, TimeUnit.SECONDS);
+        return engine.getEventTimer().getFiredEvents();
+    }
+}
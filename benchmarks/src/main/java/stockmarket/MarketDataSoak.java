@@ -0,0 +1,171 @@
+package stockmarket;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Loopback soak test for the market data feed: thousands of subscribers on one selector,
+// a fraction of them deliberately slow, against a market ticking every few milliseconds.
+// At the end every subscriber must hold exactly the server's final snapshot.
+//   java -cp benchmarks/target/benchmarks.jar stockmarket.MarketDataSoak [clients] [symbols] [seconds] [slow %]
+public class MarketDataSoak {
+    private static final long TICK_MILLIS = 5;
+    private static final long SLOW_READ_MILLIS = 500;
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int symbols = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int slowPercent = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        MarketLog.setLevel(MarketLog.Level.WARN);
+        
+        MarketEngine engine = new MarketEngine(MarketEngine.syntheticStocks(symbols), new RealTimeMarketScheduler(),
+                                               new SerialPriceUpdateEngine(42));
+        MarketDataServer server = new MarketDataServer(new InetSocketAddress("127.0.0.1", 0), engine.getSnapshot());
+        engine.addListener(server);
+        server.start();
+        
+        Selector selector = Selector.open();
+        Subscriber[] subscribers = new Subscriber[clientCount];
+        for (int i = 0; i < clientCount; i++) {
+            boolean slow = i * 100L < (long) clientCount * slowPercent;
+            SocketChannel channel = SocketChannel.open();
+            if (slow) {
+                channel.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+            }
+            channel.connect(new InetSocketAddress("127.0.0.1", server.getPort()));
+            channel.configureBlocking(false);
+            subscribers[i] = new Subscriber(channel, slow);
+            subscribers[i].key = channel.register(selector, SelectionKey.OP_READ, subscribers[i]);
+        }
+        System.out.printf("Connected %,d subscribers (%d%% slow) to %,d symbols%n", clientCount, slowPercent, symbols);
+        
+        MarketClock ticker = engine.getScheduler().scheduleAtFixedRate("SoakTicker", 0, TICK_MILLIS, TimeUnit.MILLISECONDS,
+                                                                       MarketScheduler.OverrunPolicy.SKIP,
+                                                                       () -> engine.getPriceTimer().updateStockPrices());
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long nextSlowRead = 0;
+        while (System.nanoTime() < end) {
+            if (System.nanoTime() >= nextSlowRead) {
+                for (Subscriber subscriber : subscribers) {
+                    if (subscriber.slow) subscriber.key.interestOps(SelectionKey.OP_READ);
+                }
+                nextSlowRead = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SLOW_READ_MILLIS);
+            }
+            readReady(selector, true);
+        }
+        ticker.cancel();
+        // Let the ticker's last run finish before taking the final state.
+        awaitMarketThread(engine.getScheduler());
+        MarketSnapshot last = engine.getSnapshot();
+        
+        long drainStarted = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.key.interestOps(SelectionKey.OP_READ);
+        }
+        while (!allCaughtUp(subscribers, last.getEpoch())
+               && System.nanoTime() - drainStarted < TimeUnit.SECONDS.toNanos(60)) {
+            readReady(selector, false);
+        }
+        
+        int mismatched = 0;
+        long frames = 0;
+        long snapshots = 0;
+        for (Subscriber subscriber : subscribers) {
+            MarketDataDecoder market = subscriber.decoder;
+            frames += market.getSnapshotCount() + market.getDeltaCount();
+            snapshots += market.getSnapshotCount();
+            if (!matches(market, last)) mismatched++;
+        }
+        System.out.printf("Final epoch %,d after %d s; drained in %.1f ms%n", last.getEpoch(), seconds,
+                          (System.nanoTime() - drainStarted) / 1e6);
+        System.out.printf("Server: %,d frames, %,d bytes, %,d epochs conflated away%n",
+                          server.getFramesSent(), server.getBytesSent(), server.getConflatedEpochs());
+        System.out.printf("Clients: %,d frames decoded (%,d snapshots), %,d of %,d out of sync%n",
+                          frames, snapshots, mismatched, clientCount);
+        
+        for (Subscriber subscriber : subscribers) {
+            subscriber.channel.close();
+        }
+        selector.close();
+        server.close();
+        engine.shutdown();
+        System.exit(mismatched == 0 ? 0 : 1);
+    }
+    
+    private static void readReady(Selector selector, boolean throttleSlow) throws IOException {
+        selector.select(10);
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            Subscriber subscriber = (Subscriber) key.attachment();
+            subscriber.read();
+            if (throttleSlow && subscriber.slow) {
+                key.interestOps(0);
+            }
+        }
+    }
+    
+    private static boolean allCaughtUp(Subscriber[] subscribers, long epoch) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.decoder.getEpoch() != epoch) return false;
+        }
+        return true;
+    }
+    
+    private static boolean matches(MarketDataDecoder market, MarketSnapshot snapshot) {
+        if (market.getEpoch() != snapshot.getEpoch() || market.size() != snapshot.size()) return false;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (market.getPriceCents(i) != Math.round(snapshot.getPrice(i) * 100.0)
+                || market.getVolume(i) != snapshot.getVolume(i)
+                || !market.getSymbol(i).equals(snapshot.getSymbol(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static void awaitMarketThread(MarketScheduler scheduler) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.execute(done::countDown);
+        done.await();
+    }
+    
+    private static final class Subscriber {
+        final SocketChannel channel;
+        final boolean slow;
+        final MarketDataDecoder decoder = new MarketDataDecoder();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        SelectionKey key;
+        
+        Subscriber(SocketChannel channel, boolean slow) {
+            this.channel = channel;
+            this.slow = slow;
+        }
+        
+        void read() throws IOException {
+            while (true) {
+                int read = channel.read(buffer);
+                if (read < 0) throw new IOException("Feed closed the connection");
+                buffer.flip();
+                decoder.decode(buffer);
+                if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    larger.put(buffer);
+                    buffer = larger;
+                } else {
+                    buffer.compact();
+                }
+                if (read == 0) return;
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package stockmarket;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MarketEventBenchmark {
+    @Param({"3", "1000", "100000"})
+    int symbols;
+    
+    private MarketEngine engine;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        MarketLog.setLevel(MarketLog.Level.OFF);
+        MarketLog.setDetail(MarketLog.Detail.PER_TICK);
+        StockStore stocks = symbols <= 3 ? MarketEngine.defaultStocks() : MarketEngine.syntheticStocks(symbols);
+        engine = new MarketEngine(stocks, new VirtualTimeMarketScheduler(0), new SerialPriceUpdateEngine(42), 42);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+    
+    @Benchmark
+    public MarketSnapshot event() {
+        engine.getEventTimer().triggerMarketEvent();
+        return engine.getSnapshot();
+    }
+}
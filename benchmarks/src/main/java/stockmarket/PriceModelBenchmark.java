@@ -0,0 +1,34 @@
+package stockmarket;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Per-tick cost of each price model's kernel on the serial engine.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PriceModelBenchmark {
+    @Param({"1000", "100000"})
+    int symbols;
+    
+    @Param({"gbm", "ou", "jump", "correlated"})
+    String model;
+    
+    private StockStore stocks;
+    private PriceUpdateEngine engine;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        stocks = MarketEngine.syntheticStocks(symbols);
+        engine = new SerialPriceUpdateEngine(42, PriceModel.named(model));
+    }
+    
+    @Benchmark
+    public long[] update() {
+        engine.update(stocks);
+        return stocks.prices();
+    }
+}
@@ -0,0 +1,45 @@
+package stockmarket;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// One full price tick (update, publish, listeners) as the price timer runs it, for each
+// update engine across a range of symbol counts.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PriceTickBenchmark {
+    @Param({"3", "1000", "100000", "1000000"})
+    int symbols;
+    
+    @Param({"serial", "forkjoin"})
+    String engineType;
+    
+    private MarketEngine engine;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        MarketLog.setLevel(MarketLog.Level.OFF);
+        MarketLog.setDetail(MarketLog.Detail.PER_TICK);
+        PriceUpdateEngine priceEngine = engineType.equals("serial")
+                ? new SerialPriceUpdateEngine(42)
+                : new ForkJoinPriceUpdateEngine(ForkJoinPool.commonPool(), 42);
+        StockStore stocks = symbols <= 3 ? MarketEngine.defaultStocks() : MarketEngine.syntheticStocks(symbols);
+        engine = new MarketEngine(stocks, new VirtualTimeMarketScheduler(0), priceEngine);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+    
+    @Benchmark
+    public MarketSnapshot tick() {
+        engine.getPriceTimer().updateStockPrices();
+        return engine.getSnapshot();
+    }
+}
@@ -0,0 +1,46 @@
+package stockmarket;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Cost of applying a new snapshot to the GUI table model, with every row changed by a
+// price tick or only a sparse set changed by single-symbol trades.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TableModelBenchmark {
+    @Param({"3", "1000", "100000"})
+    int symbols;
+    
+    @Param({"all", "sparse"})
+    String changed;
+    
+    private StockTableModel model;
+    private MarketSnapshot before;
+    private MarketSnapshot after;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        StockStore stocks = symbols <= 3 ? MarketEngine.defaultStocks() : MarketEngine.syntheticStocks(symbols);
+        before = stocks.publish();
+        if (changed.equals("all")) {
+            new SerialPriceUpdateEngine(42).update(stocks);
+        } else {
+            for (int i = 0; i < stocks.size(); i += 100) {
+                stocks.setVolume(i, stocks.getVolume(i) + 100);
+            }
+        }
+        after = stocks.publish();
+        model = new StockTableModel(before);
+    }
+    
+    @Benchmark
+    public long apply() {
+        model.apply(after);
+        model.apply(before);
+        return model.getUpdatedRows();
+    }
+}
@@ -0,0 +1,94 @@
+package stockmarket;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+// Soak test for the off-heap tick history: simulates the hours in virtual time with history
+// kept, then reports its footprint, the collector's work over the run, and how long queries
+// take. Direct memory is capped at the heap size unless -XX:MaxDirectMemorySize says otherwise.
+//   java -Xmx512m -XX:MaxDirectMemorySize=3g -cp benchmarks/target/benchmarks.jar stockmarket.TickHistorySoak [symbols] [hours] [max MB] [model]
+public class TickHistorySoak {
+    public static void main(String[] args) {
+        int symbols = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        long hours = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        long maxBytes = (args.length > 2 ? Long.parseLong(args[2]) : 4096) << 20;
+        PriceModel model = PriceModel.named(args.length > 3 ? args[3] : "gbm");
+        MarketLog.setLevel(MarketLog.Level.WARN);
+    
+        StockStore stocks = MarketEngine.syntheticStocks(symbols);
+        VirtualTimeMarketScheduler scheduler = new VirtualTimeMarketScheduler(HeadlessMarket.SEEDED_ORIGIN_MILLIS);
+        MarketEngine engine = new MarketEngine(stocks, scheduler, PriceUpdateEngine.create(42, model), 42);
+        TickHistory history = new TickHistory(symbols, maxBytes);
+        engine.setHistory(history);
+        long collections = collections();
+        long collectionMillis = collectionMillis();
+        long started = System.nanoTime();
+        engine.getPriceTimer().start();
+        engine.getEventTimer().start();
+        scheduler.advance(hours, TimeUnit.HOURS);
+        long elapsed = System.nanoTime() - started;
+        collections = collections() - collections;
+        collectionMillis = collectionMillis() - collectionMillis;
+    
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("%,d symbols, %d hour(s) in %.1f s: %,d records (%,d dropped) in %,d MB of %,d MB off-heap%n",
+                          symbols, hours, elapsed / 1e9, history.getRecords(), history.getDroppedRecords(),
+                          history.getUsedBytes() >> 20, history.getAllocatedBytes() >> 20);
+        System.out.printf("Heap in use %,d MB; %d collection(s) taking %,d ms over the run; direct buffers %,d MB%n",
+                          (runtime.totalMemory() - runtime.freeMemory()) >> 20, collections, collectionMillis,
+                          directBytes() >> 20);
+    
+        // Virtual time only moves inside advance, so the market thread is idle while this
+        // one queries; shutting the engine down afterwards closes the history.
+        long from = HeadlessMarket.SEEDED_ORIGIN_MILLIS;
+        long to = from + TimeUnit.HOURS.toMillis(hours);
+        int capacity = history.count(0);
+        long[] times = new long[capacity];
+        long[] prices = new long[capacity];
+        int[] volumes = new int[capacity];
+        long[][] bars = new long[5][600];
+        int[] barVolumes = new int[600];
+        long queried = 0;
+        long barsDrawn = 0;
+        int queries = Math.min(symbols, 10000);
+        long queryStarted = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            queried += history.query(i, from, to, times, prices, volumes);
+        }
+        long queryNanos = System.nanoTime() - queryStarted;
+        long downsampleStarted = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            barsDrawn += history.downsample(i, from, to, Math.max(1, (to - from) / 600), bars[0], bars[1], bars[2],
+                                            bars[3], bars[4], barVolumes);
+        }
+        long downsampleNanos = System.nanoTime() - downsampleStarted;
+        System.out.printf("Full-range query %.1f us per symbol (%,d records); 600-bar downsample %.1f us per symbol "
+                          + "(%,d bars)%n", queryNanos / 1e3 / queries, queried, downsampleNanos / 1e3 / queries, barsDrawn);
+        engine.shutdown();
+    }
+    
+    private static long collections() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+    
+    private static long collectionMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+    
+    private static long directBytes() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) return pool.getMemoryUsed();
+        }
+        return 0;
+    }
+}
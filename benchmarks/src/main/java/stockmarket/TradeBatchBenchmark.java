@@ -0,0 +1,51 @@
+package stockmarket;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// One trading batch on the market thread: market maker quotes, order matching,
+// processVolumeChanges() and calculatePriceImpact(), for batches of single-symbol trades.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TradeBatchBenchmark {
+    @Param({"3", "1000"})
+    int symbols;
+    
+    @Param({"1", "64"})
+    int batchSize;
+    
+    private MarketEngine engine;
+    private TradingVolumeTimer trades;
+    private int nextSymbol = 0;
+    private int side = 1;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        MarketLog.setLevel(MarketLog.Level.OFF);
+        MarketLog.setDetail(MarketLog.Detail.PER_TICK);
+        StockStore stocks = symbols <= 3 ? MarketEngine.defaultStocks() : MarketEngine.syntheticStocks(symbols);
+        engine = new MarketEngine(stocks, new VirtualTimeMarketScheduler(0), new SerialPriceUpdateEngine(42), 42);
+        trades = engine.getTradingTimer();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+    
+    // Alternates buys and sells so volumes stay inside their clamp range.
+    @Benchmark
+    public long batch() {
+        for (int i = 0; i < batchSize; i++) {
+            trades.executeTrade(nextSymbol, side * 500);
+            nextSymbol = (nextSymbol + 1) % symbols;
+        }
+        side = -side;
+        trades.processBatch();
+        return trades.getCompletedTrades();
+    }
+}
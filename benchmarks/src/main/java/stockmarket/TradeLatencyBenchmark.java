@@ -0,0 +1,43 @@
+package stockmarket;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// End-to-end latency of a single trade against the real-time scheduler: enqueue, wait
+// for the next batch, match and complete. Dominated by the batch period by design.
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class TradeLatencyBenchmark {
+    @Param({"3", "1000"})
+    int symbols;
+    
+    private MarketEngine engine;
+    private int nextSymbol = 0;
+    private int side = 1;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        MarketLog.setLevel(MarketLog.Level.OFF);
+        MarketLog.setDetail(MarketLog.Detail.PER_TICK);
+        StockStore stocks = symbols <= 3 ? MarketEngine.defaultStocks() : MarketEngine.syntheticStocks(symbols);
+        engine = new MarketEngine(stocks, new RealTimeMarketScheduler());
+        engine.getPriceTimer().start();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+    
+    @Benchmark
+    public TradeResult trade() {
+        TradeResult result = engine.getTradingTimer().executeTrade(nextSymbol, side * 500).join();
+        nextSymbol = (nextSymbol + 1) % symbols;
+        side = -side;
+        return result;
+    }
+}
@@ -0,0 +1,51 @@
+package stockmarket;
+
+import java.util.concurrent.TimeUnit;
+
+// Load test for pooled trading agents: a crowd of agents on a few worker threads trading
+// against one real-time engine, reporting throughput, trade latency, P&L by strategy and
+// the heap each agent costs. Agents are split evenly across the listed strategies.
+//   java -cp benchmarks/target/benchmarks.jar stockmarket.TradingAgentSoak [agents] [symbols] [seconds] [noise,momentum,reversion] [workers] [think ms] [queue capacity]
+public class TradingAgentSoak {
+    public static void main(String[] args) throws InterruptedException {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int symbolCount = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        String[] strategies = (args.length > 3 ? args[3] : "noise,momentum,reversion").split(",");
+        int workerThreads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        long thinkMillis = args.length > 5 ? Long.parseLong(args[5]) : TradingAgentPool.DEFAULT_THINK_MILLIS;
+        MarketLog.setLevel(MarketLog.Level.WARN);
+    
+        StockStore stocks = symbolCount <= 3 ? MarketEngine.defaultStocks() : MarketEngine.syntheticStocks(symbolCount);
+        MarketEngine engine = new MarketEngine(stocks, new RealTimeMarketScheduler(), 42L);
+        if (args.length > 6) {
+            engine.getTradingTimer().setCapacity(Integer.parseInt(args[6]));
+        }
+        TradingAgentPool pool = new TradingAgentPool(engine, workerThreads);
+        pool.setThinkTime(thinkMillis);
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        for (int s = 0; s < strategies.length; s++) {
+            int count = agentCount / strategies.length + (s < agentCount % strategies.length ? 1 : 0);
+            pool.addAgents(count, TradingStrategy.named(strategies[s].trim()), 42 + s, 4, 1000, 20000);
+        }
+        System.gc();
+        long heapPerAgent = (runtime.totalMemory() - runtime.freeMemory() - heapBefore) / Math.max(1, agentCount);
+    
+        engine.getPriceTimer().start();
+        pool.start();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        pool.stop();
+        engine.shutdown();
+        MarketLog.flush();
+    
+        System.out.print(pool);
+        LatencyHistogram.Snapshot latency = engine.getMetrics().getTradeLatencyHistogram().snapshot();
+        System.out.printf("%.0f decisions/s, %.0f fills/s, trade latency p50 %.1f ms p99 %.1f ms, "
+                          + "%,d trade batches, about %,d bytes of heap per agent%n",
+                          pool.getDecisions() / (double) seconds, pool.getFills() / (double) seconds,
+                          latency.percentileNanos(50) / 1e6, latency.percentileNanos(99) / 1e6,
+                          engine.getTradingTimer().getBatches(), heapPerAgent);
+    }
+}
@@ -0,0 +1,121 @@
+package stockmarket;
+
+// Fixed-period OHLC bars for every symbol, kept in one preallocated ring of `capacity`
+// bars per symbol. Bars are aligned to multiples of the period; periods without a price
+// update leave no bar. Updates are O(1) and never allocate. Columns are slot-major
+// (slot * symbolCount + symbol): a tick across all symbols usually lands on the same slot
+// for each of them, so it walks every column sequentially. A capacity of 0 keeps no bars:
+// updates are ignored and queries answer as for a symbol that has none yet.
+final class BarSeries {
+    private final int symbolCount;
+    private final long periodMillis;
+    private final int capacity;
+    private final long[] starts;
+    private final double[] opens;
+    private final double[] highs;
+    private final double[] lows;
+    private final double[] closes;
+    private final int[] heads;
+    private final int[] counts;
+    
+    BarSeries(int symbolCount, long periodMillis, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Bar capacity must not be negative: " + capacity);
+        }
+        this.symbolCount = symbolCount;
+        this.periodMillis = periodMillis;
+        this.capacity = capacity;
+        int slots = Math.multiplyExact(symbolCount, capacity);
+        starts = new long[slots];
+        opens = new double[slots];
+        highs = new double[slots];
+        lows = new double[slots];
+        closes = new double[slots];
+        heads = new int[symbolCount];
+        counts = new int[symbolCount];
+    }
+    
+    long getPeriodMillis() {
+        return periodMillis;
+    }
+    
+    int getCapacity() {
+        return capacity;
+    }
+    
+    void update(int symbol, long timeMillis, double price) {
+        if (capacity == 0) return;
+        long start = timeMillis - Math.floorMod(timeMillis, periodMillis);
+        int count = counts[symbol];
+        int slot = heads[symbol] * symbolCount + symbol;
+        // Updates are in time order on the market thread, so only the head bar can match.
+        if (count > 0 && starts[slot] >= start) {
+            if (price > highs[slot]) highs[slot] = price;
+            if (price < lows[slot]) lows[slot] = price;
+            closes[slot] = price;
+            return;
+        }
+        if (count > 0) {
+            int head = heads[symbol] + 1 == capacity ? 0 : heads[symbol] + 1;
+            heads[symbol] = head;
+            slot = head * symbolCount + symbol;
+        }
+        if (count < capacity) {
+            counts[symbol] = count + 1;
+        }
+        starts[slot] = start;
+        opens[slot] = price;
+        highs[slot] = price;
+        lows[slot] = price;
+        closes[slot] = price;
+    }
+    
+    int count(int symbol) {
+        return counts[symbol];
+    }
+    
+    // Highest high, or lowest low, over the bars starting within `bars` periods of the
+    // latest one; NaN when the symbol has no bars yet.
+    double high(int symbol, int bars) {
+        return extreme(symbol, bars, highs, true);
+    }
+    
+    double low(int symbol, int bars) {
+        return extreme(symbol, bars, lows, false);
+    }
+    
+    private double extreme(int symbol, int bars, double[] column, boolean highest) {
+        int count = counts[symbol];
+        if (count == 0) return Double.NaN;
+        int slot = heads[symbol];
+        int index = slot * symbolCount + symbol;
+        long oldest = starts[index] - (long) (bars - 1) * periodMillis;
+        double result = column[index];
+        for (int i = 1; i < count; i++) {
+            slot = slot == 0 ? capacity - 1 : slot - 1;
+            index = slot * symbolCount + symbol;
+            if (starts[index] < oldest) break;
+            double value = column[index];
+            if (highest ? value > result : value < result) result = value;
+        }
+        return result;
+    }
+    
+    // Copies the symbol's bars oldest first into the caller's arrays and returns how many
+    // were written; the arrays must hold at least getCapacity() entries.
+    int copy(int symbol, long[] barStarts, double[] barOpens, double[] barHighs, double[] barLows, double[] barCloses) {
+        int count = counts[symbol];
+        int slot = heads[symbol] - count + 1;
+        if (slot < 0) slot += capacity;
+        for (int i = 0; i < count; i++) {
+            int index = slot * symbolCount + symbol;
+            barStarts[i] = starts[index];
+            barOpens[i] = opens[index];
+            barHighs[i] = highs[index];
+            barLows[i] = lows[index];
+            barCloses[i] = closes[index];
+            slot = slot + 1 == capacity ? 0 : slot + 1;
+        }
+        return count;
+    }
+}
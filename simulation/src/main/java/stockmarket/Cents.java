@@ -0,0 +1,26 @@
+package stockmarket;
+
+// Prices are held as whole cents in longs, from listing through price ticks, fills and
+// the feed. Decimal prices only exist at the edges - parsing a universe, display, export -
+// and these are the conversions used there. Each instrument trades on a grid of tick
+// sizes, also in cents.
+public final class Cents {
+    public static final int DEFAULT_TICK = 1;
+
+    private Cents() {
+    }
+
+    public static long of(double price) {
+        return Math.round(price * 100.0);
+    }
+
+    public static double toPrice(long cents) {
+        return cents / 100.0;
+    }
+
+    // Nearest multiple of the tick, halves rounding up, never below one tick.
+    public static long roundToTick(long cents, int tick) {
+        if (tick == 1) return Math.max(1, cents);
+        return Math.max(tick, Math.floorDiv(cents + tick / 2, tick) * tick);
+    }
+}
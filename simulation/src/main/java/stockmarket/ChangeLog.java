@@ -0,0 +1,91 @@
+package stockmarket;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Which symbols each of a StockStore's recent epochs changed, as bitsets over symbol ids
+// with one long per 64 symbols. The store compares every symbol its writers marked
+// against the previous epoch (see DirtySymbols), so a write that left a value as it was -
+// a volume already at its clamp, a price rounded back onto the same tick - is not a change.
+//
+// Consumers that see every epoch read a snapshot's own bits; those that skip epochs, like
+// a GUI coalescing repaints or a feed client that fell behind, OR together the bits of
+// the epochs in between while they are still logged. Past CAPACITY epochs, or across a
+// listing that resized the store, nobody knows any more and the caller compares columns.
+final class ChangeLog {
+    static final int CAPACITY = 64;
+
+    private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(CAPACITY);
+
+    private static final class Entry {
+        final long epoch;
+        final long[] changed;
+
+        Entry(long epoch, long[] changed) {
+            this.epoch = epoch;
+            this.changed = changed;
+        }
+    }
+
+    // Writer side, on the thread that publishes. A null bitset means every symbol changed.
+    void add(long epoch, long[] changed) {
+        entries.set((int) (epoch % CAPACITY), new Entry(epoch, changed));
+    }
+
+    // The symbols changed by the epochs after 'from' up to and including 'to', or null when
+    // one of them has left the log or changed everything. The result may be an entry's own
+    // bitset and must not be written to.
+    long[] changedBetween(long from, long to, int size) {
+        if (to - from > CAPACITY) return null;
+        long[] merged = null;
+        boolean copied = false;
+        for (long epoch = from + 1; epoch <= to; epoch++) {
+            Entry entry = entries.get((int) (epoch % CAPACITY));
+            if (entry == null || entry.epoch != epoch || entry.changed == null || entry.changed.length != words(size)) {
+                return null;
+            }
+            if (merged == null) {
+                merged = entry.changed;
+                continue;
+            }
+            if (!copied) {
+                merged = merged.clone();
+                copied = true;
+            }
+            for (int w = 0; w < merged.length; w++) {
+                merged[w] |= entry.changed[w];
+            }
+        }
+        return merged != null ? merged : new long[words(size)];
+    }
+
+    static int words(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    static int count(long[] changed) {
+        int count = 0;
+        for (long word : changed) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // The first changed symbol at or after 'from', or -1. Walk a bitset with
+    //   for (int i = next(changed, 0); i >= 0; i = next(changed, i + 1))
+    static int next(long[] changed, int from) {
+        int word = from >>> 6;
+        if (word >= changed.length) return -1;
+        long bits = changed[word] & (-1L << from);
+        while (bits == 0) {
+            if (++word == changed.length) return -1;
+            bits = changed[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    // As next, where a null bitset stands for every one of 'size' symbols.
+    static int next(long[] changed, int from, int size) {
+        if (changed != null) return next(changed, from);
+        return from < size ? from : -1;
+    }
+}
@@ -0,0 +1,55 @@
+package stockmarket;
+
+// Lower-triangular L with L * L^T equal to a symmetric positive-definite matrix, used to
+// turn independent normals into correlated ones. Factor once, multiply every tick.
+public final class CholeskyFactor {
+    private final int size;
+    private final double[] lower;
+    
+    public CholeskyFactor(double[][] matrix) {
+        size = matrix.length;
+        lower = new double[size * size];
+        for (int row = 0; row < size; row++) {
+            if (matrix[row].length != size) {
+                throw new IllegalArgumentException("Matrix is not square at row " + row);
+            }
+            for (int column = 0; column <= row; column++) {
+                if (matrix[row][column] != matrix[column][row]) {
+                    throw new IllegalArgumentException("Matrix is not symmetric at (" + row + ", " + column + ")");
+                }
+                double sum = matrix[row][column];
+                for (int k = 0; k < column; k++) {
+                    sum -= lower[row * size + k] * lower[column * size + k];
+                }
+                if (row == column) {
+                    if (sum <= 0) {
+                        throw new IllegalArgumentException("Matrix is not positive definite at row " + row);
+                    }
+                    lower[row * size + row] = Math.sqrt(sum);
+                } else {
+                    lower[row * size + column] = sum / lower[column * size + column];
+                }
+            }
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public double get(int row, int column) {
+        return lower[row * size + column];
+    }
+    
+    // out = L * in; in and out must not be the same array.
+    public void multiply(double[] in, double[] out) {
+        for (int row = 0; row < size; row++) {
+            double sum = 0;
+            int offset = row * size;
+            for (int k = 0; k <= row; k++) {
+                sum += lower[offset + k] * in[k];
+            }
+            out[row] = sum;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package stockmarket;
+
+import java.util.SplittableRandom;
+
+// GBM driven by one factor per sector plus an idiosyncratic shock. Sector factors are
+// correlated through a Sector.COUNT x Sector.COUNT matrix whose Cholesky factor is
+// computed once here; a tick costs O(k^2) for the factors and O(1) per symbol.
+// Two symbols in sectors a and b end up with log-return correlation
+// loading^2 * sectorCorrelation[a][b].
+public class CorrelatedPriceModel implements PriceModel {
+    public static final double DEFAULT_WITHIN_SECTOR = 0.6;
+    public static final double DEFAULT_ACROSS_SECTORS = 0.3;
+    
+    private final CholeskyFactor factor;
+    private final double loading;
+    private final double idiosyncraticLoading;
+    private final double[] independent = new double[Sector.COUNT];
+    private final double[] sectorShocks = new double[Sector.COUNT];
+    
+    public CorrelatedPriceModel() {
+        this(DEFAULT_WITHIN_SECTOR, DEFAULT_ACROSS_SECTORS);
+    }
+    
+    // Log-return correlations of two symbols in the same sector and in different ones.
+    public CorrelatedPriceModel(double withinSector, double acrossSectors) {
+        this(uniformCorrelation(sectorCorrelation(withinSector, acrossSectors)), Math.sqrt(withinSector));
+    }
+    
+    // Comparisons are written so that NaN fails them too. Equal correlations would make
+    // every sector factor the same one, which has no Cholesky factor.
+    private static double sectorCorrelation(double withinSector, double acrossSectors) {
+        if (!(withinSector > 0 && withinSector <= 1)) {
+            throw new IllegalArgumentException("Within-sector correlation must be in (0, 1]: " + withinSector);
+        }
+        if (!(acrossSectors >= 0 && acrossSectors < withinSector)) {
+            throw new IllegalArgumentException("Cross-sector correlation must be in [0, " + withinSector + "): "
+                                               + acrossSectors);
+        }
+        return acrossSectors / withinSector;
+    }
+    
+    public CorrelatedPriceModel(double[][] sectorCorrelation, double loading) {
+        if (sectorCorrelation.length != Sector.COUNT) {
+            throw new IllegalArgumentException("Need a " + Sector.COUNT + "x" + Sector.COUNT + " sector correlation matrix");
+        }
+        if (!(loading >= 0 && loading <= 1)) {
+            throw new IllegalArgumentException("Sector loading must be in [0, 1]: " + loading);
+        }
+        this.factor = new CholeskyFactor(sectorCorrelation);
+        this.loading = loading;
+        this.idiosyncraticLoading = Math.sqrt(1 - loading * loading);
+    }
+    
+    static double[][] uniformCorrelation(double correlation) {
+        if (!(correlation >= 0 && correlation < 1)) {
+            throw new IllegalArgumentException("Sector correlation must be in [0, 1): " + correlation);
+        }
+        double[][] matrix = new double[Sector.COUNT][Sector.COUNT];
+        for (int a = 0; a < Sector.COUNT; a++) {
+            for (int b = 0; b < Sector.COUNT; b++) {
+                matrix[a][b] = a == b ? 1 : correlation;
+            }
+        }
+        return matrix;
+    }
+    
+    @Override
+    public String getName() {
+        return "correlated";
+    }
+    
+    @Override
+    public void beginTick(StockStore stocks, long tickSeed) {
+        PriceModel.fillNormals(new SplittableRandom(tickSeed), independent, Sector.COUNT);
+        factor.multiply(independent, sectorShocks);
+        for (int sector = 0; sector < Sector.COUNT; sector++) {
+            sectorShocks[sector] *= loading;
+        }
+    }
+    
+    @Override
+    public void advance(StockStore stocks, int from, int to, double[] normals, SplittableRandom random) {
+        long[] prices = stocks.prices();
+        int[] ticks = stocks.tickSizes();
+        double[] changes = stocks.changes();
+        double[] drifts = stocks.drifts();
+        double[] volatilities = stocks.volatilities();
+        int[] sectors = stocks.sectors();
+        for (int i = from, n = 0; i < to; i++, n++) {
+            double sigma = volatilities[i];
+            double shock = sectorShocks[sectors[i]] + idiosyncraticLoading * normals[n];
+            double change = Math.exp(drifts[i] - 0.5 * sigma * sigma + sigma * shock) - 1;
+            prices[i] = PriceModel.move(prices[i], change, ticks[i]);
+            changes[i] = change;
+        }
+    }
+}
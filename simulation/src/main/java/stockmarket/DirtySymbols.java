@@ -0,0 +1,119 @@
+package stockmarket;
+
+import java.util.Arrays;
+
+import static stockmarket.MarketSnapshot.PAGE_SHIFT;
+import static stockmarket.MarketSnapshot.PAGE_SIZE;
+
+// The symbols written in one StockStore column since it was last published: a bit per
+// symbol and a flag per snapshot page. Writers mark what they wrote, and publishing
+// copies only the flagged pages and compares only the marked symbols against the previous
+// snapshot, so its cost follows the writes rather than the size of the market.
+//
+// Marks come from the market thread, except that the chunks of a parallel price tick
+// mark their own ranges from pool threads. Chunks are CHUNK_SIZE-aligned, so they never
+// share a bitset word or a page, and the pool's join publishes their marks.
+final class DirtySymbols {
+    private long[] bits = new long[0];
+    private boolean[] pages = new boolean[0];
+    private volatile boolean any = false;
+
+    DirtySymbols(int capacity) {
+        ensureCapacity(capacity);
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity > bits.length << 6) {
+            bits = Arrays.copyOf(bits, ChangeLog.words(capacity));
+            pages = Arrays.copyOf(pages, MarketSnapshot.pageCount(capacity));
+        }
+    }
+
+    void mark(int id) {
+        bits[id >>> 6] |= 1L << id;
+        pages[id >>> PAGE_SHIFT] = true;
+        any = true;
+    }
+
+    void mark(int from, int to) {
+        if (from >= to) return;
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        if (first == last) {
+            bits[first] |= (-1L << from) & (-1L >>> -to);
+        } else {
+            bits[first] |= -1L << from;
+            Arrays.fill(bits, first + 1, last, -1L);
+            bits[last] |= -1L >>> -to;
+        }
+        Arrays.fill(pages, from >>> PAGE_SHIFT, ((to - 1) >>> PAGE_SHIFT) + 1, true);
+        any = true;
+    }
+
+    // Forgets every mark; for a publish that rebuilt all the pages anyway.
+    void clear() {
+        if (!any) return;
+        Arrays.fill(bits, 0);
+        Arrays.fill(pages, false);
+        any = false;
+    }
+
+    // The pages of the next snapshot: the previous ones, with each flagged page copied
+    // afresh from the live column. Marked symbols whose value differs from the previous
+    // snapshot are set in 'changed'; the marks are cleared.
+    long[][] publish(long[][] previous, long[] column, int size, long[] changed) {
+        if (!any) return previous;
+        long[][] next = previous.clone();
+        for (int page = 0; page < next.length; page++) {
+            if (!pages[page]) continue;
+            pages[page] = false;
+            int base = page << PAGE_SHIFT;
+            long[] before = previous[page];
+            long[] after = Arrays.copyOfRange(column, base, base + PAGE_SIZE);
+            next[page] = after;
+            int end = Math.min(size, base + PAGE_SIZE);
+            for (int w = base >>> 6; w < ChangeLog.words(end); w++) {
+                long marked = bits[w];
+                if (marked == 0) continue;
+                bits[w] = 0;
+                int offset = (w << 6) - base;
+                int length = Math.min(64, end - (w << 6));
+                long differs = 0;
+                for (int k = 0; k < length; k++) {
+                    differs |= (before[offset + k] != after[offset + k] ? 1L : 0L) << k;
+                }
+                changed[w] |= differs & marked;
+            }
+        }
+        any = false;
+        return next;
+    }
+
+    int[][] publish(int[][] previous, int[] column, int size, long[] changed) {
+        if (!any) return previous;
+        int[][] next = previous.clone();
+        for (int page = 0; page < next.length; page++) {
+            if (!pages[page]) continue;
+            pages[page] = false;
+            int base = page << PAGE_SHIFT;
+            int[] before = previous[page];
+            int[] after = Arrays.copyOfRange(column, base, base + PAGE_SIZE);
+            next[page] = after;
+            int end = Math.min(size, base + PAGE_SIZE);
+            for (int w = base >>> 6; w < ChangeLog.words(end); w++) {
+                long marked = bits[w];
+                if (marked == 0) continue;
+                bits[w] = 0;
+                int offset = (w << 6) - base;
+                int length = Math.min(64, end - (w << 6));
+                long differs = 0;
+                for (int k = 0; k < length; k++) {
+                    differs |= (before[offset + k] != after[offset + k] ? 1L : 0L) << k;
+                }
+                changed[w] |= differs & marked;
+            }
+        }
+        any = false;
+        return next;
+    }
+}
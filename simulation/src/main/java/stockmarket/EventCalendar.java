@@ -0,0 +1,171 @@
+package stockmarket;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// A declarative list of market events, one per line:
+//   name | trigger | target | volume | description
+// trigger: see EventTrigger.parse
+// target:  all | random-sector | sector Energy,Materials | symbol AAPL,MSFT
+// volume:  +20000 | -15000 | +20000/-15000 (up or down with even odds)
+// Blank lines and lines starting with # are ignored.
+public class EventCalendar {
+    public static final String DEFAULT_RESOURCE = "market-events.txt";
+    public static final String POISSON_RESOURCE = "market-events-poisson.txt";
+    
+    private final List<MarketEvent> events;
+    
+    public EventCalendar(List<MarketEvent> events) {
+        this.events = new ArrayList<>(events);
+    }
+    
+    public int size() {
+        return events.size();
+    }
+    
+    public MarketEvent get(int index) {
+        return events.get(index);
+    }
+    
+    // The same calendar against a store holding some of these symbols, such as one shard
+    // of the universe it was parsed for. Symbol-list events keep only the symbols the other
+    // store lists, possibly none; every event stays, at the same index, so that shards
+    // replaying one calendar agree on what fires when.
+    public EventCalendar remap(StockStore from, StockStore to) {
+        List<MarketEvent> remapped = new ArrayList<>(events.size());
+        for (MarketEvent event : events) {
+            int[] symbols = event.symbols();
+            if (symbols != null) {
+                int[] local = new int[symbols.length];
+                int count = 0;
+                for (int symbol : symbols) {
+                    int id = to.idOf(from.getSymbol(symbol));
+                    if (id >= 0) {
+                        local[count++] = id;
+                    }
+                }
+                symbols = Arrays.copyOf(local, count);
+            }
+            remapped.add(new MarketEvent(event.getName(), event.getDescription(), event.getTrigger(),
+                                         event.getSectorMask(), symbols, event.getIncrease(), event.getDecrease()));
+        }
+        return new EventCalendar(remapped);
+    }
+    
+    // The original schedule: five events 20 seconds apart, then none.
+    public static EventCalendar defaults(StockStore stocks) {
+        return bundled(DEFAULT_RESOURCE, stocks);
+    }
+    
+    // A calendar named on a command line: "-" for the defaults, "poisson" for the bundled
+    // calendar of randomly arriving events, anything else a calendar file.
+    public static EventCalendar named(String name, StockStore stocks) throws IOException {
+        switch (name) {
+            case "-":
+                return defaults(stocks);
+            case "poisson":
+                return bundled(POISSON_RESOURCE, stocks);
+            default:
+                return load(Paths.get(name), stocks);
+        }
+    }
+    
+    private static EventCalendar bundled(String resource, StockStore stocks) {
+        InputStream in = EventCalendar.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalStateException("Missing bundled event calendar " + resource);
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return parse(reader, stocks);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    public static EventCalendar load(Path file, StockStore stocks) throws IOException {
+        EventCalendar calendar;
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            calendar = parse(reader, stocks);
+        }
+        if (calendar.size() == 0) {
+            throw new IllegalArgumentException("Event calendar " + file + " lists no events");
+        }
+        return calendar;
+    }
+    
+    public static EventCalendar parse(Reader reader, StockStore stocks) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        List<MarketEvent> events = new ArrayList<>();
+        String line;
+        int number = 0;
+        while ((line = lines.readLine()) != null) {
+            number++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+            try {
+                events.add(parseEvent(trimmed, stocks));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Event calendar line " + number + ": " + e.getMessage(), e);
+            }
+        }
+        return new EventCalendar(events);
+    }
+    
+    private static MarketEvent parseEvent(String line, StockStore stocks) {
+        String[] fields = line.split("\\|", 5);
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("Expected name | trigger | target | volume [| description]");
+        }
+        String name = fields[0].trim();
+        EventTrigger trigger = EventTrigger.parse(fields[1]);
+        String description = fields.length > 4 ? fields[4].trim() : "";
+        
+        String target = fields[2].trim();
+        int sectorMask = Sector.ALL;
+        int[] symbols = null;
+        if (target.equals("random-sector")) {
+            sectorMask = MarketEvent.RANDOM_SECTOR;
+        } else if (target.startsWith("sector ")) {
+            sectorMask = 0;
+            for (String sector : target.substring(7).split(",")) {
+                sectorMask |= 1 << Sector.parse(sector.trim());
+            }
+        } else if (target.startsWith("symbol ")) {
+            String[] names = target.substring(7).split(",");
+            symbols = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                symbols[i] = stocks.idOf(names[i].trim());
+                if (symbols[i] < 0) {
+                    throw new IllegalArgumentException("Unknown symbol " + names[i].trim());
+                }
+            }
+        } else if (!target.equals("all")) {
+            throw new IllegalArgumentException("Unknown target: " + target);
+        }
+        
+        // -1 until given, so that a second increase or decrease is an error rather than
+        // silently replacing the first.
+        String volume = fields[3].trim();
+        int increase = -1;
+        int decrease = -1;
+        for (String part : volume.split("/")) {
+            int change = Integer.parseInt(part.trim().startsWith("+") ? part.trim().substring(1) : part.trim());
+            if (change >= 0 && increase < 0) {
+                increase = change;
+            } else if (change < 0 && decrease < 0) {
+                decrease = -change;
+            } else {
+                throw new IllegalArgumentException("Expected volume +up, -down or +up/-down: " + volume);
+            }
+        }
+        increase = Math.max(increase, 0);
+        decrease = Math.max(decrease, 0);
+        return new MarketEvent(name, description, trigger, sectorMask, symbols, increase, decrease);
+    }
+}
@@ -0,0 +1,74 @@
+package stockmarket;
+
+import java.util.Arrays;
+
+// Binary min-heap of (deadline, event index) pairs in two primitive arrays, so hundreds
+// of thousands of pending occurrences cost 12 bytes each and no objects. Equal
+// deadlines come out in event index order.
+final class EventQueue {
+    private long[] deadlines = new long[64];
+    private int[] events = new int[64];
+    private int size = 0;
+    
+    int size() {
+        return size;
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    void clear() {
+        size = 0;
+    }
+    
+    long peekDeadline() {
+        return deadlines[0];
+    }
+    
+    int peekEvent() {
+        return events[0];
+    }
+    
+    void add(long deadline, int event) {
+        if (size == deadlines.length) {
+            deadlines = Arrays.copyOf(deadlines, size * 2);
+            events = Arrays.copyOf(events, size * 2);
+        }
+        int child = size++;
+        while (child > 0) {
+            int parent = (child - 1) >>> 1;
+            if (!before(deadline, event, deadlines[parent], events[parent])) break;
+            deadlines[child] = deadlines[parent];
+            events[child] = events[parent];
+            child = parent;
+        }
+        deadlines[child] = deadline;
+        events[child] = event;
+    }
+    
+    // Removes the head; read it with peekDeadline/peekEvent first.
+    void remove() {
+        long deadline = deadlines[--size];
+        int event = events[size];
+        int parent = 0;
+        int half = size >>> 1;
+        while (parent < half) {
+            int child = 2 * parent + 1;
+            int right = child + 1;
+            if (right < size && before(deadlines[right], events[right], deadlines[child], events[child])) {
+                child = right;
+            }
+            if (!before(deadlines[child], events[child], deadline, event)) break;
+            deadlines[parent] = deadlines[child];
+            events[parent] = events[child];
+            parent = child;
+        }
+        deadlines[parent] = deadline;
+        events[parent] = event;
+    }
+    
+    private static boolean before(long deadline, int event, long otherDeadline, int otherEvent) {
+        return deadline < otherDeadline || (deadline == otherDeadline && event < otherEvent);
+    }
+}
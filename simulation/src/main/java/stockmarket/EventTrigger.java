@@ -0,0 +1,182 @@
+package stockmarket;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+// When a calendar event fires. next() returns the deadline of occurrence number
+// `occurrence` (0 for the first) in scheduler millis, or -1 when there are no more.
+public interface EventTrigger {
+    long next(long nowMillis, long startMillis, int occurrence, Random random);
+    
+    //   at <duration>                          once, that long after the calendar starts
+    //   every <duration> [from <duration>] [count <n>]
+    //   cron <second> <minute> <hour>          fields take *, */n, a-b and a,b,c
+    //   poisson <mean duration> [count <n>]    exponential gaps with the given mean
+    // Durations are a number with an ms, s, m or h suffix.
+    static EventTrigger parse(String spec) {
+        String[] words = spec.trim().split("\\s+");
+        switch (words[0]) {
+            case "at":
+                expectWords(spec, words, 2);
+                return new Once(parseDuration(words[1]));
+            case "every": {
+                long period = parseDuration(words[1]);
+                if (period <= 0) throw new IllegalArgumentException("Period must be positive: " + spec);
+                String[] options = options(spec, words, "from", "count");
+                long offset = options[0] != null ? parseDuration(options[0]) : period;
+                int count = count(options[1]);
+                return (now, start, occurrence, random) ->
+                        occurrence < count ? start + offset + occurrence * period : -1;
+            }
+            case "cron":
+                expectWords(spec, words, 4);
+                return new Cron(words[1], words[2], words[3]);
+            case "poisson": {
+                long mean = parseDuration(words[1]);
+                if (mean <= 0) throw new IllegalArgumentException("Mean gap must be positive: " + spec);
+                int count = count(options(spec, words, "count")[0]);
+                return (now, start, occurrence, random) -> occurrence < count
+                        ? now + Math.max(1, Math.round(-Math.log(1 - random.nextDouble()) * mean)) : -1;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown trigger: " + spec);
+        }
+    }
+    
+    static long parseDuration(String text) {
+        String lower = text.toLowerCase();
+        long unit;
+        String digits;
+        if (lower.endsWith("ms")) {
+            unit = 1;
+            digits = lower.substring(0, lower.length() - 2);
+        } else {
+            char suffix = lower.charAt(lower.length() - 1);
+            digits = lower.substring(0, lower.length() - 1);
+            switch (suffix) {
+                case 's': unit = 1000; break;
+                case 'm': unit = 60_000; break;
+                case 'h': unit = 3_600_000; break;
+                default: throw new IllegalArgumentException("Duration needs an ms, s, m or h suffix: " + text);
+            }
+        }
+        return Math.round(Double.parseDouble(digits) * unit);
+    }
+    
+    private static void expectWords(String spec, String[] words, int count) {
+        if (words.length != count) {
+            throw new IllegalArgumentException("Malformed trigger: " + spec);
+        }
+    }
+    
+    // The values of the `keyword value` pairs following the first argument, in the order
+    // of `keywords` and null where absent. Unknown, repeated or dangling keywords are errors.
+    private static String[] options(String spec, String[] words, String... keywords) {
+        String[] values = new String[keywords.length];
+        for (int i = 2; i < words.length; i += 2) {
+            int option = Arrays.asList(keywords).indexOf(words[i]);
+            if (option < 0) {
+                throw new IllegalArgumentException("Unknown option '" + words[i] + "' in trigger: " + spec);
+            }
+            if (i + 1 == words.length || values[option] != null) {
+                throw new IllegalArgumentException("Malformed trigger: " + spec);
+            }
+            values[option] = words[i + 1];
+        }
+        return values;
+    }
+    
+    private static int count(String text) {
+        if (text == null) return Integer.MAX_VALUE;
+        int count = Integer.parseInt(text);
+        if (count <= 0) throw new IllegalArgumentException("Count must be positive: " + text);
+        return count;
+    }
+    
+    final class Once implements EventTrigger {
+        private final long offset;
+        
+        Once(long offset) {
+            this.offset = offset;
+        }
+        
+        @Override
+        public long next(long nowMillis, long startMillis, int occurrence, Random random) {
+            return occurrence == 0 ? startMillis + offset : -1;
+        }
+    }
+    
+    // Matches wall-clock seconds, minutes and hours in the system time zone.
+    final class Cron implements EventTrigger {
+        private final BitSet seconds;
+        private final BitSet minutes;
+        private final BitSet hours;
+        private final ZoneId zone = ZoneId.systemDefault();
+        
+        Cron(String second, String minute, String hour) {
+            seconds = field(second, 60);
+            minutes = field(minute, 60);
+            hours = field(hour, 24);
+        }
+        
+        private static BitSet field(String text, int range) {
+            BitSet values = new BitSet(range);
+            for (String part : text.split(",")) {
+                int step = 1;
+                int slash = part.indexOf('/');
+                if (slash >= 0) {
+                    step = Integer.parseInt(part.substring(slash + 1));
+                    part = part.substring(0, slash);
+                }
+                int from;
+                int to;
+                if (part.equals("*")) {
+                    from = 0;
+                    to = range - 1;
+                } else if (part.contains("-")) {
+                    from = Integer.parseInt(part.substring(0, part.indexOf('-')));
+                    to = Integer.parseInt(part.substring(part.indexOf('-') + 1));
+                } else {
+                    from = Integer.parseInt(part);
+                    to = slash >= 0 ? range - 1 : from;
+                }
+                if (from < 0 || to >= range || from > to || step <= 0) {
+                    throw new IllegalArgumentException("Cron field out of range: " + text);
+                }
+                for (int value = from; value <= to; value += step) {
+                    values.set(value);
+                }
+            }
+            return values;
+        }
+        
+        @Override
+        public long next(long nowMillis, long startMillis, int occurrence, Random random) {
+            ZonedDateTime time = Instant.ofEpochMilli(nowMillis).atZone(zone)
+                    .truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+            // Every field has at least one value, so a match is at most a day away.
+            for (int day = 0; day < 2; day++) {
+                int hour0 = time.getHour();
+                int minute0 = time.getMinute();
+                int second0 = time.getSecond();
+                for (int hour = hours.nextSetBit(hour0); hour >= 0; hour = hours.nextSetBit(hour + 1)) {
+                    boolean firstHour = hour == hour0;
+                    for (int minute = minutes.nextSetBit(firstHour ? minute0 : 0); minute >= 0;
+                         minute = minutes.nextSetBit(minute + 1)) {
+                        int second = seconds.nextSetBit(firstHour && minute == minute0 ? second0 : 0);
+                        if (second >= 0) {
+                            return time.withHour(hour).withMinute(minute).withSecond(second).toInstant().toEpochMilli();
+                        }
+                    }
+                }
+                time = time.toLocalDate().plusDays(1).atStartOfDay(zone);
+            }
+            return -1;
+        }
+    }
+}
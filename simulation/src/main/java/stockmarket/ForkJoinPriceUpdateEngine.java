@@ -0,0 +1,81 @@
+package stockmarket;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ForkJoinPriceUpdateEngine implements PriceUpdateEngine {
+    private final ForkJoinPool pool;
+    private final long seed;
+    private final PriceModel model;
+    private final SerialPriceUpdateEngine serialFallback;
+    private final ThreadLocal<double[]> normals = ThreadLocal.withInitial(() -> new double[CHUNK_SIZE]);
+    private long tick = 0;
+    
+    public ForkJoinPriceUpdateEngine(ForkJoinPool pool, long seed) {
+        this(pool, seed, new GbmPriceModel());
+    }
+    
+    public ForkJoinPriceUpdateEngine(ForkJoinPool pool, long seed, PriceModel model) {
+        this.pool = pool;
+        this.seed = seed;
+        this.model = model;
+        this.serialFallback = new SerialPriceUpdateEngine(seed, model);
+    }
+    
+    @Override
+    public void update(StockStore stocks) {
+        int size = stocks.size();
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunks <= 1 || pool.getParallelism() <= 1) {
+            // Same chunking and seeds as the parallel path, so switching is invisible.
+            serialFallback.updateTick(stocks, tick);
+        } else {
+            model.beginTick(stocks, PriceUpdateEngine.chunkSeed(seed, tick, -1));
+            pool.invoke(new ChunkRange(stocks, size, tick, 0, chunks));
+        }
+        tick++;
+    }
+    
+    @Override
+    public PriceModel getModel() {
+        return model;
+    }
+    
+    @Override
+    public void shutdown() {
+        if (pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+    
+    private class ChunkRange extends RecursiveAction {
+        private final StockStore stocks;
+        private final int size;
+        private final long tick;
+        private final int firstChunk;
+        private final int lastChunk;
+        
+        ChunkRange(StockStore stocks, int size, long tick, int firstChunk, int lastChunk) {
+            this.stocks = stocks;
+            this.size = size;
+            this.tick = tick;
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+        }
+        
+        @Override
+        protected void compute() {
+            if (lastChunk - firstChunk <= 1) {
+                int from = firstChunk * CHUNK_SIZE;
+                int to = Math.min(size, from + CHUNK_SIZE);
+                PriceUpdateEngine.updateChunk(stocks, model, from, to,
+                                              PriceUpdateEngine.chunkRandom(seed, tick, firstChunk),
+                                              normals.get());
+                return;
+            }
+            int middle = (firstChunk + lastChunk) >>> 1;
+            invokeAll(new ChunkRange(stocks, size, tick, firstChunk, middle),
+                      new ChunkRange(stocks, size, tick, middle, lastChunk));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package stockmarket;
+
+import javax.swing.*;
+import javax.swing.table.TableCellRenderer;
+import java.awt.*;
+
+// Paints numeric cells straight from a reusable char buffer, so repainting the
+// visible rows does not build any Strings. It paints itself directly into the Graphics
+// the table hands over, skipping the per-cell Graphics copy JComponent.paint would make.
+public class FormattedCellRenderer extends JComponent implements TableCellRenderer {
+    public enum Kind { PRICE, VOLUME, PERCENT, TEXT }
+    
+    private final Kind kind;
+    private final char[] buffer = new char[PriceFormat.BUFFER_SIZE];
+    private int start = buffer.length;
+    private String text;
+    
+    public FormattedCellRenderer(Kind kind) {
+        this.kind = kind;
+        setOpaque(true);
+    }
+    
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                   boolean hasFocus, int row, int column) {
+        text = null;
+        if (kind == Kind.TEXT) {
+            text = value == null ? null : value.toString();
+        } else if (value instanceof Number) {
+            Number number = (Number) value;
+            switch (kind) {
+                case PRICE: start = PriceFormat.formatPrice(number.doubleValue(), buffer); break;
+                case PERCENT: start = PriceFormat.formatPercent(number.doubleValue(), 2, buffer); break;
+                default: start = PriceFormat.formatGrouped(number.longValue(), buffer);
+            }
+        } else {
+            start = buffer.length;
+        }
+        setFont(table.getFont());
+        setBackground(isSelected ? table.getSelectionBackground() : table.getBackground());
+        setForeground(isSelected ? table.getSelectionForeground() : table.getForeground());
+        return this;
+    }
+    
+    @Override
+    public void paint(Graphics g) {
+        paintComponent(g);
+    }
+    
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        int length = text != null ? text.length() : buffer.length - start;
+        if (length == 0) return;
+        
+        FontMetrics metrics = getFontMetrics(getFont());
+        int width = text != null ? metrics.stringWidth(text) : metrics.charsWidth(buffer, start, length);
+        int x = (getWidth() - width) / 2;
+        int y = (getHeight() - metrics.getHeight()) / 2 + metrics.getAscent();
+        g.setFont(getFont());
+        g.setColor(getForeground());
+        if (text != null) {
+            g.drawString(text, x, y);
+        } else {
+            g.drawChars(buffer, start, length, x, y);
+        }
+    }
+    
+    // Renderers are rubber stamps; skip the per-cell revalidation JComponent would do.
+    @Override
+    public void invalidate() {
+    }
+    
+    @Override
+    public void validate() {
+    }
+    
+    @Override
+    public void revalidate() {
+    }
+    
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+    }
+    
+    @Override
+    public void repaint(Rectangle r) {
+    }
+}
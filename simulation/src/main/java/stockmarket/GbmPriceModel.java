@@ -0,0 +1,27 @@
+package stockmarket;
+
+import java.util.SplittableRandom;
+
+// Geometric Brownian motion, stepped exactly in log space:
+// S' = S * exp(mu - sigma^2 / 2 + sigma * Z)
+public class GbmPriceModel implements PriceModel {
+    @Override
+    public String getName() {
+        return "gbm";
+    }
+    
+    @Override
+    public void advance(StockStore stocks, int from, int to, double[] normals, SplittableRandom random) {
+        long[] prices = stocks.prices();
+        int[] ticks = stocks.tickSizes();
+        double[] changes = stocks.changes();
+        double[] drifts = stocks.drifts();
+        double[] volatilities = stocks.volatilities();
+        for (int i = from, n = 0; i < to; i++, n++) {
+            double sigma = volatilities[i];
+            double change = Math.exp(drifts[i] - 0.5 * sigma * sigma + sigma * normals[n]) - 1;
+            prices[i] = PriceModel.move(prices[i], change, ticks[i]);
+            changes[i] = change;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package stockmarket;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+public class HeadlessMarket {
+    private static final long TRADING_DAY_SECONDS = 6 * 3600 + 30 * 60;
+    static final int MAX_DETAILED_SYMBOLS = 50;
+    // Seeded runs open at a fixed instant (Monday 2025-01-06 09:30 New York) so that
+    // calendar triggers and journal timestamps repeat too.
+    static final long SEEDED_ORIGIN_MILLIS = 1736173800000L;
+    
+    public static void main(String[] args) throws IOException {
+        int days = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        // A symbol count, or a universe file (CSV or UniverseSnapshot).
+        StockStore stocks = MarketEngine.stocksFor(args.length > 1 ? args[1] : "3");
+        MarketLog.setDetail(stocks.size() <= MAX_DETAILED_SYMBOLS ? MarketLog.Detail.PER_SYMBOL : MarketLog.Detail.PER_TICK);
+        
+        boolean seeded = args.length > 5;
+        long seed = seeded ? Long.parseLong(args[5]) : System.nanoTime();
+        VirtualTimeMarketScheduler scheduler = seeded
+                ? new VirtualTimeMarketScheduler(SEEDED_ORIGIN_MILLIS)
+                : new VirtualTimeMarketScheduler();
+        PriceModel model = PriceModel.named(args.length > 3 ? args[3] : "gbm");
+        // "-" skips the journal while still allowing a price model to be named after it.
+        Path journalDirectory = args.length > 2 && !args[2].equals("-") ? Paths.get(args[2]) : null;
+        TickJournal journal = null;
+        if (journalDirectory != null) {
+            // An earlier run's journal is kept unless -Dstockmarket.journal.overwrite=true.
+            try {
+                journal = new TickJournal(journalDirectory, TickJournal.DEFAULT_SEGMENT_BYTES,
+                                          Boolean.getBoolean("stockmarket.journal.overwrite"));
+            } catch (FileAlreadyExistsException e) {
+                System.err.println(e.getMessage() + "; choose another directory or run with -Dstockmarket.journal.overwrite=true");
+                System.exit(1);
+            }
+        }
+        MarketEngine engine = new MarketEngine(stocks, scheduler, PriceUpdateEngine.create(seed, model), seed);
+        if (journal != null) {
+            engine.setJournal(journal);
+        }
+        if (args.length > 4 && !args[4].equals("-")) {
+            engine.getEventTimer().setCalendar(EventCalendar.named(args[4], stocks));
+        }
+        
+        long started = System.nanoTime();
+        engine.getPriceTimer().start();
+        for (int day = 1; day <= days; day++) {
+            if (!engine.getEventTimer().isRunning()) {
+                engine.getEventTimer().start();
+            }
+            scheduler.advance(TRADING_DAY_SECONDS, TimeUnit.SECONDS);
+            MarketLog.info("Day " + day + " closed (epoch " + engine.getSnapshot().getEpoch() + ")");
+        }
+        engine.shutdown();
+        MarketLog.flush();
+        System.out.println(engine.getMetrics());
+        
+        System.out.printf("Simulated %d day(s) of %,d symbols with the %s model in %.2f s (seed %d)%n",
+                          days, stocks.size(), model.getName(), (System.nanoTime() - started) / 1e9, seed);
+        if (journalDirectory != null) {
+            TickJournalReader reader = new TickJournalReader(journalDirectory);
+            System.out.printf("Journalled %,d ticks to %s%n", reader.getRecordCount(), journalDirectory);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package stockmarket;
+
+import java.util.SplittableRandom;
+
+// Merton jump-diffusion: GBM plus, with probability lambda per tick, a normally
+// distributed jump in log price. Drift is compensated so jumps do not bias the mean.
+// Jumping symbols are found by geometric skips, so the random cost is per jump, not per symbol.
+public class JumpDiffusionPriceModel implements PriceModel {
+    public static final double DEFAULT_INTENSITY = 0.01;
+    public static final double DEFAULT_JUMP_MEAN = -0.02;
+    public static final double DEFAULT_JUMP_VOLATILITY = 0.06;
+    
+    private final double intensity;
+    private final double jumpMean;
+    private final double jumpVolatility;
+    private final double compensation;
+    private final double logNoJump;
+    
+    public JumpDiffusionPriceModel() {
+        this(DEFAULT_INTENSITY, DEFAULT_JUMP_MEAN, DEFAULT_JUMP_VOLATILITY);
+    }
+    
+    public JumpDiffusionPriceModel(double intensity, double jumpMean, double jumpVolatility) {
+        if (intensity <= 0 || intensity >= 1) {
+            throw new IllegalArgumentException("Jump intensity must be in (0, 1): " + intensity);
+        }
+        this.intensity = intensity;
+        this.jumpMean = jumpMean;
+        this.jumpVolatility = jumpVolatility;
+        this.compensation = intensity * (Math.exp(jumpMean + 0.5 * jumpVolatility * jumpVolatility) - 1);
+        this.logNoJump = Math.log1p(-intensity);
+    }
+    
+    @Override
+    public String getName() {
+        return "jump";
+    }
+    
+    @Override
+    public void advance(StockStore stocks, int from, int to, double[] normals, SplittableRandom random) {
+        long[] prices = stocks.prices();
+        int[] ticks = stocks.tickSizes();
+        double[] changes = stocks.changes();
+        double[] drifts = stocks.drifts();
+        double[] volatilities = stocks.volatilities();
+        
+        // Log returns are staged in changes and turned into relative moves at the end.
+        for (int i = from, n = 0; i < to; i++, n++) {
+            double sigma = volatilities[i];
+            changes[i] = drifts[i] - compensation - 0.5 * sigma * sigma + sigma * normals[n];
+        }
+        for (double next = from + skip(random); next < to; next += 1 + skip(random)) {
+            changes[(int) next] += jumpMean + jumpVolatility * PriceModel.gaussian(random);
+        }
+        for (int i = from; i < to; i++) {
+            double change = Math.exp(changes[i]) - 1;
+            prices[i] = PriceModel.move(prices[i], change, ticks[i]);
+            changes[i] = change;
+        }
+    }
+    
+    // Symbols without a jump before the next one that has one.
+    private double skip(SplittableRandom random) {
+        return Math.floor(Math.log(1 - random.nextDouble()) / logNoJump);
+    }
+    
+    public double getIntensity() {
+        return intensity;
+    }
+}
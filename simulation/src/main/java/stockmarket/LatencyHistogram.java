@@ -0,0 +1,145 @@
+package stockmarket;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Log-linear histogram of nanosecond durations in the style of HdrHistogram: every power
+// of two is split into SUB_BUCKETS linear buckets, so any recorded value is resolved to
+// within about 3% over the full range of a long with a fixed 15 KB table. Recording is a
+// leading-zero count and a few release stores (plain moves on x86, no locks, CAS or full
+// fences), so each histogram has one writer thread; readers on any thread take a copy
+// that may trail the writer by a record.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private static final VarHandle COUNT;
+    private static final VarHandle TOTAL_NANOS;
+    private static final VarHandle MAX_NANOS;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            COUNT = lookup.findVarHandle(LatencyHistogram.class, "count", long.class);
+            TOTAL_NANOS = lookup.findVarHandle(LatencyHistogram.class, "totalNanos", long.class);
+            MAX_NANOS = lookup.findVarHandle(LatencyHistogram.class, "maxNanos", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private long count = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Writer side: negative values (a clock stepping backwards) count as zero.
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int index = indexOf(value);
+        counts.lazySet(index, counts.get(index) + 1);
+        TOTAL_NANOS.setRelease(this, totalNanos + value);
+        if (value > maxNanos) {
+            MAX_NANOS.setRelease(this, value);
+        }
+        COUNT.setRelease(this, count + 1);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    // Highest value that lands in the bucket, so quantiles never understate a latency.
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        long lowest = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    public long getCount() {
+        return (long) COUNT.getAcquire(this);
+    }
+
+    public long getMaxNanos() {
+        return (long) MAX_NANOS.getAcquire(this);
+    }
+
+    public long getMeanNanos() {
+        long recorded = getCount();
+        return recorded == 0 ? 0 : getTotalNanos() / recorded;
+    }
+
+    public long getTotalNanos() {
+        return (long) TOTAL_NANOS.getAcquire(this);
+    }
+
+    public long getPercentileNanos(double percentile) {
+        return snapshot().percentileNanos(percentile);
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, getMaxNanos());
+    }
+
+    @Override
+    public String toString() {
+        Snapshot snapshot = snapshot();
+        return String.format("%s: %,d samples, p50 %.3f ms / p99 %.3f ms / p99.9 %.3f ms / max %.3f ms",
+                             name, snapshot.getCount(), snapshot.percentileNanos(50) / 1e6,
+                             snapshot.percentileNanos(99) / 1e6, snapshot.percentileNanos(99.9) / 1e6,
+                             getMaxNanos() / 1e6);
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long maxNanos;
+
+        Snapshot(long[] counts, long count, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long percentileNanos(double percentile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+}
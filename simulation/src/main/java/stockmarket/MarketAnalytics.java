@@ -0,0 +1,263 @@
+package stockmarket;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Streaming per-symbol statistics fed by the engine on the market thread: session VWAP
+// from order book fills, EWMA volatility of log returns, and 1s / 1m OHLC bars that also
+// answer rolling high/low queries. Every update is O(1) on preallocated primitive
+// columns. Readers on other threads go through a sequence lock and retry if they
+// overlap a write, so a query never mixes two updates.
+//
+// Bars cost 40 bytes per symbol per slot at each resolution, so a large universe should
+// size them to the queries it makes; a capacity of 0 leaves that resolution out.
+//
+// Each update also sets the symbol's bit in a shared bitset that a display takes with
+// drainUpdated, so it can repaint the rows whose statistics moved even where the price
+// and volume did not. Bits are set a word at a time, one atomic per 64 symbols at most.
+public class MarketAnalytics {
+    public static final int SECOND_BARS = 0;
+    public static final int MINUTE_BARS = 1;
+    public static final double DEFAULT_DECAY = 0.94;
+    public static final int DEFAULT_SECOND_BAR_CAPACITY = 60;
+    public static final int DEFAULT_MINUTE_BAR_CAPACITY = 60;
+    
+    private final int symbolCount;
+    private final double decay;
+    private final double[] lastPrices;
+    private final double[] variances;
+    private final long[] returnCounts;
+    private final double[] notionals;
+    private final long[] tradedQuantities;
+    private final BarSeries[] bars;
+    private final AtomicLongArray updated;
+    private volatile long sequence = 0;
+    
+    public MarketAnalytics(int symbolCount) {
+        this(symbolCount, DEFAULT_DECAY, DEFAULT_SECOND_BAR_CAPACITY, DEFAULT_MINUTE_BAR_CAPACITY);
+    }
+    
+    public MarketAnalytics(int symbolCount, double decay, int secondBarCapacity, int minuteBarCapacity) {
+        if (decay <= 0 || decay >= 1) {
+            throw new IllegalArgumentException("EWMA decay must be in (0, 1): " + decay);
+        }
+        this.symbolCount = symbolCount;
+        this.decay = decay;
+        lastPrices = new double[symbolCount];
+        variances = new double[symbolCount];
+        returnCounts = new long[symbolCount];
+        notionals = new double[symbolCount];
+        tradedQuantities = new long[symbolCount];
+        updated = new AtomicLongArray(ChangeLog.words(symbolCount));
+        bars = new BarSeries[] {
+            new BarSeries(symbolCount, 1000, secondBarCapacity),
+            new BarSeries(symbolCount, 60_000, minuteBarCapacity)
+        };
+    }
+    
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+    
+    // Writer side, market thread only. Symbols listed after construction are not tracked.
+    
+    void onPrices(long timeMillis, StockStore stocks, boolean allChanged) {
+        long[] prices = stocks.prices();
+        int count = Math.min(symbolCount, stocks.size());
+        beginWrite();
+        long bits = 0;
+        for (int i = 0; i < count; i++) {
+            // Volume-only updates and untouched symbols are not zero returns.
+            double price = Cents.toPrice(prices[i]);
+            if (allChanged || price != lastPrices[i]) {
+                updatePrice(i, timeMillis, price);
+                bits |= 1L << i;
+            }
+            if ((i & 63) == 63) {
+                markUpdated(i >>> 6, bits);
+                bits = 0;
+            }
+        }
+        if (count > 0) {
+            markUpdated((count - 1) >>> 6, bits);
+        }
+        endWrite();
+    }
+    
+    // As onPrices for the symbols set in 'changed' (see ChangeLog), in one write section.
+    void onPrices(long timeMillis, StockStore stocks, long[] changed) {
+        if (changed == null) {
+            onPrices(timeMillis, stocks, false);
+            return;
+        }
+        long[] prices = stocks.prices();
+        beginWrite();
+        int word = 0;
+        long bits = 0;
+        for (int i = ChangeLog.next(changed, 0); i >= 0 && i < symbolCount; i = ChangeLog.next(changed, i + 1)) {
+            double price = Cents.toPrice(prices[i]);
+            if (price != lastPrices[i]) {
+                updatePrice(i, timeMillis, price);
+                if (i >>> 6 != word) {
+                    markUpdated(word, bits);
+                    word = i >>> 6;
+                    bits = 0;
+                }
+                bits |= 1L << i;
+            }
+        }
+        markUpdated(word, bits);
+        endWrite();
+    }
+    
+    void onFill(int symbol, double price, long quantity) {
+        if (symbol >= symbolCount) return;
+        beginWrite();
+        notionals[symbol] += price * quantity;
+        tradedQuantities[symbol] += quantity;
+        markUpdated(symbol >>> 6, 1L << symbol);
+        endWrite();
+    }
+    
+    private void markUpdated(int word, long bits) {
+        if ((updated.get(word) & bits) != bits) {
+            updated.getAndAccumulate(word, bits, (set, added) -> set | added);
+        }
+    }
+    
+    private void updatePrice(int symbol, long timeMillis, double price) {
+        double last = lastPrices[symbol];
+        if (last > 0) {
+            double logReturn = Math.log(price / last);
+            variances[symbol] = returnCounts[symbol] == 0
+                    ? logReturn * logReturn
+                    : decay * variances[symbol] + (1 - decay) * logReturn * logReturn;
+            returnCounts[symbol]++;
+        }
+        lastPrices[symbol] = price;
+        bars[SECOND_BARS].update(symbol, timeMillis, price);
+        bars[MINUTE_BARS].update(symbol, timeMillis, price);
+    }
+    
+    private void beginWrite() {
+        sequence = sequence + 1;
+        VarHandle.storeStoreFence();
+    }
+    
+    private void endWrite() {
+        sequence = sequence + 1;
+    }
+    
+    // Reader side, any thread.
+    
+    private long beginRead() {
+        long observed;
+        while (((observed = sequence) & 1) != 0) {
+            Thread.onSpinWait();
+        }
+        return observed;
+    }
+    
+    private boolean validate(long observed) {
+        VarHandle.loadLoadFence();
+        return sequence == observed;
+    }
+    
+    // ORs into 'into' (see ChangeLog) the symbols updated since the last call and forgets
+    // them. Meant for a single consumer, such as the GUI table.
+    public void drainUpdated(long[] into) {
+        int words = Math.min(into.length, updated.length());
+        for (int w = 0; w < words; w++) {
+            if (updated.get(w) != 0) {
+                into[w] |= updated.getAndSet(w, 0);
+            }
+        }
+    }
+    
+    public double getLastPrice(int symbol) {
+        double value;
+        long observed;
+        do {
+            observed = beginRead();
+            value = lastPrices[symbol];
+        } while (!validate(observed));
+        return value;
+    }
+    
+    // NaN until the symbol has traded.
+    public double getVwap(int symbol) {
+        double notional;
+        long quantity;
+        long observed;
+        do {
+            observed = beginRead();
+            notional = notionals[symbol];
+            quantity = tradedQuantities[symbol];
+        } while (!validate(observed));
+        return quantity == 0 ? Double.NaN : notional / quantity;
+    }
+    
+    public long getTradedQuantity(int symbol) {
+        long value;
+        long observed;
+        do {
+            observed = beginRead();
+            value = tradedQuantities[symbol];
+        } while (!validate(observed));
+        return value;
+    }
+    
+    // Standard deviation of log returns per price update; NaN before the first return.
+    public double getVolatility(int symbol) {
+        double variance;
+        long returns;
+        long observed;
+        do {
+            observed = beginRead();
+            variance = variances[symbol];
+            returns = returnCounts[symbol];
+        } while (!validate(observed));
+        return returns == 0 ? Double.NaN : Math.sqrt(variance);
+    }
+    
+    public double getRollingHigh(int symbol, int resolution, int periods) {
+        double value;
+        long observed;
+        do {
+            observed = beginRead();
+            value = bars[resolution].high(symbol, periods);
+        } while (!validate(observed));
+        return value;
+    }
+    
+    public double getRollingLow(int symbol, int resolution, int periods) {
+        double value;
+        long observed;
+        do {
+            observed = beginRead();
+            value = bars[resolution].low(symbol, periods);
+        } while (!validate(observed));
+        return value;
+    }
+    
+    public int getBarCapacity(int resolution) {
+        return bars[resolution].getCapacity();
+    }
+    
+    public long getBarPeriodMillis(int resolution) {
+        return bars[resolution].getPeriodMillis();
+    }
+    
+    // Copies the symbol's bars oldest first; each array needs getBarCapacity(resolution)
+    // entries. Returns the number of bars copied.
+    public int copyBars(int symbol, int resolution, long[] starts, double[] opens, double[] highs,
+                        double[] lows, double[] closes) {
+        int count;
+        long observed;
+        do {
+            observed = beginRead();
+            count = bars[resolution].copy(symbol, starts, opens, highs, lows, closes);
+        } while (!validate(observed));
+        return count;
+    }
+}
@@ -0,0 +1,120 @@
+package stockmarket;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Periodically saves the engine's universe as a UniverseSnapshot so a restart can resume
+// from it. The market thread only copies the columns into a reused capture; the file is
+// written on a daemon thread of its own. While a write is still in flight further
+// checkpoints are skipped rather than queued, so a slow disk never backs up the market.
+public class MarketCheckpointer {
+    public static final long DEFAULT_PERIOD_SECONDS = 30;
+
+    private final MarketEngine engine;
+    private final Path file;
+    private final long periodSeconds;
+    private final UniverseSnapshot capture = new UniverseSnapshot();
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private final ExecutorService writer;
+    private MarketClock clock;
+    private volatile long checkpoints = 0;
+    private volatile long skipped = 0;
+    private volatile long lastCheckpointMillis = 0;
+
+    public MarketCheckpointer(MarketEngine engine, Path file) {
+        this(engine, file, DEFAULT_PERIOD_SECONDS);
+    }
+
+    public MarketCheckpointer(MarketEngine engine, Path file, long periodSeconds) {
+        if (periodSeconds <= 0) {
+            throw new IllegalArgumentException("Checkpoint period must be positive: " + periodSeconds);
+        }
+        this.engine = engine;
+        this.file = file;
+        this.periodSeconds = periodSeconds;
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public synchronized void start() {
+        if (clock != null) {
+            MarketLog.warn("MarketCheckpointer already running - stop it first");
+            return;
+        }
+        clock = engine.getScheduler().scheduleAtFixedRate("Checkpoint", periodSeconds, periodSeconds, TimeUnit.SECONDS,
+                                                          MarketScheduler.OverrunPolicy.SKIP, this::checkpoint);
+        MarketLog.info("Checkpointing to " + file + " every " + periodSeconds + " s");
+    }
+
+    public synchronized void stop() {
+        if (clock != null) {
+            clock.cancel();
+            clock = null;
+        }
+    }
+
+    // Market thread.
+    void checkpoint() {
+        if (!writing.compareAndSet(false, true)) {
+            skipped++;
+            return;
+        }
+        capture.capture(engine.getStocks(), engine.getScheduler().currentTimeMillis());
+        writer.execute(this::write);
+    }
+
+    private void write() {
+        try {
+            long started = System.nanoTime();
+            capture.write(file);
+            checkpoints++;
+            lastCheckpointMillis = capture.getSavedAtMillis();
+            MarketLog.debug(String.format("Checkpointed %,d symbols to %s in %.1f ms", capture.size(), file,
+                                          (System.nanoTime() - started) / 1e6));
+        } catch (IOException e) {
+            MarketLog.error("Checkpoint to " + file + " failed: " + e);
+        } finally {
+            writing.set(false);
+        }
+    }
+
+    // Stops checkpointing and writes one last snapshot from the calling thread. Call it
+    // once the engine has shut down, so nothing is changing the store underneath.
+    public void close() throws IOException {
+        stop();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        capture.capture(engine.getStocks(), engine.getScheduler().currentTimeMillis());
+        capture.write(file);
+        checkpoints++;
+        lastCheckpointMillis = capture.getSavedAtMillis();
+        MarketLog.info("Saved " + capture.size() + " symbols to " + file);
+    }
+
+    public long getCheckpoints() {
+        return checkpoints;
+    }
+
+    public long getSkippedCheckpoints() {
+        return skipped;
+    }
+
+    public long getLastCheckpointMillis() {
+        return lastCheckpointMillis;
+    }
+}
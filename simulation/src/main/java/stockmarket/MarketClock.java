@@ -0,0 +1,130 @@
+package stockmarket;
+
+import java.util.concurrent.Future;
+
+public class MarketClock {
+    private final MarketScheduler scheduler;
+    private final String name;
+    private final long periodNanos;
+    private final MarketScheduler.OverrunPolicy policy;
+    private final Runnable task;
+    
+    private volatile boolean cancelled = false;
+    private volatile Future<?> future;
+    private volatile long deadline;
+    
+    private volatile long ticks = 0;
+    private volatile long skippedTicks = 0;
+    private volatile long lastDriftNanos = 0;
+    private volatile long maxDriftNanos = 0;
+    private long totalDriftNanos = 0;
+    
+    MarketClock(MarketScheduler scheduler, String name, long periodNanos,
+                MarketScheduler.OverrunPolicy policy, Runnable task, long deadline) {
+        this.scheduler = scheduler;
+        this.name = name;
+        this.periodNanos = periodNanos;
+        this.policy = policy;
+        this.task = task;
+        this.deadline = deadline;
+    }
+    
+    void fire() {
+        if (cancelled) return;
+        
+        long drift = scheduler.nanoTime() - deadline;
+        lastDriftNanos = drift;
+        totalDriftNanos += drift;
+        if (drift > maxDriftNanos) {
+            maxDriftNanos = drift;
+        }
+        scheduler.getLagHistogram().record(drift);
+        ticks++;
+        
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            MarketLog.error("MarketClock " + name + " task failed", e);
+        }
+        
+        if (periodNanos == 0) {
+            cancelled = true;
+            return;
+        }
+        if (cancelled) return;
+        
+        deadline += periodNanos;
+        long now = scheduler.nanoTime();
+        if (policy == MarketScheduler.OverrunPolicy.SKIP && deadline < now) {
+            long missed = (now - deadline) / periodNanos + 1;
+            deadline += missed * periodNanos;
+            skippedTicks += missed;
+        }
+        scheduler.arm(this);
+    }
+    
+    void setFuture(Future<?> future) {
+        this.future = future;
+        if (cancelled) {
+            future.cancel(false);
+        }
+    }
+    
+    Future<?> getFuture() {
+        return future;
+    }
+    
+    long getDeadline() {
+        return deadline;
+    }
+    
+    public void cancel() {
+        cancelled = true;
+        scheduler.disarm(this);
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+    
+    public long getNanosToNextTick() {
+        if (cancelled) return 0;
+        return Math.max(0, deadline - scheduler.nanoTime());
+    }
+    
+    public long getTicks() {
+        return ticks;
+    }
+    
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+    
+    public long getLastDriftNanos() {
+        return lastDriftNanos;
+    }
+    
+    public long getMaxDriftNanos() {
+        return maxDriftNanos;
+    }
+    
+    public long getMeanDriftNanos() {
+        long count = ticks;
+        return count == 0 ? 0 : totalDriftNanos / count;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s: %d ticks, %d skipped, drift last %.3f ms / mean %.3f ms / max %.3f ms",
+                             name, ticks, skippedTicks, lastDriftNanos / 1e6,
+                             getMeanDriftNanos() / 1e6, maxDriftNanos / 1e6);
+    }
+}
@@ -0,0 +1,72 @@
+package stockmarket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+// Blocking subscriber for the market data feed, for consumers in other processes.
+//   java -cp stock-market-simulation.jar stockmarket.MarketDataClient [host] [port]
+public class MarketDataClient implements Closeable {
+    private final SocketChannel channel;
+    private final MarketDataDecoder decoder = new MarketDataDecoder();
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    
+    public MarketDataClient(InetSocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        channel.socket().setTcpNoDelay(true);
+    }
+    
+    // Blocks until at least one frame has been applied; returns how many were.
+    public int poll() throws IOException {
+        while (true) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Feed closed the connection");
+            }
+            buffer.flip();
+            int frames = decoder.decode(buffer);
+            if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+                // One frame bigger than the buffer: grow and keep reading.
+                ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                larger.put(buffer);
+                buffer = larger;
+            } else {
+                buffer.compact();
+            }
+            if (frames > 0) return frames;
+        }
+    }
+    
+    public MarketDataDecoder getMarket() {
+        return decoder;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : StockMarketApplication.DEFAULT_FEED_PORT;
+        try (MarketDataClient client = new MarketDataClient(new InetSocketAddress(host, port))) {
+            MarketDataDecoder market = client.getMarket();
+            StringBuilder line = new StringBuilder(256);
+            char[] number = new char[PriceFormat.BUFFER_SIZE];
+            while (true) {
+                client.poll();
+                line.setLength(0);
+                line.append("Epoch ").append(market.getEpoch()).append(':');
+                for (int i = 0; i < Math.min(market.size(), 5); i++) {
+                    line.append(' ').append(market.getSymbol(i)).append(' ');
+                    int start = PriceFormat.formatPrice(market.getPrice(i), number);
+                    line.append(number, start, number.length - start).append(" (");
+                    start = PriceFormat.formatGrouped(market.getVolume(i), number);
+                    line.append(number, start, number.length - start).append(')');
+                }
+                System.out.println(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package stockmarket;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Client side of the feed: applies snapshot and delta frames to a local copy of the
+// market. Single-threaded, like the connection it reads from.
+public class MarketDataDecoder {
+    private long epoch = -1;
+    private int size = 0;
+    private String[] symbols = new String[0];
+    private long[] priceCents = new long[0];
+    private long[] volumes = new long[0];
+    private long snapshots = 0;
+    private long deltas = 0;
+    
+    // Decodes every complete frame between position and limit and leaves position at
+    // the start of the first incomplete one. Returns the number of frames applied.
+    public int decode(ByteBuffer in) {
+        int frames = 0;
+        while (in.remaining() >= 4) {
+            int length = in.getInt(in.position());
+            if (length < 1) {
+                throw new IllegalStateException("Corrupt frame length " + length);
+            }
+            if (in.remaining() < 4 + length) break;
+            int end = in.position() + 4 + length;
+            in.position(in.position() + 4);
+            byte type = in.get();
+            switch (type) {
+                case MarketDataProtocol.SNAPSHOT: applySnapshot(in); break;
+                case MarketDataProtocol.DELTA: applyDelta(in); break;
+                default: throw new IllegalStateException("Unknown frame type " + type);
+            }
+            if (in.position() != end) {
+                throw new IllegalStateException("Frame of type " + type + " did not end at its length");
+            }
+            frames++;
+        }
+        return frames;
+    }
+    
+    private void applySnapshot(ByteBuffer in) {
+        epoch = in.getLong();
+        size = (int) MarketDataProtocol.getVarint(in);
+        if (symbols.length < size) {
+            symbols = Arrays.copyOf(symbols, size);
+            priceCents = Arrays.copyOf(priceCents, size);
+            volumes = Arrays.copyOf(volumes, size);
+        }
+        byte[] symbol = new byte[MarketDataProtocol.MAX_SYMBOL_LENGTH];
+        for (int i = 0; i < size; i++) {
+            int length = in.get() & 0xFF;
+            in.get(symbol, 0, length);
+            symbols[i] = new String(symbol, 0, length, StandardCharsets.UTF_8);
+            priceCents[i] = MarketDataProtocol.getVarint(in);
+            volumes[i] = MarketDataProtocol.getVarint(in);
+        }
+        snapshots++;
+    }
+    
+    private void applyDelta(ByteBuffer in) {
+        if (epoch < 0) {
+            throw new IllegalStateException("Delta before the first snapshot");
+        }
+        epoch = in.getLong();
+        int changed = in.getInt();
+        int id = -1;
+        for (int i = 0; i < changed; i++) {
+            id += (int) MarketDataProtocol.getVarint(in) + 1;
+            priceCents[id] += MarketDataProtocol.unzigzag(MarketDataProtocol.getVarint(in));
+            volumes[id] += MarketDataProtocol.unzigzag(MarketDataProtocol.getVarint(in));
+        }
+        deltas++;
+    }
+    
+    public long getEpoch() {
+        return epoch;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public String getSymbol(int id) {
+        return symbols[id];
+    }
+    
+    public long getPriceCents(int id) {
+        return priceCents[id];
+    }
+    
+    public double getPrice(int id) {
+        return Cents.toPrice(priceCents[id]);
+    }
+    
+    public long getVolume(int id) {
+        return volumes[id];
+    }
+    
+    public long getSnapshotCount() {
+        return snapshots;
+    }
+    
+    public long getDeltaCount() {
+        return deltas;
+    }
+}
@@ -0,0 +1,146 @@
+package stockmarket;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Wire format of the market data feed. Every frame is [int length][byte type][payload],
+// big-endian, where length counts the type byte and payload. Prices travel as cents.
+//   SNAPSHOT: long epoch, varint count, then per symbol:
+//             byte length + UTF-8 symbol, varint price, varint volume
+//   DELTA:    long epoch, int changed, then per changed symbol in id order:
+//             varint gap since the previous id, zigzag price delta, zigzag volume delta
+// A delta is relative to the last frame the same client received, whatever its epoch.
+public final class MarketDataProtocol {
+    public static final byte SNAPSHOT = 1;
+    public static final byte DELTA = 2;
+    public static final int HEADER_SIZE = 5;
+    public static final int MAX_SYMBOL_LENGTH = 255;
+    
+    private static final int MAX_VARINT_SIZE = 10;
+    
+    private MarketDataProtocol() {
+    }
+    
+    static int maxSnapshotSize(MarketSnapshot snapshot) {
+        int size = HEADER_SIZE + 8 + MAX_VARINT_SIZE + snapshot.size() * (1 + 2 * MAX_VARINT_SIZE);
+        for (int i = 0; i < snapshot.size(); i++) {
+            size += encodedLength(snapshot.getSymbol(i));
+        }
+        return size;
+    }
+    
+    static int maxDeltaSize(MarketSnapshot snapshot) {
+        return HEADER_SIZE + 8 + 4 + snapshot.size() * 3 * MAX_VARINT_SIZE;
+    }
+    
+    static void encodeSnapshot(MarketSnapshot snapshot, ByteBuffer out) {
+        int start = beginFrame(out, SNAPSHOT);
+        out.putLong(snapshot.getEpoch());
+        putVarint(out, snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            byte[] symbol = snapshot.getSymbol(i).getBytes(StandardCharsets.UTF_8);
+            if (symbol.length > MAX_SYMBOL_LENGTH) {
+                throw new IllegalArgumentException("Symbol too long for the feed: " + snapshot.getSymbol(i));
+            }
+            out.put((byte) symbol.length);
+            out.put(symbol);
+            putVarint(out, snapshot.getPriceCents(i));
+            putVarint(out, snapshot.getVolume(i));
+        }
+        endFrame(out, start);
+    }
+    
+    // Returns false, writing nothing, when the two snapshots carry the same values. Both
+    // must have the same size. Columns the snapshots share are skipped without comparing.
+    static boolean encodeDelta(MarketSnapshot base, MarketSnapshot next, ByteBuffer out) {
+        boolean samePrices = base.pricePages() == next.pricePages();
+        boolean sameVolumes = base.volumePages() == next.volumePages();
+        if (samePrices && sameVolumes) return false;
+        
+        int start = beginFrame(out, DELTA);
+        out.putLong(next.getEpoch());
+        int countPosition = out.position();
+        out.putInt(0);
+        // Only symbols written since the base are visited when the snapshots still know
+        // which those were; otherwise every symbol is, except on pages the two share.
+        long[] written = next.changedSince(base);
+        int size = next.size();
+        int changed = 0;
+        int previous = -1;
+        for (int i = ChangeLog.next(written, 0, size); i >= 0; i = ChangeLog.next(written, i + 1, size)) {
+            if (written == null && (i & MarketSnapshot.PAGE_MASK) == 0 && next.sharesPage(base, i >>> MarketSnapshot.PAGE_SHIFT)) {
+                i += MarketSnapshot.PAGE_MASK;
+                continue;
+            }
+            long priceDelta = samePrices ? 0 : next.getPriceCents(i) - base.getPriceCents(i);
+            long volumeDelta = sameVolumes ? 0 : (long) next.getVolume(i) - base.getVolume(i);
+            if (priceDelta == 0 && volumeDelta == 0) continue;
+            putVarint(out, i - previous - 1);
+            putVarint(out, zigzag(priceDelta));
+            putVarint(out, zigzag(volumeDelta));
+            previous = i;
+            changed++;
+        }
+        if (changed == 0) {
+            out.position(start);
+            return false;
+        }
+        out.putInt(countPosition, changed);
+        endFrame(out, start);
+        return true;
+    }
+    
+    // UTF-8 length of a symbol without encoding it: one byte below 0x80, two below 0x800,
+    // four for a surrogate pair and three otherwise.
+    static int encodedLength(String symbol) {
+        int length = symbol.length();
+        for (int i = 0; i < symbol.length(); i++) {
+            char c = symbol.charAt(i);
+            if (c >= 0x800) {
+                length += Character.isSurrogate(c) ? 1 : 2;
+            } else if (c >= 0x80) {
+                length++;
+            }
+        }
+        return length;
+    }
+    
+    static int beginFrame(ByteBuffer out, byte type) {
+        int start = out.position();
+        out.putInt(0);
+        out.put(type);
+        return start;
+    }
+    
+    static void endFrame(ByteBuffer out, int start) {
+        out.putInt(start, out.position() - start - 4);
+    }
+    
+    static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+    
+    static long getVarint(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+    
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,259 @@
+package stockmarket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Streams market snapshots to any number of TCP subscribers from one NIO selector thread.
+// A new subscriber first gets a full SNAPSHOT frame, then DELTA frames against whatever it
+// last received. A client only ever has one frame in flight: while a slow client is still
+// draining, newer snapshots are not queued for it, and its next delta spans every epoch
+// it missed (conflation). Frames are encoded once per (base epoch, latest epoch) and the
+// same bytes are shared by every client at that base.
+public class MarketDataServer implements MarketListener, Closeable {
+    private static final int SCRATCH_BYTES = 1 << 16;
+    
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final Thread ioThread;
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+    private volatile MarketSnapshot latest;
+    private volatile boolean running = false;
+    
+    // I/O thread only.
+    private final List<Client> clients = new ArrayList<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(1024);
+    private final Map<MarketSnapshot, ByteBuffer> deltaFrames = new IdentityHashMap<>();
+    private MarketSnapshot framesFor;
+    private ByteBuffer snapshotFrame;
+    private ByteBuffer scratch = ByteBuffer.allocate(SCRATCH_BYTES);
+    private int disconnected = 0;
+    
+    private volatile int clientCount = 0;
+    private volatile long framesSent = 0;
+    private volatile long bytesSent = 0;
+    private volatile long conflatedEpochs = 0;
+    
+    public MarketDataServer(InetSocketAddress address, MarketSnapshot initial) throws IOException {
+        latest = initial;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        ioThread = new Thread(this::run, "MarketDataServer");
+        ioThread.setDaemon(true);
+    }
+    
+    public void start() {
+        running = true;
+        ioThread.start();
+        MarketLog.info("Market data feed listening on port " + getPort());
+    }
+    
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+    
+    @Override
+    public void onStocksUpdated(MarketSnapshot snapshot) {
+        latest = snapshot;
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+    
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                wakeupPending.set(false);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Client client = (Client) key.attachment();
+                    if (key.isReadable()) {
+                        read(client);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        write(client);
+                    }
+                }
+                publish();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (running) {
+                MarketLog.error("Market data feed stopped: " + e);
+            }
+        }
+    }
+    
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Client client = new Client(channel);
+            client.key = channel.register(selector, SelectionKey.OP_READ, client);
+            clients.add(client);
+            clientCount = clients.size();
+        }
+    }
+    
+    // Subscribers have nothing to say; reading only notices when they hang up.
+    private void read(Client client) {
+        try {
+            readBuffer.clear();
+            if (client.channel.read(readBuffer) < 0) {
+                disconnect(client);
+            }
+        } catch (IOException e) {
+            disconnect(client);
+        }
+    }
+    
+    private void publish() {
+        MarketSnapshot current = latest;
+        if (current != framesFor) {
+            framesFor = current;
+            snapshotFrame = null;
+            deltaFrames.clear();
+        }
+        for (int i = 0; i < clients.size(); i++) {
+            Client client = clients.get(i);
+            if (client.output != null || client.sent == current) continue;
+            ByteBuffer frame = frameFor(client.sent, current);
+            if (client.sent != null && client.sent.getEpoch() < current.getEpoch() - 1) {
+                conflatedEpochs += current.getEpoch() - client.sent.getEpoch() - 1;
+            }
+            client.sent = current;
+            if (frame == null) continue;
+            client.output = frame.duplicate();
+            write(client);
+        }
+        if (disconnected > 0) {
+            clients.removeIf(client -> !client.channel.isOpen());
+            clientCount = clients.size();
+            disconnected = 0;
+        }
+    }
+    
+    private ByteBuffer frameFor(MarketSnapshot base, MarketSnapshot current) {
+        if (base == null || base.size() != current.size()) {
+            if (snapshotFrame == null) {
+                ByteBuffer out = scratch(MarketDataProtocol.maxSnapshotSize(current));
+                MarketDataProtocol.encodeSnapshot(current, out);
+                snapshotFrame = seal(out);
+            }
+            return snapshotFrame;
+        }
+        if (deltaFrames.containsKey(base)) {
+            return deltaFrames.get(base);
+        }
+        ByteBuffer out = scratch(MarketDataProtocol.maxDeltaSize(current));
+        ByteBuffer frame = MarketDataProtocol.encodeDelta(base, current, out) ? seal(out) : null;
+        deltaFrames.put(base, frame);
+        return frame;
+    }
+    
+    private ByteBuffer scratch(int capacity) {
+        if (scratch.capacity() < capacity) {
+            scratch = ByteBuffer.allocate(capacity);
+        }
+        scratch.clear();
+        return scratch;
+    }
+    
+    // Frames live in direct memory so socket writes do not copy them again.
+    private static ByteBuffer seal(ByteBuffer encoded) {
+        encoded.flip();
+        ByteBuffer frame = ByteBuffer.allocateDirect(encoded.remaining());
+        frame.put(encoded).flip();
+        return frame.asReadOnlyBuffer();
+    }
+    
+    private void write(Client client) {
+        ByteBuffer output = client.output;
+        if (output == null) {
+            client.key.interestOps(SelectionKey.OP_READ);
+            return;
+        }
+        try {
+            bytesSent += client.channel.write(output);
+        } catch (IOException e) {
+            disconnect(client);
+            return;
+        }
+        if (output.hasRemaining()) {
+            client.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } else {
+            client.output = null;
+            framesSent++;
+            client.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+    
+    // Removal from the client list waits for the end of the publish pass.
+    private void disconnect(Client client) {
+        disconnected++;
+        client.key.cancel();
+        client.output = null;
+        try {
+            client.channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+    
+    public int getClientCount() {
+        return clientCount;
+    }
+    
+    public long getFramesSent() {
+        return framesSent;
+    }
+    
+    public long getBytesSent() {
+        return bytesSent;
+    }
+    
+    public long getConflatedEpochs() {
+        return conflatedEpochs;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            ioThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Client client : clients) {
+            client.channel.close();
+        }
+        serverChannel.close();
+        selector.close();
+    }
+    
+    private static final class Client {
+        final SocketChannel channel;
+        SelectionKey key;
+        MarketSnapshot sent;
+        ByteBuffer output;
+        
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package stockmarket;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class MarketEngine {
+    private final StockStore stocks;
+    private final MarketScheduler scheduler;
+    private final PriceFluctuationTimer priceFluctuationTimer;
+    private final MarketEventTimer marketEventTimer;
+    private final TradingVolumeTimer tradingVolumeTimer;
+    private final MatchingEngine matchingEngine;
+    private final MarketMetrics metrics;
+    private final List<MarketListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile TickJournal journal;
+    private volatile MarketAnalytics analytics;
+    private volatile TickHistory history;
+    
+    // Separate random streams derived from one engine seed.
+    static final int EVENT_STREAM = 1;
+    static final int TRADE_STREAM = 2;
+    static final int TRADER_STREAM = 3;
+    static final int BROADCAST_STREAM = 4;
+    
+    public MarketEngine(StockStore stocks, MarketScheduler scheduler) {
+        this(stocks, scheduler, System.nanoTime());
+    }
+    
+    public MarketEngine(StockStore stocks, MarketScheduler scheduler, long seed) {
+        this(stocks, scheduler, PriceUpdateEngine.create(seed), seed);
+    }
+    
+    public MarketEngine(StockStore stocks, MarketScheduler scheduler, PriceUpdateEngine priceEngine) {
+        this(stocks, scheduler, priceEngine, System.nanoTime());
+    }
+    
+    // With a seeded price engine and a virtual-time scheduler from a fixed origin, the
+    // seed makes a run reproducible: events, trade splits and fills all draw from streams
+    // derived from it.
+    public MarketEngine(StockStore stocks, MarketScheduler scheduler, PriceUpdateEngine priceEngine, long seed) {
+        this.stocks = stocks;
+        this.scheduler = scheduler;
+        stocks.publish();
+        // Virtual time runs everything on the caller's thread, so match inline there too.
+        matchingEngine = scheduler instanceof VirtualTimeMarketScheduler
+                ? new MatchingEngine(stocks.size(), 0)
+                : MatchingEngine.create(stocks.size());
+        priceFluctuationTimer = new PriceFluctuationTimer(this, priceEngine);
+        marketEventTimer = new MarketEventTimer(this, new Random(streamSeed(seed, EVENT_STREAM)));
+        tradingVolumeTimer = new TradingVolumeTimer(this, new Random(streamSeed(seed, TRADE_STREAM)));
+        metrics = new MarketMetrics(this);
+        scheduler.execute(() -> metrics.setMarketThread(Thread.currentThread()));
+    }
+    
+    static long streamSeed(long seed, int stream) {
+        return new SplittableRandom(seed ^ stream * 0x9E3779B97F4A7C15L).nextLong();
+    }
+    
+    public static StockStore defaultStocks() {
+        StockStore stocks = new StockStore();
+        stocks.add("AAPL", "Apple", 150.0);
+        stocks.add("GOOGL", "Google", 2800.0);
+        stocks.add("MSFT", "Microsoft", 300.0);
+        return stocks;
+    }
+    
+    public static StockStore syntheticStocks(int count) {
+        StockStore stocks = new StockStore();
+        stocks.ensureCapacity(count);
+        Random random = new Random(count);
+        for (int i = 0; i < count; i++) {
+            String symbol = String.format("SYM%06d", i);
+            double price = Math.round((10 + random.nextDouble() * 990) * 100.0) / 100.0;
+            int id = stocks.add(symbol, symbol, price, 50000 + random.nextInt(100000), i % Sector.COUNT);
+            stocks.setVolatility(id, 0.01 + random.nextDouble() * 0.04);
+        }
+        return stocks;
+    }
+    
+    // A universe file is either a UniverseSnapshot, recognised by its magic number, or CSV.
+    public static StockStore loadStocks(Path file) throws IOException {
+        return UniverseSnapshot.isSnapshot(file) ? UniverseSnapshot.load(file) : UniverseCsv.load(file);
+    }
+    
+    // Command-line universes: a count picks the three defaults or that many synthetic
+    // symbols, anything else names a universe file.
+    static StockStore stocksFor(String spec) throws IOException {
+        if (!spec.isEmpty() && spec.chars().allMatch(Character::isDigit)) {
+            int count = Integer.parseInt(spec);
+            return count <= 3 ? defaultStocks() : syntheticStocks(count);
+        }
+        return loadStocks(Paths.get(spec));
+    }
+    
+    public void addListener(MarketListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(MarketListener listener) {
+        listeners.remove(listener);
+    }
+    
+    // The engine takes ownership of the journal and closes it on shutdown. Setting a
+    // journal records the current state of every symbol as its starting point.
+    public void setJournal(TickJournal journal) {
+        scheduler.execute(() -> {
+            this.journal = journal;
+            if (journal != null) {
+                journal.appendAll(scheduler.currentTimeMillis(), stocks, TickCause.INITIAL);
+            }
+        });
+    }
+    
+    public TickJournal getJournal() {
+        return journal;
+    }
+    
+    // Analytics are optional and sized when created; the current prices become their
+    // starting point.
+    public void setAnalytics(MarketAnalytics analytics) {
+        scheduler.execute(() -> {
+            this.analytics = analytics;
+            if (analytics != null) {
+                analytics.onPrices(scheduler.currentTimeMillis(), stocks, true);
+            }
+        });
+    }
+    
+    public MarketAnalytics getAnalytics() {
+        return analytics;
+    }
+    
+    // History is optional and sized when created, like analytics. The engine takes
+    // ownership of it like the journal's: replacing or clearing it closes the previous one
+    // on the market thread, between appends, and so does shutdown. The current state is its
+    // first record.
+    public void setHistory(TickHistory history) {
+        scheduler.execute(() -> {
+            TickHistory previous = this.history;
+            this.history = history;
+            if (previous != null && previous != history) {
+                previous.close();
+            }
+            if (history != null) {
+                history.appendAll(scheduler.currentTimeMillis(), stocks);
+            }
+        });
+    }
+    
+    // Empties the history for a new session on the market thread, between appends.
+    public void resetHistory() {
+        scheduler.execute(() -> {
+            TickHistory current = history;
+            if (current != null) {
+                current.reset();
+                current.appendAll(scheduler.currentTimeMillis(), stocks);
+            }
+        });
+    }
+    
+    public TickHistory getHistory() {
+        return history;
+    }
+    
+    // Every state change goes through here once, on the market thread, right after the
+    // publish that made it: the journal, the analytics and the history get the symbols
+    // that epoch changed and nothing else. A price tick is the exception for the analytics,
+    // where a price that stayed put is a zero return like any other.
+    void recordChanges(int cause) {
+        long now = scheduler.currentTimeMillis();
+        long[] changed = stocks.snapshot().changed();
+        TickJournal currentJournal = journal;
+        if (currentJournal != null) {
+            currentJournal.appendChanged(now, stocks, cause, changed);
+        }
+        MarketAnalytics currentAnalytics = analytics;
+        if (currentAnalytics != null && movesPrices(cause)) {
+            if (cause == TickCause.PRICE_TICK) {
+                currentAnalytics.onPrices(now, stocks, true);
+            } else {
+                currentAnalytics.onPrices(now, stocks, changed);
+            }
+        }
+        TickHistory currentHistory = history;
+        if (currentHistory != null) {
+            currentHistory.appendChanged(now, stocks, changed);
+        }
+    }
+    
+    void recordFill(int symbol, long priceCents, long quantity) {
+        MarketAnalytics currentAnalytics = analytics;
+        if (currentAnalytics != null) {
+            currentAnalytics.onFill(symbol, Cents.toPrice(priceCents), quantity);
+        }
+    }
+    
+    private static boolean movesPrices(int cause) {
+        return cause == TickCause.PRICE_TICK || cause == TickCause.TRADE_IMPACT;
+    }
+    
+    void fireStocksUpdated() {
+        MarketSnapshot snapshot = stocks.snapshot();
+        for (MarketListener listener : listeners) {
+            listener.onStocksUpdated(snapshot);
+        }
+    }
+    
+    void firePriceTimerStatus(String status) {
+        for (MarketListener listener : listeners) {
+            listener.onPriceTimerStatus(status);
+        }
+    }
+    
+    void fireNextEventStatus(String eventInfo) {
+        for (MarketListener listener : listeners) {
+            listener.onNextEventStatus(eventInfo);
+        }
+    }
+    
+    void fireTradeCompleted(TradeResult result) {
+        for (MarketListener listener : listeners) {
+            listener.onTradeCompleted(result);
+        }
+    }
+    
+    public StockStore getStocks() {
+        return stocks;
+    }
+    
+    public MarketSnapshot getSnapshot() {
+        return stocks.snapshot();
+    }
+    
+    public MarketScheduler getScheduler() {
+        return scheduler;
+    }
+    
+    public PriceFluctuationTimer getPriceTimer() {
+        return priceFluctuationTimer;
+    }
+    
+    public MarketEventTimer getEventTimer() {
+        return marketEventTimer;
+    }
+    
+    public TradingVolumeTimer getTradingTimer() {
+        return tradingVolumeTimer;
+    }
+    
+    public MatchingEngine getMatchingEngine() {
+        return matchingEngine;
+    }
+    
+    public MarketMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public void shutdown() {
+        priceFluctuationTimer.stop();
+        marketEventTimer.stop();
+        tradingVolumeTimer.stop();
+        priceFluctuationTimer.getEngine().shutdown();
+        scheduler.shutdown();
+        matchingEngine.shutdown();
+        TickJournal current = journal;
+        journal = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                MarketLog.error("Failed to close tick journal: " + e);
+            }
+        }
+        // The market thread has stopped, so nothing appends to the history any more.
+        TickHistory currentHistory = history;
+        history = null;
+        if (currentHistory != null) {
+            currentHistory.close();
+        }
+    }
+}
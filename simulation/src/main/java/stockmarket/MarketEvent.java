@@ -0,0 +1,56 @@
+package stockmarket;
+
+// One entry of an event calendar: what happens, when, and to which symbols.
+public final class MarketEvent {
+    // Target sector mask meaning "one sector picked at random each time".
+    public static final int RANDOM_SECTOR = -1;
+    
+    private final String name;
+    private final String description;
+    private final EventTrigger trigger;
+    private final int sectorMask;
+    private final int[] symbols;
+    private final int increase;
+    private final int decrease;
+    
+    // A null symbol list targets sectors; otherwise the mask is ignored. The volume moves
+    // up by `increase` or down by `decrease` with even odds; either may be zero.
+    MarketEvent(String name, String description, EventTrigger trigger, int sectorMask, int[] symbols,
+                int increase, int decrease) {
+        this.name = name;
+        this.description = description;
+        this.trigger = trigger;
+        this.sectorMask = sectorMask;
+        this.symbols = symbols;
+        this.increase = increase;
+        this.decrease = decrease;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public EventTrigger getTrigger() {
+        return trigger;
+    }
+    
+    public int getSectorMask() {
+        return sectorMask;
+    }
+    
+    int[] symbols() {
+        return symbols;
+    }
+    
+    public int getIncrease() {
+        return increase;
+    }
+    
+    public int getDecrease() {
+        return decrease;
+    }
+}
@@ -0,0 +1,227 @@
+package stockmarket;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Runs an EventCalendar. Pending occurrences sit in one EventQueue and a single market
+// clock is armed for the earliest of them, however many events the calendar holds. All
+// occurrences due at the same moment fire together and publish one update.
+public class MarketEventTimer {
+    private MarketEngine engine;
+    private EventCalendar calendar;
+    private final EventQueue queue = new EventQueue();
+    private int[] occurrences = new int[0];
+    private final Random random;
+    private volatile MarketClock clock;
+    private volatile boolean running = false;
+    private volatile int session = 0;
+    private volatile long nextEventTime = 0;
+    private volatile int pendingEvents = 0;
+    private volatile long firedEvents = 0;
+    private long startTime;
+    
+    public MarketEventTimer(MarketEngine engine) {
+        this(engine, new Random());
+    }
+    
+    public MarketEventTimer(MarketEngine engine, Random random) {
+        this.engine = engine;
+        this.random = random;
+        this.calendar = EventCalendar.defaults(engine.getStocks());
+    }
+    
+    public EventCalendar getCalendar() {
+        return calendar;
+    }
+    
+    public void setCalendar(EventCalendar calendar) {
+        if (running) {
+            throw new IllegalStateException("Stop the event timer before changing its calendar");
+        }
+        if (calendar.size() == 0) {
+            throw new IllegalArgumentException("An event calendar needs at least one event");
+        }
+        this.calendar = calendar;
+    }
+    
+    public void start() {
+        if (running) {
+            MarketLog.warn("MarketEventTimer already running - stop it first");
+            return;
+        }
+        running = true;
+        int current = ++session;
+        engine.getScheduler().execute(() -> begin(current));
+        MarketLog.info("MarketEventTimer started - " + calendar.size() + " calendar event(s)");
+    }
+    
+    private void begin(int current) {
+        if (current != session) return;
+        MarketScheduler scheduler = engine.getScheduler();
+        startTime = scheduler.currentTimeMillis();
+        queue.clear();
+        occurrences = new int[calendar.size()];
+        for (int i = 0; i < calendar.size(); i++) {
+            long deadline = calendar.get(i).getTrigger().next(startTime, startTime, 0, random);
+            if (deadline >= 0) {
+                queue.add(deadline, i);
+            }
+        }
+        if (arm(current)) {
+            engine.fireNextEventStatus("First event in " + getSecondsToNextEvent() + " seconds");
+        }
+    }
+    
+    private boolean arm(int current) {
+        // After a stop(), and any start() since, the timer's state belongs to the new session.
+        if (current != session) return false;
+        pendingEvents = queue.size();
+        if (queue.isEmpty()) {
+            nextEventTime = 0;
+            running = false;
+            engine.fireNextEventStatus("All events completed");
+            return false;
+        }
+        MarketScheduler scheduler = engine.getScheduler();
+        nextEventTime = queue.peekDeadline();
+        long delay = Math.max(0, nextEventTime - scheduler.currentTimeMillis());
+        clock = scheduler.schedule("MarketEvents", delay, TimeUnit.MILLISECONDS, () -> fireDue(current));
+        return true;
+    }
+    
+    private void fireDue(int current) {
+        if (!running || current != session) return;
+        long now = engine.getScheduler().currentTimeMillis();
+        int fired = 0;
+        while (!queue.isEmpty() && queue.peekDeadline() <= now) {
+            int index = queue.peekEvent();
+            queue.remove();
+            MarketEvent event = calendar.get(index);
+            apply(event, drawPositive(event, random), drawSectorMask(event, random));
+            int occurrence = ++occurrences[index];
+            long next = event.getTrigger().next(now, startTime, occurrence, random);
+            if (next >= 0) {
+                queue.add(next, index);
+            }
+            fired++;
+        }
+        if (fired > 0) {
+            firedEvents += fired;
+            publish();
+        }
+        arm(current);
+    }
+    
+    // Fires one calendar event picked at random, right now.
+    void triggerMarketEvent() {
+        int index = random.nextInt(calendar.size());
+        MarketEvent event = calendar.get(index);
+        triggerMarketEvent(index, drawPositive(event, random), drawSectorMask(event, random));
+    }
+    
+    // Fires calendar event `index` with its outcome already drawn elsewhere - by a
+    // ShardCoordinator that broadcasts one event to every shard of a market.
+    void triggerMarketEvent(int index, boolean positiveEvent, int sectorMask) {
+        apply(calendar.get(index), positiveEvent, sectorMask);
+        publish();
+        firedEvents++;
+    }
+    
+    // Whether an occurrence raises volumes; events that only go one way draw nothing.
+    static boolean drawPositive(MarketEvent event, Random random) {
+        return event.getDecrease() == 0 || (event.getIncrease() != 0 && random.nextBoolean());
+    }
+    
+    static int drawSectorMask(MarketEvent event, Random random) {
+        return event.getSectorMask() == MarketEvent.RANDOM_SECTOR
+                ? 1 << random.nextInt(Sector.COUNT) : event.getSectorMask();
+    }
+    
+    private void apply(MarketEvent event, boolean positiveEvent, int sectorMask) {
+        StockStore stocks = engine.getStocks();
+        int[] volumes = stocks.volumes();
+        int volumeChange = positiveEvent ? event.getIncrease() : -event.getDecrease();
+        int[] symbols = event.symbols();
+        String target = symbols != null ? symbols.length + " symbol(s)" : Sector.describe(sectorMask);
+        
+        boolean symbolDetail = MarketLog.isSymbolDetail();
+        if (symbolDetail) {
+            MarketLog.info("=== MARKET EVENT ===");
+            MarketLog.info("Event: " + event.getName());
+            MarketLog.info("Description: " + event.getDescription());
+            MarketLog.info("Target: " + target);
+            MarketLog.info("Volume Impact: " + (positiveEvent ? "+" : "") + volumeChange + " shares");
+            MarketLog.info("Market Response: " + (positiveEvent ? "Investors increase trading activity" : "Investors reduce trading activity"));
+        } else if (MarketLog.isEnabled(MarketLog.Level.INFO)) {
+            MarketLog.info("Market event: " + event.getName() + " (" + target + ") "
+                           + (positiveEvent ? "+" : "") + volumeChange + " shares");
+        }
+        
+        long started = System.nanoTime();
+        if (symbols != null) {
+            for (int symbol : symbols) {
+                changeVolume(stocks, volumes, symbol, volumeChange, symbolDetail);
+            }
+        } else {
+            int[] sectors = stocks.sectors();
+            for (int i = 0; i < stocks.size(); i++) {
+                if ((sectorMask & (1 << sectors[i])) == 0) continue;
+                changeVolume(stocks, volumes, i, volumeChange, symbolDetail);
+            }
+        }
+        if (!symbolDetail) {
+            MarketLog.tickSummary("Market event", symbols != null ? symbols.length : stocks.size(),
+                                  System.nanoTime() - started);
+        } else {
+            MarketLog.info("===================");
+        }
+    }
+    
+    private static void changeVolume(StockStore stocks, int[] volumes, int symbol, int volumeChange, boolean symbolDetail) {
+        int oldVolume = volumes[symbol];
+        int newVolume = Math.max(10000, oldVolume + volumeChange);
+        newVolume = Math.min(500000, newVolume);
+        if (newVolume == oldVolume) return;
+        volumes[symbol] = newVolume;
+        stocks.markVolume(symbol);
+        if (symbolDetail) {
+            MarketLog.eventVolume(symbol, stocks.getSymbol(symbol), oldVolume, newVolume);
+        }
+    }
+    
+    // Volumes already at a clamp are left as they were, unmarked, and do not count as changed.
+    private void publish() {
+        engine.getStocks().publishChanges();
+        engine.recordChanges(TickCause.MARKET_EVENT);
+        engine.fireStocksUpdated();
+    }
+    
+    public void stop() {
+        running = false;
+        session++;
+        MarketClock current = clock;
+        if (current != null) {
+            current.cancel();
+        }
+        nextEventTime = 0;
+        engine.fireNextEventStatus("Events stopped");
+    }
+    
+    public boolean isRunning() {
+        return running;
+    }
+    
+    public int getPendingEvents() {
+        return pendingEvents;
+    }
+    
+    public long getFiredEvents() {
+        return firedEvents;
+    }
+    
+    public int getSecondsToNextEvent() {
+        if (!running || nextEventTime == 0) return 0;
+        long secondsRemaining = (nextEventTime - engine.getScheduler().currentTimeMillis()) / 1000;
+        return Math.max(0, (int)secondsRemaining);
+    }
+}
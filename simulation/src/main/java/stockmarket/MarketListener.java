@@ -0,0 +1,15 @@
+package stockmarket;
+
+public interface MarketListener {
+    default void onStocksUpdated(MarketSnapshot snapshot) {
+    }
+    
+    default void onPriceTimerStatus(String status) {
+    }
+    
+    default void onNextEventStatus(String eventInfo) {
+    }
+    
+    default void onTradeCompleted(TradeResult result) {
+    }
+}
@@ -0,0 +1,453 @@
+package stockmarket;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Asynchronous market log. Producers claim a slot in a preallocated ring buffer and
+// store primitive fields only; a single background thread formats and writes them.
+// When the ring is full, records are dropped and counted rather than blocking the
+// simulation thread. Records go to standard output unless the stockmarket.log system
+// property is "stderr"; the test build sets it so surefire's channel on stdout stays clean.
+// Setting stockmarket.log.format to "binary" selects the binary format below at startup.
+//
+// Binary records are big-endian and variable-length: a 48-byte head (long time, byte
+// level, byte kind, short 0, int symbol id, long l1, long l2, double d1, double d2),
+// where a MESSAGE's l1 is the byte length of its UTF-8 text, which follows the head,
+// and its other fields are 0. Readers walk the stream record by record.
+public final class MarketLog {
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    public enum Format { TEXT, BINARY }
+
+    public enum Detail { PER_SYMBOL, PER_TICK }
+
+    static final int MESSAGE = 0;
+    static final int PRICE_UPDATE = 1;
+    static final int VOLUME_CHANGE = 2;
+    static final int PRICE_IMPACT = 3;
+    static final int EVENT_VOLUME = 4;
+    static final int TICK_SUMMARY = 5;
+
+    static final int CAPACITY = 1 << 16;
+    private static final int MASK = CAPACITY - 1;
+
+    private static final AtomicLongArray published = new AtomicLongArray(CAPACITY);
+    private static final long[] times = new long[CAPACITY];
+    private static final byte[] levels = new byte[CAPACITY];
+    private static final byte[] kinds = new byte[CAPACITY];
+    private static final int[] symbols = new int[CAPACITY];
+    private static final long[] longs1 = new long[CAPACITY];
+    private static final long[] longs2 = new long[CAPACITY];
+    private static final double[] doubles1 = new double[CAPACITY];
+    private static final double[] doubles2 = new double[CAPACITY];
+    private static final Object[] texts = new Object[CAPACITY];
+    private static final Throwable[] thrown = new Throwable[CAPACITY];
+
+    private static final AtomicLong head = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static volatile long tail = 0;
+    private static volatile long flushed = 0;
+    // The highest sequence a flush() caller is waiting for; the writer flushes as soon as
+    // it has written that far, without waiting for the ring to run empty.
+    private static final AtomicLong flushRequested = new AtomicLong();
+    // Set by the writer before it parks on an empty ring; a producer that then publishes
+    // unparks it. Both sides write one volatile and read the other, so a record is never
+    // left waiting behind a parked writer.
+    private static volatile boolean idle = false;
+    static final Thread writerThread = new Thread(MarketLog::drainLoop, "MarketLogWriter");
+
+    private static volatile int threshold = Level.INFO.ordinal();
+    private static volatile Detail detail = Detail.PER_SYMBOL;
+    private static volatile Format format =
+            "binary".equalsIgnoreCase(System.getProperty("stockmarket.log.format")) ? Format.BINARY : Format.TEXT;
+    private static volatile OutputStream out = new FileOutputStream(
+            "stderr".equals(System.getProperty("stockmarket.log")) ? FileDescriptor.err : FileDescriptor.out);
+    private static volatile boolean reconfigured = false;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            published.set(i, -1);
+        }
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(MarketLog::flush, "MarketLogFlush"));
+    }
+
+    private MarketLog() {
+    }
+
+    public static void configure(Level level, Detail recordDetail, Format recordFormat, OutputStream target) {
+        flush();
+        threshold = level.ordinal();
+        detail = recordDetail;
+        format = recordFormat;
+        out = target;
+        reconfigured = true;
+    }
+
+    static OutputStream getTarget() {
+        return out;
+    }
+
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    public static void setDetail(Detail recordDetail) {
+        detail = recordDetail;
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    // Per-symbol records are only worth claiming slots for when detail is on; callers
+    // check this once per tick and otherwise emit a single summary record.
+    public static boolean isSymbolDetail() {
+        return detail == Detail.PER_SYMBOL && threshold <= Level.INFO.ordinal();
+    }
+
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public static void debug(String message) {
+        message(Level.DEBUG, message);
+    }
+
+    public static void info(String message) {
+        message(Level.INFO, message);
+    }
+
+    public static void warn(String message) {
+        message(Level.WARN, message);
+    }
+
+    public static void error(String message) {
+        message(Level.ERROR, message);
+    }
+
+    // Logs the message and the exception's stack trace below it.
+    public static void error(String message, Throwable exception) {
+        message(Level.ERROR, message, exception);
+    }
+
+    private static void message(Level level, String message) {
+        message(level, message, null);
+    }
+
+    private static void message(Level level, String message, Throwable exception) {
+        if (level.ordinal() < threshold) return;
+        long sequence = claim();
+        if (sequence < 0) return;
+        int slot = (int) (sequence & MASK);
+        texts[slot] = message;
+        thrown[slot] = exception;
+        publish(sequence, slot, level, MESSAGE, -1, 0, 0, 0, 0);
+    }
+
+    public static void priceUpdate(int symbolId, String symbol, double price, double changePercent) {
+        record(Level.INFO, PRICE_UPDATE, symbolId, symbol, 0, 0, price, changePercent);
+    }
+
+    public static void volumeChange(int symbolId, String symbol, int oldVolume, int newVolume) {
+        record(Level.INFO, VOLUME_CHANGE, symbolId, symbol, oldVolume, newVolume, 0, 0);
+    }
+
+    public static void priceImpact(int symbolId, String symbol, double oldPrice, double newPrice) {
+        record(Level.INFO, PRICE_IMPACT, symbolId, symbol, 0, 0, oldPrice, newPrice);
+    }
+
+    public static void eventVolume(int symbolId, String symbol, int oldVolume, int newVolume) {
+        record(Level.INFO, EVENT_VOLUME, symbolId, symbol, oldVolume, newVolume, 0, 0);
+    }
+
+    public static void tickSummary(String phase, int symbolCount, long nanos) {
+        record(Level.INFO, TICK_SUMMARY, -1, phase, symbolCount, nanos, 0, 0);
+    }
+
+    private static void record(Level level, int kind, int symbolId, String text,
+                               long l1, long l2, double d1, double d2) {
+        if (level.ordinal() < threshold) return;
+        long sequence = claim();
+        if (sequence < 0) return;
+        int slot = (int) (sequence & MASK);
+        texts[slot] = text;
+        publish(sequence, slot, level, kind, symbolId, l1, l2, d1, d2);
+    }
+
+    private static long claim() {
+        while (true) {
+            long sequence = head.get();
+            if (sequence - tail >= CAPACITY) {
+                dropped.incrementAndGet();
+                return -1;
+            }
+            if (head.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    private static void publish(long sequence, int slot, Level level, int kind, int symbolId,
+                                long l1, long l2, double d1, double d2) {
+        times[slot] = System.currentTimeMillis();
+        levels[slot] = (byte) level.ordinal();
+        kinds[slot] = (byte) kind;
+        symbols[slot] = symbolId;
+        longs1[slot] = l1;
+        longs2[slot] = l2;
+        doubles1[slot] = d1;
+        doubles2[slot] = d2;
+        published.set(slot, sequence);
+        if (idle) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    // Blocks until everything logged before this call has been written, however much is
+    // logged after it.
+    public static void flush() {
+        if (Thread.currentThread() == writerThread) return;
+        long target = head.get();
+        if (flushed >= target) return;
+        flushRequested.accumulateAndGet(target, Math::max);
+        while (flushed < target) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    private static void drainLoop() {
+        LineWriter writer = new LineWriter();
+        while (true) {
+            long sequence = tail;
+            int slot = (int) (sequence & MASK);
+            if (published.get(slot) != sequence) {
+                writer.flush();
+                flushed = sequence;
+                idle = true;
+                if (published.get(slot) != sequence) {
+                    LockSupport.park();
+                }
+                idle = false;
+                continue;
+            }
+            try {
+                writer.write(slot);
+            } catch (IOException | RuntimeException e) {
+                dropped.incrementAndGet();
+            }
+            texts[slot] = null;
+            thrown[slot] = null;
+            tail = sequence + 1;
+            long requested = flushRequested.get();
+            if (flushed < requested && sequence + 1 >= requested) {
+                writer.flush();
+                flushed = sequence + 1;
+            }
+        }
+    }
+
+    private static final class LineWriter {
+        private static final String[] LEVEL_NAMES = {"DEBUG", "INFO ", "WARN ", "ERROR"};
+
+        private final char[] line = new char[512];
+        private final char[] number = new char[PriceFormat.BUFFER_SIZE];
+        private final byte[] bytes = new byte[line.length * 3];
+        private final ByteArrayOutputStream binaryBuffer = new ByteArrayOutputStream(1 << 16);
+        private final DataOutputStream binaryOut = new DataOutputStream(binaryBuffer);
+        // The zone's offset is looked up again only when a record falls outside the span
+        // between the transitions around the last lookup, so daylight saving changes show.
+        private final ZoneRules zone = ZoneId.systemDefault().getRules();
+        private long zoneOffset;
+        private long offsetFrom = Long.MAX_VALUE;
+        private long offsetUntil = Long.MIN_VALUE;
+        private OutputStream target = out;
+        private BufferedOutputStream buffered = new BufferedOutputStream(target, 1 << 16);
+        private int length;
+
+        void write(int slot) throws IOException {
+            if (reconfigured || target != out) {
+                buffered.flush();
+                target = out;
+                buffered = new BufferedOutputStream(target, 1 << 16);
+                reconfigured = false;
+            }
+            if (format == Format.BINARY) {
+                writeBinary(slot);
+            } else {
+                writeText(slot);
+            }
+        }
+
+        void flush() {
+            try {
+                buffered.flush();
+            } catch (IOException e) {
+                dropped.incrementAndGet();
+            }
+        }
+
+        private void writeBinary(int slot) throws IOException {
+            binaryBuffer.reset();
+            binaryOut.writeLong(times[slot]);
+            binaryOut.writeByte(levels[slot]);
+            binaryOut.writeByte(kinds[slot]);
+            binaryOut.writeShort(0);
+            binaryOut.writeInt(symbols[slot]);
+            if (kinds[slot] == MESSAGE) {
+                String message = String.valueOf(texts[slot]);
+                if (thrown[slot] != null) message += ": " + thrown[slot];
+                byte[] text = message.getBytes(StandardCharsets.UTF_8);
+                binaryOut.writeLong(text.length);
+                binaryOut.writeLong(0);
+                binaryOut.writeDouble(0);
+                binaryOut.writeDouble(0);
+                binaryOut.write(text);
+            } else {
+                binaryOut.writeLong(longs1[slot]);
+                binaryOut.writeLong(longs2[slot]);
+                binaryOut.writeDouble(doubles1[slot]);
+                binaryOut.writeDouble(doubles2[slot]);
+            }
+            binaryBuffer.writeTo(buffered);
+        }
+
+        private void writeText(int slot) throws IOException {
+            length = 0;
+            appendTime(times[slot]);
+            append(' ');
+            append(LEVEL_NAMES[levels[slot]]);
+            append(' ');
+            String text = String.valueOf(texts[slot]);
+            switch (kinds[slot]) {
+                case PRICE_UPDATE:
+                    append("Updated ").append(text).append(": ").appendPrice(doubles1[slot]);
+                    append(" (").appendDecimal(doubles2[slot] * 100, 2).append("%)");
+                    break;
+                case VOLUME_CHANGE:
+                    append("  ").append(text).append(": ").appendGrouped(longs1[slot]);
+                    append(" → ").appendGrouped(longs2[slot]).append(" (change: ");
+                    long change = longs2[slot] - longs1[slot];
+                    if (change >= 0) append('+');
+                    appendGrouped(change).append(')');
+                    break;
+                case PRICE_IMPACT:
+                    append("  ").append(text).append(": ").appendPrice(doubles1[slot]);
+                    append(" → ").appendPrice(doubles2[slot]).append(" (");
+                    appendDecimal((doubles2[slot] / doubles1[slot] - 1) * 100, 2).append("%)");
+                    break;
+                case EVENT_VOLUME:
+                    append("  ").append(text).append(" volume: ").appendGrouped(longs1[slot]);
+                    append(" → ").appendGrouped(longs2[slot]);
+                    break;
+                case TICK_SUMMARY:
+                    append(text).append(": ").appendGrouped(longs1[slot]).append(" symbols in ");
+                    appendDecimal(longs2[slot] / 1e6, 1).append(" ms");
+                    break;
+                default:
+                    append(text);
+                    break;
+            }
+            append('\n');
+            writeLine();
+            if (thrown[slot] != null) {
+                StringWriter trace = new StringWriter();
+                thrown[slot].printStackTrace(new PrintWriter(trace));
+                buffered.write(trace.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        private void appendTime(long millis) {
+            long local = millis + zoneOffset(millis);
+            long dayMillis = Math.floorMod(local, 86_400_000L);
+            appendPadded(dayMillis / 3_600_000, 2);
+            append(':');
+            appendPadded(dayMillis / 60_000 % 60, 2);
+            append(':');
+            appendPadded(dayMillis / 1000 % 60, 2);
+            append('.');
+            appendPadded(dayMillis % 1000, 3);
+        }
+
+        private long zoneOffset(long millis) {
+            if (millis < offsetFrom || millis >= offsetUntil) {
+                Instant instant = Instant.ofEpochMilli(millis);
+                zoneOffset = zone.getOffset(instant).getTotalSeconds() * 1000L;
+                // Transitions fall on whole seconds, and previousTransition only returns those
+                // strictly before its argument; one nanosecond later includes one at 'millis'.
+                ZoneOffsetTransition previous = zone.previousTransition(instant.plusNanos(1));
+                ZoneOffsetTransition next = zone.nextTransition(instant);
+                offsetFrom = previous != null ? previous.toEpochSecond() * 1000 : Long.MIN_VALUE;
+                offsetUntil = next != null ? next.toEpochSecond() * 1000 : Long.MAX_VALUE;
+            }
+            return zoneOffset;
+        }
+
+        private void appendPadded(long value, int width) {
+            for (int i = width - 1; i >= 0; i--) {
+                long divisor = 1;
+                for (int j = 0; j < i; j++) divisor *= 10;
+                append((char) ('0' + value / divisor % 10));
+            }
+        }
+
+        private LineWriter appendPrice(double value) {
+            return appendNumber(PriceFormat.formatPrice(value, number));
+        }
+
+        private LineWriter appendDecimal(double value, int decimals) {
+            return appendNumber(PriceFormat.formatDecimal(value, decimals, number));
+        }
+
+        private LineWriter appendGrouped(long value) {
+            return appendNumber(PriceFormat.formatGrouped(value, number));
+        }
+
+        private LineWriter appendNumber(int start) {
+            for (int i = start; i < number.length; i++) {
+                append(number[i]);
+            }
+            return this;
+        }
+
+        private LineWriter append(String text) {
+            int count = Math.min(text.length(), line.length - 1 - length);
+            text.getChars(0, count, line, length);
+            length += count;
+            return this;
+        }
+
+        private LineWriter append(char c) {
+            if (length < line.length) {
+                line[length++] = c;
+            }
+            return this;
+        }
+
+        private void writeLine() throws IOException {
+            int size = 0;
+            for (int i = 0; i < length; i++) {
+                char c = line[i];
+                if (c < 0x80) {
+                    bytes[size++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[size++] = (byte) (0xC0 | (c >> 6));
+                    bytes[size++] = (byte) (0x80 | (c & 0x3F));
+                } else {
+                    bytes[size++] = (byte) (0xE0 | (c >> 12));
+                    bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[size++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            buffered.write(bytes, 0, size);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package stockmarket;
+
+// Posts a symmetric ladder of resting limit orders around the current price so user
+// orders always have liquidity to trade against. Depth per level scales with the
+// symbol's volume, and the ladder spans the old +/-5% per-trade impact cap. Levels sit
+// on the symbol's tick grid, bids rounded down and asks up, in exact cents.
+public class MarketMaker {
+    public static final int LEVELS = 50;
+    public static final int LEVEL_STEP_BASIS_POINTS = 10;
+    private static final long BASIS_POINTS = 10_000;
+    private static final long MIN_LEVEL_QUANTITY = 100;
+    
+    private final MatchingEngine matching;
+    
+    public MarketMaker(MatchingEngine matching) {
+        this.matching = matching;
+    }
+    
+    public void quote(int symbol, long cents, int tick, int volume) {
+        matching.cancelOwner(symbol, MatchingEngine.OWNER_MARKET_MAKER);
+        long levelQuantity = Math.max(MIN_LEVEL_QUANTITY, volume / 200);
+        for (int level = 1; level <= LEVELS; level++) {
+            matching.submitWaiting(symbol, matching.nextOrderId(), MatchingEngine.OWNER_MARKET_MAKER,
+                                   true, bidPrice(cents, tick, level), levelQuantity, true);
+            matching.submitWaiting(symbol, matching.nextOrderId(), MatchingEngine.OWNER_MARKET_MAKER,
+                                   false, askPrice(cents, tick, level), levelQuantity, true);
+        }
+    }
+    
+    // The level's bid, rounded down onto the tick grid but never below one tick.
+    static long bidPrice(long cents, int tick, int level) {
+        long offset = level * LEVEL_STEP_BASIS_POINTS;
+        return Math.max(tick, Math.floorDiv(cents * (BASIS_POINTS - offset), BASIS_POINTS * tick) * tick);
+    }
+    
+    // The level's ask, rounded up onto the tick grid.
+    static long askPrice(long cents, int tick, int level) {
+        long offset = level * LEVEL_STEP_BASIS_POINTS;
+        return -Math.floorDiv(-cents * (BASIS_POINTS + offset), BASIS_POINTS * tick) * tick;
+    }
+    
+    public void quoteAll(StockStore stocks) {
+        int count = Math.min(stocks.size(), matching.getSymbolCount());
+        for (int i = 0; i < count; i++) {
+            quote(i, stocks.getPriceCents(i), stocks.getTickSize(i), stocks.getVolume(i));
+        }
+    }
+}
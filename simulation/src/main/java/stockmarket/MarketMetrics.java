@@ -0,0 +1,267 @@
+package stockmarket;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runtime instrumentation for one engine. The market thread and the EDT only ever record
+// into histograms and bump counters they alone write; everything else (percentiles,
+// allocation, the Prometheus text) is worked out when someone reads it, over JMX or from
+// a MetricsServer.
+public class MarketMetrics implements MarketMetricsMXBean {
+    public static final String OBJECT_NAME = "stockmarket:type=MarketMetrics";
+    private static final long MIN_RATE_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final MarketEngine engine;
+    private final LatencyHistogram priceTick = new LatencyHistogram("price_tick");
+    private final LatencyHistogram tradeVolume = new LatencyHistogram("trade_volume");
+    private final LatencyHistogram tradeImpact = new LatencyHistogram("trade_impact");
+    private final LatencyHistogram tradeLatency = new LatencyHistogram("trade_latency");
+    private final LatencyHistogram displayUpdate = new LatencyHistogram("display_update");
+    private final LatencyHistogram displayLag = new LatencyHistogram("display_lag");
+    private final AtomicLong displayRequests = new AtomicLong();
+    private final AtomicLong displayCoalesced = new AtomicLong();
+    private volatile long marketThreadId = -1;
+
+    private long lastAllocatedBytes = -1;
+    private long lastSampleNanos;
+    private double allocationRate = 0;
+
+    MarketMetrics(MarketEngine engine) {
+        this.engine = engine;
+    }
+
+    void setMarketThread(Thread thread) {
+        marketThreadId = thread.getId();
+    }
+
+    public LatencyHistogram getPriceTickHistogram() {
+        return priceTick;
+    }
+
+    public LatencyHistogram getTradeVolumeHistogram() {
+        return tradeVolume;
+    }
+
+    public LatencyHistogram getTradeImpactHistogram() {
+        return tradeImpact;
+    }
+
+    public LatencyHistogram getTradeLatencyHistogram() {
+        return tradeLatency;
+    }
+
+    public LatencyHistogram getDisplayUpdateHistogram() {
+        return displayUpdate;
+    }
+
+    public LatencyHistogram getDisplayLagHistogram() {
+        return displayLag;
+    }
+
+    // A GUI asked for a frame; coalesced requests found one already on its way and were
+    // folded into it.
+    void displayRequested(boolean coalesced) {
+        displayRequests.incrementAndGet();
+        if (coalesced) {
+            displayCoalesced.incrementAndGet();
+        }
+    }
+
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
+
+    @Override
+    public Latency getPriceTick() {
+        return Latency.of(priceTick);
+    }
+
+    @Override
+    public Latency getTradeVolume() {
+        return Latency.of(tradeVolume);
+    }
+
+    @Override
+    public Latency getTradeImpact() {
+        return Latency.of(tradeImpact);
+    }
+
+    @Override
+    public Latency getTradeLatency() {
+        return Latency.of(tradeLatency);
+    }
+
+    @Override
+    public Latency getSchedulerLag() {
+        return Latency.of(engine.getScheduler().getLagHistogram());
+    }
+
+    @Override
+    public Latency getDisplayUpdate() {
+        return Latency.of(displayUpdate);
+    }
+
+    @Override
+    public Latency getDisplayLag() {
+        return Latency.of(displayLag);
+    }
+
+    @Override
+    public long getDisplayRequests() {
+        return displayRequests.get();
+    }
+
+    @Override
+    public long getDisplayCoalesced() {
+        return displayCoalesced.get();
+    }
+
+    @Override
+    public long getSkippedPriceTicks() {
+        MarketClock clock = engine.getPriceTimer().getClock();
+        return clock == null ? 0 : clock.getSkippedTicks();
+    }
+
+    @Override
+    public long getPendingTrades() {
+        return engine.getTradingTimer().getPendingTrades();
+    }
+
+    @Override
+    public long getRejectedTrades() {
+        return engine.getTradingTimer().getRejectedTrades();
+    }
+
+    @Override
+    public long getFiredEvents() {
+        return engine.getEventTimer().getFiredEvents();
+    }
+
+    @Override
+    public long getLogDropped() {
+        return MarketLog.getDroppedCount();
+    }
+
+    // Bytes allocated by the threads alive right now, or -1 if the JVM cannot tell.
+    @Override
+    public long getAllocatedBytes() {
+        com.sun.management.ThreadMXBean threads = threadBean();
+        if (threads == null) return -1;
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public long getMarketThreadAllocatedBytes() {
+        com.sun.management.ThreadMXBean threads = threadBean();
+        long id = marketThreadId;
+        return threads == null || id < 0 ? -1 : threads.getThreadAllocatedBytes(id);
+    }
+
+    // Bytes per second between successive reads at least a second apart, so several
+    // readers polling at once do not turn the rate into noise.
+    @Override
+    public synchronized double getAllocationRate() {
+        long allocated = getAllocatedBytes();
+        long now = System.nanoTime();
+        if (allocated < 0) return -1;
+        if (lastAllocatedBytes < 0) {
+            lastAllocatedBytes = allocated;
+            lastSampleNanos = now;
+        } else if (now - lastSampleNanos >= MIN_RATE_INTERVAL_NANOS) {
+            allocationRate = Math.max(0, allocated - lastAllocatedBytes) * 1e9 / (now - lastSampleNanos);
+            lastAllocatedBytes = allocated;
+            lastSampleNanos = now;
+        }
+        return allocationRate;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled() ? threads : null;
+    }
+
+    // Prometheus text exposition format, version 0.0.4. Durations are in seconds.
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        summary(out, priceTick, "Time to advance, publish and record one price tick.");
+        summary(out, tradeVolume, "Time to apply one trade batch's fills to volumes.");
+        summary(out, tradeImpact, "Time to apply one trade batch's fills to prices.");
+        summary(out, tradeLatency, "Time from a trade being submitted to its completion.");
+        summary(out, engine.getScheduler().getLagHistogram(), "How late market clocks fired against their deadline.");
+        summary(out, displayUpdate, "Time to apply one snapshot to the GUI table.");
+        summary(out, displayLag, "Time a GUI frame waited on the event dispatch thread.");
+        metric(out, "display_requests_total", "counter", "GUI frames requested.", getDisplayRequests());
+        metric(out, "display_coalesced_total", "counter", "GUI frame requests folded into a pending frame.",
+               getDisplayCoalesced());
+        metric(out, "price_ticks_skipped_total", "counter", "Price ticks skipped because the last one overran.",
+               getSkippedPriceTicks());
+        metric(out, "pending_trades", "gauge", "Trades waiting for the next batch.", getPendingTrades());
+        metric(out, "rejected_trades_total", "counter", "Trades turned away because the trade queue was full.",
+               getRejectedTrades());
+        metric(out, "market_events_total", "counter", "Calendar events fired.", getFiredEvents());
+        metric(out, "log_dropped_total", "counter", "Log records dropped because the ring was full.",
+               getLogDropped());
+        metric(out, "allocated_bytes", "gauge", "Bytes allocated by live JVM threads.", getAllocatedBytes());
+        metric(out, "market_thread_allocated_bytes_total", "counter", "Bytes allocated by the market thread.",
+               getMarketThreadAllocatedBytes());
+        metric(out, "allocation_rate_bytes_per_second", "gauge", "JVM allocation rate.", getAllocationRate());
+        return out.toString();
+    }
+
+    private static void summary(StringBuilder out, LatencyHistogram histogram, String help) {
+        String name = "stockmarket_" + histogram.getName() + "_seconds";
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" summary\n");
+        for (double quantile : new double[] {0.5, 0.9, 0.99, 0.999}) {
+            out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+               .append(seconds(snapshot.percentileNanos(quantile * 100))).append('\n');
+        }
+        out.append(name).append("_sum ").append(seconds(histogram.getTotalNanos())).append('\n');
+        out.append(name).append("_count ").append(snapshot.getCount()).append('\n');
+        out.append("# TYPE ").append(name).append("_max gauge\n");
+        out.append(name).append("_max ").append(seconds(histogram.getMaxNanos())).append('\n');
+    }
+
+    private static void metric(StringBuilder out, String name, String type, String help, double value) {
+        out.append("# HELP stockmarket_").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE stockmarket_").append(name).append(' ').append(type).append('\n');
+        out.append("stockmarket_").append(name).append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.join("\n", priceTick.toString(), tradeVolume.toString(), tradeImpact.toString(),
+                           tradeLatency.toString(), engine.getScheduler().getLagHistogram().toString(),
+                           displayUpdate.toString(), displayLag.toString(),
+                           String.format("display: %,d requested, %,d coalesced; log: %,d dropped",
+                                         getDisplayRequests(), getDisplayCoalesced(), getLogDropped()));
+    }
+}
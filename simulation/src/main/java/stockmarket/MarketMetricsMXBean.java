@@ -0,0 +1,98 @@
+package stockmarket;
+
+import java.beans.ConstructorProperties;
+
+// JMX view of MarketMetrics, registered as MarketMetrics.OBJECT_NAME. Every attribute is
+// computed when it is read; nothing here runs on the market thread.
+public interface MarketMetricsMXBean {
+    Latency getPriceTick();
+
+    Latency getTradeVolume();
+
+    Latency getTradeImpact();
+
+    Latency getTradeLatency();
+
+    Latency getSchedulerLag();
+
+    Latency getDisplayUpdate();
+
+    Latency getDisplayLag();
+
+    long getDisplayRequests();
+
+    long getDisplayCoalesced();
+
+    long getSkippedPriceTicks();
+
+    long getPendingTrades();
+
+    long getRejectedTrades();
+
+    long getFiredEvents();
+
+    long getLogDropped();
+
+    long getAllocatedBytes();
+
+    long getMarketThreadAllocatedBytes();
+
+    double getAllocationRate();
+
+    final class Latency {
+        private final long count;
+        private final long meanNanos;
+        private final long p50Nanos;
+        private final long p90Nanos;
+        private final long p99Nanos;
+        private final long p999Nanos;
+        private final long maxNanos;
+
+        @ConstructorProperties({"count", "meanNanos", "p50Nanos", "p90Nanos", "p99Nanos", "p999Nanos", "maxNanos"})
+        public Latency(long count, long meanNanos, long p50Nanos, long p90Nanos, long p99Nanos,
+                       long p999Nanos, long maxNanos) {
+            this.count = count;
+            this.meanNanos = meanNanos;
+            this.p50Nanos = p50Nanos;
+            this.p90Nanos = p90Nanos;
+            this.p99Nanos = p99Nanos;
+            this.p999Nanos = p999Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        static Latency of(LatencyHistogram histogram) {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            return new Latency(snapshot.getCount(), histogram.getMeanNanos(), snapshot.percentileNanos(50),
+                               snapshot.percentileNanos(90), snapshot.percentileNanos(99),
+                               snapshot.percentileNanos(99.9), histogram.getMaxNanos());
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMeanNanos() {
+            return meanNanos;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP90Nanos() {
+            return p90Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public long getP999Nanos() {
+            return p999Nanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+    }
+}
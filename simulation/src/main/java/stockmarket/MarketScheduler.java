@@ -0,0 +1,54 @@
+package stockmarket;
+
+import java.util.concurrent.TimeUnit;
+
+public abstract class MarketScheduler {
+    public enum OverrunPolicy { CATCH_UP, SKIP }
+    
+    private final long originMillis;
+    private final long originNanos;
+    private final LatencyHistogram lag = new LatencyHistogram("scheduler_lag");
+    
+    protected MarketScheduler(long originMillis, long originNanos) {
+        this.originMillis = originMillis;
+        this.originNanos = originNanos;
+    }
+    
+    public abstract long nanoTime();
+    
+    // How late every clock fired against its deadline, recorded on the market thread.
+    public LatencyHistogram getLagHistogram() {
+        return lag;
+    }
+    
+    public long currentTimeMillis() {
+        return originMillis + (nanoTime() - originNanos) / 1_000_000;
+    }
+    
+    public MarketClock schedule(String name, long delay, TimeUnit unit, Runnable task) {
+        MarketClock clock = new MarketClock(this, name, 0, OverrunPolicy.SKIP, task,
+                                            nanoTime() + unit.toNanos(delay));
+        arm(clock);
+        return clock;
+    }
+    
+    public MarketClock scheduleAtFixedRate(String name, long initialDelay, long period, TimeUnit unit,
+                                           OverrunPolicy policy, Runnable task) {
+        long periodNanos = unit.toNanos(period);
+        if (periodNanos <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + name);
+        }
+        MarketClock clock = new MarketClock(this, name, periodNanos, policy, task,
+                                            nanoTime() + unit.toNanos(initialDelay));
+        arm(clock);
+        return clock;
+    }
+    
+    public abstract void execute(Runnable task);
+    
+    abstract void arm(MarketClock clock);
+    
+    abstract void disarm(MarketClock clock);
+    
+    public abstract void shutdown();
+}
@@ -0,0 +1,144 @@
+package stockmarket;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// One partition of a sharded market, run in a process of its own: the symbols that the
+// SymbolPartitioner gives this shard, simulated by a MarketEngine in virtual time that
+// only moves when the ShardCoordinator says so. Each STEP applies the market events
+// broadcast with it, advances the clock by one step and answers with a feed frame of
+// whatever changed since the previous answer.
+//
+// Calendar events are not broadcast. Every shard replays the same calendar from the same
+// event seed on the same virtual clock, so each occurrence fires in all of them at the same
+// instant with the same outcome; the coordinator checks that the fired counts agree.
+// Prices draw from a stream of the shard's own, so a sharded run repeats for a given seed
+// and shard count.
+public class MarketShard {
+    // Shard n's price engine is seeded from stream PRICE_STREAM + n of the shared seed.
+    static final int PRICE_STREAM = 16;
+
+    private final int shard;
+    private final int shardCount;
+    private final int universeSize;
+    private final VirtualTimeMarketScheduler scheduler;
+    private final MarketEngine engine;
+    private MarketSnapshot reported;
+    private ByteBuffer frames = ByteBuffer.allocate(1 << 16);
+    private long steps = 0;
+
+    public MarketShard(StockStore universe, int shard, int shardCount, long seed, PriceModel model,
+                       EventCalendar calendar) {
+        if (shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException("Shard " + shard + " is not one of " + shardCount);
+        }
+        this.shard = shard;
+        this.shardCount = shardCount;
+        this.universeSize = universe.size();
+        StockStore stocks = universe.subset(new SymbolPartitioner(shardCount).assign(universe)[shard]);
+        scheduler = new VirtualTimeMarketScheduler(HeadlessMarket.SEEDED_ORIGIN_MILLIS);
+        PriceUpdateEngine prices = PriceUpdateEngine.create(MarketEngine.streamSeed(seed, PRICE_STREAM + shard), model);
+        engine = new MarketEngine(stocks, scheduler, prices, seed);
+        engine.getEventTimer().setCalendar(calendar.remap(universe, stocks));
+    }
+
+    public MarketEngine getEngine() {
+        return engine;
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    // Serves one coordinator until it says STOP. Hanging up without STOP is an EOFException.
+    public void serve(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 1 << 16);
+        frames.clear();
+        int start = MarketDataProtocol.beginFrame(frames, ShardProtocol.HELLO);
+        frames.putInt(shard).putInt(shardCount).putInt(universeSize).putInt(engine.getStocks().size());
+        MarketDataProtocol.endFrame(frames, start);
+        ShardProtocol.send(frames, out);
+
+        engine.getPriceTimer().start();
+        engine.getEventTimer().start();
+        ByteBuffer received = ByteBuffer.allocate(1024);
+        while (true) {
+            received = ShardProtocol.receive(in, received);
+            byte type = received.get();
+            if (type == ShardProtocol.STOP) return;
+            if (type != ShardProtocol.STEP) {
+                throw new IOException("Unexpected shard frame type " + type);
+            }
+            long step = step(received);
+            report(step, out);
+        }
+    }
+
+    private long step(ByteBuffer in) {
+        long step = in.getLong();
+        long millis = in.getLong();
+        int events = in.getInt();
+        MarketEventTimer eventTimer = engine.getEventTimer();
+        for (int i = 0; i < events; i++) {
+            int index = in.getInt();
+            boolean positive = in.get() != 0;
+            int sectorMask = in.getInt();
+            scheduler.execute(() -> eventTimer.triggerMarketEvent(index, positive, sectorMask));
+        }
+        scheduler.advance(millis, TimeUnit.MILLISECONDS);
+        steps++;
+        return step;
+    }
+
+    private void report(long step, OutputStream out) throws IOException {
+        MarketSnapshot current = engine.getSnapshot();
+        frames = ShardProtocol.ensureCapacity(frames, 64 + Math.max(MarketDataProtocol.maxSnapshotSize(current),
+                                                                    MarketDataProtocol.maxDeltaSize(current)));
+        frames.clear();
+        int start = MarketDataProtocol.beginFrame(frames, ShardProtocol.STEPPED);
+        frames.putLong(step).putLong(scheduler.currentTimeMillis()).putLong(engine.getEventTimer().getFiredEvents());
+        if (reported == null || reported.size() != current.size()) {
+            MarketDataProtocol.encodeSnapshot(current, frames);
+        } else if (reported != current) {
+            MarketDataProtocol.encodeDelta(reported, current, frames);
+        }
+        reported = current;
+        MarketDataProtocol.endFrame(frames, start);
+        ShardProtocol.send(frames, out);
+    }
+
+    // MarketShard [coordinator host] [coordinator port] [shard] [shards] [symbols or universe file] [seed]
+    //             [gbm/ou/jump/correlated] [event calendar, poisson or -]
+    // Normally started by ShardCoordinator; every shard and the coordinator must be given
+    // the same universe, seed, model and calendar.
+    public static void main(String[] args) throws IOException {
+        if (args.length < 6) {
+            System.err.println("Usage: MarketShard host port shard shards universe seed [model] [calendar]");
+            System.exit(2);
+        }
+        InetSocketAddress coordinator = new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+        int shard = Integer.parseInt(args[2]);
+        int shardCount = Integer.parseInt(args[3]);
+        StockStore universe = MarketEngine.stocksFor(args[4]);
+        long seed = Long.parseLong(args[5]);
+        PriceModel model = PriceModel.named(args.length > 6 ? args[6] : "gbm");
+        EventCalendar calendar = EventCalendar.named(args.length > 7 ? args[7] : "-", universe);
+        MarketLog.setLevel(MarketLog.Level.WARN);
+
+        MarketShard market = new MarketShard(universe, shard, shardCount, seed, model, calendar);
+        try (Socket socket = new Socket()) {
+            socket.setTcpNoDelay(true);
+            socket.connect(coordinator);
+            market.serve(socket);
+        } catch (EOFException e) {
+            MarketLog.error("Shard " + shard + ": coordinator hung up after step " + market.getSteps());
+        } finally {
+            market.getEngine().shutdown();
+            MarketLog.flush();
+        }
+    }
+}
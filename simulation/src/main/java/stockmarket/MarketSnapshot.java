@@ -0,0 +1,146 @@
+package stockmarket;
+
+import java.util.Arrays;
+
+// Prices are in cents, like StockStore's; getPrice converts for display.
+//
+// Prices and volumes are held in pages of PAGE_SIZE symbols. A publish copies only the
+// pages its writers dirtied and shares every other page with the previous snapshot, so
+// a trade on one symbol costs a page, not a column.
+public final class MarketSnapshot {
+    static final int PAGE_SHIFT = 10;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+    
+    private final long epoch;
+    private final int size;
+    private final String[] symbols;
+    private final long[][] pricePages;
+    private final int[][] volumePages;
+    // The symbols whose price or volume differs from the previous epoch, or null when
+    // that is not known; see ChangeLog.
+    private final ChangeLog log;
+    private final long[] changed;
+    private final int changedCount;
+    
+    // Pages copies of the first 'size' entries of flat columns.
+    MarketSnapshot(long epoch, int size, String[] symbols, long[] prices, int[] volumes) {
+        this(epoch, size, symbols, pages(prices, size), pages(volumes, size), null, null);
+    }
+    
+    MarketSnapshot(long epoch, int size, String[] symbols, long[][] pricePages, int[][] volumePages, ChangeLog log,
+                   long[] changed) {
+        this.epoch = epoch;
+        this.size = size;
+        this.symbols = symbols;
+        this.pricePages = pricePages;
+        this.volumePages = volumePages;
+        this.log = log;
+        this.changed = changed;
+        this.changedCount = changed != null ? ChangeLog.count(changed) : size;
+    }
+    
+    public long getEpoch() {
+        return epoch;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public String getSymbol(int id) {
+        return symbols[id];
+    }
+    
+    public double getPrice(int id) {
+        return Cents.toPrice(getPriceCents(id));
+    }
+    
+    public long getPriceCents(int id) {
+        return pricePages[id >>> PAGE_SHIFT][id & PAGE_MASK];
+    }
+    
+    public int getVolume(int id) {
+        return volumePages[id >>> PAGE_SHIFT][id & PAGE_MASK];
+    }
+    
+    // Symbols changed since the previous epoch; all of them when that is not known.
+    public int getChangedCount() {
+        return changedCount;
+    }
+    
+    // Read-only bits of the symbols changed since the previous epoch, or null for all.
+    long[] changed() {
+        return changed;
+    }
+    
+    // Read-only bits of the symbols that may differ between 'base' and this snapshot, or
+    // null when the caller has to compare the columns itself. A set bit only promises that
+    // the symbol was written in between; it may have been put back as it was.
+    long[] changedSince(MarketSnapshot base) {
+        if (base == null || base.size != size || log == null || base.log != log || base.epoch > epoch) {
+            return null;
+        }
+        if (base.epoch == epoch - 1) {
+            return changed;
+        }
+        return log.changedBetween(base.epoch, epoch, size);
+    }
+    
+    // Whether both columns of 'page' are the very same arrays in the two snapshots.
+    boolean sharesPage(MarketSnapshot other, int page) {
+        return pricePages[page] == other.pricePages[page] && volumePages[page] == other.volumePages[page];
+    }
+    
+    String[] symbolColumn() {
+        return symbols;
+    }
+    
+    long[][] pricePages() {
+        return pricePages;
+    }
+    
+    int[][] volumePages() {
+        return volumePages;
+    }
+    
+    public long[] copyPriceCents() {
+        long[] copy = new long[size];
+        for (int page = 0; page < pricePages.length; page++) {
+            int base = page << PAGE_SHIFT;
+            System.arraycopy(pricePages[page], 0, copy, base, Math.min(PAGE_SIZE, size - base));
+        }
+        return copy;
+    }
+    
+    public int[] copyVolumes() {
+        int[] copy = new int[size];
+        for (int page = 0; page < volumePages.length; page++) {
+            int base = page << PAGE_SHIFT;
+            System.arraycopy(volumePages[page], 0, copy, base, Math.min(PAGE_SIZE, size - base));
+        }
+        return copy;
+    }
+    
+    static int pageCount(int size) {
+        return (size + PAGE_MASK) >>> PAGE_SHIFT;
+    }
+    
+    static long[][] pages(long[] column, int size) {
+        long[][] pages = new long[pageCount(size)][];
+        for (int page = 0; page < pages.length; page++) {
+            int base = page << PAGE_SHIFT;
+            pages[page] = Arrays.copyOfRange(column, base, base + PAGE_SIZE);
+        }
+        return pages;
+    }
+    
+    static int[][] pages(int[] column, int size) {
+        int[][] pages = new int[pageCount(size)][];
+        for (int page = 0; page < pages.length; page++) {
+            int base = page << PAGE_SHIFT;
+            pages[page] = Arrays.copyOfRange(column, base, base + PAGE_SIZE);
+        }
+        return pages;
+    }
+}
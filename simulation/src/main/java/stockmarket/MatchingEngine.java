@@ -0,0 +1,351 @@
+package stockmarket;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Continuous matching across many symbols. Symbols are partitioned over shard threads
+// (symbol % shards) and each shard is the only writer of its books, so matching needs
+// no locks. Orders reach a shard through a primitive MPSC ring; fills are buffered per
+// shard and handed to the market thread in bulk through drainFills(). An idle shard parks
+// until an offer wakes it, so an engine with nothing to match costs no CPU.
+//
+// With zero shards everything runs inline on the submitting thread, which keeps
+// virtual-time and seeded runs deterministic.
+public class MatchingEngine {
+    public static final int OWNER_MARKET_MAKER = 1;
+    public static final int OWNER_USER = 2;
+
+    private static final int OP_SUBMIT = 0;
+    private static final int OP_CANCEL_OWNER = 1;
+    private static final int QUEUE_CAPACITY = 1 << 16;
+
+    private final OrderBook[] books;
+    private final Shard[] shards;
+    private final FillBuffer inlineFills;
+    private final AtomicLong nextOrderId = new AtomicLong(1);
+    private volatile boolean running = true;
+
+    public MatchingEngine(int symbolCount, int shardCount) {
+        books = new OrderBook[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            books[i] = new OrderBook(i);
+        }
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+            shards[i].thread.start();
+        }
+        inlineFills = shardCount == 0 ? new FillBuffer() : null;
+    }
+
+    public static MatchingEngine create(int symbolCount) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return new MatchingEngine(symbolCount, Math.max(1, Math.min(cores - 1, 8)));
+    }
+
+    public long nextOrderId() {
+        return nextOrderId.getAndIncrement();
+    }
+
+    public int getSymbolCount() {
+        return books.length;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Returns false when the shard's queue is full; the caller decides whether to retry.
+    public boolean submit(int symbol, long orderId, int owner, boolean buy, long limitPrice,
+                          long quantity, boolean rest) {
+        if (shards.length == 0) {
+            synchronized (inlineFills) {
+                books[symbol].submit(orderId, owner, buy, limitPrice, quantity, rest, inlineFills);
+            }
+            return true;
+        }
+        return shards[symbol % shards.length].queue.offer(OP_SUBMIT, symbol, orderId, owner, buy,
+                                                         limitPrice, quantity, rest);
+    }
+
+    // Waits for queue space instead of failing. Parks rather than spins so the shard
+    // thread can make progress even when both share a core.
+    public void submitWaiting(int symbol, long orderId, int owner, boolean buy, long limitPrice,
+                              long quantity, boolean rest) {
+        while (!submit(symbol, orderId, owner, buy, limitPrice, quantity, rest)) {
+            LockSupport.parkNanos(10_000);
+        }
+    }
+    
+    public void cancelOwner(int symbol, int owner) {
+        if (shards.length == 0) {
+            synchronized (inlineFills) {
+                books[symbol].cancelOwner(owner);
+            }
+            return;
+        }
+        OrderQueue queue = shards[symbol % shards.length].queue;
+        while (!queue.offer(OP_CANCEL_OWNER, symbol, 0, owner, false, 0, 0, false)) {
+            LockSupport.parkNanos(10_000);
+        }
+    }
+
+    // Waits until every order submitted before this call has been matched.
+    public void awaitIdle() {
+        for (Shard shard : shards) {
+            long target = shard.queue.submitted();
+            while (shard.processed < target && running) {
+                LockSupport.parkNanos(10_000);
+            }
+        }
+    }
+
+    public int drainFills(OrderBook.FillSink sink) {
+        if (shards.length == 0) {
+            return inlineFills.drainTo(sink);
+        }
+        int drained = 0;
+        for (Shard shard : shards) {
+            drained += shard.fills.drainTo(sink);
+        }
+        return drained;
+    }
+
+    // Only safe from the shard that owns the symbol or once the engine is idle.
+    OrderBook book(int symbol) {
+        return books[symbol];
+    }
+
+    public void shutdown() {
+        running = false;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+    }
+
+    private final class Shard implements Runnable {
+        private final OrderQueue queue = new OrderQueue(QUEUE_CAPACITY);
+        private final FillBuffer fills = new FillBuffer();
+        private final Thread thread;
+        private volatile long processed = 0;
+
+        Shard(int index) {
+            thread = new Thread(this, "MatchingShard-" + index);
+            thread.setDaemon(true);
+            queue.consumer = thread;
+        }
+
+        @Override
+        public void run() {
+            OrderQueue.Cursor order = queue.cursor();
+            while (running) {
+                if (!queue.poll(order)) {
+                    queue.awaitOffer();
+                    continue;
+                }
+                synchronized (fills) {
+                    do {
+                        OrderBook book = books[order.symbol];
+                        if (order.op == OP_SUBMIT) {
+                            book.submit(order.orderId, order.owner, order.buy, order.price, order.quantity,
+                                        order.rest, fills);
+                        } else {
+                            book.cancelOwner(order.owner);
+                        }
+                        processed++;
+                    } while (queue.poll(order));
+                }
+            }
+        }
+    }
+
+    // Fills are appended by one matching thread and drained by the market thread; the
+    // two swap buffers under the buffer's monitor once per batch.
+    static final class FillBuffer implements OrderBook.FillSink {
+        private Batch active = new Batch();
+        private Batch spare = new Batch();
+
+        @Override
+        public void onFill(int symbol, long price, long quantity, long takerId, int takerOwner,
+                           long makerId, int makerOwner, boolean takerBuy) {
+            active.add(symbol, price, quantity, takerId, takerOwner, makerId, makerOwner, takerBuy);
+        }
+
+        int drainTo(OrderBook.FillSink sink) {
+            Batch batch;
+            synchronized (this) {
+                batch = active;
+                active = spare;
+                spare = batch;
+            }
+            int count = batch.count;
+            // A sink that throws still empties the batch, so its fills are not replayed.
+            try {
+                for (int i = 0; i < count; i++) {
+                    sink.onFill(batch.symbols[i], batch.prices[i], batch.quantities[i], batch.takerIds[i],
+                                batch.takerOwners[i], batch.makerIds[i], batch.makerOwners[i], batch.takerBuys[i]);
+                }
+            } finally {
+                batch.count = 0;
+            }
+            return count;
+        }
+    }
+
+    private static final class Batch {
+        int[] symbols = new int[256];
+        long[] prices = new long[256];
+        long[] quantities = new long[256];
+        long[] takerIds = new long[256];
+        int[] takerOwners = new int[256];
+        long[] makerIds = new long[256];
+        int[] makerOwners = new int[256];
+        boolean[] takerBuys = new boolean[256];
+        int count = 0;
+
+        void add(int symbol, long price, long quantity, long takerId, int takerOwner,
+                 long makerId, int makerOwner, boolean takerBuy) {
+            if (count == symbols.length) {
+                int capacity = count * 2;
+                symbols = Arrays.copyOf(symbols, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                takerIds = Arrays.copyOf(takerIds, capacity);
+                takerOwners = Arrays.copyOf(takerOwners, capacity);
+                makerIds = Arrays.copyOf(makerIds, capacity);
+                makerOwners = Arrays.copyOf(makerOwners, capacity);
+                takerBuys = Arrays.copyOf(takerBuys, capacity);
+            }
+            symbols[count] = symbol;
+            prices[count] = price;
+            quantities[count] = quantity;
+            takerIds[count] = takerId;
+            takerOwners[count] = takerOwner;
+            makerIds[count] = makerId;
+            makerOwners[count] = makerOwner;
+            takerBuys[count] = takerBuy;
+            count++;
+        }
+    }
+
+    static final class OrderQueue {
+        private static final int IDLE_YIELDS = 16;
+
+        private final int mask;
+        private final AtomicLongArray published;
+        private final byte[] ops;
+        private final int[] symbols;
+        private final long[] orderIds;
+        private final int[] owners;
+        private final boolean[] buys;
+        private final long[] prices;
+        private final long[] quantities;
+        private final boolean[] rests;
+        private final AtomicLong head = new AtomicLong();
+        private volatile long tail = 0;
+        // The polling thread, parked in awaitOffer while 'sleeping' is set. The first offer
+        // to clear the flag is the only one that pays for an unpark.
+        volatile Thread consumer;
+        private final AtomicBoolean sleeping = new AtomicBoolean();
+
+        OrderQueue(int capacity) {
+            mask = capacity - 1;
+            published = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                published.set(i, -1);
+            }
+            ops = new byte[capacity];
+            symbols = new int[capacity];
+            orderIds = new long[capacity];
+            owners = new int[capacity];
+            buys = new boolean[capacity];
+            prices = new long[capacity];
+            quantities = new long[capacity];
+            rests = new boolean[capacity];
+        }
+
+        boolean offer(int op, int symbol, long orderId, int owner, boolean buy, long price,
+                      long quantity, boolean rest) {
+            long sequence;
+            do {
+                sequence = head.get();
+                if (sequence - tail > mask) {
+                    return false;
+                }
+            } while (!head.compareAndSet(sequence, sequence + 1));
+            int slot = (int) (sequence & mask);
+            ops[slot] = (byte) op;
+            symbols[slot] = symbol;
+            orderIds[slot] = orderId;
+            owners[slot] = owner;
+            buys[slot] = buy;
+            prices[slot] = price;
+            quantities[slot] = quantity;
+            rests[slot] = rest;
+            // A full volatile store, not lazySet: it must be ordered before the read of
+            // 'sleeping', as awaitOffer's write of 'sleeping' is before its read of the slot,
+            // so either the consumer sees the order or this sees the consumer asleep.
+            published.set(slot, sequence);
+            if (sleeping.get() && sleeping.compareAndSet(true, false)) {
+                LockSupport.unpark(consumer);
+            }
+            return true;
+        }
+
+        // Consumer side: parks until an offer may have arrived. Wake-ups can be spurious,
+        // and MatchingEngine.shutdown unparks the consumer too, so callers poll again.
+        // A few yields first let a producer in the middle of a batch finish it, rather
+        // than waking the consumer for every order.
+        void awaitOffer() {
+            for (int i = 0; i < IDLE_YIELDS; i++) {
+                if (published.get((int) (tail & mask)) == tail) return;
+                Thread.yield();
+            }
+            sleeping.set(true);
+            if (published.get((int) (tail & mask)) != tail) {
+                LockSupport.park(this);
+            }
+            sleeping.set(false);
+        }
+
+        long submitted() {
+            return head.get();
+        }
+
+        Cursor cursor() {
+            return new Cursor();
+        }
+
+        boolean poll(Cursor cursor) {
+            long sequence = tail;
+            int slot = (int) (sequence & mask);
+            if (published.get(slot) != sequence) {
+                return false;
+            }
+            cursor.op = ops[slot];
+            cursor.symbol = symbols[slot];
+            cursor.orderId = orderIds[slot];
+            cursor.owner = owners[slot];
+            cursor.buy = buys[slot];
+            cursor.price = prices[slot];
+            cursor.quantity = quantities[slot];
+            cursor.rest = rests[slot];
+            tail = sequence + 1;
+            return true;
+        }
+
+        static final class Cursor {
+            int op;
+            int symbol;
+            long orderId;
+            int owner;
+            boolean buy;
+            long price;
+            long quantity;
+            boolean rest;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package stockmarket;
+
+import java.util.Arrays;
+
+// Limit order book for one symbol with price-time priority. Prices are integer ticks
+// (cents). Each side keeps its price levels in primitive arrays sorted so the best
+// level is last, and every level is a FIFO list threaded through a shared order pool.
+// A book is only ever touched by the thread that owns its symbol.
+public class OrderBook {
+    public interface FillSink {
+        void onFill(int symbol, long price, long quantity, long takerId, int takerOwner,
+                    long makerId, int makerOwner, boolean takerBuy);
+    }
+
+    private static final int NIL = -1;
+
+    private final int symbol;
+    private final Side bids = new Side(true);
+    private final Side asks = new Side(false);
+
+    private long[] orderIds = new long[64];
+    private int[] owners = new int[64];
+    private long[] quantities = new long[64];
+    private int[] next = new int[64];
+    private int freeHead = NIL;
+    private int poolUsed = 0;
+    private int restingOrders = 0;
+
+    public OrderBook(int symbol) {
+        this.symbol = symbol;
+    }
+
+    public int getSymbol() {
+        return symbol;
+    }
+
+    // Matches against the opposite side up to 'limitPrice'. Whatever is left either rests
+    // on the book (rest == true) or is discarded, and the unfilled quantity is returned.
+    public long submit(long orderId, int owner, boolean buy, long limitPrice, long quantity,
+                       boolean rest, FillSink sink) {
+        long remaining = quantity;
+        Side opposite = buy ? asks : bids;
+        while (remaining > 0 && opposite.count > 0) {
+            int level = opposite.count - 1;
+            long levelPrice = opposite.prices[level];
+            if (buy ? levelPrice > limitPrice : levelPrice < limitPrice) {
+                break;
+            }
+            int order = opposite.heads[level];
+            while (order != NIL && remaining > 0) {
+                long traded = Math.min(remaining, quantities[order]);
+                remaining -= traded;
+                quantities[order] -= traded;
+                opposite.totals[level] -= traded;
+                sink.onFill(symbol, levelPrice, traded, orderId, owner, orderIds[order], owners[order], buy);
+                if (quantities[order] == 0) {
+                    int following = next[order];
+                    release(order);
+                    order = following;
+                }
+            }
+            opposite.heads[level] = order;
+            if (order == NIL) {
+                opposite.count--;
+            }
+        }
+        if (remaining > 0 && rest) {
+            Side own = buy ? bids : asks;
+            int level = own.levelFor(limitPrice);
+            int order = allocate(orderId, owner, remaining);
+            if (own.heads[level] == NIL) {
+                own.heads[level] = order;
+            } else {
+                next[own.tails[level]] = order;
+            }
+            own.tails[level] = order;
+            own.totals[level] += remaining;
+        }
+        return remaining;
+    }
+
+    public void cancelOwner(int owner) {
+        bids.cancelOwner(owner);
+        asks.cancelOwner(owner);
+    }
+
+    public long bestBid() {
+        return bids.count > 0 ? bids.prices[bids.count - 1] : 0;
+    }
+
+    public long bestAsk() {
+        return asks.count > 0 ? asks.prices[asks.count - 1] : 0;
+    }
+
+    public int bidLevels() {
+        return bids.count;
+    }
+
+    public int askLevels() {
+        return asks.count;
+    }
+
+    public long bidQuantityAt(int depth) {
+        return depth < bids.count ? bids.totals[bids.count - 1 - depth] : 0;
+    }
+
+    public long askQuantityAt(int depth) {
+        return depth < asks.count ? asks.totals[asks.count - 1 - depth] : 0;
+    }
+
+    public int getRestingOrders() {
+        return restingOrders;
+    }
+
+    private int allocate(long orderId, int owner, long quantity) {
+        int order;
+        if (freeHead != NIL) {
+            order = freeHead;
+            freeHead = next[order];
+        } else {
+            if (poolUsed == orderIds.length) {
+                int capacity = poolUsed * 2;
+                orderIds = Arrays.copyOf(orderIds, capacity);
+                owners = Arrays.copyOf(owners, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                next = Arrays.copyOf(next, capacity);
+            }
+            order = poolUsed++;
+        }
+        orderIds[order] = orderId;
+        owners[order] = owner;
+        quantities[order] = quantity;
+        next[order] = NIL;
+        restingOrders++;
+        return order;
+    }
+
+    private void release(int order) {
+        next[order] = freeHead;
+        freeHead = order;
+        restingOrders--;
+    }
+
+    private final class Side {
+        private final boolean bidSide;
+        private long[] prices = new long[16];
+        private long[] totals = new long[16];
+        private int[] heads = new int[16];
+        private int[] tails = new int[16];
+        private int count = 0;
+
+        Side(boolean bidSide) {
+            this.bidSide = bidSide;
+        }
+
+        // Bids are stored ascending and asks descending, so the best price is always
+        // at count - 1 and the common case (trading or quoting near the touch) only
+        // moves a few elements.
+        private boolean before(long a, long b) {
+            return bidSide ? a < b : a > b;
+        }
+
+        int levelFor(long price) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long value = prices[middle];
+                if (value == price) {
+                    return middle;
+                } else if (before(value, price)) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (count == prices.length) {
+                int capacity = count * 2;
+                prices = Arrays.copyOf(prices, capacity);
+                totals = Arrays.copyOf(totals, capacity);
+                heads = Arrays.copyOf(heads, capacity);
+                tails = Arrays.copyOf(tails, capacity);
+            }
+            int moved = count - low;
+            System.arraycopy(prices, low, prices, low + 1, moved);
+            System.arraycopy(totals, low, totals, low + 1, moved);
+            System.arraycopy(heads, low, heads, low + 1, moved);
+            System.arraycopy(tails, low, tails, low + 1, moved);
+            prices[low] = price;
+            totals[low] = 0;
+            heads[low] = NIL;
+            tails[low] = NIL;
+            count++;
+            return low;
+        }
+
+        void cancelOwner(int owner) {
+            int kept = 0;
+            for (int level = 0; level < count; level++) {
+                int head = NIL;
+                int tail = NIL;
+                long total = 0;
+                for (int order = heads[level]; order != NIL; ) {
+                    int following = next[order];
+                    if (owners[order] == owner) {
+                        release(order);
+                    } else {
+                        if (head == NIL) {
+                            head = order;
+                        } else {
+                            next[tail] = order;
+                        }
+                        tail = order;
+                        next[order] = NIL;
+                        total += quantities[order];
+                    }
+                    order = following;
+                }
+                if (head != NIL) {
+                    prices[kept] = prices[level];
+                    totals[kept] = total;
+                    heads[kept] = head;
+                    tails[kept] = tail;
+                    kept++;
+                }
+            }
+            count = kept;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package stockmarket;
+
+import java.util.SplittableRandom;
+
+// Mean reversion of the log price towards each symbol's base (listing) price:
+// x' = x + theta * (ln base - x) + sigma * Z. Drift is not used by this model.
+public class OrnsteinUhlenbeckPriceModel implements PriceModel {
+    public static final double DEFAULT_REVERSION = 0.05;
+    
+    private final double reversion;
+    
+    public OrnsteinUhlenbeckPriceModel() {
+        this(DEFAULT_REVERSION);
+    }
+    
+    public OrnsteinUhlenbeckPriceModel(double reversion) {
+        if (reversion < 0 || reversion > 1) {
+            throw new IllegalArgumentException("Reversion must be in [0, 1]: " + reversion);
+        }
+        this.reversion = reversion;
+    }
+    
+    @Override
+    public String getName() {
+        return "ou";
+    }
+    
+    @Override
+    public void advance(StockStore stocks, int from, int to, double[] normals, SplittableRandom random) {
+        long[] prices = stocks.prices();
+        int[] ticks = stocks.tickSizes();
+        double[] changes = stocks.changes();
+        long[] basePrices = stocks.basePrices();
+        double[] volatilities = stocks.volatilities();
+        for (int i = from, n = 0; i < to; i++, n++) {
+            double logReturn = reversion * Math.log(basePrices[i] / (double) prices[i]) + volatilities[i] * normals[n];
+            double change = Math.exp(logReturn) - 1;
+            prices[i] = PriceModel.move(prices[i], change, ticks[i]);
+            changes[i] = change;
+        }
+    }
+}
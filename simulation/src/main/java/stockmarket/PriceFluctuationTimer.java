@@ -0,0 +1,94 @@
+package stockmarket;
+
+import java.util.concurrent.TimeUnit;
+
+public class PriceFluctuationTimer {
+    static final long PERIOD_MILLIS = 2000;
+    
+    private MarketEngine engine;
+    private MarketClock clock;
+    private volatile boolean running = false;
+    private long startTime;
+    private PriceUpdateEngine updateEngine;
+    
+    public PriceFluctuationTimer(MarketEngine engine) {
+        this(engine, PriceUpdateEngine.create(System.nanoTime()));
+    }
+    
+    public PriceFluctuationTimer(MarketEngine engine, PriceUpdateEngine updateEngine) {
+        this.engine = engine;
+        this.updateEngine = updateEngine;
+    }
+    
+    public PriceUpdateEngine getEngine() {
+        return updateEngine;
+    }
+    
+    public void setEngine(PriceUpdateEngine updateEngine) {
+        if (running) {
+            throw new IllegalStateException("Stop the price timer before changing its engine");
+        }
+        this.updateEngine = updateEngine;
+    }
+    
+    public void start() {
+        if (running) {
+            MarketLog.warn("PriceFluctuationTimer already running - stop it first");
+            return;
+        }
+        running = true;
+        startTime = engine.getScheduler().currentTimeMillis();
+        clock = engine.getScheduler().scheduleAtFixedRate("PriceTimer", 0, PERIOD_MILLIS, TimeUnit.MILLISECONDS,
+                                                       MarketScheduler.OverrunPolicy.SKIP, this::updateStockPrices);
+        engine.firePriceTimerStatus("RUNNING (every 2s)");
+        MarketLog.info("PriceFluctuationTimer started - updates every 2 seconds (" + updateEngine.getModel().getName() + " model)");
+    }
+    
+    void updateStockPrices() {
+        StockStore stocks = engine.getStocks();
+        long tickStart = System.nanoTime();
+        updateEngine.update(stocks);
+        MarketSnapshot published = stocks.publishChanges();
+        engine.recordChanges(TickCause.PRICE_TICK);
+        
+        boolean symbolDetail = MarketLog.isSymbolDetail();
+        if (symbolDetail) {
+            long[] changed = published.changed();
+            for (int i = ChangeLog.next(changed, 0, stocks.size()); i >= 0; i = ChangeLog.next(changed, i + 1, stocks.size())) {
+                MarketLog.priceUpdate(i, stocks.getSymbol(i), stocks.getPrice(i), stocks.getChange(i));
+            }
+        }
+        
+        engine.fireStocksUpdated();
+        // One clock read serves both the log and the metrics.
+        long tickNanos = System.nanoTime() - tickStart;
+        engine.getMetrics().getPriceTickHistogram().record(tickNanos);
+        if (!symbolDetail) {
+            MarketLog.tickSummary("Price tick", stocks.size(), tickNanos);
+        }
+    }
+    
+    public void stop() {
+        if (clock != null) {
+            clock.cancel();
+            MarketLog.debug(clock.toString());
+            clock = null;
+        }
+        running = false;
+        engine.firePriceTimerStatus("STOPPED");
+        MarketLog.info("PriceFluctuationTimer stopped");
+    }
+    
+    public boolean isRunning() {
+        return running;
+    }
+    
+    public MarketClock getClock() {
+        return clock;
+    }
+    
+    public int getSecondsRunning() {
+        if (!running) return 0;
+        return (int)((engine.getScheduler().currentTimeMillis() - startTime) / 1000);
+    }
+}
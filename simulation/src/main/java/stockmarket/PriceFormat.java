@@ -0,0 +1,81 @@
+package stockmarket;
+
+// Allocation-free number formatting. Each method writes right-aligned into the end
+// of the caller's buffer and returns the offset of the first character.
+public final class PriceFormat {
+    public static final int BUFFER_SIZE = 32;
+    
+    private PriceFormat() {
+    }
+    
+    // "$1234.56", same as "$" + String.format("%.2f", price) for prices of zero or more;
+    // a negative amount reads "-$3.50".
+    public static int formatPrice(double price, char[] buf) {
+        int pos = formatDecimal(price, 2, buf);
+        if (buf[pos] == '-') {
+            buf[pos] = '$';
+            buf[--pos] = '-';
+        } else {
+            buf[--pos] = '$';
+        }
+        return pos;
+    }
+    
+    // Same as String.format("%." + decimals + "f", value) for 0 <= decimals <= 9.
+    public static int formatDecimal(double value, int decimals, char[] buf) {
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+        // String.format rounds the shortest decimal that reads back as the value half up,
+        // so 1.005 - stored as 1.00499999... - becomes "1.01". The value rounds up exactly
+        // when it is at least the double nearest to the halfway decimal. The sign bit keeps
+        // the "-" of -0.0 and of negatives that round to zero, as String.format does.
+        boolean negative = Double.doubleToRawLongBits(value) < 0;
+        double magnitude = Math.abs(value);
+        long scaled = (long) (magnitude * scale);
+        if (magnitude >= (scaled + 0.5) / scale) scaled++;
+        
+        int pos = buf.length;
+        for (int i = 0; i < decimals; i++) {
+            buf[--pos] = (char) ('0' + scaled % 10);
+            scaled /= 10;
+        }
+        if (decimals > 0) {
+            buf[--pos] = '.';
+        }
+        do {
+            buf[--pos] = (char) ('0' + scaled % 10);
+            scaled /= 10;
+        } while (scaled > 0);
+        if (negative) buf[--pos] = '-';
+        return pos;
+    }
+    
+    // "12.34%" for 0.1234, same as String.format("%.2f%%", fraction * 100).
+    public static int formatPercent(double fraction, int decimals, char[] buf) {
+        int pos = formatDecimal(fraction * 100, decimals, buf);
+        System.arraycopy(buf, pos, buf, pos - 1, buf.length - pos);
+        buf[buf.length - 1] = '%';
+        return pos - 1;
+    }
+    
+    // "1,234,567", same as String.format("%,d", value) in an English locale.
+    public static int formatGrouped(long value, char[] buf) {
+        // Digits are taken from the signed value, as Long.MIN_VALUE has no positive twin.
+        long remaining = value;
+        
+        int pos = buf.length;
+        int digits = 0;
+        do {
+            if (digits > 0 && digits % 3 == 0) {
+                buf[--pos] = ',';
+            }
+            buf[--pos] = (char) ('0' + Math.abs(remaining % 10));
+            remaining /= 10;
+            digits++;
+        } while (remaining != 0);
+        if (value < 0) buf[--pos] = '-';
+        return pos;
+    }
+}
@@ -0,0 +1,63 @@
+package stockmarket;
+
+import java.util.SplittableRandom;
+
+// A stochastic price process applied in bulk to a range of symbols. The engine draws a
+// batch of standard normals for the range up front, so kernels are plain arithmetic over
+// the contiguous StockStore columns. Drift and volatility are per symbol, per price tick.
+public interface PriceModel {
+    String getName();
+    
+    // Called once per tick on the timer thread before any range is advanced, for state
+    // that every symbol shares within the tick. The seed is deterministic per tick.
+    default void beginTick(StockStore stocks, long tickSeed) {
+    }
+    
+    // Moves prices[from, to) one tick forward and stores each relative move in changes.
+    // normals[0, to - from) holds independent standard normals for this range.
+    void advance(StockStore stocks, int from, int to, double[] normals, SplittableRandom random);
+    
+    static PriceModel named(String name) {
+        switch (name) {
+            case "gbm": return new GbmPriceModel();
+            case "ou": return new OrnsteinUhlenbeckPriceModel();
+            case "jump": return new JumpDiffusionPriceModel();
+            case "correlated": return new CorrelatedPriceModel();
+            default: throw new IllegalArgumentException("Unknown price model: " + name);
+        }
+    }
+    
+    // Marsaglia polar method, keeping both values of every accepted pair.
+    static void fillNormals(SplittableRandom random, double[] normals, int count) {
+        int i = 0;
+        while (i < count) {
+            double v1 = 2 * random.nextDouble() - 1;
+            double v2 = 2 * random.nextDouble() - 1;
+            double s = v1 * v1 + v2 * v2;
+            if (s >= 1 || s == 0) continue;
+            double scale = Math.sqrt(-2 * Math.log(s) / s);
+            normals[i++] = v1 * scale;
+            if (i < count) {
+                normals[i++] = v2 * scale;
+            }
+        }
+    }
+    
+    static double gaussian(SplittableRandom random) {
+        double v1, v2, s;
+        do {
+            v1 = 2 * random.nextDouble() - 1;
+            v2 = 2 * random.nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        return v1 * Math.sqrt(-2 * Math.log(s) / s);
+    }
+    
+    // Applies a relative move to a price in cents. The move is the one floating-point
+    // step of a tick; the result lands back on the instrument's tick grid.
+    static long move(long cents, double change, int tick) {
+        double moved = cents * (1 + change);
+        if (tick == 1) return Math.max(1, Math.round(moved));
+        return Math.max(tick, Math.round(moved / tick) * tick);
+    }
+}
@@ -0,0 +1,45 @@
+package stockmarket;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+public interface PriceUpdateEngine {
+    int CHUNK_SIZE = 4096;
+    
+    void update(StockStore stocks);
+    
+    PriceModel getModel();
+    
+    default void shutdown() {
+    }
+    
+    static PriceUpdateEngine create(long seed) {
+        return create(seed, new GbmPriceModel());
+    }
+    
+    static PriceUpdateEngine create(long seed, PriceModel model) {
+        if (Runtime.getRuntime().availableProcessors() > 1) {
+            return new ForkJoinPriceUpdateEngine(ForkJoinPool.commonPool(), seed, model);
+        }
+        return new SerialPriceUpdateEngine(seed, model);
+    }
+    
+    // Every chunk gets its own generator derived from (seed, tick, chunk), so the
+    // result does not depend on which worker picks the chunk up or in what order.
+    // Chunk -1 is the tick-wide seed handed to PriceModel.beginTick.
+    static SplittableRandom chunkRandom(long seed, long tick, int chunk) {
+        return new SplittableRandom(chunkSeed(seed, tick, chunk));
+    }
+    
+    static long chunkSeed(long seed, long tick, int chunk) {
+        return seed ^ (tick * 0x9E3779B97F4A7C15L) ^ ((long) chunk * 0xC2B2AE3D27D4EB4FL);
+    }
+    
+    // Each chunk marks the prices it advanced for the next StockStore.publishChanges.
+    static void updateChunk(StockStore stocks, PriceModel model, int from, int to,
+                            SplittableRandom random, double[] normals) {
+        PriceModel.fillNormals(random, normals, to - from);
+        model.advance(stocks, from, to, normals, random);
+        stocks.markPrices(from, to);
+    }
+}
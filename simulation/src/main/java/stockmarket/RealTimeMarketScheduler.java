@@ -0,0 +1,52 @@
+package stockmarket;
+
+import java.util.concurrent.*;
+
+public class RealTimeMarketScheduler extends MarketScheduler {
+    private final ScheduledThreadPoolExecutor executor;
+    
+    public RealTimeMarketScheduler() {
+        super(System.currentTimeMillis(), System.nanoTime());
+        executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "MarketScheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+    
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+    
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+    
+    @Override
+    void arm(MarketClock clock) {
+        long delay = Math.max(0, clock.getDeadline() - nanoTime());
+        clock.setFuture(executor.schedule(clock::fire, delay, TimeUnit.NANOSECONDS));
+    }
+    
+    @Override
+    void disarm(MarketClock clock) {
+        Future<?> future = clock.getFuture();
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+    
+    @Override
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package stockmarket;
+
+import java.util.Arrays;
+
+// Distributions gathered from a ScenarioRunner run: the trader's P&L per scenario and
+// every symbol's open-to-close log return per scenario (scenario-major, one row per
+// scenario in listing order).
+public final class ScenarioReport {
+    private static final int MAX_LISTED_SYMBOLS = 10;
+
+    private final String[] symbols;
+    private final double[] pnl;
+    private final double[] sortedPnl;
+    private final double[] returns;
+    private final long elapsedNanos;
+    private final int workers;
+
+    ScenarioReport(String[] symbols, double[] pnl, double[] returns, long elapsedNanos, int workers) {
+        this.symbols = symbols;
+        this.pnl = pnl;
+        this.returns = returns;
+        this.elapsedNanos = elapsedNanos;
+        this.workers = workers;
+        sortedPnl = pnl.clone();
+        Arrays.sort(sortedPnl);
+    }
+
+    public int getScenarioCount() {
+        return pnl.length;
+    }
+
+    public int getSymbolCount() {
+        return symbols.length;
+    }
+
+    public double getPnl(int scenario) {
+        return pnl[scenario];
+    }
+
+    public double getReturn(int scenario, int symbol) {
+        return returns[scenario * symbols.length + symbol];
+    }
+
+    public double getMeanPnl() {
+        return mean(pnl);
+    }
+
+    public double getPnlStdDev() {
+        return stdDev(pnl);
+    }
+
+    public double getPnlPercentile(double percentile) {
+        return percentile(sortedPnl, percentile);
+    }
+
+    // Loss not exceeded with the given confidence, e.g. 95; positive means a loss.
+    public double getValueAtRisk(double confidence) {
+        return -getPnlPercentile(100 - confidence);
+    }
+
+    // Average loss over the scenarios beyond the value at risk.
+    public double getExpectedShortfall(double confidence) {
+        int tail = Math.max(1, (int) Math.floor(sortedPnl.length * (100 - confidence) / 100.0));
+        double sum = 0;
+        for (int i = 0; i < tail; i++) {
+            sum += sortedPnl[i];
+        }
+        return -sum / tail;
+    }
+
+    public double[] getReturns(int symbol) {
+        double[] column = new double[pnl.length];
+        for (int scenario = 0; scenario < column.length; scenario++) {
+            column[scenario] = getReturn(scenario, symbol);
+        }
+        return column;
+    }
+
+    public double getReturnPercentile(int symbol, double percentile) {
+        double[] column = getReturns(symbol);
+        Arrays.sort(column);
+        return percentile(column, percentile);
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getScenariosPerSecond() {
+        return pnl.length * 1e9 / Math.max(1, elapsedNanos);
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static double stdDev(double[] values) {
+        if (values.length < 2) return 0;
+        double mean = mean(values);
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(squares / (values.length - 1));
+    }
+
+    // Nearest-rank percentile of already sorted values.
+    private static double percentile(double[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%,d scenario(s) x %,d symbol(s) on %d worker(s) in %.2f s (%.1f scenarios/s)%n",
+                                 pnl.length, symbols.length, workers, elapsedNanos / 1e9, getScenariosPerSecond()));
+        out.append(String.format("P&L     mean %,.2f  sd %,.2f  p1 %,.2f  p5 %,.2f  p50 %,.2f  p95 %,.2f  p99 %,.2f%n",
+                                 getMeanPnl(), getPnlStdDev(), getPnlPercentile(1), getPnlPercentile(5),
+                                 getPnlPercentile(50), getPnlPercentile(95), getPnlPercentile(99)));
+        out.append(String.format("        VaR95 %,.2f  ES95 %,.2f  VaR99 %,.2f  ES99 %,.2f%n",
+                                 getValueAtRisk(95), getExpectedShortfall(95),
+                                 getValueAtRisk(99), getExpectedShortfall(99)));
+        double[] pooled = returns.clone();
+        Arrays.sort(pooled);
+        out.append(String.format("Log returns (all symbols) mean %+.3f%%  sd %.3f%%  p5 %+.3f%%  p50 %+.3f%%  p95 %+.3f%%%n",
+                                 mean(pooled) * 100, stdDev(pooled) * 100, percentile(pooled, 5) * 100,
+                                 percentile(pooled, 50) * 100, percentile(pooled, 95) * 100));
+        for (int symbol = 0; symbol < Math.min(symbols.length, MAX_LISTED_SYMBOLS); symbol++) {
+            double[] column = getReturns(symbol);
+            Arrays.sort(column);
+            out.append(String.format("  %-10s mean %+.3f%%  sd %.3f%%  p5 %+.3f%%  p50 %+.3f%%  p95 %+.3f%%%n",
+                                     symbols[symbol], mean(column) * 100, stdDev(column) * 100,
+                                     percentile(column, 5) * 100, percentile(column, 50) * 100,
+                                     percentile(column, 95) * 100));
+        }
+        if (symbols.length > MAX_LISTED_SYMBOLS) {
+            out.append(String.format("  ... %,d more%n", symbols.length - MAX_LISTED_SYMBOLS));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,38 @@
+package stockmarket;
+
+public final class ScenarioResult {
+    private final long seed;
+    private final double pnl;
+    private final int trades;
+    private final double[] returns;
+
+    ScenarioResult(long seed, double pnl, int trades, double[] returns) {
+        this.seed = seed;
+        this.pnl = pnl;
+        this.trades = trades;
+        this.returns = returns;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Trader's cash plus positions marked at the closing prices, in dollars.
+    public double getPnl() {
+        return pnl;
+    }
+
+    public int getTrades() {
+        return trades;
+    }
+
+    // Log return of every symbol from open to close, in listing order.
+    public double[] getReturns() {
+        return returns;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Scenario %016x: P&L %,.2f over %d trade(s)", seed, pnl, trades);
+    }
+}
@@ -0,0 +1,198 @@
+package stockmarket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Monte Carlo over seeded headless markets. Each scenario builds its own universe, its
+// own virtual-time engine with a serial price engine, and a scripted trader that buys and
+// sells at random through the order book; nothing mutable is shared between scenarios,
+// so workers never contend and a scenario's result depends only on its seed. Scenario i
+// of a run always gets scenarioSeed(baseSeed, i), whatever the thread count, and can be
+// replayed alone with runScenario.
+public class ScenarioRunner {
+    private final Supplier<StockStore> universe;
+    private final String modelName;
+    private final long durationSeconds;
+    private long tradeIntervalSeconds = 60;
+    private int maxTradeSize = 5000;
+    private boolean eventsEnabled = true;
+
+    public ScenarioRunner(Supplier<StockStore> universe, String modelName, long durationSeconds) {
+        PriceModel.named(modelName);
+        if (durationSeconds <= 0) {
+            throw new IllegalArgumentException("Scenario duration must be positive: " + durationSeconds);
+        }
+        this.universe = universe;
+        this.modelName = modelName;
+        this.durationSeconds = durationSeconds;
+    }
+
+    public void setTradeInterval(long seconds) {
+        if (seconds <= 0) {
+            throw new IllegalArgumentException("Trade interval must be positive: " + seconds);
+        }
+        tradeIntervalSeconds = seconds;
+    }
+
+    public void setMaxTradeSize(int shares) {
+        if (shares <= 0) {
+            throw new IllegalArgumentException("Trade size must be positive: " + shares);
+        }
+        maxTradeSize = shares;
+    }
+
+    public void setEventsEnabled(boolean enabled) {
+        eventsEnabled = enabled;
+    }
+
+    public static long scenarioSeed(long baseSeed, int scenario) {
+        return new SplittableRandom(baseSeed + scenario * 0x9E3779B97F4A7C15L).nextLong();
+    }
+
+    public ScenarioReport run(int scenarios, long baseSeed, int threads) throws InterruptedException {
+        if (scenarios <= 0) {
+            throw new IllegalArgumentException("Need at least one scenario: " + scenarios);
+        }
+        int symbolCount = universe.get().size();
+        int returnCount;
+        try {
+            returnCount = Math.multiplyExact(scenarios, symbolCount);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(scenarios + " scenarios of " + symbolCount
+                                               + " symbols are more returns than one report can hold");
+        }
+        double[] pnl = new double[scenarios];
+        double[] returns = new double[returnCount];
+        AtomicInteger next = new AtomicInteger();
+        int workers = Math.max(1, Math.min(threads, scenarios));
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "Scenario");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long started = System.nanoTime();
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                tasks.add(() -> {
+                    // Claiming one index at a time keeps every core busy to the end even
+                    // when scenarios vary in length.
+                    int scenario;
+                    while ((scenario = next.getAndIncrement()) < scenarios) {
+                        ScenarioResult result = runScenario(scenarioSeed(baseSeed, scenario));
+                        if (result.getReturns().length != symbolCount) {
+                            throw new IllegalStateException("Universe changed size between scenarios");
+                        }
+                        pnl[scenario] = result.getPnl();
+                        System.arraycopy(result.getReturns(), 0, returns, scenario * symbolCount, symbolCount);
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Scenario failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        StockStore listing = universe.get();
+        String[] symbols = new String[listing.size()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = listing.getSymbol(i);
+        }
+        return new ScenarioReport(symbols, pnl, returns, System.nanoTime() - started, workers);
+    }
+
+    public ScenarioResult runScenario(long seed) {
+        StockStore stocks = universe.get();
+        VirtualTimeMarketScheduler scheduler = new VirtualTimeMarketScheduler(HeadlessMarket.SEEDED_ORIGIN_MILLIS);
+        MarketEngine engine = new MarketEngine(stocks, scheduler,
+                                               new SerialPriceUpdateEngine(seed, PriceModel.named(modelName)), seed);
+        long[] opening = Arrays.copyOf(stocks.prices(), stocks.size());
+        Trader trader = new Trader(engine, new Random(MarketEngine.streamSeed(seed, MarketEngine.TRADER_STREAM)));
+        try {
+            engine.getPriceTimer().start();
+            if (eventsEnabled) {
+                engine.getEventTimer().start();
+            }
+            scheduler.scheduleAtFixedRate("Trader", tradeIntervalSeconds, tradeIntervalSeconds, TimeUnit.SECONDS,
+                                          MarketScheduler.OverrunPolicy.SKIP, trader::trade);
+            scheduler.advance(durationSeconds, TimeUnit.SECONDS);
+        } finally {
+            engine.shutdown();
+        }
+        long[] closing = stocks.prices();
+        double[] returns = new double[opening.length];
+        for (int i = 0; i < returns.length; i++) {
+            returns[i] = Math.log((double) closing[i] / opening[i]);
+        }
+        return new ScenarioResult(seed, trader.markToMarket(closing), trader.getTrades(), returns);
+    }
+
+    // Trades go through the engine's batch queue like a user's; fills come back on the
+    // market thread, which in virtual time is the thread running the scenario.
+    private final class Trader {
+        private final MarketEngine engine;
+        private final Random random;
+        private final long[] positions;
+        private double cash = 0;
+        private int trades = 0;
+
+        Trader(MarketEngine engine, Random random) {
+            this.engine = engine;
+            this.random = random;
+            positions = new long[engine.getStocks().size()];
+        }
+
+        void trade() {
+            int symbol = random.nextInt(positions.length);
+            int shares = 1 + random.nextInt(maxTradeSize);
+            int volume = random.nextBoolean() ? shares : -shares;
+            // A trade turned away by a full queue fails its future and is simply not made.
+            engine.getTradingTimer().executeTrade(symbol, volume).thenAccept(result -> {
+                positions[symbol] += result.getFilledVolume();
+                cash -= result.getFilledVolume() * result.getAveragePrice();
+                trades++;
+            });
+        }
+
+        double markToMarket(long[] prices) {
+            double value = cash;
+            for (int i = 0; i < positions.length; i++) {
+                value += positions[i] * Cents.toPrice(prices[i]);
+            }
+            return value;
+        }
+
+        int getTrades() {
+            return trades;
+        }
+    }
+
+    // ScenarioRunner [scenarios] [symbols] [model] [hours] [seed] [threads]
+    public static void main(String[] args) throws InterruptedException {
+        int scenarios = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int symbolCount = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        String model = args.length > 2 ? args[2] : "gbm";
+        double hours = args.length > 3 ? Double.parseDouble(args[3]) : 6.5;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        MarketLog.setLevel(MarketLog.Level.WARN);
+
+        Supplier<StockStore> universe = symbolCount <= 3
+                ? MarketEngine::defaultStocks
+                : () -> MarketEngine.syntheticStocks(symbolCount);
+        ScenarioRunner runner = new ScenarioRunner(universe, model, Math.round(hours * 3600));
+        ScenarioReport report = runner.run(scenarios, seed, threads);
+        MarketLog.flush();
+        System.out.println(report);
+    }
+}
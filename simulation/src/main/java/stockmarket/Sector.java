@@ -0,0 +1,51 @@
+package stockmarket;
+
+public final class Sector {
+    public static final int TECHNOLOGY = 0;
+    public static final int FINANCIALS = 1;
+    public static final int ENERGY = 2;
+    public static final int HEALTHCARE = 3;
+    public static final int CONSUMER = 4;
+    public static final int INDUSTRIALS = 5;
+    public static final int UTILITIES = 6;
+    public static final int MATERIALS = 7;
+    public static final int COUNT = 8;
+    
+    public static final int ALL = (1 << COUNT) - 1;
+    
+    private static final String[] NAMES = {"Technology", "Financials", "Energy", "Healthcare",
+                                           "Consumer", "Industrials", "Utilities", "Materials"};
+    
+    private Sector() {
+    }
+    
+    public static String name(int sector) {
+        return sector >= 0 && sector < NAMES.length ? NAMES[sector] : "Sector " + sector;
+    }
+    
+    public static int parse(String name) {
+        for (int sector = 0; sector < COUNT; sector++) {
+            if (NAMES[sector].equalsIgnoreCase(name)) return sector;
+        }
+        throw new IllegalArgumentException("Unknown sector: " + name);
+    }
+    
+    public static int mask(int... sectors) {
+        int mask = 0;
+        for (int sector : sectors) {
+            mask |= 1 << sector;
+        }
+        return mask;
+    }
+    
+    public static String describe(int mask) {
+        if (mask == ALL) return "All sectors";
+        StringBuilder names = new StringBuilder();
+        for (int sector = 0; sector < COUNT; sector++) {
+            if ((mask & (1 << sector)) == 0) continue;
+            if (names.length() > 0) names.append(", ");
+            names.append(NAMES[sector]);
+        }
+        return names.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package stockmarket;
+
+public class SerialPriceUpdateEngine implements PriceUpdateEngine {
+    private final long seed;
+    private final PriceModel model;
+    private final double[] normals = new double[CHUNK_SIZE];
+    private long tick = 0;
+    
+    public SerialPriceUpdateEngine(long seed) {
+        this(seed, new GbmPriceModel());
+    }
+    
+    public SerialPriceUpdateEngine(long seed, PriceModel model) {
+        this.seed = seed;
+        this.model = model;
+    }
+    
+    @Override
+    public void update(StockStore stocks) {
+        updateTick(stocks, tick);
+        tick++;
+    }
+    
+    @Override
+    public PriceModel getModel() {
+        return model;
+    }
+    
+    void updateTick(StockStore stocks, long tick) {
+        model.beginTick(stocks, PriceUpdateEngine.chunkSeed(seed, tick, -1));
+        int size = stocks.size();
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int from = chunk * CHUNK_SIZE;
+            int to = Math.min(size, from + CHUNK_SIZE);
+            PriceUpdateEngine.updateChunk(stocks, model, from, to,
+                                          PriceUpdateEngine.chunkRandom(seed, tick, chunk), normals);
+        }
+    }
+}
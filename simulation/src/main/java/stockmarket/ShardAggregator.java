@@ -0,0 +1,103 @@
+package stockmarket;
+
+import java.nio.ByteBuffer;
+
+// Merges the markets reported by the shards of a ShardCoordinator back into one, in
+// universe order. Each shard's reports are feed frames, applied to a MarketDataDecoder of
+// its own; merging copies every shard out through the partition's id map into fresh
+// columns and publishes them as a MarketSnapshot, so anything that takes snapshots - the
+// market data feed above all - can serve the whole market. Columns are shared with the
+// previous merge when no shard reported a change, as StockStore shares its pages.
+public class ShardAggregator {
+    private final String[] symbols;
+    private final int[][] assignment;
+    private final MarketDataDecoder[] decoders;
+    private boolean changed = false;
+    private MarketSnapshot merged;
+
+    // The universe is only read here, for its symbols and listing prices.
+    public ShardAggregator(StockStore universe, int[][] assignment) {
+        int size = universe.size();
+        this.symbols = new String[size];
+        long[] prices = new long[size];
+        int[] volumes = new int[size];
+        for (int id = 0; id < size; id++) {
+            symbols[id] = universe.getSymbol(id);
+            prices[id] = universe.getPriceCents(id);
+            volumes[id] = universe.getVolume(id);
+        }
+        this.assignment = assignment;
+        decoders = new MarketDataDecoder[assignment.length];
+        for (int shard = 0; shard < decoders.length; shard++) {
+            decoders[shard] = new MarketDataDecoder();
+        }
+        merged = new MarketSnapshot(0, size, symbols, prices, volumes);
+    }
+
+    public int getShardCount() {
+        return decoders.length;
+    }
+
+    public MarketDataDecoder getShard(int shard) {
+        return decoders[shard];
+    }
+
+    public MarketSnapshot getSnapshot() {
+        return merged;
+    }
+
+    // Applies one shard report: zero or more whole feed frames between position and limit.
+    void apply(int shard, ByteBuffer frames) {
+        MarketDataDecoder decoder = decoders[shard];
+        long snapshots = decoder.getSnapshotCount();
+        if (decoder.decode(frames) > 0) {
+            changed = true;
+        }
+        if (frames.hasRemaining()) {
+            throw new IllegalStateException("Shard " + shard + " sent an incomplete feed frame");
+        }
+        if (decoder.getSnapshotCount() != snapshots) {
+            verify(shard);
+        }
+    }
+
+    // A snapshot lists the shard's symbols, which must be the ones the partition gave it.
+    private void verify(int shard) {
+        MarketDataDecoder decoder = decoders[shard];
+        int[] ids = assignment[shard];
+        if (decoder.size() != ids.length) {
+            throw new IllegalStateException("Shard " + shard + " lists " + decoder.size() + " symbols where the partition gives it "
+                                            + ids.length + " - do the shards and the coordinator load the same universe?");
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (!decoder.getSymbol(i).equals(symbols[ids[i]])) {
+                throw new IllegalStateException("Shard " + shard + " lists " + decoder.getSymbol(i) + " where the partition puts "
+                                                + symbols[ids[i]]);
+            }
+        }
+    }
+
+    // Every shard must have reported a snapshot before the first merge.
+    public MarketSnapshot merge(long epoch) {
+        if (!changed) {
+            merged = new MarketSnapshot(epoch, symbols.length, symbols, merged.pricePages(), merged.volumePages(), null, null);
+            return merged;
+        }
+        long[] prices = new long[symbols.length];
+        int[] volumes = new int[symbols.length];
+        for (int shard = 0; shard < decoders.length; shard++) {
+            MarketDataDecoder decoder = decoders[shard];
+            int[] ids = assignment[shard];
+            if (decoder.getEpoch() < 0) {
+                throw new IllegalStateException("Shard " + shard + " has not reported yet");
+            }
+            for (int i = 0; i < ids.length; i++) {
+                prices[ids[i]] = decoder.getPriceCents(i);
+                volumes[ids[i]] = (int) decoder.getVolume(i);
+            }
+        }
+        changed = false;
+        merged = new MarketSnapshot(epoch, symbols.length, symbols, prices, volumes);
+        return merged;
+    }
+}
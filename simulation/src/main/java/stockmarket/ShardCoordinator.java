@@ -0,0 +1,315 @@
+package stockmarket;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+// Runs one market split across several MarketShard processes. The universe is partitioned
+// by a SymbolPartitioner and every shard simulates its part in virtual time. A step sends
+// STEP to every shard, carrying any market events to broadcast, then waits for every
+// shard's STEPPED reply before the next step may begin: no shard ever runs ahead of the
+// others, and the replies of one step all describe the same instant. They are merged by a
+// ShardAggregator and handed to listeners as one MarketSnapshot, so a MarketDataServer
+// attached here serves the whole market.
+public class ShardCoordinator implements Closeable {
+    public static final int DEFAULT_ACCEPT_TIMEOUT_SECONDS = 60;
+
+    private final StockStore universe;
+    private final int[][] assignment;
+    private final EventCalendar calendar;
+    private final Random random;
+    private final ShardAggregator aggregator;
+    private final ServerSocket server;
+    private final Link[] shards;
+    private final List<MarketListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<int[]> broadcasts = new ArrayList<>();
+    private final LatencyHistogram stepLatency = new LatencyHistogram("shard_step");
+    private long stepMillis = PriceFluctuationTimer.PERIOD_MILLIS;
+    private ByteBuffer frames = ByteBuffer.allocate(1024);
+    private long steps = 0;
+    private long broadcastEvents = 0;
+
+    // Listens on the given loopback port, 0 for any free one, for shardCount shards.
+    public ShardCoordinator(StockStore universe, int shardCount, long seed, EventCalendar calendar, int port)
+            throws IOException {
+        if (calendar.size() == 0) {
+            throw new IllegalArgumentException("An event calendar needs at least one event");
+        }
+        this.universe = universe;
+        this.assignment = new SymbolPartitioner(shardCount).assign(universe);
+        this.calendar = calendar;
+        this.random = new Random(MarketEngine.streamSeed(seed, MarketEngine.BROADCAST_STREAM));
+        this.aggregator = new ShardAggregator(universe, assignment);
+        this.shards = new Link[shardCount];
+        server = new ServerSocket();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), shardCount);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int getShardSize(int shard) {
+        return assignment[shard].length;
+    }
+
+    public void setStepMillis(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Step must be positive: " + millis);
+        }
+        stepMillis = millis;
+    }
+
+    public void addListener(MarketListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(MarketListener listener) {
+        listeners.remove(listener);
+    }
+
+    public MarketSnapshot getSnapshot() {
+        return aggregator.getSnapshot();
+    }
+
+    public ShardAggregator getAggregator() {
+        return aggregator;
+    }
+
+    // Waits for every shard to connect and say which one it is.
+    public void awaitShards(long timeout, TimeUnit unit) throws IOException {
+        server.setSoTimeout((int) Math.min(Integer.MAX_VALUE, unit.toMillis(timeout)));
+        for (int connected = 0; connected < shards.length; connected++) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketTimeoutException e) {
+                throw new IOException("Only " + connected + " of " + shards.length + " shards connected", e);
+            }
+            socket.setTcpNoDelay(true);
+            Link link = new Link(socket);
+            link.buffer = ShardProtocol.expect(link.in, link.buffer, ShardProtocol.HELLO);
+            int shard = link.buffer.getInt();
+            int shardCount = link.buffer.getInt();
+            int universeSize = link.buffer.getInt();
+            int symbols = link.buffer.getInt();
+            if (shardCount != shards.length || shard < 0 || shard >= shards.length || shards[shard] != null) {
+                socket.close();
+                throw new IOException("Unexpected shard " + shard + " of " + shardCount);
+            }
+            if (universeSize != universe.size() || symbols != assignment[shard].length) {
+                socket.close();
+                throw new IOException("Shard " + shard + " holds " + symbols + " of " + universeSize + " symbols, expected "
+                                      + assignment[shard].length + " of " + universe.size());
+            }
+            shards[shard] = link;
+        }
+        MarketLog.info("All " + shards.length + " shards connected");
+    }
+
+    // Queues one calendar event, picked and drawn here, to fire in every shard at the start
+    // of the next step. Returns its name.
+    public String broadcastMarketEvent() {
+        int index = random.nextInt(calendar.size());
+        MarketEvent event = calendar.get(index);
+        boolean positive = MarketEventTimer.drawPositive(event, random);
+        int sectorMask = MarketEventTimer.drawSectorMask(event, random);
+        synchronized (broadcasts) {
+            broadcasts.add(new int[] { index, positive ? 1 : 0, sectorMask });
+        }
+        return event.getName();
+    }
+
+    // Advances every shard by one step and returns the merged market. Throws if a shard
+    // hangs up or falls out of step with the others.
+    public MarketSnapshot step() throws IOException {
+        long started = System.nanoTime();
+        long step = ++steps;
+        int[][] events;
+        synchronized (broadcasts) {
+            events = broadcasts.toArray(new int[0][]);
+            broadcasts.clear();
+        }
+        broadcastEvents += events.length;
+        frames = ShardProtocol.ensureCapacity(frames, 64 + events.length * 9);
+        frames.clear();
+        int start = MarketDataProtocol.beginFrame(frames, ShardProtocol.STEP);
+        frames.putLong(step).putLong(stepMillis).putInt(events.length);
+        for (int[] event : events) {
+            frames.putInt(event[0]).put((byte) event[1]).putInt(event[2]);
+        }
+        MarketDataProtocol.endFrame(frames, start);
+        for (Link link : shards) {
+            ShardProtocol.send(frames, link.out);
+        }
+
+        long clockMillis = 0;
+        long firedEvents = 0;
+        for (int shard = 0; shard < shards.length; shard++) {
+            Link link = shards[shard];
+            try {
+                link.buffer = ShardProtocol.expect(link.in, link.buffer, ShardProtocol.STEPPED);
+            } catch (EOFException e) {
+                throw new IOException("Shard " + shard + " hung up in step " + step, e);
+            }
+            long shardStep = link.buffer.getLong();
+            long shardClock = link.buffer.getLong();
+            long shardEvents = link.buffer.getLong();
+            if (shard == 0) {
+                clockMillis = shardClock;
+                firedEvents = shardEvents;
+            }
+            if (shardStep != step || shardClock != clockMillis || shardEvents != firedEvents) {
+                throw new IllegalStateException(String.format(
+                        "Shard %d is out of step: step %d at %d ms with %d events, shard 0 step %d at %d ms with %d events",
+                        shard, shardStep, shardClock, shardEvents, step, clockMillis, firedEvents));
+            }
+            aggregator.apply(shard, link.buffer);
+        }
+        MarketSnapshot merged = aggregator.merge(step);
+        stepLatency.record(System.nanoTime() - started);
+        for (MarketListener listener : listeners) {
+            listener.onStocksUpdated(merged);
+        }
+        return merged;
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    public long getBroadcastEvents() {
+        return broadcastEvents;
+    }
+
+    // Round trip of a whole step: broadcast, every shard's advance, and the merge.
+    public LatencyHistogram getStepLatencyHistogram() {
+        return stepLatency;
+    }
+
+    // Tells every connected shard to stop, then hangs up.
+    @Override
+    public void close() throws IOException {
+        frames.clear();
+        int start = MarketDataProtocol.beginFrame(frames, ShardProtocol.STOP);
+        MarketDataProtocol.endFrame(frames, start);
+        for (Link link : shards) {
+            if (link == null) continue;
+            try {
+                ShardProtocol.send(frames, link.out);
+            } catch (IOException e) {
+                // Already gone.
+            }
+            link.socket.close();
+        }
+        server.close();
+    }
+
+    // Starts the shards as processes on this machine, with this JVM's class path.
+    static List<Process> launchLocal(int port, int shardCount, String universe, long seed, String model,
+                                     String calendar) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                             MarketShard.class.getName(), "127.0.0.1", String.valueOf(port),
+                                             String.valueOf(shard), String.valueOf(shardCount), universe,
+                                             String.valueOf(seed), model, calendar)
+                    .inheritIO()
+                    .start());
+        }
+        return processes;
+    }
+
+    // ShardCoordinator [shards] [symbols or universe file] [steps] [seed] [gbm/ou/jump/correlated]
+    //                  [broadcast an event every n steps, 0 for none] [event calendar, poisson or -] [feed port or -1]
+    //                  [coordinator port]
+    // Without a coordinator port the shards are started here as local processes talking
+    // over loopback. Given one, the coordinator waits on it for shards started by hand with
+    // the same arguments (see MarketShard).
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int shardCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        String spec = args.length > 1 ? args[1] : "100000";
+        long stepCount = args.length > 2 ? Long.parseLong(args[2]) : 900;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+        String modelName = args.length > 4 ? args[4] : "gbm";
+        int broadcastEvery = args.length > 5 ? Integer.parseInt(args[5]) : 50;
+        String calendarFile = args.length > 6 ? args[6] : "-";
+        int feedPort = args.length > 7 ? Integer.parseInt(args[7]) : -1;
+        int port = args.length > 8 ? Integer.parseInt(args[8]) : 0;
+        PriceModel.named(modelName);
+
+        StockStore universe = MarketEngine.stocksFor(spec);
+        EventCalendar calendar = EventCalendar.named(calendarFile, universe);
+        List<Process> processes = Collections.emptyList();
+        MarketDataServer feed = null;
+        try (ShardCoordinator coordinator = new ShardCoordinator(universe, shardCount, seed, calendar, port)) {
+            if (port == 0) {
+                processes = launchLocal(coordinator.getPort(), shardCount, spec, seed, modelName, calendarFile);
+            } else {
+                System.out.println("Waiting on port " + coordinator.getPort() + " for " + shardCount + " shards");
+            }
+            coordinator.awaitShards(port == 0 ? DEFAULT_ACCEPT_TIMEOUT_SECONDS : Integer.MAX_VALUE, TimeUnit.SECONDS);
+            if (feedPort >= 0) {
+                feed = new MarketDataServer(new InetSocketAddress(feedPort), coordinator.getSnapshot());
+                coordinator.addListener(feed);
+                feed.start();
+            }
+
+            long started = System.nanoTime();
+            for (long step = 1; step <= stepCount; step++) {
+                if (broadcastEvery > 0 && step % broadcastEvery == 0) {
+                    MarketLog.info("Broadcasting " + coordinator.broadcastMarketEvent());
+                }
+                coordinator.step();
+            }
+            long elapsed = System.nanoTime() - started;
+
+            System.out.printf("Stepped %,d symbols on %d shard(s) through %,d steps of %d ms in %.2f s (seed %d)%n",
+                              universe.size(), shardCount, coordinator.getSteps(), coordinator.stepMillis,
+                              elapsed / 1e9, seed);
+            for (int shard = 0; shard < shardCount; shard++) {
+                System.out.printf("  shard %d: %,d symbols%n", shard, coordinator.getShardSize(shard));
+            }
+            LatencyHistogram.Snapshot latency = coordinator.getStepLatencyHistogram().snapshot();
+            System.out.printf("Step barrier p50 %.2f ms p99 %.2f ms, %,d event(s) broadcast%n",
+                              latency.percentileNanos(50) / 1e6, latency.percentileNanos(99) / 1e6,
+                              coordinator.getBroadcastEvents());
+        } finally {
+            if (feed != null) {
+                feed.close();
+            }
+            for (Process process : processes) {
+                if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                    process.destroy();
+                }
+            }
+            MarketLog.flush();
+        }
+    }
+
+    private static final class Link {
+        final Socket socket;
+        final DataInputStream in;
+        final OutputStream out;
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+        Link(Socket socket) throws IOException {
+            this.socket = socket;
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            out = new BufferedOutputStream(socket.getOutputStream(), 1 << 16);
+        }
+    }
+}
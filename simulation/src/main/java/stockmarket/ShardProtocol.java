@@ -0,0 +1,63 @@
+package stockmarket;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+// Messages between a ShardCoordinator and its MarketShards, framed like the market data
+// feed: [int length][byte type][payload], big-endian.
+//   HELLO    shard -> coordinator: int shard, int shard count, int universe size, int symbols
+//   STEP     coordinator -> shards: long step, long millis to advance, int broadcast events,
+//            then per event: int calendar index, byte positive, int sector mask
+//   STEPPED  shard -> coordinator: long step, long clock millis, long events fired so far,
+//            then zero or one feed frames (SNAPSHOT first, DELTA after) holding what
+//            changed in the shard's market since its previous report
+//   STOP     coordinator -> shards, empty: the shard shuts down and hangs up
+// Every shard answers every STEP, so the coordinator collecting all the STEPPED replies
+// is the barrier that keeps the shards in lockstep.
+final class ShardProtocol {
+    static final byte HELLO = 16;
+    static final byte STEP = 17;
+    static final byte STEPPED = 18;
+    static final byte STOP = 19;
+
+    private ShardProtocol() {
+    }
+
+    // Sends the frames written from the start of a heap buffer up to its position.
+    static void send(ByteBuffer frames, OutputStream out) throws IOException {
+        out.write(frames.array(), frames.arrayOffset(), frames.position());
+        out.flush();
+    }
+
+    // Reads one whole frame and returns it positioned at its type byte, in the given
+    // buffer or a larger one if it did not fit.
+    static ByteBuffer receive(DataInputStream in, ByteBuffer buffer) throws IOException {
+        int length = in.readInt();
+        if (length < 1) {
+            throw new IOException("Corrupt shard frame length " + length);
+        }
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+        }
+        buffer.clear();
+        in.readFully(buffer.array(), buffer.arrayOffset(), length);
+        buffer.limit(length);
+        return buffer;
+    }
+
+    // As receive, with the type byte read and checked.
+    static ByteBuffer expect(DataInputStream in, ByteBuffer buffer, byte type) throws IOException {
+        buffer = receive(in, buffer);
+        byte actual = buffer.get();
+        if (actual != type) {
+            throw new IOException("Expected shard frame type " + type + " but got " + actual);
+        }
+        return buffer;
+    }
+
+    static ByteBuffer ensureCapacity(ByteBuffer buffer, int capacity) {
+        return buffer.capacity() >= capacity ? buffer : ByteBuffer.allocate(Math.max(capacity, buffer.capacity() * 2));
+    }
+}
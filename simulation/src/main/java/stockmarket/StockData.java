@@ -0,0 +1,59 @@
+package stockmarket;
+
+public class StockData {
+    private final StockStore store;
+    private final int id;
+    
+    StockData(StockStore store, int id) {
+        this.store = store;
+        this.id = id;
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    public String getSymbol() {
+        return store.getSymbol(id);
+    }
+    
+    public String getName() {
+        return store.getName(id);
+    }
+    
+    public double getCurrentPrice() {
+        return store.getPrice(id);
+    }
+    
+    public void setCurrentPrice(double price) {
+        store.setPrice(id, price);
+    }
+    
+    public int getVolume() {
+        return store.getVolume(id);
+    }
+    
+    public void setVolume(int volume) {
+        store.setVolume(id, volume);
+    }
+    
+    public int getSector() {
+        return store.getSector(id);
+    }
+    
+    public double getDrift() {
+        return store.getDrift(id);
+    }
+    
+    public void setDrift(double drift) {
+        store.setDrift(id, drift);
+    }
+    
+    public double getVolatility() {
+        return store.getVolatility(id);
+    }
+    
+    public void setVolatility(double volatility) {
+        store.setVolatility(id, volatility);
+    }
+}
@@ -0,0 +1,384 @@
+package stockmarket;
+
+import javax.management.JMException;
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class StockMarketApplication extends JFrame implements MarketListener {
+    private static final long FRAME_NANOS = 1_000_000_000L / 60;
+    public static final int DEFAULT_FEED_PORT = 9091;
+    
+    private MarketEngine engine;
+    private StockStore stocks;
+    private JLabel statusLabel;
+    private JPanel stockDisplayPanel;
+    private JPanel controlPanel;
+    private JButton startPricesButton, stopPricesButton;
+    private JButton startEventsButton, stopEventsButton;
+    private JButton tradeButton; 
+    private JTextField tradeVolumeField;
+    private JLabel nextEventLabel;
+    private JLabel priceTimerLabel;
+    private PriceFluctuationTimer priceFluctuationTimer;
+    private MarketEventTimer marketEventTimer;
+    private TradingVolumeTimer tradingVolumeTimer;
+    private MarketScheduler scheduler;
+    private MarketClock guiUpdateClock;
+    private int pendingTrades = 0;
+    
+    private final AtomicBoolean frameScheduled = new AtomicBoolean(false);
+    private volatile long lastFrameNanos = 0;
+    private volatile long frameQueuedNanos = 0;
+    private MarketMetrics metrics;
+    private MarketAnalytics analytics;
+    private StockTableModel stockTableModel;
+    private JTable stockTable;
+    
+    public StockMarketApplication() {
+        this(MarketEngine.defaultStocks());
+    }
+    
+    public StockMarketApplication(StockStore initialStocks) {
+        initializeData(initialStocks);
+        setupGUI();
+        initializeTimers();
+        setupButtonActions();
+    }
+    
+    private void initializeData(StockStore initialStocks) {
+        engine = new MarketEngine(initialStocks, new RealTimeMarketScheduler());
+        stocks = engine.getStocks();
+        // The table only reads the rolling minute range, so keep just those bars.
+        analytics = new MarketAnalytics(stocks.size(), MarketAnalytics.DEFAULT_DECAY,
+                                        0, StockTableModel.RANGE_MINUTES);
+        engine.setAnalytics(analytics);
+        metrics = engine.getMetrics();
+        try {
+            metrics.register();
+        } catch (JMException e) {
+            MarketLog.warn("Could not register market metrics with JMX: " + e);
+        }
+    }
+    
+    private void setupGUI() {
+        setTitle("Stock Market Trading Simulation");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setLayout(new BorderLayout());
+        
+        statusLabel = new JLabel("Market Status: READY", JLabel.CENTER);
+        statusLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        
+        stockDisplayPanel = new JPanel(new BorderLayout());
+        stockDisplayPanel.setBorder(BorderFactory.createTitledBorder("Stock Data"));
+        
+        stockTableModel = new StockTableModel(stocks.snapshot(), analytics);
+        stockTable = new JTable(stockTableModel);
+        stockTable.setFillsViewportHeight(true);
+        stockTable.setRowSelectionAllowed(true);
+        stockTable.getTableHeader().setReorderingAllowed(false);
+        stockTable.getColumnModel().getColumn(StockTableModel.SYMBOL_COLUMN)
+                .setCellRenderer(new FormattedCellRenderer(FormattedCellRenderer.Kind.TEXT));
+        stockTable.getColumnModel().getColumn(StockTableModel.PRICE_COLUMN)
+                .setCellRenderer(new FormattedCellRenderer(FormattedCellRenderer.Kind.PRICE));
+        stockTable.getColumnModel().getColumn(StockTableModel.VOLUME_COLUMN)
+                .setCellRenderer(new FormattedCellRenderer(FormattedCellRenderer.Kind.VOLUME));
+        for (int column : new int[] {StockTableModel.VWAP_COLUMN, StockTableModel.LOW_COLUMN, StockTableModel.HIGH_COLUMN}) {
+            stockTable.getColumnModel().getColumn(column)
+                    .setCellRenderer(new FormattedCellRenderer(FormattedCellRenderer.Kind.PRICE));
+        }
+        stockTable.getColumnModel().getColumn(StockTableModel.VOLATILITY_COLUMN)
+                .setCellRenderer(new FormattedCellRenderer(FormattedCellRenderer.Kind.PERCENT));
+        stockDisplayPanel.add(new JScrollPane(stockTable), BorderLayout.CENTER);
+        
+        controlPanel = new JPanel();
+        controlPanel.setLayout(new BoxLayout(controlPanel, BoxLayout.Y_AXIS));
+        controlPanel.setBorder(BorderFactory.createTitledBorder("Market Controls"));
+        
+        JPanel buttonGrid = new JPanel(new GridLayout(2, 2, 5, 5));
+        startPricesButton = new JButton("Start Price Updates");
+        stopPricesButton = new JButton("Stop Price Updates");
+        startEventsButton = new JButton("Start Market Events");
+        stopEventsButton = new JButton("Stop Market Events");
+        
+        buttonGrid.add(startPricesButton);
+        buttonGrid.add(stopPricesButton);
+        buttonGrid.add(startEventsButton);
+        buttonGrid.add(stopEventsButton);
+       
+        // Typed in place rather than in a modal dialog, so the table keeps repainting and
+        // trades can be entered one after another.
+        JPanel tradePanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        tradeVolumeField = new JTextField(10);
+        tradeVolumeField.setToolTipText("Trade volume: + to buy (e.g. +5000), - to sell (e.g. -3000)");
+        tradePanel.add(new JLabel("Volume:"));
+        tradePanel.add(tradeVolumeField);
+        tradeButton = new JButton("Trade");
+        tradeButton.setFont(new Font("Arial", Font.BOLD, 12));
+        tradeButton.setBackground(new Color(50, 150, 50));
+        tradeButton.setForeground(Color.WHITE);
+        tradeButton.setPreferredSize(new Dimension(200, 30));
+        tradePanel.add(tradeButton);
+        
+        JPanel statusPanel = new JPanel(new GridLayout(1, 2, 5, 5));
+        priceTimerLabel = new JLabel("Price Timer: STOPPED");
+        nextEventLabel = new JLabel("Next Event: Not scheduled");
+        statusPanel.add(priceTimerLabel);
+        statusPanel.add(nextEventLabel);
+        
+        controlPanel.add(buttonGrid);
+        controlPanel.add(Box.createRigidArea(new Dimension(0, 10)));
+        controlPanel.add(tradePanel);
+        controlPanel.add(Box.createRigidArea(new Dimension(0, 10)));
+        controlPanel.add(statusPanel);
+        
+        add(statusLabel, BorderLayout.NORTH);
+        add(stockDisplayPanel, BorderLayout.CENTER);
+        add(controlPanel, BorderLayout.SOUTH);
+        setSize(860, 350);
+
+        setLocationRelativeTo(null);
+    }
+    
+    private void initializeTimers() {
+        scheduler = engine.getScheduler();
+        priceFluctuationTimer = engine.getPriceTimer();
+        marketEventTimer = engine.getEventTimer();
+        tradingVolumeTimer = engine.getTradingTimer();
+        engine.addListener(this);
+        
+        guiUpdateClock = scheduler.scheduleAtFixedRate("GuiUpdate", 1, 1, TimeUnit.SECONDS,
+                                                       MarketScheduler.OverrunPolicy.SKIP,
+                                                       () -> SwingUtilities.invokeLater(this::updateTimerDisplays));
+    }
+    
+    private void updateTimerDisplays() {
+        boolean anyRunning = (priceFluctuationTimer != null && priceFluctuationTimer.isRunning()) ||
+                            (marketEventTimer != null && marketEventTimer.isRunning());
+
+
+        
+        if (!anyRunning) return;
+        
+        if (priceFluctuationTimer != null && priceFluctuationTimer.isRunning()) {
+            int secondsRunning = priceFluctuationTimer.getSecondsRunning();
+            int nextUpdate = 2 - (secondsRunning % 2);
+            priceTimerLabel.setText("Price Timer: RUNNING (next update in " + nextUpdate + "s)");
+        }
+        
+        if (marketEventTimer != null && marketEventTimer.isRunning()) {
+            int secondsToNext = marketEventTimer.getSecondsToNextEvent();
+            if (secondsToNext > 0) {
+                nextEventLabel.setText("Next Event: " + secondsToNext + " seconds");
+            }
+        }
+    }
+    
+    private void updateTradeButton() {
+        tradeButton.setText(pendingTrades > 0 ? "Trade (" + pendingTrades + " pending)" : "Trade");
+    }
+    
+    private void setupButtonActions() {
+        startPricesButton.addActionListener(e -> {
+            if (priceFluctuationTimer != null) {
+                priceFluctuationTimer.start();
+            }
+        });
+        
+        stopPricesButton.addActionListener(e -> {
+            if (priceFluctuationTimer != null) {
+                priceFluctuationTimer.stop();
+            }
+        });
+        
+        startEventsButton.addActionListener(e -> {
+            if (marketEventTimer != null) {
+                marketEventTimer.start();
+            }
+        });
+        
+        stopEventsButton.addActionListener(e -> {
+            if (marketEventTimer != null) {
+                marketEventTimer.stop();
+            }
+        });
+        
+        tradeButton.addActionListener(e -> submitTrade());
+        tradeVolumeField.addActionListener(e -> submitTrade());
+    }
+    
+    private void submitTrade() {
+        String input = tradeVolumeField.getText().trim();
+        if (input.isEmpty() || tradingVolumeTimer == null) {
+            return;
+        }
+        int volumeChange;
+        try {
+            volumeChange = Integer.parseInt(input);
+        } catch (NumberFormatException ex) {
+            statusLabel.setText("Market Status: wrong number format, use integers with a + or -");
+            tradeVolumeField.selectAll();
+            return;
+        }
+        tradeVolumeField.setText("");
+        pendingTrades++;
+        updateTradeButton();
+        // Counted down however the trade ends: filled, turned away by a full queue, failed
+        // with its batch or cancelled by a stop.
+        tradingVolumeTimer.executeTrade(volumeChange).whenComplete((result, failure) ->
+                SwingUtilities.invokeLater(() -> {
+                    pendingTrades--;
+                    updateTradeButton();
+                    if (failure instanceof RejectedExecutionException) {
+                        statusLabel.setText("Market Status: trade " + volumeChange + " rejected, queue full");
+                    } else if (failure != null) {
+                        statusLabel.setText("Market Status: trade " + volumeChange + " not filled");
+                    }
+                }));
+    }
+    
+    public void updatePriceTimerStatus(String status) {
+        priceTimerLabel.setText("Price Timer: " + status);
+    }
+    
+    public void updateNextEventStatus(String eventInfo) {
+        nextEventLabel.setText("Next Event: " + eventInfo);
+    }
+    
+    @Override
+    public void onStocksUpdated(MarketSnapshot snapshot) {
+        updateStockDisplay();
+    }
+    
+    @Override
+    public void onPriceTimerStatus(String status) {
+        SwingUtilities.invokeLater(() -> updatePriceTimerStatus(status));
+    }
+    
+    @Override
+    public void onNextEventStatus(String eventInfo) {
+        SwingUtilities.invokeLater(() -> updateNextEventStatus(eventInfo));
+    }
+    
+    @Override
+    public void onTradeCompleted(TradeResult result) {
+        SwingUtilities.invokeLater(() -> {
+            statusLabel.setText(String.format("Market Status: trade %+,d filled %+,d @ $%.2f",
+                                              result.getRequestedVolume(), result.getFilledVolume(),
+                                              result.getAveragePrice()));
+        });
+    }
+    
+    // Producers only flag that a frame is needed; the next frame (at most one per
+    // FRAME_NANOS) applies whatever snapshot is latest at that point.
+    public void updateStockDisplay() {
+        if (!frameScheduled.compareAndSet(false, true)) {
+            metrics.displayRequested(true);
+            return;
+        }
+        metrics.displayRequested(false);
+        long delay = Math.max(0, lastFrameNanos + FRAME_NANOS - System.nanoTime());
+        scheduler.schedule("GuiFrame", delay, TimeUnit.NANOSECONDS, () -> {
+            frameQueuedNanos = System.nanoTime();
+            SwingUtilities.invokeLater(this::performStockDisplayUpdate);
+        });
+    }
+    
+    // The lag histogram shows how long frames sit behind other work on the EDT.
+    private void performStockDisplayUpdate() {
+        long started = System.nanoTime();
+        metrics.getDisplayLagHistogram().record(started - frameQueuedNanos);
+        lastFrameNanos = started;
+        frameScheduled.set(false);
+        stockTableModel.apply(stocks.snapshot());
+        metrics.getDisplayUpdateHistogram().record(System.nanoTime() - started);
+    }
+    
+    public MarketEngine getEngine() {
+        return engine;
+    }
+    
+    // Publishes every update to MarketDataClient subscribers on the given port.
+    public MarketDataServer startFeed(int port) throws IOException {
+        MarketDataServer server = new MarketDataServer(new InetSocketAddress(port), engine.getSnapshot());
+        engine.addListener(server);
+        server.start();
+        return server;
+    }
+    
+    // Serves the engine's metrics in Prometheus text format on localhost.
+    public MetricsServer startMetrics(int port) throws IOException {
+        MetricsServer server = new MetricsServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), metrics);
+        server.start();
+        return server;
+    }
+    
+    // Saves the universe to the file every few seconds and once more when the window
+    // closes, after the market thread has stopped.
+    public MarketCheckpointer startCheckpoints(Path file) {
+        MarketCheckpointer checkpointer = new MarketCheckpointer(engine, file);
+        checkpointer.start();
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                engine.shutdown();
+                try {
+                    checkpointer.close();
+                } catch (IOException ex) {
+                    MarketLog.error("Could not save the final checkpoint: " + ex);
+                }
+                MarketLog.flush();
+            }
+        });
+        return checkpointer;
+    }
+    
+    // StockMarketApplication [symbols or universe file] [feed port] [metrics port] [checkpoint file]
+    // An existing checkpoint file takes precedence over the first argument, so a restart
+    // resumes where the last session stopped.
+    public static void main(String[] args) throws IOException {
+        Path checkpoint = args.length > 3 && !args[3].equals("-") ? Paths.get(args[3]) : null;
+        long started = System.nanoTime();
+        StockStore initialStocks = checkpoint != null && Files.exists(checkpoint)
+                ? UniverseSnapshot.load(checkpoint)
+                : MarketEngine.stocksFor(args.length > 0 ? args[0] : "3");
+        if (initialStocks.size() > 3) {
+            MarketLog.info(String.format("Loaded %,d symbols in %.0f ms", initialStocks.size(),
+                                         (System.nanoTime() - started) / 1e6));
+        }
+        int feedPort = args.length > 1 ? Integer.parseInt(args[1]) : -1;
+        int metricsPort = args.length > 2 ? Integer.parseInt(args[2]) : -1;
+        MarketLog.setDetail(initialStocks.size() <= HeadlessMarket.MAX_DETAILED_SYMBOLS
+                            ? MarketLog.Detail.PER_SYMBOL : MarketLog.Detail.PER_TICK);
+        SwingUtilities.invokeLater(() -> {
+            StockMarketApplication app = new StockMarketApplication(initialStocks);
+            if (checkpoint != null) {
+                app.startCheckpoints(checkpoint);
+            }
+            if (feedPort >= 0) {
+                try {
+                    app.startFeed(feedPort);
+                } catch (IOException e) {
+                    MarketLog.error("Could not start the market data feed: " + e);
+                }
+            }
+            if (metricsPort >= 0) {
+                try {
+                    app.startMetrics(metricsPort);
+                } catch (IOException e) {
+                    MarketLog.error("Could not start the metrics endpoint: " + e);
+                }
+            }
+            app.setVisible(true);
+        });
+    }
+}
\ No newline at end of file
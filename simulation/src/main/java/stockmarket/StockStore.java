@@ -0,0 +1,370 @@
+package stockmarket;
+
+import java.util.*;
+
+// Prices are whole cents on each instrument's tick grid (see Cents); the double-valued
+// getters and setters convert at the edge.
+public class StockStore {
+    private static final int INITIAL_CAPACITY = 16;
+    public static final double DEFAULT_VOLATILITY = 0.03;
+
+    private Map<String, Integer> ids = new HashMap<>();
+    private String[] symbols = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private long[] prices = new long[INITIAL_CAPACITY];
+    private int[] tickSizes = new int[INITIAL_CAPACITY];
+    private int[] volumes = new int[INITIAL_CAPACITY];
+    private double[] changes = new double[INITIAL_CAPACITY];
+    // Per-tick price model parameters; the base price is the price at listing.
+    private double[] drifts = new double[INITIAL_CAPACITY];
+    private double[] volatilities = new double[INITIAL_CAPACITY];
+    private long[] basePrices = new long[INITIAL_CAPACITY];
+    private int[] sectors = new int[INITIAL_CAPACITY];
+    private int size = 0;
+    private final ChangeLog changeLog = new ChangeLog();
+    private final DirtySymbols dirtyPrices = new DirtySymbols(INITIAL_CAPACITY);
+    private final DirtySymbols dirtyVolumes = new DirtySymbols(INITIAL_CAPACITY);
+    private volatile MarketSnapshot snapshot = new MarketSnapshot(0, 0, new String[0], new long[0], new int[0]);
+
+    // The starting volume is picked from the symbol rather than a shared generator, so a
+    // universe always lists the same way whatever else has run.
+    public int add(String symbol, String name, double price) {
+        return add(symbol, name, price, defaultVolume(symbol));
+    }
+
+    static int defaultVolume(String symbol) {
+        long mixed = (symbol.hashCode() + 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+        mixed = (mixed ^ (mixed >>> 31)) * 0x94D049BB133111EBL;
+        return 50000 + (int) Math.floorMod(mixed ^ (mixed >>> 29), 100000L);
+    }
+
+    // Listings without a sector are technology, like the original three.
+    public int add(String symbol, String name, double price, int volume) {
+        return add(symbol, name, price, volume, Sector.TECHNOLOGY);
+    }
+
+    public int add(String symbol, String name, double price, int volume, int sector) {
+        if (sector < 0 || sector >= Sector.COUNT) {
+            throw new IllegalArgumentException("Unknown sector: " + sector);
+        }
+        Integer existing = ids.get(symbol);
+        if (existing != null) {
+            throw new IllegalArgumentException("Duplicate symbol: " + symbol);
+        }
+        if (size == prices.length) {
+            grow(size * 2);
+        }
+        long cents = Cents.roundToTick(Cents.of(price), Cents.DEFAULT_TICK);
+        int id = size++;
+        symbols[id] = symbol;
+        names[id] = name;
+        prices[id] = cents;
+        tickSizes[id] = Cents.DEFAULT_TICK;
+        volumes[id] = volume;
+        drifts[id] = 0;
+        volatilities[id] = DEFAULT_VOLATILITY;
+        basePrices[id] = cents;
+        sectors[id] = sector;
+        ids.put(symbol, id);
+        return id;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > prices.length) {
+            grow(capacity);
+        }
+    }
+
+    private void grow(int capacity) {
+        symbols = Arrays.copyOf(symbols, capacity);
+        names = Arrays.copyOf(names, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        tickSizes = Arrays.copyOf(tickSizes, capacity);
+        volumes = Arrays.copyOf(volumes, capacity);
+        changes = Arrays.copyOf(changes, capacity);
+        drifts = Arrays.copyOf(drifts, capacity);
+        volatilities = Arrays.copyOf(volatilities, capacity);
+        basePrices = Arrays.copyOf(basePrices, capacity);
+        sectors = Arrays.copyOf(sectors, capacity);
+        dirtyPrices.ensureCapacity(capacity);
+        dirtyVolumes.ensureCapacity(capacity);
+    }
+
+    // Bulk listing for loaders: takes over columns that already hold 'count' listings
+    // instead of adding them one at a time. Only an empty store can adopt.
+    void adopt(int count, String[] symbolColumn, String[] nameColumn, long[] priceColumn, int[] tickColumn,
+               int[] volumeColumn, double[] changeColumn, double[] driftColumn, double[] volatilityColumn,
+               long[] baseColumn, int[] sectorColumn) {
+        if (size != 0) {
+            throw new IllegalStateException("Only an empty store can adopt listings");
+        }
+        Map<String, Integer> adopted = new HashMap<>(count * 4 / 3 + 1);
+        for (int id = 0; id < count; id++) {
+            if (sectorColumn[id] < 0 || sectorColumn[id] >= Sector.COUNT) {
+                throw new IllegalArgumentException("Unknown sector for " + symbolColumn[id] + ": " + sectorColumn[id]);
+            }
+            if (tickColumn[id] <= 0 || priceColumn[id] <= 0 || priceColumn[id] % tickColumn[id] != 0) {
+                throw new IllegalArgumentException("Price of " + symbolColumn[id] + " is not on its tick grid");
+            }
+            if (adopted.put(symbolColumn[id], id) != null) {
+                throw new IllegalArgumentException("Duplicate symbol: " + symbolColumn[id]);
+            }
+        }
+        ids = adopted;
+        symbols = symbolColumn;
+        names = nameColumn;
+        prices = priceColumn;
+        tickSizes = tickColumn;
+        volumes = volumeColumn;
+        changes = changeColumn;
+        drifts = driftColumn;
+        volatilities = volatilityColumn;
+        basePrices = baseColumn;
+        sectors = sectorColumn;
+        size = count;
+        ensureCapacity(INITIAL_CAPACITY);
+        dirtyPrices.ensureCapacity(prices.length);
+        dirtyVolumes.ensureCapacity(prices.length);
+    }
+
+    // A new store listing just the given ids, in that order, with all their columns.
+    public StockStore subset(int[] ids) {
+        int count = ids.length;
+        String[] subsetSymbols = new String[count];
+        String[] subsetNames = new String[count];
+        long[] subsetPrices = new long[count];
+        int[] subsetTicks = new int[count];
+        int[] subsetVolumes = new int[count];
+        double[] subsetChanges = new double[count];
+        double[] subsetDrifts = new double[count];
+        double[] subsetVolatilities = new double[count];
+        long[] subsetBases = new long[count];
+        int[] subsetSectors = new int[count];
+        for (int i = 0; i < count; i++) {
+            int id = ids[i];
+            if (id < 0 || id >= size) {
+                throw new IndexOutOfBoundsException("No stock with id " + id);
+            }
+            subsetSymbols[i] = symbols[id];
+            subsetNames[i] = names[id];
+            subsetPrices[i] = prices[id];
+            subsetTicks[i] = tickSizes[id];
+            subsetVolumes[i] = volumes[id];
+            subsetChanges[i] = changes[id];
+            subsetDrifts[i] = drifts[id];
+            subsetVolatilities[i] = volatilities[id];
+            subsetBases[i] = basePrices[id];
+            subsetSectors[i] = sectors[id];
+        }
+        StockStore subset = new StockStore();
+        subset.adopt(count, subsetSymbols, subsetNames, subsetPrices, subsetTicks, subsetVolumes, subsetChanges,
+                     subsetDrifts, subsetVolatilities, subsetBases, subsetSectors);
+        return subset;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int idOf(String symbol) {
+        Integer id = ids.get(symbol);
+        return id != null ? id : -1;
+    }
+
+    public String getSymbol(int id) {
+        return symbols[id];
+    }
+
+    public String getName(int id) {
+        return names[id];
+    }
+
+    public double getPrice(int id) {
+        return Cents.toPrice(prices[id]);
+    }
+
+    public void setPrice(int id, double price) {
+        setPriceCents(id, Cents.of(price));
+    }
+
+    public long getPriceCents(int id) {
+        return prices[id];
+    }
+
+    // Snaps to the instrument's tick grid.
+    public void setPriceCents(int id, long cents) {
+        prices[id] = Cents.roundToTick(cents, tickSizes[id]);
+        dirtyPrices.mark(id);
+    }
+
+    public int getTickSize(int id) {
+        return tickSizes[id];
+    }
+
+    // Tick size in cents; the current and base prices move onto the new grid.
+    public void setTickSize(int id, int tick) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("Tick size must be a positive number of cents: " + tick);
+        }
+        tickSizes[id] = tick;
+        prices[id] = Cents.roundToTick(prices[id], tick);
+        basePrices[id] = Cents.roundToTick(basePrices[id], tick);
+        dirtyPrices.mark(id);
+    }
+
+    public int getVolume(int id) {
+        return volumes[id];
+    }
+
+    public void setVolume(int id, int volume) {
+        volumes[id] = volume;
+        dirtyVolumes.mark(id);
+    }
+
+    public double getChange(int id) {
+        return changes[id];
+    }
+
+    public double getDrift(int id) {
+        return drifts[id];
+    }
+
+    public void setDrift(int id, double drift) {
+        drifts[id] = drift;
+    }
+
+    public double getVolatility(int id) {
+        return volatilities[id];
+    }
+
+    public void setVolatility(int id, double volatility) {
+        if (volatility < 0) {
+            throw new IllegalArgumentException("Volatility must not be negative: " + volatility);
+        }
+        volatilities[id] = volatility;
+    }
+
+    public double getBasePrice(int id) {
+        return Cents.toPrice(basePrices[id]);
+    }
+
+    public int getSector(int id) {
+        return sectors[id];
+    }
+
+    // Raw columns for bulk kernels; only the first size() entries are live. Whoever writes
+    // a price or volume through them marks it with markPrice or markVolume, or publishes
+    // the whole column, for the next publishChanges to see it.
+    public long[] prices() {
+        return prices;
+    }
+
+    public int[] tickSizes() {
+        return tickSizes;
+    }
+
+    public int[] volumes() {
+        return volumes;
+    }
+
+    public double[] changes() {
+        return changes;
+    }
+
+    public double[] drifts() {
+        return drifts;
+    }
+
+    public double[] volatilities() {
+        return volatilities;
+    }
+
+    public long[] basePrices() {
+        return basePrices;
+    }
+
+    public int[] sectors() {
+        return sectors;
+    }
+
+    // Writer side: the symbols written through the raw columns since the last publish.
+    public void markPrice(int id) {
+        dirtyPrices.mark(id);
+    }
+
+    // Symbols from (inclusive) to 'to' (exclusive). Ranges marked from different threads
+    // at once must not share a 64-symbol word, as CHUNK_SIZE-aligned chunks do not.
+    public void markPrices(int from, int to) {
+        dirtyPrices.mark(from, to);
+    }
+
+    public void markVolume(int id) {
+        dirtyVolumes.mark(id);
+    }
+
+    // Snapshots are published copy-on-write by the single writer thread, in pages (see
+    // MarketSnapshot). publishChanges copies only the pages holding marked symbols and
+    // compares only those symbols with the previous snapshot, so the snapshot knows which
+    // of them really moved; a mark that left its value as it was is not a change.
+    public MarketSnapshot snapshot() {
+        return snapshot;
+    }
+
+    public MarketSnapshot publishChanges() {
+        return publish(false, false);
+    }
+
+    // The publishes below take every price, every volume or both as written, for writers
+    // that do not mark: loaders, a journal restore, tests. They cost a whole column.
+    public MarketSnapshot publish() {
+        return publish(true, true);
+    }
+
+    public MarketSnapshot publishPrices() {
+        return publish(true, false);
+    }
+
+    public MarketSnapshot publishVolumes() {
+        return publish(false, true);
+    }
+
+    private MarketSnapshot publish(boolean allPrices, boolean allVolumes) {
+        MarketSnapshot previous = snapshot;
+        long epoch = previous.getEpoch() + 1;
+        MarketSnapshot next;
+        if (previous.size() != size) {
+            dirtyPrices.clear();
+            dirtyVolumes.clear();
+            changeLog.add(epoch, null);
+            next = new MarketSnapshot(epoch, size, Arrays.copyOf(symbols, size), MarketSnapshot.pages(prices, size),
+                                      MarketSnapshot.pages(volumes, size), changeLog, null);
+        } else {
+            if (allPrices) {
+                dirtyPrices.mark(0, size);
+            }
+            if (allVolumes) {
+                dirtyVolumes.mark(0, size);
+            }
+            long[] changed = new long[ChangeLog.words(size)];
+            long[][] pricePages = dirtyPrices.publish(previous.pricePages(), prices, size, changed);
+            int[][] volumePages = dirtyVolumes.publish(previous.volumePages(), volumes, size, changed);
+            // Logged before the snapshot is, so whoever reads the snapshot finds its entry.
+            changeLog.add(epoch, changed);
+            next = new MarketSnapshot(epoch, size, previous.symbolColumn(), pricePages, volumePages, changeLog, changed);
+        }
+        snapshot = next;
+        return next;
+    }
+
+    public StockData get(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("No stock with id " + id);
+        }
+        return new StockData(this, id);
+    }
+
+    public StockData get(String symbol) {
+        int id = idOf(symbol);
+        return id >= 0 ? new StockData(this, id) : null;
+    }
+}
@@ -0,0 +1,181 @@
+package stockmarket;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+
+// Table rows mirror the last applied MarketSnapshot. Applying a new snapshot only fires
+// row events for the ranges whose price or volume actually changed, or whose analytics
+// were updated since the last apply. JTable asks for every visible cell as an Object on
+// every repaint, so each numeric cell keeps its last box and hands it out again for as
+// long as the value is unchanged.
+public class StockTableModel extends AbstractTableModel {
+    public static final int SYMBOL_COLUMN = 0;
+    public static final int PRICE_COLUMN = 1;
+    public static final int VOLUME_COLUMN = 2;
+    public static final int VWAP_COLUMN = 3;
+    public static final int VOLATILITY_COLUMN = 4;
+    public static final int LOW_COLUMN = 5;
+    public static final int HIGH_COLUMN = 6;
+    // Rolling low/high cover this many one-minute bars.
+    public static final int RANGE_MINUTES = 15;
+    
+    // Dirty rows closer than this are merged into one event to keep the event count low.
+    private static final int MERGE_GAP = 16;
+    private static final String[] COLUMN_NAMES = {"Symbol", "Price", "Volume", "VWAP", "Volatility",
+                                                  RANGE_MINUTES + "m Low", RANGE_MINUTES + "m High"};
+    
+    private final MarketAnalytics analytics;
+    private MarketSnapshot snapshot;
+    private long[] shownPrices = new long[0];
+    private int[] shownVolumes = new int[0];
+    private long[] analyticsRows = new long[0];
+    private long[] dirtyRows = new long[0];
+    private final Object[][] boxed = new Object[COLUMN_NAMES.length][];
+    private long updatedRows = 0;
+    
+    public StockTableModel(MarketSnapshot snapshot) {
+        this(snapshot, null);
+    }
+    
+    // Analytics columns read live values and stay blank without analytics. Volatility moves
+    // on every price tick, even one that left the price as it was, and VWAP on fills, so
+    // rows are also repainted when the analytics report an update.
+    public StockTableModel(MarketSnapshot snapshot, MarketAnalytics analytics) {
+        this.analytics = analytics;
+        apply(snapshot);
+    }
+    
+    public void apply(MarketSnapshot next) {
+        MarketSnapshot previous = snapshot;
+        snapshot = next;
+        int size = next.size();
+        if (previous == null || previous.size() != size) {
+            shownPrices = next.copyPriceCents();
+            shownVolumes = next.copyVolumes();
+            Arrays.fill(boxed, null);
+            analyticsRows = new long[ChangeLog.words(size)];
+            dirtyRows = new long[ChangeLog.words(size)];
+            if (analytics != null) {
+                analytics.drainUpdated(analyticsRows);
+                Arrays.fill(analyticsRows, 0);
+            }
+            updatedRows += size;
+            fireTableDataChanged();
+            return;
+        }
+        
+        // Only rows the snapshots say were written since the last apply, or whose analytics
+        // were updated, are looked at; without that, every row is.
+        long[] changed = next.changedSince(previous);
+        if (analytics != null) {
+            analytics.drainUpdated(analyticsRows);
+            if (changed != null) {
+                for (int w = 0; w < dirtyRows.length; w++) {
+                    dirtyRows[w] = changed[w] | analyticsRows[w];
+                }
+                changed = dirtyRows;
+            }
+        }
+        int rangeStart = -1;
+        int rangeEnd = -1;
+        for (int row = ChangeLog.next(changed, 0, size); row >= 0; row = ChangeLog.next(changed, row + 1, size)) {
+            long price = next.getPriceCents(row);
+            int volume = next.getVolume(row);
+            boolean analyticsUpdated = (analyticsRows[row >>> 6] & (1L << row)) != 0;
+            if (price == shownPrices[row] && volume == shownVolumes[row] && !analyticsUpdated) {
+                continue;
+            }
+            shownPrices[row] = price;
+            shownVolumes[row] = volume;
+            updatedRows++;
+            
+            if (rangeStart < 0) {
+                rangeStart = row;
+            } else if (row - rangeEnd > MERGE_GAP) {
+                fireTableRowsUpdated(rangeStart, rangeEnd);
+                rangeStart = row;
+            }
+            rangeEnd = row;
+        }
+        if (rangeStart >= 0) {
+            fireTableRowsUpdated(rangeStart, rangeEnd);
+        }
+        Arrays.fill(analyticsRows, 0);
+    }
+    
+    public long getUpdatedRows() {
+        return updatedRows;
+    }
+    
+    @Override
+    public int getRowCount() {
+        return snapshot.size();
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+    
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case PRICE_COLUMN:
+            case VWAP_COLUMN:
+            case VOLATILITY_COLUMN:
+            case LOW_COLUMN:
+            case HIGH_COLUMN: return Double.class;
+            case VOLUME_COLUMN: return Integer.class;
+            default: return String.class;
+        }
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case SYMBOL_COLUMN: return snapshot.getSymbol(row);
+            case VOLUME_COLUMN: return boxed(row, column, shownVolumes[row]);
+            case PRICE_COLUMN: return boxed(row, column, Cents.toPrice(shownPrices[row]));
+            default:
+                double value = analyticsValue(row, column);
+                return Double.isNaN(value) ? null : boxed(row, column, value);
+        }
+    }
+    
+    private Object boxed(int row, int column, double value) {
+        Object[] cells = cells(column);
+        Object cached = cells[row];
+        if (cached instanceof Double && (Double) cached == value) return cached;
+        return cells[row] = value;
+    }
+    
+    private Object boxed(int row, int column, int value) {
+        Object[] cells = cells(column);
+        Object cached = cells[row];
+        if (cached instanceof Integer && (Integer) cached == value) return cached;
+        return cells[row] = value;
+    }
+    
+    private Object[] cells(int column) {
+        Object[] cells = boxed[column];
+        if (cells == null) {
+            cells = boxed[column] = new Object[shownPrices.length];
+        }
+        return cells;
+    }
+    
+    private double analyticsValue(int row, int column) {
+        if (analytics == null || row >= analytics.getSymbolCount()) return Double.NaN;
+        switch (column) {
+            case VWAP_COLUMN: return analytics.getVwap(row);
+            case VOLATILITY_COLUMN: return analytics.getVolatility(row);
+            case LOW_COLUMN: return analytics.getRollingLow(row, MarketAnalytics.MINUTE_BARS, RANGE_MINUTES);
+            default: return analytics.getRollingHigh(row, MarketAnalytics.MINUTE_BARS, RANGE_MINUTES);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package stockmarket;
+
+import java.util.Arrays;
+
+// Assigns symbols to shards by consistent hashing. Every shard owns a number of points on
+// a 64-bit hash ring and a symbol belongs to the first point at or after its own hash, so
+// growing from n to n+1 shards moves only about 1/(n+1) of the symbols. The ring is a
+// pure function of the shard count and the symbol text: every process that builds one
+// agrees on the assignment without talking to the others.
+public final class SymbolPartitioner {
+    public static final int DEFAULT_POINTS_PER_SHARD = 256;
+
+    private final int shards;
+    private final long[] points;
+    private final int[] owners;
+
+    public SymbolPartitioner(int shards) {
+        this(shards, DEFAULT_POINTS_PER_SHARD);
+    }
+
+    public SymbolPartitioner(int shards, int pointsPerShard) {
+        if (shards <= 0 || shards > 0xFFFF || pointsPerShard <= 0) {
+            throw new IllegalArgumentException("Need 1 to 65535 shards and at least one ring point per shard");
+        }
+        this.shards = shards;
+        long[] ring = new long[shards * pointsPerShard];
+        for (int shard = 0; shard < shards; shard++) {
+            for (int point = 0; point < pointsPerShard; point++) {
+                // The owner rides in the low bits so that sorting keeps it with its point.
+                ring[shard * pointsPerShard + point] = (hash("shard-" + shard + "#" + point) & ~0xFFFFL) | shard;
+            }
+        }
+        Arrays.sort(ring);
+        points = new long[ring.length];
+        owners = new int[ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            points[i] = ring[i] & ~0xFFFFL;
+            owners[i] = (int) (ring[i] & 0xFFFF);
+        }
+    }
+
+    public int getShardCount() {
+        return shards;
+    }
+
+    public int shardOf(String symbol) {
+        long key = hash(symbol);
+        int index = Arrays.binarySearch(points, key);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    // The ids of each shard's symbols, in universe order - which is also their order
+    // within the shard, so a shard's local id i is assignment[shard][i] globally.
+    public int[][] assign(StockStore universe) {
+        int[] counts = new int[shards];
+        int[] owner = new int[universe.size()];
+        for (int id = 0; id < universe.size(); id++) {
+            owner[id] = shardOf(universe.getSymbol(id));
+            counts[owner[id]]++;
+        }
+        int[][] assignment = new int[shards][];
+        for (int shard = 0; shard < shards; shard++) {
+            assignment[shard] = new int[counts[shard]];
+            counts[shard] = 0;
+        }
+        for (int id = 0; id < universe.size(); id++) {
+            assignment[owner[id]][counts[owner[id]]++] = id;
+        }
+        return assignment;
+    }
+
+    // FNV-1a over the UTF-16 text, finished with a 64-bit mixer so that symbols differing
+    // only in a trailing digit still land far apart on the ring.
+    static long hash(String text) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001B3L;
+        }
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
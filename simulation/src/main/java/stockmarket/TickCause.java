@@ -0,0 +1,20 @@
+package stockmarket;
+
+public final class TickCause {
+    public static final int INITIAL = 0;
+    public static final int PRICE_TICK = 1;
+    public static final int TRADE_VOLUME = 2;
+    public static final int TRADE_IMPACT = 3;
+    public static final int MARKET_EVENT = 4;
+    // Every symbol's state, written by the journal as a keyframe to restore from.
+    public static final int CHECKPOINT = 5;
+    
+    private static final String[] NAMES = {"INITIAL", "PRICE_TICK", "TRADE_VOLUME", "TRADE_IMPACT", "MARKET_EVENT", "CHECKPOINT"};
+    
+    private TickCause() {
+    }
+    
+    public static String name(int cause) {
+        return cause >= 0 && cause < NAMES.length ? NAMES[cause] : "CAUSE_" + cause;
+    }
+}
@@ -0,0 +1,337 @@
+package stockmarket;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Intraday price and volume history for every symbol, held off the Java heap so that a
+// long session's ticks give the garbage collector nothing more to scan or copy. Records
+// live in fixed-size blocks carved from direct ByteBuffer slabs. Each symbol owns a chain
+// of blocks, and a record only stores its offsets from its block's base time and base
+// price, so it takes 12 bytes however high the price or long the session.
+//
+// Block layout: 24-byte header (long base time, long base price in cents, int next block
+// or -1, int record count once the block is sealed, 0 while it is open), then records of
+// (int millis after the base time, int cents above the base price, int volume). A symbol
+// opens a new block when its current one is full or a record's offsets no longer fit in an
+// int. The open block's header is mirrored in heap columns, so an append across every
+// symbol reads those sequentially and only writes to the blocks themselves.
+//
+// Only records that change a symbol's price or volume are kept. The market thread
+// appends; any thread may query, and sees every record appended before the count it reads.
+// The arena's lifecycle is explicit: memory is taken a slab at a time up to the cap given
+// at construction, reset() empties the history but keeps the slabs for the next session,
+// and close() gives them up. Records arriving once the cap is reached are dropped and
+// counted. Reset and close must not race appends or queries: a history attached to a
+// MarketEngine is reset through MarketEngine.resetHistory and closed by the engine, both
+// on the market thread.
+public class TickHistory implements Closeable {
+    public static final int RECORD_SIZE = 12;
+    public static final int BLOCK_HEADER_SIZE = 24;
+    public static final int DEFAULT_BLOCK_BYTES = 1024;
+    public static final int DEFAULT_SLAB_BYTES = 64 << 20;
+
+    private static final int BASE_PRICE_OFFSET = 8;
+    private static final int NEXT_OFFSET = 16;
+    private static final int COUNT_OFFSET = 20;
+    private static final VarHandle COUNTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final int symbolCount;
+    private final int blockShift;
+    private final int recordsPerBlock;
+    private final int slabShift;
+    private final ByteBuffer[] slabs;
+    private final int[] firstBlocks;
+    private final int[] lastBlocks;
+    private final int[] counts;
+    // The open block of each symbol: its header fields, and its last record's values.
+    private final long[] baseTimes;
+    private final long[] basePrices;
+    private final int[] blockCounts;
+    private final long[] lastPrices;
+    private final int[] lastVolumes;
+    private int allocatedSlabs = 0;
+    private int nextBlock = 0;
+    private volatile long droppedRecords = 0;
+    private boolean closed = false;
+
+    public TickHistory(int symbolCount, long maxBytes) {
+        this(symbolCount, maxBytes, DEFAULT_BLOCK_BYTES, DEFAULT_SLAB_BYTES);
+    }
+
+    // Block and slab sizes are powers of two, so that finding a block takes shifts alone.
+    // The cap is rounded down to whole slabs, but is always at least one.
+    public TickHistory(int symbolCount, long maxBytes, int blockBytes, int slabBytes) {
+        if (Integer.bitCount(blockBytes) != 1 || Integer.bitCount(slabBytes) != 1
+                || blockBytes < BLOCK_HEADER_SIZE + RECORD_SIZE || slabBytes < blockBytes) {
+            throw new IllegalArgumentException("Blocks must hold a record and slabs a block, both powers of two: "
+                                               + blockBytes + " / " + slabBytes);
+        }
+        long maxSlabs = Math.max(1, maxBytes / slabBytes);
+        if (maxSlabs * (slabBytes / blockBytes) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many blocks for " + maxBytes + " bytes; use larger blocks");
+        }
+        this.symbolCount = symbolCount;
+        this.blockShift = Integer.numberOfTrailingZeros(blockBytes);
+        this.recordsPerBlock = (blockBytes - BLOCK_HEADER_SIZE) / RECORD_SIZE;
+        this.slabShift = Integer.numberOfTrailingZeros(slabBytes);
+        slabs = new ByteBuffer[(int) maxSlabs];
+        firstBlocks = new int[symbolCount];
+        lastBlocks = new int[symbolCount];
+        counts = new int[symbolCount];
+        baseTimes = new long[symbolCount];
+        basePrices = new long[symbolCount];
+        blockCounts = new int[symbolCount];
+        lastPrices = new long[symbolCount];
+        lastVolumes = new int[symbolCount];
+    }
+
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    // Writer side, market thread only. Symbols listed after construction are not kept.
+
+    void appendAll(long timeMillis, StockStore stocks) {
+        long[] prices = stocks.prices();
+        int[] volumes = stocks.volumes();
+        int count = Math.min(symbolCount, stocks.size());
+        for (int i = 0; i < count; i++) {
+            append(i, timeMillis, prices[i], volumes[i]);
+        }
+    }
+
+    // Only the symbols set in 'changed' (see ChangeLog); null means all of them.
+    void appendChanged(long timeMillis, StockStore stocks, long[] changed) {
+        if (changed == null) {
+            appendAll(timeMillis, stocks);
+            return;
+        }
+        long[] prices = stocks.prices();
+        int[] volumes = stocks.volumes();
+        for (int i = ChangeLog.next(changed, 0); i >= 0; i = ChangeLog.next(changed, i + 1)) {
+            append(i, timeMillis, prices[i], volumes[i]);
+        }
+    }
+
+    // Returns false when the record had to be dropped because the arena is full.
+    boolean append(int symbol, long timeMillis, long priceCents, int volume) {
+        if (closed) {
+            throw new IllegalStateException("Tick history is closed");
+        }
+        if (symbol >= symbolCount) return true;
+        int count = counts[symbol];
+        if (count > 0) {
+            if (priceCents == lastPrices[symbol] && volume == lastVolumes[symbol]) return true;
+            int inBlock = blockCounts[symbol];
+            long timeOffset = timeMillis - baseTimes[symbol];
+            long priceOffset = priceCents - basePrices[symbol];
+            if (inBlock < recordsPerBlock && timeOffset == (int) timeOffset && priceOffset == (int) priceOffset) {
+                write(lastBlocks[symbol], inBlock, (int) timeOffset, (int) priceOffset, volume);
+                published(symbol, count, inBlock, priceCents, volume);
+                return true;
+            }
+        }
+        int block = allocateBlock();
+        if (block < 0) {
+            droppedRecords++;
+            return false;
+        }
+        ByteBuffer slab = slab(block);
+        int header = offset(block);
+        slab.putLong(header, timeMillis);
+        slab.putLong(header + BASE_PRICE_OFFSET, priceCents);
+        slab.putInt(header + NEXT_OFFSET, -1);
+        slab.putInt(header + COUNT_OFFSET, 0);
+        write(block, 0, 0, 0, volume);
+        if (count == 0) {
+            firstBlocks[symbol] = block;
+        } else {
+            int previous = lastBlocks[symbol];
+            slab(previous).putInt(offset(previous) + COUNT_OFFSET, blockCounts[symbol]);
+            slab(previous).putInt(offset(previous) + NEXT_OFFSET, block);
+        }
+        lastBlocks[symbol] = block;
+        baseTimes[symbol] = timeMillis;
+        basePrices[symbol] = priceCents;
+        published(symbol, count, 0, priceCents, volume);
+        return true;
+    }
+
+    private ByteBuffer slab(int block) {
+        return slabs[(int) (((long) block << blockShift) >>> slabShift)];
+    }
+
+    private int offset(int block) {
+        return (int) (((long) block << blockShift) & ((1L << slabShift) - 1));
+    }
+
+    private void write(int block, int inBlock, int timeOffset, int priceOffset, int volume) {
+        ByteBuffer slab = slab(block);
+        int position = offset(block) + BLOCK_HEADER_SIZE + inBlock * RECORD_SIZE;
+        slab.putInt(position, timeOffset);
+        slab.putInt(position + 4, priceOffset);
+        slab.putInt(position + 8, volume);
+    }
+
+    // The release store makes the record, and any block it opened, visible to queries.
+    private void published(int symbol, int count, int inBlock, long priceCents, int volume) {
+        blockCounts[symbol] = inBlock + 1;
+        lastPrices[symbol] = priceCents;
+        lastVolumes[symbol] = volume;
+        COUNTS.setRelease(counts, symbol, count + 1);
+    }
+
+    private int allocateBlock() {
+        if ((long) nextBlock << blockShift == (long) allocatedSlabs << slabShift) {
+            if (allocatedSlabs == slabs.length) {
+                if (droppedRecords == 0) {
+                    MarketLog.warn("Tick history is full at " + getAllocatedBytes() + " bytes - dropping new ticks");
+                }
+                return -1;
+            }
+            // Reset keeps slabs, so one may already be here from an earlier session.
+            if (slabs[allocatedSlabs] == null) {
+                slabs[allocatedSlabs] = ByteBuffer.allocateDirect(1 << slabShift).order(ByteOrder.nativeOrder());
+            }
+            allocatedSlabs++;
+        }
+        return nextBlock++;
+    }
+
+    // Empties the history for a new session; the slabs already taken are reused.
+    void reset() {
+        Arrays.fill(counts, 0);
+        nextBlock = 0;
+        allocatedSlabs = 0;
+        droppedRecords = 0;
+        VarHandle.releaseFence();
+    }
+
+    // Gives the slabs up; their memory goes back as soon as nothing else refers to them.
+    @Override
+    public void close() {
+        closed = true;
+        Arrays.fill(counts, 0);
+        Arrays.fill(slabs, null);
+        allocatedSlabs = 0;
+        nextBlock = 0;
+    }
+
+    // Reader side, any thread.
+
+    public int count(int symbol) {
+        return (int) COUNTS.getAcquire(counts, symbol);
+    }
+
+    // Copies the symbol's records timed in [fromMillis, toMillis) oldest first, as many as
+    // the arrays hold, and returns how many were written.
+    public int query(int symbol, long fromMillis, long toMillis, long[] times, long[] prices, int[] volumes) {
+        int capacity = Math.min(times.length, Math.min(prices.length, volumes.length));
+        int[] written = new int[1];
+        visit(symbol, fromMillis, toMillis, (time, price, volume) -> {
+            if (written[0] == capacity) return false;
+            times[written[0]] = time;
+            prices[written[0]] = price;
+            volumes[written[0]] = volume;
+            written[0]++;
+            return true;
+        });
+        return written[0];
+    }
+
+    // Buckets the symbol's records in [fromMillis, toMillis) into OHLC bars `periodMillis`
+    // wide, aligned to fromMillis, so a chart can draw any range at any zoom from a bar per
+    // pixel column. Each bar also carries the last volume seen in it. Buckets without a
+    // record leave no bar. Returns the number of bars written, at most the arrays' length.
+    public int downsample(int symbol, long fromMillis, long toMillis, long periodMillis, long[] starts, long[] opens,
+                          long[] highs, long[] lows, long[] closes, int[] volumes) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Bar period must be positive: " + periodMillis);
+        }
+        int capacity = Math.min(Math.min(starts.length, opens.length), Math.min(Math.min(highs.length, lows.length),
+                                                                               Math.min(closes.length, volumes.length)));
+        int[] written = new int[1];
+        visit(symbol, fromMillis, toMillis, (time, price, volume) -> {
+            long start = fromMillis + Math.floorDiv(time - fromMillis, periodMillis) * periodMillis;
+            int bar = written[0] - 1;
+            if (bar < 0 || starts[bar] != start) {
+                if (written[0] == capacity) return false;
+                bar = written[0]++;
+                starts[bar] = start;
+                opens[bar] = price;
+                highs[bar] = price;
+                lows[bar] = price;
+            } else {
+                if (price > highs[bar]) highs[bar] = price;
+                if (price < lows[bar]) lows[bar] = price;
+            }
+            closes[bar] = price;
+            volumes[bar] = volume;
+            return true;
+        });
+        return written[0];
+    }
+
+    private interface RecordVisitor {
+        // Returns false to stop.
+        boolean visit(long timeMillis, long priceCents, int volume);
+    }
+
+    private void visit(int symbol, long fromMillis, long toMillis, RecordVisitor visitor) {
+        int remaining = count(symbol);
+        int block = remaining > 0 ? firstBlocks[symbol] : -1;
+        while (remaining > 0) {
+            ByteBuffer slab = slab(block);
+            int header = offset(block);
+            // Everything the count covers past the sealed blocks is in the open one.
+            int sealed = slab.getInt(header + COUNT_OFFSET);
+            int inBlock = sealed == 0 ? remaining : Math.min(remaining, sealed);
+            int next = remaining > inBlock ? slab.getInt(header + NEXT_OFFSET) : -1;
+            // A block whose successor starts no later than the range can be skipped whole.
+            if (next >= 0 && slab(next).getLong(offset(next)) <= fromMillis) {
+                remaining -= inBlock;
+                block = next;
+                continue;
+            }
+            long baseTime = slab.getLong(header);
+            long basePrice = slab.getLong(header + BASE_PRICE_OFFSET);
+            for (int i = 0; i < inBlock; i++) {
+                int position = header + BLOCK_HEADER_SIZE + i * RECORD_SIZE;
+                long time = baseTime + slab.getInt(position);
+                if (time >= toMillis) return;
+                if (time < fromMillis) continue;
+                if (!visitor.visit(time, basePrice + slab.getInt(position + 4), slab.getInt(position + 8))) return;
+            }
+            remaining -= inBlock;
+            block = next;
+        }
+    }
+
+    public long getRecords() {
+        long total = 0;
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            total += count(symbol);
+        }
+        return total;
+    }
+
+    public long getDroppedRecords() {
+        return droppedRecords;
+    }
+
+    public long getAllocatedBytes() {
+        return (long) allocatedSlabs << slabShift;
+    }
+
+    public long getUsedBytes() {
+        return (long) nextBlock << blockShift;
+    }
+
+    public long getMaxBytes() {
+        return (long) slabs.length << slabShift;
+    }
+}
@@ -0,0 +1,257 @@
+package stockmarket;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Append-only journal of fixed-width tick records spread over memory-mapped segment
+// files. Only the market thread appends, so the writer needs no locking; every
+// INDEX_INTERVAL records the (time, segment, record) position goes to a sparse index.
+//
+// A full-state write (appendAll) is a keyframe and its position goes to a second index
+// of the same layout. checkpoint writes one with the CHECKPOINT cause whenever a segment
+// has started or an index interval went by without one - stretched to KEYFRAME_SPACING
+// records per symbol for large universes, so keyframes stay a bounded share of the
+// journal - and a restore seeks to the last keyframe before its target instead of
+// replaying the journal from the start.
+//
+// Segment layout: 32-byte header (magic, version, record count, first time, last time)
+// followed by 32-byte records (time, symbol, cause, reserved, price in cents, volume,
+// reserved). Version 1 journals stored the price as a double.
+//
+// A journal is never reopened for appending: a directory that already holds one is
+// refused unless the caller asks to overwrite it, in which case the old files are
+// deleted and named in a WARN.
+public class TickJournal implements Closeable {
+    public static final int MAGIC = 0x54494B4A;
+    public static final int VERSION = 2;
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 32;
+    public static final int INDEX_INTERVAL = 4096;
+    public static final int INDEX_ENTRY_SIZE = 24;
+    public static final int KEYFRAME_SPACING = 4;
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    
+    static final int COUNT_OFFSET = 8;
+    static final int FIRST_TIME_OFFSET = 16;
+    static final int LAST_TIME_OFFSET = 24;
+    
+    private final Path directory;
+    private final long recordsPerSegment;
+    private final FileChannel indexChannel;
+    private final FileChannel keyframeChannel;
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+    
+    private MappedByteBuffer segment;
+    private int segmentNumber = -1;
+    private long segmentRecords;
+    private long totalRecords = 0;
+    private long recordsSinceKeyframe = 0;
+    private boolean segmentStarted = false;
+    private boolean closed = false;
+    
+    public TickJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+    
+    public TickJournal(Path directory, long segmentBytes) throws IOException {
+        this(directory, segmentBytes, false);
+    }
+    
+    public TickJournal(Path directory, long segmentBytes, boolean overwrite) throws IOException {
+        if (segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must fit in one mapping: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.recordsPerSegment = (segmentBytes - HEADER_SIZE) / RECORD_SIZE;
+        if (recordsPerSegment <= 0) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentBytes);
+        }
+        Files.createDirectories(directory);
+        List<Path> old = existingFiles(directory);
+        if (!old.isEmpty()) {
+            if (!overwrite) {
+                throw new FileAlreadyExistsException(directory.toString(), null,
+                                                     "already holds a journal of " + old.size() + " file(s)");
+            }
+            for (Path path : old) {
+                Files.delete(path);
+            }
+            MarketLog.warn("Overwrote the journal in " + directory + ", deleting " + old);
+        }
+        this.indexChannel = FileChannel.open(indexPath(directory), StandardOpenOption.CREATE_NEW,
+                                             StandardOpenOption.WRITE);
+        this.keyframeChannel = FileChannel.open(keyframePath(directory), StandardOpenOption.CREATE_NEW,
+                                                StandardOpenOption.WRITE);
+        openSegment(0);
+    }
+    
+    // The index, keyframe index and segments of a journal in 'directory', in name order.
+    static List<Path> existingFiles(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path path : new Path[] {indexPath(directory), keyframePath(directory)}) {
+            if (Files.exists(path)) files.add(path);
+        }
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "ticks-*.journal")) {
+            for (Path path : segments) {
+                files.add(path);
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+    
+    static Path indexPath(Path directory) {
+        return directory.resolve("ticks.index");
+    }
+    
+    static Path keyframePath(Path directory) {
+        return directory.resolve("ticks.keyframes");
+    }
+    
+    static Path segmentPath(Path directory, int number) {
+        return directory.resolve(String.format("ticks-%05d.journal", number));
+    }
+    
+    private void openSegment(int number) throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        long size = HEADER_SIZE + recordsPerSegment * RECORD_SIZE;
+        try (FileChannel channel = FileChannel.open(segmentPath(directory, number), StandardOpenOption.CREATE_NEW,
+                                                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        segment.putInt(0, MAGIC);
+        segment.putInt(4, VERSION);
+        segment.putLong(COUNT_OFFSET, 0);
+        segmentNumber = number;
+        segmentRecords = 0;
+        segmentStarted = true;
+    }
+    
+    public void append(long time, int symbol, int cause, long priceCents, int volume) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        try {
+            rollIfFull();
+            if (totalRecords % INDEX_INTERVAL == 0) {
+                writeIndexEntry(indexChannel, time);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        int position = (int) (HEADER_SIZE + segmentRecords * RECORD_SIZE);
+        segment.putLong(position, time);
+        segment.putInt(position + 8, symbol);
+        segment.putShort(position + 12, (short) cause);
+        segment.putLong(position + 16, priceCents);
+        segment.putInt(position + 24, volume);
+        
+        if (segmentRecords == 0) {
+            segment.putLong(FIRST_TIME_OFFSET, time);
+        }
+        segmentRecords++;
+        totalRecords++;
+        recordsSinceKeyframe++;
+        segment.putLong(LAST_TIME_OFFSET, time);
+        segment.putLong(COUNT_OFFSET, segmentRecords);
+    }
+    
+    private void rollIfFull() throws IOException {
+        if (segmentRecords == recordsPerSegment) {
+            openSegment(segmentNumber + 1);
+        }
+    }
+    
+    private void writeIndexEntry(FileChannel channel, long time) throws IOException {
+        indexEntry.clear();
+        indexEntry.putLong(time);
+        indexEntry.putLong(segmentNumber);
+        indexEntry.putLong(segmentRecords);
+        indexEntry.flip();
+        while (indexEntry.hasRemaining()) {
+            channel.write(indexEntry);
+        }
+    }
+    
+    // Every symbol's state at 'time', indexed as a keyframe.
+    public void appendAll(long time, StockStore stocks, int cause) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        try {
+            rollIfFull();
+            writeIndexEntry(keyframeChannel, time);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long[] prices = stocks.prices();
+        int[] volumes = stocks.volumes();
+        for (int i = 0; i < stocks.size(); i++) {
+            append(time, i, cause, prices[i], volumes[i]);
+        }
+        recordsSinceKeyframe = 0;
+        segmentStarted = false;
+    }
+    
+    public boolean isCheckpointDue(int symbols) {
+        return segmentStarted || recordsSinceKeyframe >= Math.max(INDEX_INTERVAL, (long) symbols * KEYFRAME_SPACING);
+    }
+    
+    // Writes a CHECKPOINT keyframe if one is due; returns whether it did.
+    public boolean checkpoint(long time, StockStore stocks) {
+        if (!isCheckpointDue(stocks.size())) return false;
+        appendAll(time, stocks, TickCause.CHECKPOINT);
+        return true;
+    }
+    
+    // Only the symbols set in 'changed' (see ChangeLog); null means all of them. Those
+    // deltas are followed by a checkpoint whenever one is due, so a journal of deltas
+    // still restores from a nearby keyframe.
+    public void appendChanged(long time, StockStore stocks, int cause, long[] changed) {
+        if (changed == null) {
+            appendAll(time, stocks, cause);
+            return;
+        }
+        long[] prices = stocks.prices();
+        int[] volumes = stocks.volumes();
+        for (int i = ChangeLog.next(changed, 0); i >= 0; i = ChangeLog.next(changed, i + 1)) {
+            append(time, i, cause, prices[i], volumes[i]);
+        }
+        checkpoint(time, stocks);
+    }
+    
+    public long getRecordCount() {
+        return totalRecords;
+    }
+    
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    public void force() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        force();
+        indexChannel.force(true);
+        indexChannel.close();
+        keyframeChannel.force(true);
+        keyframeChannel.close();
+        segment = null;
+    }
+}
@@ -0,0 +1,168 @@
+package stockmarket;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TickJournalReader {
+    public interface RecordVisitor {
+        void visit(long time, int symbol, int cause, long priceCents, int volume);
+    }
+    
+    private final MappedByteBuffer[] segments;
+    private final long[] segmentCounts;
+    private final Index index;
+    private final Index keyframes;
+    
+    // (time, segment, record) positions, in journal order.
+    private static final class Index {
+        final long[] times;
+        final int[] segments;
+        final long[] records;
+        
+        Index(Path path) throws IOException {
+            int entries = Files.exists(path) ? (int) (Files.size(path) / TickJournal.INDEX_ENTRY_SIZE) : 0;
+            times = new long[entries];
+            segments = new int[entries];
+            records = new long[entries];
+            if (entries > 0) {
+                ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+                for (int i = 0; i < entries; i++) {
+                    times[i] = in.getLong();
+                    segments[i] = (int) in.getLong();
+                    records[i] = in.getLong();
+                }
+            }
+        }
+        
+        // The last entry with a time below 'time', or at most 'time' when inclusive; -1 if none.
+        int lastBefore(long time, boolean inclusive) {
+            int low = 0;
+            int high = times.length - 1;
+            int found = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (times[middle] < time || (inclusive && times[middle] == time)) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return found;
+        }
+    }
+    
+    public TickJournalReader(Path directory) throws IOException {
+        List<MappedByteBuffer> mapped = new ArrayList<>();
+        List<Long> counts = new ArrayList<>();
+        for (int number = 0; Files.exists(TickJournal.segmentPath(directory, number)); number++) {
+            try (FileChannel channel = FileChannel.open(TickJournal.segmentPath(directory, number),
+                                                        StandardOpenOption.READ)) {
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (segment.getInt(0) != TickJournal.MAGIC || segment.getInt(4) != TickJournal.VERSION) {
+                    throw new IOException("Not a tick journal segment: " + TickJournal.segmentPath(directory, number));
+                }
+                mapped.add(segment);
+                counts.add(segment.getLong(TickJournal.COUNT_OFFSET));
+            }
+        }
+        segments = mapped.toArray(new MappedByteBuffer[0]);
+        segmentCounts = new long[counts.size()];
+        for (int i = 0; i < segmentCounts.length; i++) {
+            segmentCounts[i] = counts.get(i);
+        }
+        index = new Index(TickJournal.indexPath(directory));
+        keyframes = new Index(TickJournal.keyframePath(directory));
+    }
+    
+    public int getKeyframeCount() {
+        return keyframes.times.length;
+    }
+    
+    public long getRecordCount() {
+        long total = 0;
+        for (long count : segmentCounts) {
+            total += count;
+        }
+        return total;
+    }
+    
+    public long getFirstTime() {
+        return segments.length == 0 || segmentCounts[0] == 0 ? 0 : segments[0].getLong(TickJournal.FIRST_TIME_OFFSET);
+    }
+    
+    public long getLastTime() {
+        for (int i = segments.length - 1; i >= 0; i--) {
+            if (segmentCounts[i] > 0) {
+                return segments[i].getLong(TickJournal.LAST_TIME_OFFSET);
+            }
+        }
+        return 0;
+    }
+    
+    public long forEach(RecordVisitor visitor) {
+        return replay(Long.MIN_VALUE, Long.MAX_VALUE, visitor);
+    }
+    
+    public long replay(long until, RecordVisitor visitor) {
+        return replay(Long.MIN_VALUE, until, visitor);
+    }
+    
+    // Visits every record with from <= time <= until, in journal order. The sparse index
+    // narrows the scan to the blocks that can hold that range; index entries with a time
+    // equal to 'from' may follow records at that same time, so the scan starts at the
+    // last entry strictly before it.
+    public long replay(long from, long until, RecordVisitor visitor) {
+        int entry = index.lastBefore(from, false);
+        return entry < 0 ? replay(0, 0, from, until, visitor)
+                         : replay(index.segments[entry], index.records[entry], from, until, visitor);
+    }
+    
+    private long replay(int startSegment, long startRecord, long from, long until, RecordVisitor visitor) {
+        long visited = 0;
+        for (int s = startSegment; s < segments.length; s++) {
+            MappedByteBuffer segment = segments[s];
+            long limit = segmentCounts[s];
+            for (long r = s == startSegment ? startRecord : 0; r < limit; r++) {
+                int position = (int) (TickJournal.HEADER_SIZE + r * TickJournal.RECORD_SIZE);
+                long time = segment.getLong(position);
+                if (time > until) {
+                    return visited;
+                }
+                if (time < from) {
+                    continue;
+                }
+                visitor.visit(time, segment.getInt(position + 8), segment.getShort(position + 12),
+                              segment.getLong(position + 16), segment.getInt(position + 24));
+                visited++;
+            }
+        }
+        return visited;
+    }
+    
+    // Rebuilds prices and volumes as they were at 'time' into a store that uses the
+    // same symbol ids as the journalled engine. The replay starts at the last keyframe at
+    // or before 'time', which holds every symbol, and runs forward from there; a journal
+    // without keyframes is replayed from the start.
+    public long restore(long time, StockStore target) {
+        long[] prices = target.prices();
+        int[] volumes = target.volumes();
+        int size = target.size();
+        RecordVisitor apply = (recordTime, symbol, cause, price, volume) -> {
+            if (symbol < size) {
+                prices[symbol] = price;
+                volumes[symbol] = volume;
+            }
+        };
+        int keyframe = keyframes.lastBefore(time, true);
+        long applied = keyframe < 0 ? replay(time, apply)
+                                    : replay(keyframes.segments[keyframe], keyframes.records[keyframe], Long.MIN_VALUE, time, apply);
+        target.publish();
+        return applied;
+    }
+}
@@ -0,0 +1,44 @@
+package stockmarket;
+
+public final class TradeResult {
+    private final long tradeId;
+    private final int requestedVolume;
+    private final long filledVolume;
+    private final double averagePrice;
+    private final long latencyNanos;
+    
+    TradeResult(long tradeId, int requestedVolume, long filledVolume, double averagePrice, long latencyNanos) {
+        this.tradeId = tradeId;
+        this.requestedVolume = requestedVolume;
+        this.filledVolume = filledVolume;
+        this.averagePrice = averagePrice;
+        this.latencyNanos = latencyNanos;
+    }
+    
+    public long getTradeId() {
+        return tradeId;
+    }
+    
+    public int getRequestedVolume() {
+        return requestedVolume;
+    }
+    
+    // Signed like the request: positive for bought, negative for sold.
+    public long getFilledVolume() {
+        return filledVolume;
+    }
+    
+    public double getAveragePrice() {
+        return averagePrice;
+    }
+    
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Trade #%d: %+,d requested, %+,d filled @ $%.2f avg (%.2f ms)",
+                             tradeId, requestedVolume, filledVolume, averagePrice, latencyNanos / 1e6);
+    }
+}
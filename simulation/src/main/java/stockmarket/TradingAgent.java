@@ -0,0 +1,133 @@
+package stockmarket;
+
+import java.util.SplittableRandom;
+
+// One simulated trader: a strategy, a small watchlist of symbols, and the position and
+// cash those symbols' fills have built up. An agent has at most one order in flight and
+// is only ever touched by one thread at a time - an agent worker while it decides, then
+// the market thread when its fill arrives - with the hand-offs going through the trade
+// queue and the worker pool, so its fields need no synchronization of their own.
+public final class TradingAgent {
+    private final int id;
+    private final TradingStrategy strategy;
+    private final SplittableRandom random;
+    private final int[] watchlist;
+    private final long[] positions;
+    private final double[] lastSeen;
+    private final int maxOrderSize;
+    private final long maxPosition;
+    private double cash = 0;
+    private int orderWatched = -1;
+    private int orderVolume = 0;
+    private int trades = 0;
+    private int rejected = 0;
+    private int backoffs = 0;
+
+    TradingAgent(int id, TradingStrategy strategy, long seed, int[] watchlist, int maxOrderSize, long maxPosition) {
+        this.id = id;
+        this.strategy = strategy;
+        this.random = new SplittableRandom(seed);
+        this.watchlist = watchlist;
+        this.positions = new long[watchlist.length];
+        this.lastSeen = new double[watchlist.length];
+        this.maxOrderSize = maxOrderSize;
+        this.maxPosition = maxPosition;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public TradingStrategy getStrategy() {
+        return strategy;
+    }
+
+    public int getWatchCount() {
+        return watchlist.length;
+    }
+
+    public int getSymbol(int watched) {
+        return watchlist[watched];
+    }
+
+    public long getPosition(int watched) {
+        return positions[watched];
+    }
+
+    public int getMaxOrderSize() {
+        return maxOrderSize;
+    }
+
+    public double getCash() {
+        return cash;
+    }
+
+    public int getTrades() {
+        return trades;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    // Records the price a strategy just saw and returns the one it saw before, 0 at first.
+    public double lookedAt(int watched, double price) {
+        double last = lastSeen[watched];
+        lastSeen[watched] = price;
+        return last;
+    }
+
+    // Places this round's order: signed shares of a watched symbol, buys positive.
+    // Orders that would take the position past the agent's limit are trimmed to it.
+    public void order(int watched, int volume) {
+        long target = Math.max(-maxPosition, Math.min(maxPosition, positions[watched] + volume));
+        orderWatched = watched;
+        orderVolume = (int) (target - positions[watched]);
+    }
+
+    public double markToMarket(MarketSnapshot market) {
+        double value = cash;
+        for (int i = 0; i < watchlist.length; i++) {
+            value += positions[i] * market.getPrice(watchlist[i]);
+        }
+        return value;
+    }
+
+    // Agent worker: runs the strategy and reports whether it left an order to submit.
+    boolean decide(MarketSnapshot market) {
+        orderWatched = -1;
+        orderVolume = 0;
+        strategy.decide(this, market, random);
+        return orderWatched >= 0 && orderVolume != 0;
+    }
+
+    int getOrderSymbol() {
+        return watchlist[orderWatched];
+    }
+
+    int getOrderVolume() {
+        return orderVolume;
+    }
+
+    // Market thread.
+    void filled(TradeResult result) {
+        positions[orderWatched] += result.getFilledVolume();
+        cash -= result.getFilledVolume() * result.getAveragePrice();
+        trades++;
+    }
+
+    // Agent worker: the trade queue was full. Returns how many rejections in a row.
+    int rejected() {
+        rejected++;
+        return ++backoffs;
+    }
+
+    void accepted() {
+        backoffs = 0;
+    }
+
+    // Exponentially distributed think time around the mean, so wake-ups don't bunch up.
+    long thinkNanos(long meanNanos) {
+        return (long) (-Math.log(1 - random.nextDouble()) * meanNanos);
+    }
+}
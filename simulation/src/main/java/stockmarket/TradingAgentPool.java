@@ -0,0 +1,225 @@
+package stockmarket;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs many TradingAgents against one real-time engine. Agents are not threads: each is
+// a small state machine that a handful of worker threads wake when its think time is up.
+// A waking agent runs its strategy against the latest snapshot and, if it wants to
+// trade, offers the order to the engine's bounded trade queue. It then holds no thread
+// at all until the fill comes back on the market thread, which records it and schedules
+// the agent's next wake-up. A full queue turns the agent away and it backs off
+// exponentially, so a crowd of agents slows itself to what the batches can absorb
+// rather than piling up orders.
+public class TradingAgentPool {
+    public static final long DEFAULT_THINK_MILLIS = 1000;
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final MarketEngine engine;
+    private final TradingVolumeTimer trades;
+    private final ScheduledThreadPoolExecutor workers;
+    private final List<TradingAgent> agents = new ArrayList<>();
+    private long thinkNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_THINK_MILLIS);
+    private volatile boolean running = false;
+
+    private final AtomicLong decisions = new AtomicLong();
+    private final AtomicLong orders = new AtomicLong();
+    private final AtomicLong fills = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public TradingAgentPool(MarketEngine engine, int workerThreads) {
+        this.engine = engine;
+        this.trades = engine.getTradingTimer();
+        workers = new ScheduledThreadPoolExecutor(Math.max(1, workerThreads), runnable -> {
+            Thread thread = new Thread(runnable, "TradingAgent");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void setThinkTime(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Think time must be positive: " + millis);
+        }
+        thinkNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    // Adds agents that each watch watchCount distinct symbols picked at random from the
+    // universe, or all of them when it has no more than that. Limits are per symbol, so a
+    // symbol watched twice would have doubled the agent's position limit in it.
+    public synchronized List<TradingAgent> addAgents(int count, TradingStrategy strategy, long seed, int watchCount,
+                                                     int maxOrderSize, long maxPosition) {
+        if (running) {
+            throw new IllegalStateException("Stop the agent pool before adding agents");
+        }
+        int symbols = Math.min(engine.getStocks().size(), engine.getMatchingEngine().getSymbolCount());
+        if (symbols == 0 || watchCount <= 0 || maxOrderSize <= 0 || maxPosition <= 0) {
+            throw new IllegalArgumentException("Agents need symbols to watch and room to trade");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        List<TradingAgent> added = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int[] watchlist = pickDistinct(random, Math.min(watchCount, symbols), symbols);
+            TradingAgent agent = new TradingAgent(agents.size(), strategy, random.nextLong(), watchlist,
+                                                  maxOrderSize, maxPosition);
+            agents.add(agent);
+            added.add(agent);
+        }
+        return added;
+    }
+
+    // Floyd's sampling: count distinct ids below bound in count draws, with no array the
+    // size of the universe. Watchlists are short, so the membership scan stays cheap.
+    static int[] pickDistinct(SplittableRandom random, int count, int bound) {
+        int[] picked = new int[count];
+        for (int j = bound - count, n = 0; j < bound; j++, n++) {
+            int candidate = random.nextInt(j + 1);
+            for (int k = 0; k < n; k++) {
+                if (picked[k] == candidate) {
+                    candidate = j;
+                    break;
+                }
+            }
+            picked[n] = candidate;
+        }
+        return picked;
+    }
+
+    public List<TradingAgent> getAgents() {
+        return Collections.unmodifiableList(agents);
+    }
+
+    // First wake-ups are spread over one think time so the crowd doesn't start in step.
+    public synchronized void start() {
+        if (running) {
+            MarketLog.warn("TradingAgentPool already running - stop it first");
+            return;
+        }
+        running = true;
+        SplittableRandom random = new SplittableRandom(agents.size());
+        for (TradingAgent agent : agents) {
+            sleep(agent, random.nextLong(thinkNanos));
+        }
+        MarketLog.info(String.format("TradingAgentPool started - %,d agents on %d worker(s)", agents.size(),
+                                     workers.getCorePoolSize()));
+    }
+
+    // Orders already queued still complete; their agents just aren't woken again.
+    public synchronized void stop() {
+        running = false;
+        workers.shutdownNow();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Agent worker.
+    private void wake(TradingAgent agent) {
+        if (!running) return;
+        decisions.incrementAndGet();
+        boolean wantsToTrade;
+        try {
+            wantsToTrade = agent.decide(engine.getSnapshot());
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            MarketLog.warn("Agent " + agent.getId() + " (" + agent.getStrategy().getName() + ") failed: " + e);
+            sleep(agent, agent.thinkNanos(thinkNanos));
+            return;
+        }
+        if (!wantsToTrade) {
+            sleep(agent, agent.thinkNanos(thinkNanos));
+            return;
+        }
+        CompletableFuture<TradeResult> future = trades.tryExecuteTrade(agent.getOrderSymbol(), agent.getOrderVolume());
+        if (future == null) {
+            rejections.incrementAndGet();
+            int streak = agent.rejected();
+            long backoff = Math.min(MAX_BACKOFF_NANOS, MIN_BACKOFF_NANOS << Math.min(streak - 1, 20));
+            sleep(agent, backoff / 2 + agent.thinkNanos(backoff / 2));
+            return;
+        }
+        agent.accepted();
+        orders.incrementAndGet();
+        // Runs on the market thread, or here if the trade has already completed.
+        future.whenComplete((result, failure) -> {
+            if (result != null) {
+                agent.filled(result);
+                fills.incrementAndGet();
+            }
+            sleep(agent, agent.thinkNanos(thinkNanos));
+        });
+    }
+
+    private void sleep(TradingAgent agent, long nanos) {
+        if (!running) return;
+        try {
+            workers.schedule(() -> wake(agent), nanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Stopped meanwhile.
+        }
+    }
+
+    public int getAgentCount() {
+        return agents.size();
+    }
+
+    public long getDecisions() {
+        return decisions.get();
+    }
+
+    public long getOrders() {
+        return orders.get();
+    }
+
+    public long getFills() {
+        return fills.get();
+    }
+
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    // Marked to the latest snapshot. Exact once the pool and engine have stopped;
+    // while they run, agents with a fill in progress may be a trade behind.
+    public Map<String, double[]> getPnlByStrategy() {
+        MarketSnapshot market = engine.getSnapshot();
+        Map<String, List<Double>> grouped = new TreeMap<>();
+        for (TradingAgent agent : agents) {
+            grouped.computeIfAbsent(agent.getStrategy().getName(), name -> new ArrayList<>())
+                   .add(agent.markToMarket(market));
+        }
+        Map<String, double[]> pnl = new TreeMap<>();
+        grouped.forEach((name, values) -> {
+            double[] sorted = new double[values.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = values.get(i);
+            }
+            Arrays.sort(sorted);
+            pnl.put(name, sorted);
+        });
+        return pnl;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%,d agent(s) on %d worker(s): %,d decisions, %,d orders, %,d filled, "
+                                 + "%,d turned away (queue full)%n", agents.size(), workers.getCorePoolSize(),
+                                 getDecisions(), getOrders(), getFills(), getRejections()));
+        getPnlByStrategy().forEach((name, sorted) -> {
+            double sum = 0;
+            for (double value : sorted) {
+                sum += value;
+            }
+            out.append(String.format("  %-10s %,7d agents  P&L mean %,.2f  min %,.2f  median %,.2f  max %,.2f%n",
+                                     name, sorted.length, sum / sorted.length, sorted[0],
+                                     sorted[sorted.length / 2], sorted[sorted.length - 1]));
+        });
+        return out.toString();
+    }
+}
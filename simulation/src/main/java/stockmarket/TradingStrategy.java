@@ -0,0 +1,68 @@
+package stockmarket;
+
+import java.util.SplittableRandom;
+
+// Decides what one TradingAgent does each time it wakes. Called on an agent worker with
+// the latest published market; a strategy places at most one order through
+// agent.order(...) or none at all. Strategies are shared by every agent using them, so
+// any state they keep belongs in the agent.
+public interface TradingStrategy {
+    String getName();
+
+    void decide(TradingAgent agent, MarketSnapshot market, SplittableRandom random);
+
+    static TradingStrategy named(String name) {
+        switch (name) {
+            case "noise": return new Noise();
+            case "momentum": return new Trend(name, 1);
+            case "reversion": return new Trend(name, -1);
+            default: throw new IllegalArgumentException("Unknown trading strategy: " + name);
+        }
+    }
+
+    // Buys or sells a random watched symbol at random.
+    final class Noise implements TradingStrategy {
+        @Override
+        public String getName() {
+            return "noise";
+        }
+
+        @Override
+        public void decide(TradingAgent agent, MarketSnapshot market, SplittableRandom random) {
+            int watched = random.nextInt(agent.getWatchCount());
+            int shares = 1 + random.nextInt(agent.getMaxOrderSize());
+            agent.order(watched, random.nextBoolean() ? shares : -shares);
+        }
+    }
+
+    // Follows (momentum) or fades (reversion) a watched symbol's move since the agent
+    // last looked at it, sized by how far it moved.
+    final class Trend implements TradingStrategy {
+        private static final double THRESHOLD = 0.001;
+
+        private final String name;
+        private final int direction;
+
+        Trend(String name, int direction) {
+            this.name = name;
+            this.direction = direction;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void decide(TradingAgent agent, MarketSnapshot market, SplittableRandom random) {
+            int watched = random.nextInt(agent.getWatchCount());
+            double price = market.getPrice(agent.getSymbol(watched));
+            double last = agent.lookedAt(watched, price);
+            if (last == 0) return;
+            double move = (price - last) / last;
+            if (Math.abs(move) < THRESHOLD) return;
+            int shares = (int) Math.min(agent.getMaxOrderSize(), 1 + agent.getMaxOrderSize() * Math.abs(move) * 20);
+            agent.order(watched, move * direction > 0 ? shares : -shares);
+        }
+    }
+}
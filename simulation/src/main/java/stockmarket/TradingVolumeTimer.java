@@ -0,0 +1,418 @@
+package stockmarket;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Collects trades from any number of threads on a lock-free queue and executes them in
+// batches on the market thread, at most one batch per BATCH_PERIOD_MILLIS. The batch
+// clock only runs while trades keep arriving. Prices keep ticking while trades are in
+// flight; each caller gets its own completion future. The queue holds at most
+// getCapacity() waiting trades and turns callers away beyond it, so a crowd of traders
+// backs off instead of growing the next batch without limit: tryExecuteTrade returns
+// null, executeTrade a future failed with RejectedExecutionException.
+public class TradingVolumeTimer {
+    private static final long MAX_PRICE_IMPACT_PERCENT = 5;
+    private static final long BATCH_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    // Orders carry OWNER_TRADE_BASE + their index in the batch as the book owner, so
+    // fills map straight back to the trade that caused them.
+    private static final int OWNER_TRADE_BASE = 1000;
+    public static final int DEFAULT_CAPACITY = 65536;
+    
+    private MarketEngine engine;
+    private final MarketMaker marketMaker;
+    private final ConcurrentLinkedQueue<PendingTrade> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile int capacity = DEFAULT_CAPACITY;
+    private final AtomicBoolean clockStarted = new AtomicBoolean(false);
+    private final AtomicLong nextTradeId = new AtomicLong(1);
+    private final List<PendingTrade> batch = new ArrayList<>();
+    private volatile MarketClock batchClock;
+    private volatile long lastBatchNanos;
+    private long[] filledQuantities = new long[0];
+    private long[] lastFillPrices = new long[0];
+    // The symbols this batch trades, listed once each so the steps after matching only
+    // visit those and not the whole market.
+    private boolean[] touched = new boolean[0];
+    private int[] touchedIds = new int[0];
+    private int touchedCount = 0;
+    private final Random random;
+    
+    private final AtomicLong completedTrades = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicLong rejectedTrades = new AtomicLong();
+    private volatile long batches = 0;
+    
+    public TradingVolumeTimer(MarketEngine engine) {
+        this(engine, new Random());
+    }
+    
+    public TradingVolumeTimer(MarketEngine engine, Random random) {
+        this.engine = engine;
+        this.random = random;
+        this.marketMaker = new MarketMaker(engine.getMatchingEngine());
+        lastBatchNanos = engine.getScheduler().nanoTime() - BATCH_PERIOD_NANOS;
+    }
+    
+    // Spreads the signed volume over every symbol, like the original single trade.
+    public CompletableFuture<TradeResult> executeTrade(int volumeChange) {
+        return orRejected(tryEnqueue(-1, volumeChange));
+    }
+    
+    public CompletableFuture<TradeResult> executeTrade(int symbol, int volumeChange) {
+        return orRejected(tryExecuteTrade(symbol, volumeChange));
+    }
+    
+    // Returns null instead of queueing when the queue is full; the caller should retry later.
+    public CompletableFuture<TradeResult> tryExecuteTrade(int symbol, int volumeChange) {
+        if (symbol < 0 || symbol >= engine.getMatchingEngine().getSymbolCount()) {
+            throw new IllegalArgumentException("Unknown symbol id: " + symbol);
+        }
+        return tryEnqueue(symbol, volumeChange);
+    }
+    
+    public void setCapacity(int trades) {
+        if (trades <= 0) {
+            throw new IllegalArgumentException("Trade queue capacity must be positive: " + trades);
+        }
+        capacity = trades;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    private CompletableFuture<TradeResult> tryEnqueue(int symbol, int volumeChange) {
+        if (pending.incrementAndGet() > capacity) {
+            pending.decrementAndGet();
+            rejectedTrades.incrementAndGet();
+            return null;
+        }
+        return offer(symbol, volumeChange);
+    }
+    
+    private CompletableFuture<TradeResult> orRejected(CompletableFuture<TradeResult> future) {
+        return future != null ? future : CompletableFuture.failedFuture(
+                new RejectedExecutionException("Trade queue full: " + capacity + " trades waiting"));
+    }
+    
+    private CompletableFuture<TradeResult> offer(int symbol, int volumeChange) {
+        PendingTrade trade = new PendingTrade(nextTradeId.getAndIncrement(), symbol, volumeChange,
+                                              engine.getScheduler().nanoTime());
+        queue.add(trade);
+        if (clockStarted.compareAndSet(false, true)) {
+            armBatch();
+        }
+        return trade.future;
+    }
+    
+    // The first trade after a quiet spell is batched straight away; later ones wait for
+    // BATCH_PERIOD_NANOS after the previous batch so they still arrive together.
+    private void armBatch() {
+        MarketScheduler scheduler = engine.getScheduler();
+        long delay = Math.max(0, lastBatchNanos + BATCH_PERIOD_NANOS - scheduler.nanoTime());
+        batchClock = scheduler.schedule("TradeBatch", delay, TimeUnit.NANOSECONDS, this::runBatch);
+    }
+    
+    // Clearing the flag before looking at the queue again means a trade that arrives
+    // meanwhile either finds the flag clear and arms the clock itself, or is seen here.
+    private void runBatch() {
+        lastBatchNanos = engine.getScheduler().nanoTime();
+        try {
+            processBatch();
+        } finally {
+            clockStarted.set(false);
+            if (!queue.isEmpty() && clockStarted.compareAndSet(false, true)) {
+                armBatch();
+            }
+        }
+    }
+    
+    void processBatch() {
+        PendingTrade trade;
+        while ((trade = queue.poll()) != null) {
+            batch.add(trade);
+        }
+        if (batch.isEmpty()) return;
+        pending.addAndGet(-batch.size());
+        
+        try {
+            if (MarketLog.isEnabled(MarketLog.Level.INFO)) {
+                MarketLog.info("=== Trading batch: " + batch.size() + " trade(s) ===");
+            }
+            submitOrders();
+            processVolumeChanges();
+            calculatePriceImpact();
+            completeTrades();
+        } catch (RuntimeException e) {
+            // Fills the failed batch drained must not reach the next batch's symbols.
+            for (int t = 0; t < touchedCount; t++) {
+                filledQuantities[touchedIds[t]] = 0;
+                lastFillPrices[touchedIds[t]] = 0;
+            }
+            for (PendingTrade failed : batch) {
+                failed.future.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            untouchAll();
+            batch.clear();
+            batches++;
+        }
+    }
+    
+    private void submitOrders() {
+        StockStore stocks = engine.getStocks();
+        long[] prices = stocks.prices();
+        int[] ticks = stocks.tickSizes();
+        MatchingEngine matching = engine.getMatchingEngine();
+        int count = Math.min(stocks.size(), matching.getSymbolCount());
+        ensureCapacity(count);
+        
+        for (PendingTrade trade : batch) {
+            if (trade.symbol < 0) {
+                touchAll(count);
+                break;
+            }
+            touch(trade.symbol);
+        }
+        Arrays.sort(touchedIds, 0, touchedCount);
+        for (int t = 0; t < touchedCount; t++) {
+            int i = touchedIds[t];
+            marketMaker.quote(i, prices[i], ticks[i], stocks.getVolume(i));
+        }
+        
+        for (int index = 0; index < batch.size(); index++) {
+            PendingTrade trade = batch.get(index);
+            if (MarketLog.isSymbolDetail()) {
+                MarketLog.info("User's trade #" + trade.id + ": " + 
+                               (trade.volumeChange > 0 ? "+" : "") + trade.volumeChange);
+            }
+            boolean buy = trade.volumeChange > 0;
+            int owner = OWNER_TRADE_BASE + index;
+            if (trade.symbol >= 0) {
+                submit(matching, trade.symbol, owner, buy, Math.abs((long) trade.volumeChange), prices[trade.symbol]);
+                continue;
+            }
+            // An empty market has nothing to spread the volume over; the trade fills nothing.
+            if (count == 0) continue;
+            int changePerStock = trade.volumeChange / count;
+            for (int i = 0; i < count; i++) {
+                double randomFactor = 0.8 + random.nextDouble() * 0.4; 
+                submit(matching, i, owner, buy, Math.abs((long)(changePerStock * randomFactor)), prices[i]);
+            }
+        }
+        matching.awaitIdle();
+        matching.drainFills(this::onFill);
+    }
+    
+    private void submit(MatchingEngine matching, int symbol, int owner, boolean buy, long quantity, long cents) {
+        if (quantity == 0) return;
+        long limitPrice = cents * (buy ? 100 + MAX_PRICE_IMPACT_PERCENT : 100 - MAX_PRICE_IMPACT_PERCENT) / 100;
+        matching.submitWaiting(symbol, matching.nextOrderId(), owner, buy, limitPrice, quantity, false);
+    }
+    
+    // Fills arrive on the market thread from drainFills; buys add to a symbol's volume
+    // and sells take from it, as the old signed volume change did.
+    private void onFill(int symbol, long price, long quantity, long takerId, int takerOwner,
+                        long makerId, int makerOwner, boolean takerBuy) {
+        if (symbol >= lastFillPrices.length) return;
+        long signed = takerBuy ? quantity : -quantity;
+        filledQuantities[symbol] += signed;
+        lastFillPrices[symbol] = price;
+        engine.recordFill(symbol, price, quantity);
+        
+        int index = takerOwner - OWNER_TRADE_BASE;
+        if (index >= 0 && index < batch.size()) {
+            PendingTrade trade = batch.get(index);
+            trade.filled += signed;
+            trade.notionalCents += price * quantity;
+        }
+    }
+    
+    private void ensureCapacity(int count) {
+        if (filledQuantities.length < count) {
+            filledQuantities = Arrays.copyOf(filledQuantities, count);
+            lastFillPrices = Arrays.copyOf(lastFillPrices, count);
+            touched = Arrays.copyOf(touched, count);
+            touchedIds = Arrays.copyOf(touchedIds, count);
+        }
+    }
+    
+    private void touch(int symbol) {
+        if (!touched[symbol]) {
+            touched[symbol] = true;
+            touchedIds[touchedCount++] = symbol;
+        }
+    }
+    
+    private void touchAll(int count) {
+        Arrays.fill(touched, 0, count, true);
+        for (int i = 0; i < count; i++) {
+            touchedIds[i] = i;
+        }
+        touchedCount = count;
+    }
+    
+    private void untouchAll() {
+        for (int t = 0; t < touchedCount; t++) {
+            touched[touchedIds[t]] = false;
+        }
+        touchedCount = 0;
+    }
+    
+    void processVolumeChanges() {
+        StockStore stocks = engine.getStocks();
+        int[] volumes = stocks.volumes();
+        boolean symbolDetail = MarketLog.isSymbolDetail();
+        long started = System.nanoTime();
+        
+        for (int t = 0; t < touchedCount; t++) {
+            int i = touchedIds[t];
+            int oldVolume = volumes[i];
+            long newVolume = oldVolume + filledQuantities[i];
+            newVolume = Math.max(10000, Math.min(500000, newVolume)); 
+            filledQuantities[i] = 0;
+            
+            if (newVolume == oldVolume) continue;
+            volumes[i] = (int) newVolume;
+            stocks.markVolume(i);
+            
+            if (symbolDetail) {
+                MarketLog.volumeChange(i, stocks.getSymbol(i), oldVolume, (int) newVolume);
+            }
+        }
+        
+        // Volumes get an epoch of their own so the journal keeps their cause apart from
+        // the price impact's; volumes already at a clamp are not marked as changed.
+        stocks.publishChanges();
+        engine.recordChanges(TickCause.TRADE_VOLUME);
+        long elapsed = System.nanoTime() - started;
+        engine.getMetrics().getTradeVolumeHistogram().record(elapsed);
+        if (!symbolDetail) {
+            MarketLog.tickSummary("Trade volume", touchedCount, elapsed);
+        }
+    }
+    
+    void calculatePriceImpact() {
+        StockStore stocks = engine.getStocks();
+        long[] prices = stocks.prices();
+        int[] ticks = stocks.tickSizes();
+        int count = touchedCount;
+        boolean symbolDetail = MarketLog.isSymbolDetail();
+        long started = System.nanoTime();
+        
+        for (int t = 0; t < count; t++) {
+            int i = touchedIds[t];
+            if (lastFillPrices[i] == 0) continue;
+            long currentPrice = prices[i];
+            long newPrice = Cents.roundToTick(lastFillPrices[i], ticks[i]);
+            lastFillPrices[i] = 0;
+            
+            if (newPrice == currentPrice) continue;
+            prices[i] = newPrice;
+            stocks.markPrice(i);
+            
+            if (symbolDetail) {
+                MarketLog.priceImpact(i, stocks.getSymbol(i), Cents.toPrice(currentPrice), Cents.toPrice(newPrice));
+            }
+        }
+        
+        untouchAll();
+        stocks.publishChanges();
+        engine.recordChanges(TickCause.TRADE_IMPACT);
+        engine.fireStocksUpdated();
+        long elapsed = System.nanoTime() - started;
+        engine.getMetrics().getTradeImpactHistogram().record(elapsed);
+        if (!symbolDetail) {
+            MarketLog.tickSummary("Trade impact", count, elapsed);
+        }
+    }
+    
+    private void completeTrades() {
+        long now = engine.getScheduler().nanoTime();
+        LatencyHistogram latencies = engine.getMetrics().getTradeLatencyHistogram();
+        for (PendingTrade trade : batch) {
+            long latency = now - trade.submittedNanos;
+            long filledAbs = Math.abs(trade.filled);
+            double averagePrice = filledAbs == 0 ? 0 : trade.notionalCents / (double) filledAbs / 100.0;
+            TradeResult result = new TradeResult(trade.id, trade.volumeChange, trade.filled, averagePrice, latency);
+            
+            completedTrades.incrementAndGet();
+            totalLatencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            latencies.record(latency);
+            
+            if (MarketLog.isSymbolDetail()) {
+                MarketLog.info(result.toString());
+            }
+            engine.fireTradeCompleted(result);
+            trade.future.complete(result);
+        }
+    }
+    
+    public void stop() {
+        MarketClock clock = batchClock;
+        if (clock != null) {
+            clock.cancel();
+            batchClock = null;
+            clockStarted.set(false);
+        }
+        PendingTrade trade;
+        while ((trade = queue.poll()) != null) {
+            pending.decrementAndGet();
+            trade.future.cancel(false);
+        }
+        if (clock != null) {
+            MarketLog.info("TradingVolumeTimer is stopped");
+        }
+    }
+    
+    public int getPendingTrades() {
+        return pending.get();
+    }
+    
+    public long getRejectedTrades() {
+        return rejectedTrades.get();
+    }
+    
+    public long getCompletedTrades() {
+        return completedTrades.get();
+    }
+    
+    public long getBatches() {
+        return batches;
+    }
+    
+    public long getMeanLatencyNanos() {
+        long completed = completedTrades.get();
+        return completed == 0 ? 0 : totalLatencyNanos.get() / completed;
+    }
+    
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos.get();
+    }
+    
+    private static final class PendingTrade {
+        final long id;
+        final int symbol;
+        final int volumeChange;
+        final long submittedNanos;
+        final CompletableFuture<TradeResult> future = new CompletableFuture<>();
+        long filled;
+        long notionalCents;
+        
+        PendingTrade(long id, int symbol, int volumeChange, long submittedNanos) {
+            this.id = id;
+            this.symbol = symbol;
+            this.volumeChange = volumeChange;
+            this.submittedNanos = submittedNanos;
+        }
+    }
+}
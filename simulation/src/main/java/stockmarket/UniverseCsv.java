@@ -0,0 +1,360 @@
+package stockmarket;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Streaming reader and writer for instrument universes in CSV, one listing per row:
+//   symbol,name,price,volume,sector,volatility,drift,tick
+// A first row naming the columns may reorder them or leave out everything but symbol and
+// price; without one the columns are positional and trailing ones may be omitted. Missing
+// names default to the symbol, volumes to StockStore's per-symbol default, sectors to
+// technology, tick sizes to one cent. Sectors are names (Energy) or numbers (2); tick
+// sizes are in currency units (0.05) and prices snap to them. Fields may be quoted
+// "..." with "" for a literal quote. Blank rows and rows starting with # are skipped.
+//
+// Rows are tokenized straight from a char buffer and numbers parsed without building
+// strings, so the only per-row allocations are the symbol and name themselves.
+public final class UniverseCsv {
+    static final String[] COLUMNS = {"symbol", "name", "price", "volume", "sector", "volatility", "drift", "tick"};
+    static final int SYMBOL = 0;
+    static final int NAME = 1;
+    static final int PRICE = 2;
+    static final int VOLUME = 3;
+    static final int SECTOR = 4;
+    static final int VOLATILITY = 5;
+    static final int DRIFT = 6;
+    static final int TICK = 7;
+
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private UniverseCsv() {
+    }
+
+    public static StockStore load(Path file) throws IOException {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    public static StockStore read(Reader reader) throws IOException {
+        StockStore stocks = new StockStore();
+        Rows rows = new Rows(reader);
+        int[] columns = {0, 1, 2, 3, 4, 5, 6, 7};
+        boolean first = true;
+        while (rows.next()) {
+            if (rows.isBlankOrComment()) continue;
+            try {
+                if (first && equalsIgnoreCase(rows.field(0), COLUMNS[SYMBOL])) {
+                    columns = header(rows);
+                } else {
+                    list(stocks, rows, columns);
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Universe CSV line " + rows.getLine() + ": " + e.getMessage(), e);
+            }
+            first = false;
+        }
+        return stocks;
+    }
+
+    // Maps each known column to its position in the file, -1 when absent.
+    private static int[] header(Rows rows) {
+        int[] columns = {-1, -1, -1, -1, -1, -1, -1, -1};
+        for (int field = 0; field < rows.size(); field++) {
+            for (int column = 0; column < COLUMNS.length; column++) {
+                if (equalsIgnoreCase(rows.field(field), COLUMNS[column])) {
+                    columns[column] = field;
+                }
+            }
+        }
+        if (columns[SYMBOL] < 0 || columns[PRICE] < 0) {
+            throw new IllegalArgumentException("Header must name at least the symbol and price columns");
+        }
+        return columns;
+    }
+
+    private static void list(StockStore stocks, Rows rows, int[] columns) {
+        CharSequence symbolField = present(rows, columns[SYMBOL]);
+        if (symbolField == null) {
+            throw new IllegalArgumentException("Missing symbol");
+        }
+        String symbol = symbolField.toString();
+        CharSequence nameField = present(rows, columns[NAME]);
+        String name = nameField == null ? symbol : nameField.toString();
+        CharSequence priceField = present(rows, columns[PRICE]);
+        if (priceField == null) {
+            throw new IllegalArgumentException("Missing price for " + symbol);
+        }
+        double price = parseNumber(priceField);
+        if (!(price > 0) || Double.isInfinite(price)) {
+            throw new IllegalArgumentException("Price must be positive: " + priceField);
+        }
+        CharSequence volumeField = present(rows, columns[VOLUME]);
+        int volume = volumeField == null ? StockStore.defaultVolume(symbol) : parseVolume(volumeField);
+        CharSequence sectorField = present(rows, columns[SECTOR]);
+        int sector = sectorField == null ? Sector.TECHNOLOGY : parseSector(sectorField);
+
+        int id = stocks.add(symbol, name, price, volume, sector);
+        CharSequence volatilityField = present(rows, columns[VOLATILITY]);
+        if (volatilityField != null) {
+            stocks.setVolatility(id, parseNumber(volatilityField));
+        }
+        CharSequence driftField = present(rows, columns[DRIFT]);
+        if (driftField != null) {
+            stocks.setDrift(id, parseNumber(driftField));
+        }
+        CharSequence tickField = present(rows, columns[TICK]);
+        if (tickField != null) {
+            stocks.setTickSize(id, parseTick(tickField));
+        }
+    }
+
+    private static CharSequence present(Rows rows, int field) {
+        if (field < 0 || field >= rows.size()) return null;
+        CharSequence value = rows.field(field);
+        return value.length() == 0 ? null : value;
+    }
+
+    private static int parseVolume(CharSequence text) {
+        double value = parseNumber(text);
+        if (value < 0 || value > Integer.MAX_VALUE || value != Math.rint(value)) {
+            throw new IllegalArgumentException("Volume must be a whole number of shares: " + text);
+        }
+        return (int) value;
+    }
+
+    private static int parseTick(CharSequence text) {
+        double value = parseNumber(text);
+        long cents = Cents.of(value);
+        if (cents <= 0 || cents > Integer.MAX_VALUE || Math.abs(value * 100 - cents) > 1e-6) {
+            throw new IllegalArgumentException("Tick size must be a positive whole number of cents: " + text);
+        }
+        return (int) cents;
+    }
+
+    private static int parseSector(CharSequence text) {
+        if (text.length() == 1 && text.charAt(0) >= '0' && text.charAt(0) < '0' + Sector.COUNT) {
+            return text.charAt(0) - '0';
+        }
+        for (int sector = 0; sector < Sector.COUNT; sector++) {
+            if (equalsIgnoreCase(text, Sector.name(sector))) return sector;
+        }
+        throw new IllegalArgumentException("Unknown sector: " + text);
+    }
+
+    // Plain decimals of up to 15 significant digits are exact as a long and divided by an
+    // exact power of ten, which rounds correctly; anything else goes to Double.parseDouble.
+    static double parseNumber(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+        boolean any = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) digits++;
+                if (dot) scale++;
+                any = true;
+                if (digits > 15) return Double.parseDouble(text.toString());
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return Double.parseDouble(text.toString());
+            }
+        }
+        if (!any) {
+            throw new NumberFormatException("Not a number: \"" + text + "\"");
+        }
+        if (scale >= POWERS_OF_TEN.length) return Double.parseDouble(text.toString());
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    private static boolean equalsIgnoreCase(CharSequence text, String expected) {
+        if (text.length() != expected.length()) return false;
+        for (int i = 0; i < expected.length(); i++) {
+            char a = text.charAt(i);
+            char b = expected.charAt(i);
+            if (a != b && Character.toLowerCase(a) != Character.toLowerCase(b)) return false;
+        }
+        return true;
+    }
+
+    public static void write(StockStore stocks, Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(stocks, writer);
+        }
+    }
+
+    public static void write(StockStore stocks, Writer out) throws IOException {
+        out.write(String.join(",", COLUMNS));
+        out.write('\n');
+        for (int i = 0; i < stocks.size(); i++) {
+            writeField(out, stocks.getSymbol(i));
+            out.write(',');
+            writeField(out, stocks.getName(i));
+            out.write(',');
+            out.write(Double.toString(stocks.getPrice(i)));
+            out.write(',');
+            out.write(Integer.toString(stocks.getVolume(i)));
+            out.write(',');
+            out.write(Sector.name(stocks.getSector(i)));
+            out.write(',');
+            out.write(Double.toString(stocks.getVolatility(i)));
+            out.write(',');
+            out.write(Double.toString(stocks.getDrift(i)));
+            out.write(',');
+            out.write(Double.toString(Cents.toPrice(stocks.getTickSize(i))));
+            out.write('\n');
+        }
+    }
+
+    private static void writeField(Writer out, String value) throws IOException {
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                || value.indexOf('\r') >= 0 || value.startsWith("#") || value.startsWith(" ") || value.endsWith(" ");
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    // Splits a character stream into rows of fields, reusing the field buffers.
+    private static final class Rows {
+        private final Reader in;
+        private final char[] buffer = new char[1 << 16];
+        private int position = 0;
+        private int limit = 0;
+        private StringBuilder[] fields = new StringBuilder[COLUMNS.length];
+        private int size = 0;
+        private int line = 0;
+        private int nextLine = 1;
+        // A quoted first field is data even when it starts with #, as write() quotes it.
+        private boolean firstQuoted = false;
+
+        Rows(Reader in) {
+            this.in = in;
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = new StringBuilder(32);
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        CharSequence field(int index) {
+            return fields[index];
+        }
+
+        int getLine() {
+            return line;
+        }
+
+        boolean isBlankOrComment() {
+            return (size == 1 && fields[0].length() == 0 && !firstQuoted)
+                    || (!firstQuoted && fields[0].length() > 0 && fields[0].charAt(0) == '#');
+        }
+
+        boolean next() throws IOException {
+            int c = read();
+            if (c < 0) return false;
+            line = nextLine;
+            size = 0;
+            firstQuoted = false;
+            StringBuilder field = startField();
+            boolean quoted = false;
+            boolean inQuotes = false;
+            while (true) {
+                if (inQuotes) {
+                    if (c < 0) {
+                        throw new IllegalArgumentException("Universe CSV line " + line + ": unterminated quote");
+                    }
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            read();
+                            field.append('"');
+                        } else {
+                            inQuotes = false;
+                        }
+                    } else {
+                        if (c == '\n') nextLine++;
+                        field.append((char) c);
+                    }
+                } else if (c == ',') {
+                    if (!quoted) trimEnd(field);
+                    field = startField();
+                    quoted = false;
+                } else if (c == '\n' || c < 0) {
+                    if (!quoted) trimEnd(field);
+                    if (c == '\n') nextLine++;
+                    return true;
+                } else if (c == '"' && field.length() == 0) {
+                    inQuotes = true;
+                    quoted = true;
+                    firstQuoted |= size == 1;
+                } else if (c != '\r' && !(field.length() == 0 && c == ' ')) {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private StringBuilder startField() {
+            if (size == fields.length) {
+                fields = Arrays.copyOf(fields, size * 2);
+                for (int i = size; i < fields.length; i++) {
+                    fields[i] = new StringBuilder(32);
+                }
+            }
+            StringBuilder field = fields[size++];
+            field.setLength(0);
+            return field;
+        }
+
+        private static void trimEnd(StringBuilder field) {
+            int length = field.length();
+            while (length > 0 && field.charAt(length - 1) == ' ') length--;
+            field.setLength(length);
+        }
+
+        private int read() throws IOException {
+            if (position == limit && !fill()) return -1;
+            return buffer[position++];
+        }
+
+        private int peek() throws IOException {
+            if (position == limit && !fill()) return -1;
+            return buffer[position];
+        }
+
+        private boolean fill() throws IOException {
+            int read = in.read(buffer, 0, buffer.length);
+            if (read <= 0) return false;
+            position = 0;
+            limit = read;
+            return true;
+        }
+    }
+}
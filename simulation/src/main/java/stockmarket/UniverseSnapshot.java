@@ -0,0 +1,321 @@
+package stockmarket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+
+// Compact binary image of a whole StockStore, laid out so a load is a handful of bulk
+// copies out of a memory-mapped file: every column is stored contiguously in little-endian
+// order, followed by symbol and name offsets and one UTF-8 string blob.
+//
+// Layout: 64-byte header (magic, version, count, flags, saved-at millis, epoch, blob
+// length), then prices and base prices in cents as longs, changes, drifts and
+// volatilities as doubles, tick sizes, volumes and sectors as ints, 2 * count + 1 string
+// offsets (symbol i is [2i, 2i+1), name i is [2i+1, 2i+2)), padding to 8 bytes, and the
+// blob. Version 1 held prices as doubles and had no tick sizes.
+//
+// An instance is a reusable capture: the market thread copies the live columns into it
+// and any thread can then write it out. Files are written beside the target and renamed
+// over it, so a reader never sees half a snapshot.
+public class UniverseSnapshot {
+    public static final int MAGIC = 0x50534E55;
+    public static final int VERSION = 2;
+    public static final int HEADER_SIZE = 64;
+
+    static final int COUNT_OFFSET = 8;
+    static final int FLAGS_OFFSET = 12;
+    static final int SAVED_AT_OFFSET = 16;
+    static final int EPOCH_OFFSET = 24;
+    static final int BLOB_LENGTH_OFFSET = 32;
+    static final int FLAG_ASCII = 1;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private int count = 0;
+    private long savedAtMillis;
+    private long epoch;
+    private String[] symbols = new String[0];
+    private String[] names = new String[0];
+    private long[] prices = new long[0];
+    private long[] basePrices = new long[0];
+    private double[] changes = new double[0];
+    private double[] drifts = new double[0];
+    private double[] volatilities = new double[0];
+    private int[] tickSizes = new int[0];
+    private int[] volumes = new int[0];
+    private int[] sectors = new int[0];
+
+    // Market thread, or any thread while the store is not changing. Listings are never
+    // removed, so symbols and names only need copying when new ones have appeared.
+    public void capture(StockStore stocks, long timeMillis) {
+        int size = stocks.size();
+        if (prices.length < size) {
+            int capacity = Math.max(size, prices.length * 2);
+            prices = new long[capacity];
+            basePrices = new long[capacity];
+            changes = new double[capacity];
+            drifts = new double[capacity];
+            volatilities = new double[capacity];
+            tickSizes = new int[capacity];
+            volumes = new int[capacity];
+            sectors = new int[capacity];
+            symbols = Arrays.copyOf(symbols, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+        for (int i = count; i < size; i++) {
+            symbols[i] = stocks.getSymbol(i);
+            names[i] = stocks.getName(i);
+        }
+        System.arraycopy(stocks.prices(), 0, prices, 0, size);
+        System.arraycopy(stocks.basePrices(), 0, basePrices, 0, size);
+        System.arraycopy(stocks.changes(), 0, changes, 0, size);
+        System.arraycopy(stocks.drifts(), 0, drifts, 0, size);
+        System.arraycopy(stocks.volatilities(), 0, volatilities, 0, size);
+        System.arraycopy(stocks.tickSizes(), 0, tickSizes, 0, size);
+        System.arraycopy(stocks.volumes(), 0, volumes, 0, size);
+        System.arraycopy(stocks.sectors(), 0, sectors, 0, size);
+        count = size;
+        savedAtMillis = timeMillis;
+        epoch = stocks.snapshot().getEpoch();
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long getSavedAtMillis() {
+        return savedAtMillis;
+    }
+
+    public void write(Path file) throws IOException {
+        int[] offsets = new int[2 * count + 1];
+        boolean ascii = true;
+        long blobLength = 0;
+        for (int i = 0; i < count; i++) {
+            offsets[2 * i] = (int) blobLength;
+            blobLength += encodedLength(symbols[i]);
+            offsets[2 * i + 1] = (int) blobLength;
+            blobLength += encodedLength(names[i]);
+            ascii &= isAscii(symbols[i]) && isAscii(names[i]);
+            if (blobLength > Integer.MAX_VALUE) {
+                throw new IOException("Symbol and name text exceeds 2 GB");
+            }
+        }
+        offsets[2 * count] = (int) blobLength;
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(ascii ? FLAG_ASCII : 0);
+            buffer.putLong(savedAtMillis).putLong(epoch).putLong(blobLength);
+            while (buffer.position() < HEADER_SIZE) {
+                buffer.put((byte) 0);
+            }
+            drain(channel, buffer);
+            writeLongs(channel, buffer, prices, count);
+            writeLongs(channel, buffer, basePrices, count);
+            for (double[] column : new double[][] {changes, drifts, volatilities}) {
+                writeDoubles(channel, buffer, column, count);
+            }
+            writeInts(channel, buffer, tickSizes, count);
+            writeInts(channel, buffer, volumes, count);
+            writeInts(channel, buffer, sectors, count);
+            writeInts(channel, buffer, offsets, offsets.length);
+            while ((channel.position() + buffer.position()) % 8 != 0) {
+                buffer.put((byte) 0);
+            }
+            for (int i = 0; i < count; i++) {
+                writeText(channel, buffer, symbols[i]);
+                writeText(channel, buffer, names[i]);
+            }
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static void save(StockStore stocks, Path file, long timeMillis) throws IOException {
+        UniverseSnapshot snapshot = new UniverseSnapshot();
+        snapshot.capture(stocks, timeMillis);
+        snapshot.write(file);
+    }
+
+    public static boolean isSnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    public static long savedAtMillis(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return header(channel, file).getLong(SAVED_AT_OFFSET);
+        }
+    }
+
+    // Maps the file and bulk-copies each column straight into the new store's arrays.
+    public static StockStore load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = header(channel, file);
+            int count = header.getInt(COUNT_OFFSET);
+            boolean ascii = (header.getInt(FLAGS_OFFSET) & FLAG_ASCII) != 0;
+            long blobLength = header.getLong(BLOB_LENGTH_OFFSET);
+            long blobOffset = blobOffset(count);
+            if (count < 0 || blobLength < 0 || channel.size() != blobOffset + blobLength) {
+                throw new IOException("Truncated or damaged universe snapshot: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            long position = HEADER_SIZE;
+            long[] prices = readLongs(mapped, position, count);
+            position += 8L * count;
+            long[] basePrices = readLongs(mapped, position, count);
+            position += 8L * count;
+            double[][] doubles = new double[3][];
+            for (int column = 0; column < doubles.length; column++) {
+                doubles[column] = new double[count];
+                mapped.position((int) position);
+                mapped.asDoubleBuffer().get(doubles[column]);
+                position += 8L * count;
+            }
+            int[] tickSizes = readInts(mapped, position, count);
+            position += 4L * count;
+            int[] volumes = readInts(mapped, position, count);
+            position += 4L * count;
+            int[] sectors = readInts(mapped, position, count);
+            position += 4L * count;
+            int[] offsets = readInts(mapped, position, 2 * count + 1);
+
+            byte[] blob = new byte[(int) blobLength];
+            mapped.position((int) blobOffset);
+            mapped.get(blob);
+            String[] symbols = new String[count];
+            String[] names = new String[count];
+            Charset charset = ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8;
+            for (int i = 0; i < count; i++) {
+                symbols[i] = new String(blob, offsets[2 * i], offsets[2 * i + 1] - offsets[2 * i], charset);
+                names[i] = new String(blob, offsets[2 * i + 1], offsets[2 * i + 2] - offsets[2 * i + 1], charset);
+            }
+
+            StockStore stocks = new StockStore();
+            stocks.adopt(count, symbols, names, prices, tickSizes, volumes, doubles[0], doubles[1], doubles[2],
+                         basePrices, sectors);
+            return stocks;
+        }
+    }
+
+    private static ByteBuffer header(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+            throw new IOException("Not a universe snapshot: " + file);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported universe snapshot version " + header.getInt(4) + ": " + file);
+        }
+        return header;
+    }
+
+    static long blobOffset(int count) {
+        long end = HEADER_SIZE + 5 * 8L * count + 3 * 4L * count + 4L * (2L * count + 1);
+        return (end + 7) & ~7L;
+    }
+
+    private static long[] readLongs(MappedByteBuffer mapped, long position, int length) {
+        long[] values = new long[length];
+        mapped.position((int) position);
+        mapped.asLongBuffer().get(values);
+        return values;
+    }
+
+    private static int[] readInts(MappedByteBuffer mapped, long position, int length) {
+        int[] values = new int[length];
+        mapped.position((int) position);
+        mapped.asIntBuffer().get(values);
+        return values;
+    }
+
+    private static void writeDoubles(FileChannel channel, ByteBuffer buffer, double[] values, int length)
+            throws IOException {
+        int done = 0;
+        while (done < length) {
+            if (buffer.remaining() < 8) drain(channel, buffer);
+            int chunk = Math.min(length - done, buffer.remaining() / 8);
+            buffer.asDoubleBuffer().put(values, done, chunk);
+            buffer.position(buffer.position() + chunk * 8);
+            done += chunk;
+        }
+    }
+
+    private static void writeLongs(FileChannel channel, ByteBuffer buffer, long[] values, int length)
+            throws IOException {
+        int done = 0;
+        while (done < length) {
+            if (buffer.remaining() < 8) drain(channel, buffer);
+            int chunk = Math.min(length - done, buffer.remaining() / 8);
+            buffer.asLongBuffer().put(values, done, chunk);
+            buffer.position(buffer.position() + chunk * 8);
+            done += chunk;
+        }
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values, int length)
+            throws IOException {
+        int done = 0;
+        while (done < length) {
+            if (buffer.remaining() < 4) drain(channel, buffer);
+            int chunk = Math.min(length - done, buffer.remaining() / 4);
+            buffer.asIntBuffer().put(values, done, chunk);
+            buffer.position(buffer.position() + chunk * 4);
+            done += chunk;
+        }
+    }
+
+    private static void writeText(FileChannel channel, ByteBuffer buffer, String text) throws IOException {
+        if (isAscii(text)) {
+            for (int i = 0; i < text.length(); i++) {
+                if (!buffer.hasRemaining()) drain(channel, buffer);
+                buffer.put((byte) text.charAt(i));
+            }
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (int done = 0; done < bytes.length; ) {
+            if (!buffer.hasRemaining()) drain(channel, buffer);
+            int chunk = Math.min(bytes.length - done, buffer.remaining());
+            buffer.put(bytes, done, chunk);
+            done += chunk;
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static int encodedLength(String text) {
+        if (isAscii(text)) return text.length();
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,93 @@
+package stockmarket;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+// Runs market clocks on the caller's thread against a simulated clock, jumping straight
+// from one deadline to the next instead of sleeping.
+public class VirtualTimeMarketScheduler extends MarketScheduler {
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private long now = 0;
+    private long sequence = 0;
+    
+    public VirtualTimeMarketScheduler() {
+        this(System.currentTimeMillis());
+    }
+    
+    public VirtualTimeMarketScheduler(long originMillis) {
+        super(originMillis, 0);
+    }
+    
+    @Override
+    public synchronized long nanoTime() {
+        return now;
+    }
+    
+    @Override
+    public synchronized void execute(Runnable task) {
+        queue.add(new Entry(now, sequence++, null, task));
+    }
+    
+    @Override
+    synchronized void arm(MarketClock clock) {
+        queue.add(new Entry(Math.max(now, clock.getDeadline()), sequence++, clock, null));
+    }
+    
+    @Override
+    void disarm(MarketClock clock) {
+        // Cancelled clocks are dropped lazily when they reach the head of the queue.
+    }
+    
+    public void advance(long duration, TimeUnit unit) {
+        long target;
+        synchronized (this) {
+            target = now + unit.toNanos(duration);
+        }
+        while (true) {
+            Entry entry;
+            synchronized (this) {
+                entry = queue.peek();
+                if (entry == null || entry.deadline > target) {
+                    now = target;
+                    return;
+                }
+                queue.poll();
+                now = entry.deadline;
+            }
+            if (entry.clock != null) {
+                entry.clock.fire();
+            } else {
+                entry.task.run();
+            }
+        }
+    }
+    
+    public synchronized int getPendingCount() {
+        return queue.size();
+    }
+    
+    @Override
+    public synchronized void shutdown() {
+        queue.clear();
+    }
+    
+    private static final class Entry implements Comparable<Entry> {
+        final long deadline;
+        final long sequence;
+        final MarketClock clock;
+        final Runnable task;
+        
+        Entry(long deadline, long sequence, MarketClock clock, Runnable task) {
+            this.deadline = deadline;
+            this.sequence = sequence;
+            this.clock = clock;
+            this.task = task;
+        }
+        
+        @Override
+        public int compareTo(Entry other) {
+            int byDeadline = Long.compare(deadline, other.deadline);
+            return byDeadline != 0 ? byDeadline : Long.compare(sequence, other.sequence);
+        }
+    }
+}
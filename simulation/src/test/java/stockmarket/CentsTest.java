@@ -0,0 +1,65 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CentsTest {
+    private static final int[] TICKS = {1, 2, 4, 5, 10, 25};
+
+    @Test
+    void roundToTickTakesTheNearestMultiple() {
+        assertEquals(123, Cents.roundToTick(123, 1));
+        // Odd ticks have no halves in whole cents.
+        assertEquals(10, Cents.roundToTick(12, 5));
+        assertEquals(15, Cents.roundToTick(13, 5));
+        assertEquals(15, Cents.roundToTick(17, 5));
+        assertEquals(20, Cents.roundToTick(18, 5));
+        // Even ticks round halves up.
+        assertEquals(10, Cents.roundToTick(14, 10));
+        assertEquals(20, Cents.roundToTick(15, 10));
+        assertEquals(30, Cents.roundToTick(25, 10));
+        assertEquals(8, Cents.roundToTick(6, 4));
+    }
+
+    @Test
+    void roundToTickNeverGoesBelowOneTick() {
+        assertEquals(1, Cents.roundToTick(0, 1));
+        assertEquals(5, Cents.roundToTick(0, 5));
+        assertEquals(5, Cents.roundToTick(2, 5));
+        assertEquals(10, Cents.roundToTick(4, 10));
+        assertEquals(10, Cents.roundToTick(5, 10));
+    }
+
+    @Test
+    void moveRoundsHalvesUpOntoTheGrid() {
+        // Changes of an eighth and a quarter keep the moved prices exact in binary.
+        assertEquals(5, PriceModel.move(4, 0.125, 1));
+        assertEquals(11, PriceModel.move(12, -0.125, 1));
+        assertEquals(115, PriceModel.move(100, 0.125, 5));
+        assertEquals(130, PriceModel.move(100, 0.25, 10));
+        assertEquals(80, PriceModel.move(100, -0.25, 10));
+        assertEquals(110, PriceModel.move(100, 0.1, 5));
+        assertEquals(1, PriceModel.move(1, -0.9, 1));
+        assertEquals(5, PriceModel.move(100, -0.99, 5));
+    }
+
+    @Test
+    void moveAlwaysLandsOnTheNearestGridPoint() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 10_000; i++) {
+            int tick = TICKS[random.nextInt(TICKS.length)];
+            long cents = tick * (1 + random.nextLong(100_000));
+            double change = random.nextDouble(-0.1, 0.1);
+            long moved = PriceModel.move(cents, change, tick);
+
+            assertEquals(0, moved % tick, "tick " + tick);
+            assertTrue(moved >= tick);
+            assertTrue(Math.abs(moved - cents * (1 + change)) <= tick / 2.0 || moved == tick,
+                       cents + " moved by " + change + " to " + moved + " on a " + tick + " cent grid");
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ChangeLogTest {
+    private static final int SIZE = 130;
+
+    @Test
+    void mergesTheEpochsBetweenWithoutTouchingThem() {
+        ChangeLog log = new ChangeLog();
+        long[] first = bits(1, 70);
+        long[] second = bits(2, 129);
+        long[] third = bits(1);
+        log.add(1, first);
+        log.add(2, second);
+        log.add(3, third);
+
+        assertArrayEquals(bits(1, 2, 70, 129), log.changedBetween(0, 3, SIZE));
+        assertArrayEquals(bits(2, 129), log.changedBetween(1, 2, SIZE));
+        assertSame(second, log.changedBetween(1, 2, SIZE));
+        assertArrayEquals(bits(1, 70), first);
+        assertArrayEquals(bits(2, 129), second);
+        // Nothing happened between an epoch and itself.
+        assertArrayEquals(new long[ChangeLog.words(SIZE)], log.changedBetween(3, 3, SIZE));
+    }
+
+    @Test
+    void forgetsEpochsPastItsCapacity() {
+        ChangeLog log = new ChangeLog();
+        int last = ChangeLog.CAPACITY + 6;
+        for (int epoch = 1; epoch <= last; epoch++) {
+            log.add(epoch, bits(epoch % SIZE));
+        }
+
+        assertNotNull(log.changedBetween(last - ChangeLog.CAPACITY, last, SIZE));
+        assertEquals(ChangeLog.CAPACITY, ChangeLog.count(log.changedBetween(last - ChangeLog.CAPACITY, last, SIZE)));
+        assertNull(log.changedBetween(last - ChangeLog.CAPACITY - 1, last, SIZE));
+        // Epoch 6 shares its slot with epoch 70, which replaced it.
+        assertNull(log.changedBetween(5, last - 1, SIZE));
+        assertNull(log.changedBetween(0, 3, SIZE));
+    }
+
+    @Test
+    void everythingChangedAcrossAFullRepublishOrAResize() {
+        ChangeLog log = new ChangeLog();
+        log.add(1, bits(4));
+        log.add(2, null);
+        log.add(3, bits(5));
+
+        assertNull(log.changedBetween(0, 2, SIZE));
+        assertArrayEquals(bits(5), log.changedBetween(2, 3, SIZE));
+        // The store grew past another word since epoch 3.
+        assertNull(log.changedBetween(2, 3, SIZE + 64));
+    }
+
+    @Test
+    void nextWalksTheSetBitsAcrossWords() {
+        long[] changed = bits(0, 63, 64, 100, 129);
+        List<Integer> walked = new ArrayList<>();
+        for (int i = ChangeLog.next(changed, 0); i >= 0; i = ChangeLog.next(changed, i + 1)) {
+            walked.add(i);
+        }
+        assertEquals(List.of(0, 63, 64, 100, 129), walked);
+        assertEquals(100, ChangeLog.next(changed, 65));
+        assertEquals(-1, ChangeLog.next(changed, 130));
+        assertEquals(-1, ChangeLog.next(changed, 1_000));
+        assertEquals(-1, ChangeLog.next(new long[3], 0));
+
+        // A null bitset is every symbol.
+        assertEquals(7, ChangeLog.next(null, 7, 10));
+        assertEquals(-1, ChangeLog.next(null, 10, 10));
+        assertEquals(100, ChangeLog.next(changed, 65, SIZE));
+    }
+
+    @Test
+    void countsAndSizesBitsets() {
+        assertEquals(5, ChangeLog.count(bits(0, 63, 64, 100, 129)));
+        assertEquals(0, ChangeLog.count(new long[2]));
+        assertEquals(0, ChangeLog.words(0));
+        assertEquals(1, ChangeLog.words(1));
+        assertEquals(1, ChangeLog.words(64));
+        assertEquals(2, ChangeLog.words(65));
+    }
+
+    private static long[] bits(int... symbols) {
+        long[] changed = new long[ChangeLog.words(SIZE)];
+        for (int symbol : symbols) {
+            changed[symbol >>> 6] |= 1L << symbol;
+        }
+        return changed;
+    }
+}
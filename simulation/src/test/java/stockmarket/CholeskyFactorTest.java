@@ -0,0 +1,102 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CholeskyFactorTest {
+    private static final double EPSILON = 1e-12;
+
+    @Test
+    void factorOfAKnownMatrix() {
+        CholeskyFactor factor = new CholeskyFactor(new double[][] {
+            {4, 12, -16},
+            {12, 37, -43},
+            {-16, -43, 98}
+        });
+
+        double[][] expected = {
+            {2, 0, 0},
+            {6, 1, 0},
+            {-8, 5, 3}
+        };
+        assertEquals(3, factor.size());
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                assertEquals(expected[row][column], factor.get(row, column), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    void factorTimesItsTransposeRebuildsTheMatrix() {
+        double[][] matrix = sectorCorrelations(Sector.COUNT, 0.6, 0.2);
+        CholeskyFactor factor = new CholeskyFactor(matrix);
+
+        for (int row = 0; row < matrix.length; row++) {
+            for (int column = 0; column < matrix.length; column++) {
+                double sum = 0;
+                for (int k = 0; k < matrix.length; k++) {
+                    sum += factor.get(row, k) * factor.get(column, k);
+                }
+                assertEquals(matrix[row][column], sum, 1e-9, "(" + row + ", " + column + ")");
+            }
+        }
+        assertEquals(0, factor.get(0, 1));
+    }
+
+    @Test
+    void multiplyAppliesTheLowerTriangle() {
+        CholeskyFactor factor = new CholeskyFactor(new double[][] {{4, 2}, {2, 5}});
+        double[] out = new double[2];
+
+        factor.multiply(new double[] {1, 1}, out);
+
+        assertEquals(2, out[0], EPSILON);
+        assertEquals(1 + 2, out[1], EPSILON);
+    }
+
+    @Test
+    void correlatedDrawsHaveTheRequestedCorrelation() {
+        double[][] matrix = {{1, 0.7}, {0.7, 1}};
+        CholeskyFactor factor = new CholeskyFactor(matrix);
+        Random random = new Random(11);
+        double[] in = new double[2];
+        double[] out = new double[2];
+        double xy = 0;
+        double xx = 0;
+        double yy = 0;
+        int draws = 200_000;
+        for (int i = 0; i < draws; i++) {
+            in[0] = random.nextGaussian();
+            in[1] = random.nextGaussian();
+            factor.multiply(in, out);
+            xy += out[0] * out[1];
+            xx += out[0] * out[0];
+            yy += out[1] * out[1];
+        }
+        assertEquals(0.7, xy / Math.sqrt(xx * yy), 0.01);
+        assertEquals(1, xx / draws, 0.02);
+    }
+
+    @Test
+    void rejectsMatricesThatCannotBeFactored() {
+        assertThrows(IllegalArgumentException.class, () -> new CholeskyFactor(new double[][] {{1, 0.5}, {0.4, 1}}));
+        assertThrows(IllegalArgumentException.class, () -> new CholeskyFactor(new double[][] {{1, 2}, {2, 1}}));
+        assertThrows(IllegalArgumentException.class, () -> new CholeskyFactor(new double[][] {{1, 0}, {0}}));
+        assertThrows(IllegalArgumentException.class, () -> new CholeskyFactor(new double[][] {{0}}));
+    }
+
+    private static double[][] sectorCorrelations(int size, double within, double across) {
+        double[][] matrix = new double[size][size];
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                matrix[row][column] = row == column ? 1 : (row / 2 == column / 2 ? within : across);
+            }
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,82 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CorrelatedPriceModelTest {
+    @Test
+    void symbolsAreCorrelatedByTheirSectors() {
+        StockStore stocks = new StockStore();
+        // Prices high enough that the tick grid does not disturb the moves.
+        stocks.add("A", "A", 1_000_000, 10_000, 0);
+        stocks.add("B", "B", 1_000_000, 10_000, 0);
+        stocks.add("C", "C", 1_000_000, 10_000, 1);
+        PriceUpdateEngine engine = new SerialPriceUpdateEngine(17, new CorrelatedPriceModel(0.6, 0.3));
+        int ticks = 40_000;
+        double[][] returns = new double[3][ticks];
+        for (int tick = 0; tick < ticks; tick++) {
+            engine.update(stocks);
+            for (int id = 0; id < 3; id++) {
+                returns[id][tick] = Math.log1p(stocks.getChange(id));
+            }
+        }
+
+        assertEquals(0.6, correlation(returns[0], returns[1]), 0.02);
+        assertEquals(0.3, correlation(returns[0], returns[2]), 0.02);
+        assertEquals(0.3, correlation(returns[1], returns[2]), 0.02);
+    }
+
+    @Test
+    void rejectsCorrelationsOutsideTheirRanges() {
+        assertThrows(IllegalArgumentException.class, () -> new CorrelatedPriceModel(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new CorrelatedPriceModel(-0.5, 0));
+        assertThrows(IllegalArgumentException.class, () -> new CorrelatedPriceModel(1.5, 0.2));
+        assertThrows(IllegalArgumentException.class, () -> new CorrelatedPriceModel(Double.NaN, 0.2));
+        assertThrows(IllegalArgumentException.class, () -> new CorrelatedPriceModel(0.5, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> new CorrelatedPriceModel(0.5, -0.1));
+        assertThrows(IllegalArgumentException.class, () -> new CorrelatedPriceModel(0.4, 0.5));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CorrelatedPriceModel(CorrelatedPriceModel.uniformCorrelation(0.2), Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> CorrelatedPriceModel.uniformCorrelation(Double.NaN));
+    }
+
+    @Test
+    void rejectsEqualCorrelationsWithItsOwnError() {
+        // Equal correlations make the sector matrix all ones, which is not positive definite.
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                                                      () -> new CorrelatedPriceModel(0.5, 0.5));
+        assertTrue(error.getMessage().startsWith("Cross-sector correlation must be in [0, 0.5)"), error.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> new CorrelatedPriceModel(1, 1));
+        assertThrows(IllegalArgumentException.class, () -> CorrelatedPriceModel.uniformCorrelation(1));
+    }
+
+    @Test
+    void acceptsCorrelationsInsideTheirRanges() {
+        new CorrelatedPriceModel(0.5, 0);
+        new CorrelatedPriceModel(1, 0.3);
+        new CorrelatedPriceModel(0.01, 0.009);
+    }
+
+    private static double correlation(double[] x, double[] y) {
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < x.length; i++) {
+            meanX += x[i];
+            meanY += y[i];
+        }
+        meanX /= x.length;
+        meanY /= y.length;
+        double xy = 0;
+        double xx = 0;
+        double yy = 0;
+        for (int i = 0; i < x.length; i++) {
+            xy += (x[i] - meanX) * (y[i] - meanY);
+            xx += (x[i] - meanX) * (x[i] - meanX);
+            yy += (y[i] - meanY) * (y[i] - meanY);
+        }
+        return xy / Math.sqrt(xx * yy);
+    }
+}
@@ -0,0 +1,107 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class DirtySymbolsTest {
+    private static final int SIZE = 3 * MarketSnapshot.PAGE_SIZE - 100;
+
+    @Test
+    void rangeMarksCoverExactlyTheirSymbols() {
+        int[][] ranges = {{3, 10}, {60, 200}, {64, 128}, {0, 64}, {1_000, 1_050}, {5, 5}, {SIZE - 1, SIZE}};
+        for (int[] range : ranges) {
+            long[] column = new long[SIZE];
+            long[][] pages = pages(column);
+            // Every value moves, so the changed bits are exactly the marks.
+            Arrays.fill(column, 1);
+            DirtySymbols dirty = new DirtySymbols(SIZE);
+            dirty.mark(range[0], range[1]);
+            long[] changed = new long[ChangeLog.words(SIZE)];
+            dirty.publish(pages, column, SIZE, changed);
+
+            assertEquals(range[1] - range[0], ChangeLog.count(changed), Arrays.toString(range));
+            assertEquals(range[0] < range[1] ? range[0] : -1, ChangeLog.next(changed, 0));
+            if (range[0] < range[1]) {
+                assertEquals(-1, ChangeLog.next(changed, range[1]));
+            }
+        }
+    }
+
+    @Test
+    void publishCopiesOnlyMarkedPagesAndReportsOnlyRealChanges() {
+        long[] column = new long[SIZE];
+        Arrays.fill(column, 500);
+        long[][] previous = pages(column);
+        DirtySymbols dirty = new DirtySymbols(SIZE);
+
+        column[10] = 501;
+        dirty.mark(10);
+        // Marked but written back with the value it had.
+        dirty.mark(11);
+        // Changed without a mark, so it waits for one.
+        column[12] = 502;
+        column[MarketSnapshot.PAGE_SIZE + 7] = 503;
+        dirty.mark(MarketSnapshot.PAGE_SIZE + 7);
+        long[] changed = new long[ChangeLog.words(SIZE)];
+        long[][] next = dirty.publish(previous, column, SIZE, changed);
+
+        assertEquals(2, ChangeLog.count(changed));
+        assertEquals(10, ChangeLog.next(changed, 0));
+        assertEquals(MarketSnapshot.PAGE_SIZE + 7, ChangeLog.next(changed, 11));
+        assertNotSame(previous[0], next[0]);
+        assertNotSame(previous[1], next[1]);
+        assertSame(previous[2], next[2]);
+        assertEquals(500, previous[0][10]);
+        assertEquals(501, next[0][10]);
+
+        // The marks were cleared: with nothing marked the pages are reused as they are.
+        long[] none = new long[ChangeLog.words(SIZE)];
+        assertSame(next, dirty.publish(next, column, SIZE, none));
+        assertArrayEquals(new long[ChangeLog.words(SIZE)], none);
+    }
+
+    @Test
+    void intColumnsPublishLikeLongOnes() {
+        int[] column = new int[SIZE];
+        int[][] previous = new int[MarketSnapshot.pageCount(SIZE)][];
+        for (int page = 0; page < previous.length; page++) {
+            previous[page] = Arrays.copyOfRange(column, page * MarketSnapshot.PAGE_SIZE,
+                                                (page + 1) * MarketSnapshot.PAGE_SIZE);
+        }
+        DirtySymbols dirty = new DirtySymbols(SIZE);
+        column[2 * MarketSnapshot.PAGE_SIZE + 1] = 9;
+        dirty.mark(2 * MarketSnapshot.PAGE_SIZE, 2 * MarketSnapshot.PAGE_SIZE + 64);
+        long[] changed = new long[ChangeLog.words(SIZE)];
+        int[][] next = dirty.publish(previous, column, SIZE, changed);
+
+        assertEquals(1, ChangeLog.count(changed));
+        assertEquals(2 * MarketSnapshot.PAGE_SIZE + 1, ChangeLog.next(changed, 0));
+        assertSame(previous[0], next[0]);
+        assertEquals(9, next[2][1]);
+    }
+
+    @Test
+    void clearDropsTheMarks() {
+        long[] column = new long[SIZE];
+        long[][] pages = pages(column);
+        DirtySymbols dirty = new DirtySymbols(SIZE);
+        dirty.mark(0, SIZE);
+        dirty.clear();
+        assertSame(pages, dirty.publish(pages, column, SIZE, new long[ChangeLog.words(SIZE)]));
+    }
+
+    private static long[][] pages(long[] column) {
+        long[][] pages = new long[MarketSnapshot.pageCount(column.length)][];
+        for (int page = 0; page < pages.length; page++) {
+            pages[page] = Arrays.copyOfRange(column, page * MarketSnapshot.PAGE_SIZE,
+                                             (page + 1) * MarketSnapshot.PAGE_SIZE);
+        }
+        return pages;
+    }
+}
@@ -0,0 +1,57 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventCalendarTest {
+    private final StockStore stocks = MarketEngine.defaultStocks();
+
+    @Test
+    void parsesEachVolumeForm() throws IOException {
+        EventCalendar calendar = parse("# comment\n"
+                                       + "Rally | at 1s | all | +5000\n"
+                                       + "\n"
+                                       + "Slump | at 2s | sector Energy | -8000 | Oil falls\n"
+                                       + "Either | at 3s | symbol " + stocks.getSymbol(0) + " | -8000/+5000\n");
+
+        assertEquals(3, calendar.size());
+        assertEquals(5_000, calendar.get(0).getIncrease());
+        assertEquals(0, calendar.get(0).getDecrease());
+        assertEquals(0, calendar.get(1).getIncrease());
+        assertEquals(8_000, calendar.get(1).getDecrease());
+        assertEquals("Oil falls", calendar.get(1).getDescription());
+        assertEquals(Sector.mask(Sector.ENERGY), calendar.get(1).getSectorMask());
+        assertEquals(5_000, calendar.get(2).getIncrease());
+        assertEquals(8_000, calendar.get(2).getDecrease());
+        assertArrayEquals(new int[] {0}, calendar.get(2).symbols());
+    }
+
+    @Test
+    void rejectsTwoChangesOfTheSameSign() {
+        assertRejected("Rally | at 1s | all | +5000/+8000", "line 1");
+        assertRejected("Slump | at 1s | all | -5000/-8000", "line 1");
+        assertRejected("Whipsaw | at 1s | all | +5000/-8000/+1000", "line 1");
+    }
+
+    @Test
+    void reportsTheLineOfAMalformedTrigger() {
+        assertRejected("Rally | at 1s | all | +5000\nTypo | every 20s cout 5 | all | +5000", "line 2");
+        assertRejected("Nowhere | at 1s | somewhere | +5000", "Unknown target");
+    }
+
+    private EventCalendar parse(String text) throws IOException {
+        return EventCalendar.parse(new StringReader(text), stocks);
+    }
+
+    private void assertRejected(String text, String message) {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> parse(text));
+        assertTrue(error.getMessage().contains(message), error.getMessage());
+    }
+}
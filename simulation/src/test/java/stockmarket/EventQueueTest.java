@@ -0,0 +1,81 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventQueueTest {
+    @Test
+    void removesByDeadlineThenEventIndex() {
+        EventQueue queue = new EventQueue();
+        queue.add(300, 1);
+        queue.add(100, 4);
+        queue.add(200, 0);
+        queue.add(100, 2);
+        queue.add(100, 3);
+
+        long[][] expected = {{100, 2}, {100, 3}, {100, 4}, {200, 0}, {300, 1}};
+        for (long[] head : expected) {
+            assertEquals(head[0], queue.peekDeadline());
+            assertEquals(head[1], queue.peekEvent());
+            queue.remove();
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void keepsItsOrderAsItGrowsAndDrains() {
+        EventQueue queue = new EventQueue();
+        List<long[]> pending = new ArrayList<>();
+        Random random = new Random(3);
+        for (int round = 0; round < 20_000; round++) {
+            // Adds outpace removals, so the heap grows well past its first 64 slots.
+            if (pending.isEmpty() || random.nextInt(3) != 0) {
+                long deadline = random.nextInt(1_000);
+                int event = random.nextInt(50);
+                queue.add(deadline, event);
+                pending.add(new long[] {deadline, event});
+            } else {
+                long[] head = earliest(pending);
+                assertEquals(head[0], queue.peekDeadline());
+                assertEquals(head[1], queue.peekEvent());
+                queue.remove();
+                pending.remove(head);
+            }
+            assertEquals(pending.size(), queue.size());
+        }
+        while (!pending.isEmpty()) {
+            long[] head = earliest(pending);
+            assertEquals(head[0], queue.peekDeadline());
+            assertEquals(head[1], queue.peekEvent());
+            queue.remove();
+            pending.remove(head);
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void clearEmptiesTheQueue() {
+        EventQueue queue = new EventQueue();
+        queue.add(5, 0);
+        queue.add(1, 1);
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        queue.add(7, 2);
+        assertEquals(7, queue.peekDeadline());
+        assertEquals(1, queue.size());
+    }
+
+    private static long[] earliest(List<long[]> pending) {
+        long[] best = pending.get(0);
+        for (long[] entry : pending) {
+            if (entry[0] < best[0] || (entry[0] == best[0] && entry[1] < best[1])) best = entry;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,122 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventTriggerTest {
+    private static final long START = 1_000_000;
+
+    @Test
+    void parsesDurationsInEveryUnit() {
+        assertEquals(250, EventTrigger.parseDuration("250ms"));
+        assertEquals(1_500, EventTrigger.parseDuration("1.5s"));
+        assertEquals(120_000, EventTrigger.parseDuration("2m"));
+        assertEquals(3_600_000, EventTrigger.parseDuration("1H"));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parseDuration("5"));
+    }
+
+    @Test
+    void atFiresOnceAfterTheStart() {
+        EventTrigger trigger = EventTrigger.parse("at 20s");
+        assertEquals(START + 20_000, trigger.next(START, START, 0, new Random()));
+        assertEquals(-1, trigger.next(START + 20_000, START, 1, new Random()));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("at 20s 30s"));
+    }
+
+    @Test
+    void everyCountsPeriodsFromItsOffset() {
+        EventTrigger trigger = EventTrigger.parse("every 10s from 5s count 3");
+        Random random = new Random();
+        assertEquals(START + 5_000, trigger.next(START, START, 0, random));
+        assertEquals(START + 15_000, trigger.next(START + 5_000, START, 1, random));
+        assertEquals(START + 25_000, trigger.next(START + 15_000, START, 2, random));
+        assertEquals(-1, trigger.next(START + 25_000, START, 3, random));
+
+        // Without 'from' the first occurrence is a whole period in.
+        assertEquals(START + 10_000, EventTrigger.parse("every 10s").next(START, START, 0, random));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("every 0s"));
+    }
+
+    @Test
+    void cronFindsTheNextMatchingWallClockTime() {
+        ZoneId zone = ZoneId.systemDefault();
+        long now = ZonedDateTime.of(2026, 3, 2, 10, 7, 30, 0, zone).toInstant().toEpochMilli();
+        Random random = new Random();
+
+        assertEquals(ZonedDateTime.of(2026, 3, 2, 10, 15, 0, 0, zone).toInstant().toEpochMilli(),
+                     EventTrigger.parse("cron 0 */15 *").next(now, now, 0, random));
+        assertEquals(ZonedDateTime.of(2026, 3, 2, 10, 7, 40, 0, zone).toInstant().toEpochMilli(),
+                     EventTrigger.parse("cron 0-50/20 * *").next(now, now, 0, random));
+        // Past today's only match, so tomorrow's.
+        assertEquals(ZonedDateTime.of(2026, 3, 3, 9, 0, 30, 0, zone).toInstant().toEpochMilli(),
+                     EventTrigger.parse("cron 30 0 9").next(now, now, 0, random));
+        assertEquals(ZonedDateTime.of(2026, 3, 2, 17, 0, 0, 0, zone).toInstant().toEpochMilli(),
+                     EventTrigger.parse("cron 0 0 8,12,17").next(now + 3 * 3_600_000, now, 0, random));
+        // A match exactly now is not repeated.
+        long onTheHour = ZonedDateTime.of(2026, 3, 2, 11, 0, 0, 0, zone).toInstant().toEpochMilli();
+        assertEquals(onTheHour + 3_600_000, EventTrigger.parse("cron 0 0 *").next(onTheHour, now, 1, random));
+    }
+
+    @Test
+    void rejectsMalformedCronFields() {
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("cron 60 * *"));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("cron * * 24"));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("cron * 30-10 *"));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("cron */0 * *"));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("cron * *"));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("cron x * *"));
+    }
+
+    @Test
+    void poissonGapsAverageTheirMean() {
+        EventTrigger trigger = EventTrigger.parse("poisson 2s");
+        Random random = new Random(5);
+        long now = START;
+        int occurrences = 20_000;
+        for (int i = 0; i < occurrences; i++) {
+            long next = trigger.next(now, START, i, random);
+            assertTrue(next > now);
+            now = next;
+        }
+        assertEquals(2_000, (double) (now - START) / occurrences, 60);
+    }
+
+    @Test
+    void poissonStopsAfterItsCount() {
+        EventTrigger trigger = EventTrigger.parse("poisson 100ms count 2");
+        Random random = new Random(1);
+        assertTrue(trigger.next(START, START, 1, random) > START);
+        assertEquals(-1, trigger.next(START, START, 2, random));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("poisson 0s"));
+    }
+
+    @Test
+    void rejectsUnknownTriggers() {
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("sometimes 5s"));
+    }
+
+    @Test
+    void rejectsUnknownRepeatedAndDanglingOptions() {
+        // Misspelt options used to be ignored, leaving an endless trigger.
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("every 20s cout 5"));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("every 20s form 10s"));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("every 20s count"));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("every 20s count 5 from"));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("every 20s count 5 count 6"));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("every 20s count 0"));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("poisson 2s from 5s"));
+        assertThrows(IllegalArgumentException.class, () -> EventTrigger.parse("poisson 2s 5"));
+
+        // Options may come in either order.
+        EventTrigger trigger = EventTrigger.parse("every 10s count 1 from 5s");
+        assertEquals(START + 5_000, trigger.next(START, START, 0, new Random()));
+        assertEquals(-1, trigger.next(START + 5_000, START, 1, new Random()));
+    }
+}
@@ -0,0 +1,65 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GbmPriceModelTest {
+    @Test
+    void logReturnsHaveTheItoCorrectedMeanAndTheVolatility() {
+        double drift = 0.001;
+        double sigma = 0.02;
+        StockStore stocks = market(2_000, drift, sigma);
+        PriceUpdateEngine engine = new SerialPriceUpdateEngine(23, new GbmPriceModel());
+        int ticks = 20;
+        double[] returns = new double[stocks.size() * ticks];
+        for (int tick = 0; tick < ticks; tick++) {
+            engine.update(stocks);
+            for (int id = 0; id < stocks.size(); id++) {
+                returns[tick * stocks.size() + id] = Math.log1p(stocks.getChange(id));
+            }
+        }
+
+        // 40,000 returns: the mean is good to 1e-4 and the deviation to 7e-5.
+        assertEquals(drift - 0.5 * sigma * sigma, mean(returns), 4e-4);
+        assertEquals(sigma, deviation(returns), 4e-4);
+    }
+
+    @Test
+    void zeroVolatilityCompoundsTheDriftExactly() {
+        StockStore stocks = market(1, 0.01, 0);
+        PriceUpdateEngine engine = new SerialPriceUpdateEngine(23, new GbmPriceModel());
+        engine.update(stocks);
+
+        assertEquals(Math.expm1(0.01), stocks.getChange(0), 1e-15);
+        assertEquals(101_005, stocks.getPriceCents(0));
+    }
+
+    // Prices high enough that the tick grid does not disturb the moves.
+    static StockStore market(int symbols, double drift, double volatility) {
+        StockStore stocks = new StockStore();
+        for (int id = 0; id < symbols; id++) {
+            stocks.add("S" + id, "S" + id, 1_000.00, 10_000, 0);
+            stocks.setDrift(id, drift);
+            stocks.setVolatility(id, volatility);
+        }
+        return stocks;
+    }
+
+    static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    static double deviation(double[] values) {
+        double mean = mean(values);
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(squares / (values.length - 1));
+    }
+}
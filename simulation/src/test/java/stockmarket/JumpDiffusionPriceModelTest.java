@@ -0,0 +1,45 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JumpDiffusionPriceModelTest {
+    @Test
+    void jumpsArriveAtTheIntensityAndTheDriftIsCompensated() {
+        double intensity = 0.05;
+        double jumpMean = -0.1;
+        // Diffusion far smaller than any jump, so jumps can be told apart by size.
+        StockStore stocks = GbmPriceModelTest.market(2_000, 0, 0.001);
+        JumpDiffusionPriceModel model = new JumpDiffusionPriceModel(intensity, jumpMean, 0.02);
+        PriceUpdateEngine engine = new SerialPriceUpdateEngine(5, model);
+        int ticks = 20;
+        double[] changes = new double[stocks.size() * ticks];
+        int jumps = 0;
+        double jumpSum = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            engine.update(stocks);
+            for (int id = 0; id < stocks.size(); id++) {
+                double change = stocks.getChange(id);
+                changes[tick * stocks.size() + id] = change;
+                if (Math.abs(Math.log1p(change)) > 0.03) {
+                    jumps++;
+                    jumpSum += Math.log1p(change);
+                }
+            }
+        }
+
+        // 40,000 draws: the jump rate is good to 1.1e-3.
+        assertEquals(intensity, (double) jumps / changes.length, 0.005);
+        assertEquals(jumpMean, jumpSum / jumps, 0.005);
+        // Uncompensated jumps would pull the mean move down by about 0.0047.
+        assertEquals(0, GbmPriceModelTest.mean(changes), 5e-4);
+    }
+
+    @Test
+    void rejectsIntensitiesOutsideTheUnitInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new JumpDiffusionPriceModel(0, -0.02, 0.06));
+        assertThrows(IllegalArgumentException.class, () -> new JumpDiffusionPriceModel(1, -0.02, 0.06));
+    }
+}
@@ -0,0 +1,98 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+    @Test
+    void bucketsResolveValuesToWithinThreePercent() {
+        Random random = new Random(11);
+        int previous = -1;
+        for (long value = 0; value < 4_096; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(index >= previous, "index of " + value);
+            previous = index;
+            assertBucketHolds(value);
+        }
+        for (int i = 0; i < 100_000; i++) {
+            assertBucketHolds((random.nextLong() >>> 1) >>> random.nextInt(63));
+        }
+        assertBucketHolds(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void percentilesNeverUnderstateTheExactOnes() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        Random random = new Random(4);
+        long[] values = new long[50_000];
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal around 200 us, roughly the shape of a tick latency.
+            values[i] = (long) (200_000 * Math.exp(random.nextGaussian()));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : new double[] {1, 25, 50, 90, 99, 99.9, 100}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = histogram.getPercentileNanos(percentile);
+            assertTrue(reported >= exact, "p" + percentile + " " + reported + " < " + exact);
+            assertTrue(reported <= exact + exact / 32, "p" + percentile + " " + reported + " vs " + exact);
+        }
+        assertEquals(values[values.length - 1], histogram.getPercentileNanos(100));
+        assertEquals(values[values.length - 1], histogram.getMaxNanos());
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(Arrays.stream(values).sum() / values.length, histogram.getMeanNanos());
+    }
+
+    @Test
+    void smallAndDegenerateHistograms() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        assertEquals(0, histogram.getPercentileNanos(99));
+        assertEquals(0, histogram.getMeanNanos());
+
+        histogram.record(1_234_567);
+        // A lone sample is every percentile, reported exactly since the maximum caps its bucket.
+        assertEquals(1_234_567, histogram.getPercentileNanos(0));
+        assertEquals(1_234_567, histogram.getPercentileNanos(50));
+        assertEquals(1_234_567, histogram.getPercentileNanos(100));
+
+        histogram.record(-5);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(50));
+        assertEquals(1_234_567, histogram.getTotalNanos());
+    }
+
+    @Test
+    void aReaderSeesConsistentCopiesWhileTheWriterRecords() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        int samples = 500_000;
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= samples; i++) {
+                histogram.record(i % 1_000);
+            }
+        });
+        writer.start();
+        long lastCount = 0;
+        while (writer.isAlive()) {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            assertTrue(snapshot.getCount() >= lastCount);
+            lastCount = snapshot.getCount();
+            assertTrue(snapshot.percentileNanos(50) <= 999);
+        }
+        writer.join();
+        assertEquals(samples, histogram.snapshot().getCount());
+        assertEquals(999, histogram.getMaxNanos());
+    }
+
+    private static void assertBucketHolds(long value) {
+        long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value));
+        assertTrue(highest >= value, value + " above its bucket");
+        assertTrue(highest - value <= value / 32, value + " resolved to " + highest);
+    }
+}
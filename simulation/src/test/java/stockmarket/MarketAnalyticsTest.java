@@ -0,0 +1,138 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketAnalyticsTest {
+    @Test
+    void minuteBarsAnswerTheRollingRange() {
+        StockStore stocks = new StockStore();
+        stocks.add("A", "A", 10_000, 1_000, 0);
+        MarketAnalytics analytics = new MarketAnalytics(1, MarketAnalytics.DEFAULT_DECAY, 0, 3);
+        long[] prices = {10_000, 12_000, 9_000, 11_000, 10_500};
+        for (int minute = 0; minute < prices.length; minute++) {
+            stocks.prices()[0] = prices[minute];
+            analytics.onPrices(minute * 60_000L, stocks, true);
+        }
+
+        // Three slots keep minutes 2..4 only.
+        assertEquals(110.0, analytics.getRollingHigh(0, MarketAnalytics.MINUTE_BARS, 3));
+        assertEquals(90.0, analytics.getRollingLow(0, MarketAnalytics.MINUTE_BARS, 3));
+        assertEquals(105.0, analytics.getRollingHigh(0, MarketAnalytics.MINUTE_BARS, 1));
+        long[] starts = new long[3];
+        double[] closes = new double[3];
+        assertEquals(3, analytics.copyBars(0, MarketAnalytics.MINUTE_BARS, starts, new double[3],
+                                           new double[3], new double[3], closes));
+        assertEquals(120_000, starts[0]);
+        assertEquals(105.0, closes[2]);
+    }
+
+    @Test
+    void aResolutionWithoutCapacityKeepsNoBars() {
+        StockStore stocks = MarketEngine.syntheticStocks(10);
+        MarketAnalytics analytics = new MarketAnalytics(10, MarketAnalytics.DEFAULT_DECAY, 0, 15);
+        analytics.onPrices(0, stocks, true);
+        analytics.onPrices(1_000, stocks, true);
+
+        assertEquals(0, analytics.getBarCapacity(MarketAnalytics.SECOND_BARS));
+        assertTrue(Double.isNaN(analytics.getRollingHigh(3, MarketAnalytics.SECOND_BARS, 5)));
+        assertEquals(0, analytics.copyBars(3, MarketAnalytics.SECOND_BARS, new long[0], new double[0],
+                                           new double[0], new double[0], new double[0]));
+        assertEquals(Cents.toPrice(stocks.prices()[3]),
+                     analytics.getRollingHigh(3, MarketAnalytics.MINUTE_BARS, 15));
+    }
+
+    @Test
+    void vwapWeighsFillsByQuantity() {
+        MarketAnalytics analytics = new MarketAnalytics(2);
+        assertTrue(Double.isNaN(analytics.getVwap(0)));
+
+        analytics.onFill(0, 10.0, 100);
+        analytics.onFill(0, 12.0, 300);
+        analytics.onFill(1, 50.0, 10);
+        // Symbols listed after construction are not tracked.
+        analytics.onFill(2, 99.0, 1_000);
+
+        assertEquals((10.0 * 100 + 12.0 * 300) / 400, analytics.getVwap(0), 1e-12);
+        assertEquals(400, analytics.getTradedQuantity(0));
+        assertEquals(50.0, analytics.getVwap(1), 1e-12);
+        assertEquals(10, analytics.getTradedQuantity(1));
+    }
+
+    @Test
+    void volatilitySeedsWithTheFirstReturnThenDecays() {
+        StockStore stocks = new StockStore();
+        stocks.add("A", "A", 100.00, 1_000, 0);
+        MarketAnalytics analytics = new MarketAnalytics(1, 0.9, 0, 0);
+
+        analytics.onPrices(0, stocks, true);
+        assertTrue(Double.isNaN(analytics.getVolatility(0)), "no return before the second price");
+
+        stocks.prices()[0] = 11_000;
+        analytics.onPrices(1, stocks, true);
+        double first = Math.log(1.1);
+        // The first squared return is the variance, not a tenth of it.
+        assertEquals(Math.abs(first), analytics.getVolatility(0), 1e-12);
+
+        stocks.prices()[0] = 9_900;
+        analytics.onPrices(2, stocks, true);
+        double second = Math.log(0.9);
+        double variance = 0.9 * first * first + 0.1 * second * second;
+        assertEquals(Math.sqrt(variance), analytics.getVolatility(0), 1e-12);
+
+        // An unchanged price is a zero return only when the tick says every price moved.
+        analytics.onPrices(3, stocks, false);
+        assertEquals(Math.sqrt(variance), analytics.getVolatility(0), 1e-12);
+        analytics.onPrices(4, stocks, true);
+        assertEquals(Math.sqrt(0.9 * variance), analytics.getVolatility(0), 1e-12);
+        assertEquals(99.0, analytics.getLastPrice(0));
+    }
+
+    @Test
+    void drainUpdatedReportsEachUpdatedSymbolOnce() {
+        StockStore stocks = MarketEngine.syntheticStocks(130);
+        MarketAnalytics analytics = new MarketAnalytics(130);
+        long[] updated = new long[3];
+
+        analytics.onPrices(0, stocks, true);
+        analytics.drainUpdated(updated);
+        assertEquals(-1L, updated[0]);
+        assertEquals(-1L, updated[1]);
+        assertEquals((1L << 2) - 1, updated[2]);
+        long[] again = new long[3];
+        analytics.drainUpdated(again);
+        assertEquals(0, again[0] | again[1] | again[2]);
+
+        stocks.prices()[70] += 100;
+        analytics.onPrices(1_000, stocks, false);
+        analytics.onFill(129, 10.0, 5);
+        updated = new long[] {1L << 3, 0, 0};
+        analytics.drainUpdated(updated);
+        // Drained bits are ORed into what the caller already holds.
+        assertEquals(1L << 3, updated[0]);
+        assertEquals(1L << (70 - 64), updated[1]);
+        assertEquals(1L << (129 - 128), updated[2]);
+
+        // Of the symbols a change log lists, only those whose price moved are updated.
+        stocks.prices()[5] += 100;
+        long[] changed = new long[3];
+        changed[0] |= 1L << 5;
+        changed[1] |= 1L << (70 - 64);
+        analytics.onPrices(2_000, stocks, changed);
+        updated = new long[3];
+        analytics.drainUpdated(updated);
+        assertEquals(1L << 5, updated[0]);
+        assertEquals(0, updated[1] | updated[2]);
+    }
+
+    @Test
+    void rejectsBarColumnsThatCannotBeAllocated() {
+        assertThrows(ArithmeticException.class,
+                () -> new MarketAnalytics(1 << 20, MarketAnalytics.DEFAULT_DECAY, 1 << 12, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new MarketAnalytics(1, MarketAnalytics.DEFAULT_DECAY, -1, 60));
+    }
+}
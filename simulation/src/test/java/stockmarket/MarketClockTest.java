@@ -0,0 +1,127 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketClockTest {
+    private static final long MILLIS = 1_000_000;
+
+    private final VirtualTimeMarketScheduler scheduler = new VirtualTimeMarketScheduler(0);
+
+    @Test
+    void skipDropsTheTicksAnOverrunMissed() {
+        MarketClock clock = overrunning(MarketScheduler.OverrunPolicy.SKIP);
+
+        scheduler.advance(1_000, TimeUnit.MILLISECONDS);
+
+        // Ticks at 100, 200 and 300 ms; the third runs until 650 ms, so 400..600 are
+        // skipped and the clock picks up again at 700.
+        assertEquals(3 + 4, clock.getTicks());
+        assertEquals(3, clock.getSkippedTicks());
+        assertEquals(0, clock.getMaxDriftNanos());
+        assertEquals(0, clock.getMeanDriftNanos());
+        assertEquals(100 * MILLIS, clock.getNanosToNextTick());
+    }
+
+    @Test
+    void catchUpFiresEveryMissedTickLate() {
+        MarketClock clock = overrunning(MarketScheduler.OverrunPolicy.CATCH_UP);
+
+        scheduler.advance(1_000, TimeUnit.MILLISECONDS);
+
+        // 400, 500 and 600 fire back to back at 650 ms, 250, 150 and 50 ms late.
+        assertEquals(10, clock.getTicks());
+        assertEquals(0, clock.getSkippedTicks());
+        assertEquals(250 * MILLIS, clock.getMaxDriftNanos());
+        assertEquals(0, clock.getLastDriftNanos());
+        assertEquals((250 + 150 + 50) * MILLIS / 10, clock.getMeanDriftNanos());
+        assertEquals(10, scheduler.getLagHistogram().snapshot().getCount());
+    }
+
+    @Test
+    void aClockCancelledBeforeItsDeadlineNeverFires() {
+        AtomicInteger runs = new AtomicInteger();
+        MarketClock clock = scheduler.scheduleAtFixedRate("Cancelled", 100, 100, TimeUnit.MILLISECONDS,
+                                                          MarketScheduler.OverrunPolicy.SKIP, runs::incrementAndGet);
+        scheduler.advance(50, TimeUnit.MILLISECONDS);
+        clock.cancel();
+        scheduler.advance(1, TimeUnit.SECONDS);
+
+        assertEquals(0, runs.get());
+        assertEquals(0, clock.getTicks());
+        assertEquals(0, clock.getNanosToNextTick());
+        assertEquals(0, scheduler.getPendingCount());
+    }
+
+    @Test
+    void aClockCancelledByItsOwnTaskIsNotRearmed() {
+        AtomicInteger runs = new AtomicInteger();
+        MarketClock[] clock = new MarketClock[1];
+        clock[0] = scheduler.scheduleAtFixedRate("SelfCancelling", 0, 100, TimeUnit.MILLISECONDS,
+                                                 MarketScheduler.OverrunPolicy.CATCH_UP, () -> {
+                                                     if (runs.incrementAndGet() == 2) clock[0].cancel();
+                                                 });
+        scheduler.advance(1, TimeUnit.SECONDS);
+
+        assertEquals(2, runs.get());
+        assertTrue(clock[0].isCancelled());
+        assertEquals(0, scheduler.getPendingCount());
+    }
+
+    @Test
+    void oneShotClocksFireOnceAndFailingTasksKeepTheClockRunning() {
+        AtomicInteger runs = new AtomicInteger();
+        MarketClock once = scheduler.schedule("Once", 10, TimeUnit.MILLISECONDS, runs::incrementAndGet);
+        MarketClock failing = scheduler.scheduleAtFixedRate("Failing", 100, 100, TimeUnit.MILLISECONDS,
+                                                            MarketScheduler.OverrunPolicy.SKIP, () -> {
+                                                                throw new IllegalStateException("tick failed");
+                                                            });
+        MarketLog.setLevel(MarketLog.Level.OFF);
+        try {
+            scheduler.advance(500, TimeUnit.MILLISECONDS);
+        } finally {
+            MarketLog.setLevel(MarketLog.Level.INFO);
+        }
+
+        assertEquals(1, runs.get());
+        assertTrue(once.isCancelled());
+        assertEquals(5, failing.getTicks());
+    }
+
+    @Test
+    void cancelRacingATickLetsAtMostTheTickInFlightFinish() throws InterruptedException {
+        RealTimeMarketScheduler realTime = new RealTimeMarketScheduler();
+        try {
+            AtomicInteger runs = new AtomicInteger();
+            MarketClock clock = realTime.scheduleAtFixedRate("Racing", 0, 100, TimeUnit.MICROSECONDS,
+                                                             MarketScheduler.OverrunPolicy.CATCH_UP, runs::incrementAndGet);
+            for (int attempt = 0; attempt < 20 && runs.get() < 50; attempt++) {
+                Thread.sleep(5);
+            }
+            clock.cancel();
+            int atCancel = runs.get();
+            Thread.sleep(50);
+
+            assertTrue(atCancel > 0);
+            assertTrue(runs.get() <= atCancel + 1, runs.get() + " runs after cancelling at " + atCancel);
+            assertEquals(runs.get(), clock.getTicks());
+        } finally {
+            realTime.shutdown();
+        }
+    }
+
+    // A 100 ms clock whose third tick takes 350 ms of market time.
+    private MarketClock overrunning(MarketScheduler.OverrunPolicy policy) {
+        AtomicInteger runs = new AtomicInteger();
+        return scheduler.scheduleAtFixedRate("Overrunning", 100, 100, TimeUnit.MILLISECONDS, policy, () -> {
+            if (runs.incrementAndGet() == 3) {
+                scheduler.advance(350, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+}
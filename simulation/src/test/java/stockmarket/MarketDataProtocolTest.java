@@ -0,0 +1,177 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketDataProtocolTest {
+    @Test
+    void varintsRoundTripAndUseSevenBitsPerByte() {
+        long[] values = {0, 1, 127, 128, 300, 16_383, 16_384, Integer.MAX_VALUE, 1L << 56, Long.MAX_VALUE, -1};
+        int[] sizes = {1, 1, 1, 2, 2, 2, 3, 5, 9, 9, 10};
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        for (int i = 0; i < values.length; i++) {
+            int before = buffer.position();
+            MarketDataProtocol.putVarint(buffer, values[i]);
+            assertEquals(sizes[i], buffer.position() - before, "size of " + values[i]);
+        }
+        buffer.flip();
+        for (long value : values) {
+            assertEquals(value, MarketDataProtocol.getVarint(buffer));
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void zigzagMapsSmallMagnitudesToSmallCodes() {
+        assertEquals(0, MarketDataProtocol.zigzag(0));
+        assertEquals(1, MarketDataProtocol.zigzag(-1));
+        assertEquals(2, MarketDataProtocol.zigzag(1));
+        assertEquals(3, MarketDataProtocol.zigzag(-2));
+        assertEquals(4, MarketDataProtocol.zigzag(2));
+        assertEquals(-2, MarketDataProtocol.zigzag(Long.MAX_VALUE));
+        assertEquals(-1, MarketDataProtocol.zigzag(Long.MIN_VALUE));
+        long[] values = {0, 1, -1, 63, -64, 1_000_000, -1_000_000, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            assertEquals(value, MarketDataProtocol.unzigzag(MarketDataProtocol.zigzag(value)));
+        }
+    }
+
+    @Test
+    void snapshotFrameDecodesToTheSameMarket() {
+        StockStore stocks = MarketEngine.syntheticStocks(1500);
+        MarketSnapshot snapshot = stocks.publish();
+        ByteBuffer frame = ByteBuffer.allocate(MarketDataProtocol.maxSnapshotSize(snapshot));
+        MarketDataProtocol.encodeSnapshot(snapshot, frame);
+        frame.flip();
+
+        MarketDataDecoder decoder = new MarketDataDecoder();
+        assertEquals(1, decoder.decode(frame));
+
+        assertFalse(frame.hasRemaining());
+        assertMatches(snapshot, decoder);
+        assertEquals(1, decoder.getSnapshotCount());
+    }
+
+    @Test
+    void nonAsciiSymbolsTravelAsUtf8() {
+        StockStore stocks = new StockStore();
+        stocks.add("CAFÉ", "Café Holdings", 12.5, 1_000, Sector.CONSUMER);
+        stocks.add("日本", "Nihon", 300, 2_000, Sector.FINANCIALS);
+        stocks.add("\uD83D\uDCC8UP", "Chart", 1, 3_000, Sector.TECHNOLOGY);
+        stocks.add("AAPL", "Apple Inc.", 187.44, 90_000, Sector.TECHNOLOGY);
+        MarketSnapshot snapshot = stocks.publish();
+        ByteBuffer frame = ByteBuffer.allocate(MarketDataProtocol.maxSnapshotSize(snapshot));
+        MarketDataProtocol.encodeSnapshot(snapshot, frame);
+        frame.flip();
+
+        MarketDataDecoder decoder = new MarketDataDecoder();
+        assertEquals(1, decoder.decode(frame));
+
+        assertMatches(snapshot, decoder);
+        assertEquals("CAFÉ", decoder.getSymbol(0));
+        assertEquals(5, MarketDataProtocol.encodedLength("CAFÉ"));
+        assertEquals(6, MarketDataProtocol.encodedLength("日本"));
+        assertEquals(6, MarketDataProtocol.encodedLength("\uD83D\uDCC8UP"));
+    }
+
+    @Test
+    void deltaFramesCarryOnlyChangedSymbols() {
+        StockStore stocks = MarketEngine.syntheticStocks(3000);
+        MarketSnapshot base = stocks.publish();
+        MarketDataDecoder decoder = decoded(base);
+
+        // Changes on both sides of a page boundary, up and down, and one write that
+        // leaves the value as it was.
+        stocks.setPriceCents(3, stocks.getPriceCents(3) + 25L * stocks.getTickSize(3));
+        stocks.setPriceCents(1023, stocks.getPriceCents(1023) - 3L * stocks.getTickSize(1023));
+        stocks.setVolume(1024, stocks.getVolume(1024) + 1_000);
+        stocks.setVolume(2999, stocks.getVolume(2999) / 2);
+        stocks.setVolume(5, stocks.getVolume(5));
+        MarketSnapshot next = stocks.publishChanges();
+
+        ByteBuffer frame = ByteBuffer.allocate(MarketDataProtocol.maxDeltaSize(next));
+        assertTrue(MarketDataProtocol.encodeDelta(base, next, frame));
+        frame.flip();
+        assertEquals(4, frame.getInt(MarketDataProtocol.HEADER_SIZE + 8));
+        assertEquals(1, decoder.decode(frame));
+
+        assertMatches(next, decoder);
+        assertEquals(1, decoder.getDeltaCount());
+    }
+
+    @Test
+    void unchangedSnapshotsEncodeNoDelta() {
+        StockStore stocks = MarketEngine.syntheticStocks(100);
+        MarketSnapshot base = stocks.publish();
+        stocks.setVolume(7, stocks.getVolume(7));
+        MarketSnapshot next = stocks.publishChanges();
+
+        ByteBuffer frame = ByteBuffer.allocate(MarketDataProtocol.maxDeltaSize(next));
+        assertFalse(MarketDataProtocol.encodeDelta(base, base, frame));
+        assertFalse(MarketDataProtocol.encodeDelta(base, next, frame));
+        assertEquals(0, frame.position());
+    }
+
+    @Test
+    void deltaAcrossMoreEpochsThanTheChangeLogHoldsStillMatches() {
+        StockStore stocks = MarketEngine.syntheticStocks(2500);
+        MarketSnapshot base = stocks.publish();
+        MarketDataDecoder decoder = decoded(base);
+        MarketSnapshot next = base;
+        for (int epoch = 0; epoch < ChangeLog.CAPACITY + 10; epoch++) {
+            int id = (epoch * 37) % 1200;
+            stocks.setPriceCents(id, stocks.getPriceCents(id) + (1L + epoch) * stocks.getTickSize(id));
+            next = stocks.publishChanges();
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(MarketDataProtocol.maxDeltaSize(next));
+        assertTrue(MarketDataProtocol.encodeDelta(base, next, frame));
+        frame.flip();
+        decoder.decode(frame);
+
+        assertMatches(next, decoder);
+        assertEquals(next.getEpoch(), decoder.getEpoch());
+    }
+
+    @Test
+    void partialFramesWaitForTheRest() {
+        StockStore stocks = MarketEngine.syntheticStocks(50);
+        MarketSnapshot snapshot = stocks.publish();
+        ByteBuffer frame = ByteBuffer.allocate(MarketDataProtocol.maxSnapshotSize(snapshot));
+        MarketDataProtocol.encodeSnapshot(snapshot, frame);
+        frame.flip();
+        int length = frame.limit();
+
+        MarketDataDecoder decoder = new MarketDataDecoder();
+        frame.limit(length / 2);
+        assertEquals(0, decoder.decode(frame));
+        assertEquals(0, frame.position());
+        frame.limit(length);
+        assertEquals(1, decoder.decode(frame));
+        assertMatches(snapshot, decoder);
+    }
+
+    private static MarketDataDecoder decoded(MarketSnapshot snapshot) {
+        ByteBuffer frame = ByteBuffer.allocate(MarketDataProtocol.maxSnapshotSize(snapshot));
+        MarketDataProtocol.encodeSnapshot(snapshot, frame);
+        frame.flip();
+        MarketDataDecoder decoder = new MarketDataDecoder();
+        decoder.decode(frame);
+        return decoder;
+    }
+
+    private static void assertMatches(MarketSnapshot expected, MarketDataDecoder actual) {
+        assertEquals(expected.getEpoch(), actual.getEpoch());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getSymbol(i), actual.getSymbol(i));
+            assertEquals(expected.getPriceCents(i), actual.getPriceCents(i), "price of " + i);
+            assertEquals(expected.getVolume(i), actual.getVolume(i), "volume of " + i);
+        }
+    }
+}
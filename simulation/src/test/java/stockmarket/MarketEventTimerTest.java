@@ -0,0 +1,80 @@
+package stockmarket;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketEventTimerTest {
+    private final VirtualTimeMarketScheduler scheduler = new VirtualTimeMarketScheduler(0);
+    private final MarketEngine engine = new MarketEngine(MarketEngine.defaultStocks(), scheduler, 7);
+
+    @BeforeAll
+    static void quiet() {
+        MarketLog.setLevel(MarketLog.Level.OFF);
+    }
+
+    @AfterAll
+    static void restore() {
+        MarketLog.setLevel(MarketLog.Level.INFO);
+    }
+
+    @AfterEach
+    void shutdown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void bundledCalendarsMoveEverySymbol() throws IOException {
+        // The default universe is all technology, so a narrower target would change nothing.
+        for (String name : new String[] {"-", "poisson"}) {
+            EventCalendar calendar = EventCalendar.named(name, engine.getStocks());
+            assertEquals(5, calendar.size());
+            for (int i = 0; i < calendar.size(); i++) {
+                assertEquals(Sector.ALL, calendar.get(i).getSectorMask(), calendar.get(i).getName());
+            }
+        }
+    }
+
+    @Test
+    void defaultCalendarFiresEveryTwentySecondsThenFinishes() {
+        MarketEventTimer timer = engine.getEventTimer();
+        timer.start();
+        scheduler.advance(0, TimeUnit.SECONDS);
+        assertEquals(20, timer.getSecondsToNextEvent());
+
+        scheduler.advance(20, TimeUnit.SECONDS);
+        assertEquals(1, timer.getFiredEvents());
+        assertEquals(4, timer.getPendingEvents());
+
+        scheduler.advance(80, TimeUnit.SECONDS);
+        assertEquals(5, timer.getFiredEvents());
+        assertFalse(timer.isRunning());
+    }
+
+    @Test
+    void restartingRunsOnlyTheNewSession() {
+        MarketEventTimer timer = engine.getEventTimer();
+        timer.start();
+        scheduler.advance(30, TimeUnit.SECONDS);
+        timer.stop();
+        timer.start();
+        assertTrue(timer.isRunning());
+
+        // The first session's 40s deadline passes without firing; the new one starts over.
+        scheduler.advance(15, TimeUnit.SECONDS);
+        assertEquals(1, timer.getFiredEvents());
+        scheduler.advance(5, TimeUnit.SECONDS);
+        assertEquals(2, timer.getFiredEvents());
+        scheduler.advance(80, TimeUnit.SECONDS);
+        assertEquals(6, timer.getFiredEvents());
+        assertFalse(timer.isRunning());
+    }
+}
@@ -0,0 +1,202 @@
+package stockmarket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketLogTest {
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private OutputStream original;
+
+    @BeforeEach
+    void capture() {
+        original = MarketLog.getTarget();
+    }
+
+    @AfterEach
+    void restore() {
+        MarketLog.configure(MarketLog.Level.INFO, MarketLog.Detail.PER_SYMBOL, MarketLog.Format.TEXT, original);
+    }
+
+    @Test
+    void recordsBelowTheLevelAreNotWritten() {
+        MarketLog.configure(MarketLog.Level.WARN, MarketLog.Detail.PER_SYMBOL, MarketLog.Format.TEXT, buffer);
+        assertFalse(MarketLog.isEnabled(MarketLog.Level.INFO));
+        assertTrue(MarketLog.isEnabled(MarketLog.Level.ERROR));
+        assertFalse(MarketLog.isSymbolDetail());
+
+        MarketLog.info("quiet info");
+        MarketLog.priceUpdate(0, "AAA", 10, 0.01);
+        MarketLog.warn("loud warning");
+        MarketLog.error("loud error");
+        MarketLog.flush();
+
+        String text = buffer.toString(StandardCharsets.UTF_8);
+        assertFalse(text.contains("quiet info"), text);
+        assertFalse(text.contains("AAA"), text);
+        assertTrue(text.contains("WARN  loud warning"), text);
+        assertTrue(text.contains("ERROR loud error"), text);
+    }
+
+    @Test
+    void aFullRingDropsAndCountsRecordsWithoutBlocking() throws InterruptedException {
+        // The writer blocks on its first write, so the ring fills behind it.
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OutputStream stalled = new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                buffer.write(bytes, offset, length);
+            }
+        };
+        MarketLog.configure(MarketLog.Level.WARN, MarketLog.Detail.PER_SYMBOL, MarketLog.Format.TEXT, stalled);
+        MarketLog.warn("first");
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+
+        long before = MarketLog.getDroppedCount();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int i = 0; i < MarketLog.CAPACITY + 25; i++) {
+                MarketLog.warn("record " + i);
+            }
+        });
+        assertEquals(25, MarketLog.getDroppedCount() - before);
+
+        release.countDown();
+        MarketLog.flush();
+        String text = buffer.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("record " + (MarketLog.CAPACITY - 1) + "\n"), "the last record that fit");
+        assertFalse(text.contains("record " + MarketLog.CAPACITY + "\n"), "the first dropped record");
+    }
+
+    @Test
+    void anIdleWriterParksAndWakesForTheNextRecord() {
+        MarketLog.configure(MarketLog.Level.INFO, MarketLog.Detail.PER_SYMBOL, MarketLog.Format.TEXT, buffer);
+        MarketLog.flush();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (MarketLog.writerThread.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+        });
+
+        MarketLog.info("wake up");
+        assertTimeoutPreemptively(Duration.ofSeconds(10), MarketLog::flush);
+        assertTrue(buffer.toString(StandardCharsets.UTF_8).contains("INFO  wake up"));
+    }
+
+    @Test
+    void flushWaitsOnlyForRecordsLoggedBeforeIt() throws InterruptedException {
+        // A slow target and several producers keep the ring from ever running empty.
+        OutputStream slow = new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                LockSupport.parkNanos(1_000_000);
+            }
+        };
+        MarketLog.configure(MarketLog.Level.INFO, MarketLog.Detail.PER_SYMBOL, MarketLog.Format.TEXT, slow);
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            producers[p] = new Thread(() -> {
+                while (!stop.get()) {
+                    MarketLog.info("busy");
+                }
+            });
+            producers[p].start();
+        }
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                for (int i = 0; i < 5; i++) {
+                    MarketLog.flush();
+                }
+            });
+        } finally {
+            stop.set(true);
+            for (Thread producer : producers) {
+                producer.join();
+            }
+        }
+        ByteArrayOutputStream flushedTo = new ByteArrayOutputStream();
+        MarketLog.configure(MarketLog.Level.INFO, MarketLog.Detail.PER_SYMBOL, MarketLog.Format.TEXT, flushedTo);
+        MarketLog.info("last");
+        MarketLog.flush();
+        assertTrue(flushedTo.toString(StandardCharsets.UTF_8).contains("INFO  last"));
+    }
+
+    @Test
+    void binaryRecordsHaveAFixedHeadAndMessagesFollowIt() throws IOException {
+        MarketLog.configure(MarketLog.Level.INFO, MarketLog.Detail.PER_SYMBOL, MarketLog.Format.BINARY, buffer);
+        long start = System.currentTimeMillis();
+        MarketLog.volumeChange(7, "AAA", 100, 250);
+        MarketLog.priceImpact(8, "BBB", 10.5, 10.75);
+        MarketLog.warn("café");
+        MarketLog.flush();
+
+        byte[] bytes = buffer.toByteArray();
+        assertEquals(48 + 48 + 48 + 5, bytes.length);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+        assertHead(in, start, MarketLog.Level.INFO, MarketLog.VOLUME_CHANGE, 7);
+        assertEquals(100, in.readLong());
+        assertEquals(250, in.readLong());
+        assertEquals(0, in.readDouble());
+        assertEquals(0, in.readDouble());
+
+        assertHead(in, start, MarketLog.Level.INFO, MarketLog.PRICE_IMPACT, 8);
+        assertEquals(0, in.readLong());
+        assertEquals(0, in.readLong());
+        assertEquals(10.5, in.readDouble());
+        assertEquals(10.75, in.readDouble());
+
+        assertHead(in, start, MarketLog.Level.WARN, MarketLog.MESSAGE, -1);
+        assertEquals(5, in.readLong());
+        assertEquals(0, in.readLong());
+        assertEquals(0, in.readDouble());
+        assertEquals(0, in.readDouble());
+        byte[] text = new byte[5];
+        in.readFully(text);
+        assertEquals("café", new String(text, StandardCharsets.UTF_8));
+    }
+
+    private static void assertHead(DataInputStream in, long start, MarketLog.Level level, int kind, int symbol)
+            throws IOException {
+        long time = in.readLong();
+        assertTrue(time >= start && time <= System.currentTimeMillis(), "time " + time);
+        assertEquals(level.ordinal(), in.readByte());
+        assertEquals(kind, in.readByte());
+        assertEquals(0, in.readShort());
+        assertEquals(symbol, in.readInt());
+    }
+}
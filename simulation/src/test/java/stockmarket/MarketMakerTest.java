@@ -0,0 +1,54 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketMakerTest {
+    @Test
+    void bidsRoundDownAndAsksRoundUpOntoTheGrid() {
+        assertEquals(9_990, MarketMaker.bidPrice(10_000, 1, 1));
+        assertEquals(10_010, MarketMaker.askPrice(10_000, 1, 1));
+        // 9994.995 and 10015.005 on an odd tick.
+        assertEquals(9_990, MarketMaker.bidPrice(10_005, 5, 1));
+        assertEquals(10_020, MarketMaker.askPrice(10_005, 5, 1));
+        // 9970 and 10030 on an even tick.
+        assertEquals(9_950, MarketMaker.bidPrice(10_000, 25, 3));
+        assertEquals(10_050, MarketMaker.askPrice(10_000, 25, 3));
+        // Levels already on the grid stay where they are.
+        assertEquals(9_990, MarketMaker.bidPrice(10_000, 10, 1));
+        assertEquals(10_010, MarketMaker.askPrice(10_000, 10, 1));
+    }
+
+    @Test
+    void bidsNeverFallBelowOneTick() {
+        assertEquals(5, MarketMaker.bidPrice(5, 5, MarketMaker.LEVELS));
+        assertEquals(10, MarketMaker.askPrice(5, 5, MarketMaker.LEVELS));
+        assertEquals(1, MarketMaker.bidPrice(1, 1, MarketMaker.LEVELS));
+    }
+
+    @Test
+    void everyLevelIsWithinATickOfItsExactPrice() {
+        for (int tick : new int[] {1, 2, 5, 10, 25}) {
+            for (long cents = 50 * tick; cents < 10_000; cents += 997) {
+                long priorBid = Long.MAX_VALUE;
+                long priorAsk = 0;
+                for (int level = 1; level <= MarketMaker.LEVELS; level++) {
+                    double offset = level * MarketMaker.LEVEL_STEP_BASIS_POINTS / 10_000.0;
+                    long bid = MarketMaker.bidPrice(cents, tick, level);
+                    long ask = MarketMaker.askPrice(cents, tick, level);
+                    String where = cents + " cents, tick " + tick + ", level " + level;
+
+                    assertEquals(0, bid % tick, where);
+                    assertEquals(0, ask % tick, where);
+                    assertTrue(bid <= cents * (1 - offset) + 1e-9 && bid > cents * (1 - offset) - tick, where);
+                    assertTrue(ask >= cents * (1 + offset) - 1e-9 && ask < cents * (1 + offset) + tick, where);
+                    assertTrue(bid <= priorBid && ask >= priorAsk, where);
+                    priorBid = bid;
+                    priorAsk = ask;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketSnapshotTest {
+    @Test
+    void publishedSnapshotsDoNotSeeLaterWrites() {
+        StockStore stocks = MarketEngine.syntheticStocks(3000);
+        MarketSnapshot first = stocks.publish();
+        long price = first.getPriceCents(10);
+        int volume = first.getVolume(2500);
+
+        stocks.setPriceCents(10, price + 100L * stocks.getTickSize(10));
+        stocks.setVolume(2500, volume + 1);
+        MarketSnapshot second = stocks.publishChanges();
+
+        assertEquals(price, first.getPriceCents(10));
+        assertEquals(volume, first.getVolume(2500));
+        assertEquals(stocks.getPriceCents(10), second.getPriceCents(10));
+        assertEquals(volume + 1, second.getVolume(2500));
+        assertEquals(first.getEpoch() + 1, second.getEpoch());
+        assertSame(stocks.snapshot(), second);
+    }
+
+    @Test
+    void onlyDirtiedPagesAreCopied() {
+        StockStore stocks = MarketEngine.syntheticStocks(4 * MarketSnapshot.PAGE_SIZE);
+        MarketSnapshot before = stocks.publish();
+
+        stocks.setVolume(MarketSnapshot.PAGE_SIZE + 5, 1);
+        MarketSnapshot after = stocks.publishChanges();
+
+        assertTrue(after.sharesPage(before, 0));
+        assertFalse(after.sharesPage(before, 1));
+        assertTrue(after.sharesPage(before, 2));
+        assertTrue(after.sharesPage(before, 3));
+        assertEquals(1, after.getChangedCount());
+    }
+
+    @Test
+    void unmarkedRawColumnWritesWaitForAMark() {
+        StockStore stocks = MarketEngine.syntheticStocks(100);
+        MarketSnapshot before = stocks.publish();
+        long[] prices = stocks.prices();
+
+        prices[7] += stocks.getTickSize(7);
+        MarketSnapshot unmarked = stocks.publishChanges();
+        stocks.markPrice(7);
+        MarketSnapshot marked = stocks.publishChanges();
+
+        assertEquals(before.getPriceCents(7), unmarked.getPriceCents(7));
+        assertEquals(0, unmarked.getChangedCount());
+        assertEquals(prices[7], marked.getPriceCents(7));
+        assertEquals(1, marked.getChangedCount());
+    }
+
+    @Test
+    void listingASymbolRepublishesEverything() {
+        StockStore stocks = MarketEngine.syntheticStocks(10);
+        stocks.publish();
+        stocks.add("NEW", "New listing", 12.5);
+
+        MarketSnapshot snapshot = stocks.publishChanges();
+
+        assertEquals(11, snapshot.size());
+        assertEquals("NEW", snapshot.getSymbol(10));
+        assertEquals(1_250, snapshot.getPriceCents(10));
+        assertNull(snapshot.changed());
+        assertEquals(11, snapshot.getChangedCount());
+    }
+
+    @Test
+    void readersNeverSeeAHalfPublishedEpoch() throws InterruptedException {
+        int symbols = 5 * MarketSnapshot.PAGE_SIZE;
+        StockStore stocks = MarketEngine.syntheticStocks(symbols);
+        for (int id = 0; id < symbols; id++) {
+            stocks.setVolume(id, 0);
+        }
+        stocks.publish();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[3];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                while (!done.get() && failure.get() == null) {
+                    MarketSnapshot snapshot = stocks.snapshot();
+                    int expected = snapshot.getVolume(0);
+                    for (int id = 1; id < snapshot.size(); id++) {
+                        if (snapshot.getVolume(id) != expected) {
+                            failure.set("epoch " + snapshot.getEpoch() + " mixes volumes " + expected + " and "
+                                        + snapshot.getVolume(id));
+                            return;
+                        }
+                    }
+                }
+            });
+            readers[r].start();
+        }
+
+        // Every epoch sets each volume to the same value, so any mix is a torn read.
+        for (int epoch = 1; epoch <= 2_000; epoch++) {
+            for (int id = 0; id < symbols; id++) {
+                stocks.setVolume(id, epoch);
+            }
+            stocks.publishChanges();
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(2_000, stocks.snapshot().getVolume(symbols - 1));
+    }
+}
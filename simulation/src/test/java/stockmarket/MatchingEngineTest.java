@@ -0,0 +1,153 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchingEngineTest {
+    private static final int PRODUCERS = 4;
+    private static final int ORDERS_PER_PRODUCER = 50_000;
+
+    @Test
+    void parkedConsumerReceivesEveryOfferInProducerOrder() {
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            MatchingEngine.OrderQueue queue = new MatchingEngine.OrderQueue(1 << 10);
+            long[] lastSeen = new long[PRODUCERS];
+            long[] received = new long[1];
+            Thread consumer = new Thread(() -> {
+                MatchingEngine.OrderQueue.Cursor order = queue.cursor();
+                while (received[0] < (long) PRODUCERS * ORDERS_PER_PRODUCER) {
+                    if (!queue.poll(order)) {
+                        queue.awaitOffer();
+                        continue;
+                    }
+                    // Order ids count up per producer, and the owner says which producer.
+                    if (order.orderId != lastSeen[order.owner] + 1) {
+                        throw new AssertionError("producer " + order.owner + " sent " + order.orderId
+                                                 + " after " + lastSeen[order.owner]);
+                    }
+                    lastSeen[order.owner] = order.orderId;
+                    received[0]++;
+                }
+            }, "consumer");
+            queue.consumer = consumer;
+            consumer.start();
+
+            Thread[] producers = new Thread[PRODUCERS];
+            for (int p = 0; p < PRODUCERS; p++) {
+                int owner = p;
+                producers[p] = new Thread(() -> {
+                    Random random = new Random(owner);
+                    for (long id = 1; id <= ORDERS_PER_PRODUCER; id++) {
+                        while (!queue.offer(0, owner, id, owner, true, id, 1, true)) {
+                            Thread.onSpinWait();
+                        }
+                        // Pauses long enough for the consumer to run dry and park.
+                        if (random.nextInt(2_000) == 0) {
+                            LockSupport.parkNanos(200_000);
+                        }
+                    }
+                });
+                producers[p].start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            consumer.join();
+
+            for (int p = 0; p < PRODUCERS; p++) {
+                assertEquals(ORDERS_PER_PRODUCER, lastSeen[p]);
+            }
+            assertEquals((long) PRODUCERS * ORDERS_PER_PRODUCER, queue.submitted());
+        });
+    }
+
+    @Test
+    void fullQueueRefusesOffersUntilPolled() {
+        MatchingEngine.OrderQueue queue = new MatchingEngine.OrderQueue(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(0, 0, i, 0, true, 100, 1, true));
+        }
+        assertFalse(queue.offer(0, 0, 4, 0, true, 100, 1, true));
+
+        MatchingEngine.OrderQueue.Cursor order = queue.cursor();
+        assertTrue(queue.poll(order));
+        assertEquals(0, order.orderId);
+        assertTrue(queue.offer(0, 0, 4, 0, true, 100, 1, true));
+    }
+
+    @Test
+    void shardedEngineMatchesLikeTheInlineOne() {
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            MatchingEngine sharded = new MatchingEngine(64, 3);
+            MatchingEngine inline = new MatchingEngine(64, 0);
+            try {
+                Random random = new Random(9);
+                for (int i = 0; i < 20_000; i++) {
+                    int symbol = random.nextInt(64);
+                    boolean buy = random.nextBoolean();
+                    long price = 10_000 + random.nextInt(21) - 10;
+                    long quantity = 1 + random.nextInt(100);
+                    boolean rest = random.nextInt(4) != 0;
+                    sharded.submitWaiting(symbol, i, MatchingEngine.OWNER_USER, buy, price, quantity, rest);
+                    inline.submit(symbol, i, MatchingEngine.OWNER_USER, buy, price, quantity, rest);
+                    // Let the shards go idle now and then, so they park and are woken again.
+                    if (random.nextInt(5_000) == 0) {
+                        LockSupport.parkNanos(2_000_000);
+                    }
+                }
+                sharded.awaitIdle();
+
+                List<long[]> expected = fillsBySymbol(inline);
+                List<long[]> actual = fillsBySymbol(sharded);
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertArrayEquals(expected.get(i), actual.get(i));
+                }
+                for (int symbol = 0; symbol < 64; symbol++) {
+                    assertEquals(inline.book(symbol).getRestingOrders(), sharded.book(symbol).getRestingOrders());
+                }
+            } finally {
+                sharded.shutdown();
+            }
+        });
+    }
+
+    @Test
+    void idleShardsParkInsteadOfPolling() throws InterruptedException {
+        MatchingEngine engine = new MatchingEngine(8, 2);
+        try {
+            engine.submitWaiting(0, 1, MatchingEngine.OWNER_USER, true, 100, 1, true);
+            engine.awaitIdle();
+            Thread.sleep(100);
+
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().startsWith("MatchingShard-")) {
+                    assertEquals(Thread.State.WAITING, thread.getState(), thread.getName());
+                }
+            }
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    // Shards interleave symbols, so fills only keep their order within a symbol.
+    private static List<long[]> fillsBySymbol(MatchingEngine engine) {
+        List<long[]> fills = new ArrayList<>();
+        engine.drainFills((symbol, price, quantity, takerId, takerOwner, makerId, makerOwner, takerBuy) ->
+                fills.add(new long[] {symbol, price, quantity, takerId, makerId}));
+        List<long[]> sorted = new ArrayList<>(fills);
+        sorted.sort((a, b) -> Long.compare(a[0], b[0]));
+        return sorted;
+    }
+}
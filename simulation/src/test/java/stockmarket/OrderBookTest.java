@@ -0,0 +1,155 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderBookTest {
+    // One fill as the book reported it: price, quantity, taker id, maker id, taker side.
+    private static final class Fills implements OrderBook.FillSink {
+        final List<long[]> fills = new ArrayList<>();
+
+        @Override
+        public void onFill(int symbol, long price, long quantity, long takerId, int takerOwner,
+                           long makerId, int makerOwner, boolean takerBuy) {
+            fills.add(new long[] {price, quantity, takerId, makerId, takerBuy ? 1 : 0});
+        }
+
+        long[] get(int index) {
+            return fills.get(index);
+        }
+
+        int size() {
+            return fills.size();
+        }
+    }
+
+    @Test
+    void nonCrossingOrdersRestAtTheirLevels() {
+        OrderBook book = new OrderBook(7);
+        Fills fills = new Fills();
+
+        assertEquals(100, book.submit(1, 0, true, 9_900, 100, true, fills));
+        assertEquals(50, book.submit(2, 0, true, 9_950, 50, true, fills));
+        assertEquals(70, book.submit(3, 0, false, 10_050, 70, true, fills));
+        assertEquals(30, book.submit(4, 0, false, 10_000, 30, true, fills));
+
+        assertEquals(0, fills.size());
+        assertEquals(9_950, book.bestBid());
+        assertEquals(10_000, book.bestAsk());
+        assertEquals(2, book.bidLevels());
+        assertEquals(2, book.askLevels());
+        assertEquals(50, book.bidQuantityAt(0));
+        assertEquals(100, book.bidQuantityAt(1));
+        assertEquals(30, book.askQuantityAt(0));
+        assertEquals(70, book.askQuantityAt(1));
+        assertEquals(0, book.askQuantityAt(2));
+        assertEquals(4, book.getRestingOrders());
+    }
+
+    @Test
+    void crossingOrderTakesBestPricesFirstAndOlderOrdersWithinALevel() {
+        OrderBook book = new OrderBook(0);
+        Fills fills = new Fills();
+        book.submit(1, 0, false, 10_010, 40, true, fills);
+        book.submit(2, 0, false, 10_000, 20, true, fills);
+        book.submit(3, 0, false, 10_000, 30, true, fills);
+
+        long unfilled = book.submit(4, 1, true, 10_010, 70, true, fills);
+
+        assertEquals(0, unfilled);
+        assertEquals(3, fills.size());
+        assertFill(fills.get(0), 10_000, 20, 4, 2);
+        assertFill(fills.get(1), 10_000, 30, 4, 3);
+        assertFill(fills.get(2), 10_010, 20, 4, 1);
+        assertEquals(1, fills.get(0)[4]);
+        assertEquals(10_010, book.bestAsk());
+        assertEquals(20, book.askQuantityAt(0));
+        assertEquals(0, book.bidLevels());
+        assertEquals(1, book.getRestingOrders());
+    }
+
+    @Test
+    void limitPriceStopsMatchingAndTheRestRests() {
+        OrderBook book = new OrderBook(0);
+        Fills fills = new Fills();
+        book.submit(1, 0, false, 10_000, 10, true, fills);
+        book.submit(2, 0, false, 10_020, 10, true, fills);
+
+        long unfilled = book.submit(3, 1, true, 10_010, 25, true, fills);
+
+        assertEquals(15, unfilled);
+        assertEquals(1, fills.size());
+        assertFill(fills.get(0), 10_000, 10, 3, 1);
+        assertEquals(10_010, book.bestBid());
+        assertEquals(15, book.bidQuantityAt(0));
+        assertEquals(10_020, book.bestAsk());
+    }
+
+    @Test
+    void immediateOrderDiscardsWhatDoesNotFill() {
+        OrderBook book = new OrderBook(0);
+        Fills fills = new Fills();
+        book.submit(1, 0, true, 10_000, 10, true, fills);
+
+        long unfilled = book.submit(2, 1, false, 9_000, 25, false, fills);
+
+        assertEquals(15, unfilled);
+        assertFill(fills.get(0), 10_000, 10, 2, 1);
+        assertEquals(0, fills.get(0)[4]);
+        assertEquals(0, book.bidLevels());
+        assertEquals(0, book.askLevels());
+        assertEquals(0, book.getRestingOrders());
+    }
+
+    @Test
+    void cancelOwnerRemovesOnlyThatOwnersOrdersAndKeepsQueueOrder() {
+        OrderBook book = new OrderBook(0);
+        Fills fills = new Fills();
+        book.submit(1, 5, false, 10_000, 10, true, fills);
+        book.submit(2, 6, false, 10_000, 20, true, fills);
+        book.submit(3, 5, false, 10_000, 30, true, fills);
+        book.submit(4, 5, false, 10_010, 40, true, fills);
+        book.submit(5, 6, true, 9_990, 50, true, fills);
+
+        book.cancelOwner(5);
+
+        assertEquals(1, book.askLevels());
+        assertEquals(10_000, book.bestAsk());
+        assertEquals(20, book.askQuantityAt(0));
+        assertEquals(50, book.bidQuantityAt(0));
+        assertEquals(2, book.getRestingOrders());
+        book.submit(6, 7, true, 10_000, 20, true, fills);
+        assertFill(fills.get(0), 10_000, 20, 6, 2);
+        assertEquals(0, book.askLevels());
+    }
+
+    @Test
+    void manyLevelsAndOrdersGrowTheBookAndDrainInPriceOrder() {
+        OrderBook book = new OrderBook(0);
+        Fills fills = new Fills();
+        for (int i = 0; i < 200; i++) {
+            book.submit(i, 0, false, 10_000 + (i * 37) % 100, 1, true, fills);
+        }
+        assertEquals(100, book.askLevels());
+        assertEquals(200, book.getRestingOrders());
+
+        assertEquals(0, book.submit(1_000, 1, true, 20_000, 200, true, fills));
+        assertEquals(200, fills.size());
+        for (int i = 1; i < fills.size(); i++) {
+            assertTrue(fills.get(i)[0] >= fills.get(i - 1)[0], "fills must walk up the asks");
+        }
+        assertEquals(0, book.getRestingOrders());
+    }
+
+    private static void assertFill(long[] fill, long price, long quantity, long takerId, long makerId) {
+        assertEquals(price, fill[0], "price");
+        assertEquals(quantity, fill[1], "quantity");
+        assertEquals(takerId, fill[2], "taker");
+        assertEquals(makerId, fill[3], "maker");
+    }
+}
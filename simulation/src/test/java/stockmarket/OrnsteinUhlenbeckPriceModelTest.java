@@ -0,0 +1,75 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrnsteinUhlenbeckPriceModelTest {
+    private static final int SYMBOLS = 1_000;
+
+    @Test
+    void displacedPricesDecayTowardsTheirBase() {
+        double reversion = 0.05;
+        StockStore stocks = displaced(0.01);
+        PriceUpdateEngine engine = new SerialPriceUpdateEngine(31, new OrnsteinUhlenbeckPriceModel(reversion));
+        int ticks = 20;
+        for (int tick = 0; tick < ticks; tick++) {
+            engine.update(stocks);
+        }
+
+        // The log distance from the base shrinks by (1 - theta) a tick, on average.
+        double expected = Math.log(2) * Math.pow(1 - reversion, ticks);
+        double[] above = distances(stocks, 0);
+        double[] below = distances(stocks, 1);
+        assertEquals(expected, GbmPriceModelTest.mean(above), 0.005);
+        assertEquals(-expected, GbmPriceModelTest.mean(below), 0.005);
+    }
+
+    @Test
+    void pricesSettleAroundTheBaseWithTheStationarySpread() {
+        double reversion = 0.05;
+        double sigma = 0.01;
+        StockStore stocks = displaced(sigma);
+        PriceUpdateEngine engine = new SerialPriceUpdateEngine(31, new OrnsteinUhlenbeckPriceModel(reversion));
+        for (int tick = 0; tick < 400; tick++) {
+            engine.update(stocks);
+        }
+
+        double[] all = new double[SYMBOLS];
+        for (int id = 0; id < SYMBOLS; id++) {
+            all[id] = Math.log(stocks.getPrice(id) / stocks.getBasePrice(id));
+        }
+        assertEquals(0, GbmPriceModelTest.mean(all), 0.003);
+        assertEquals(sigma / Math.sqrt(1 - (1 - reversion) * (1 - reversion)), GbmPriceModelTest.deviation(all), 0.003);
+    }
+
+    @Test
+    void noReversionLeavesAPureRandomWalk() {
+        StockStore stocks = displaced(0);
+        new SerialPriceUpdateEngine(31, new OrnsteinUhlenbeckPriceModel(0)).update(stocks);
+
+        assertEquals(2_000.00, stocks.getPrice(0));
+        assertEquals(500.00, stocks.getPrice(1));
+        assertThrows(IllegalArgumentException.class, () -> new OrnsteinUhlenbeckPriceModel(-0.1));
+        assertThrows(IllegalArgumentException.class, () -> new OrnsteinUhlenbeckPriceModel(1.1));
+    }
+
+    // Every symbol listed at 1000.00; even ones now trade at twice that, odd ones at half.
+    private static StockStore displaced(double volatility) {
+        StockStore stocks = GbmPriceModelTest.market(SYMBOLS, 0, volatility);
+        for (int id = 0; id < SYMBOLS; id++) {
+            stocks.setPrice(id, id % 2 == 0 ? 2_000.00 : 500.00);
+        }
+        return stocks;
+    }
+
+    private static double[] distances(StockStore stocks, int parity) {
+        double[] distances = new double[SYMBOLS / 2];
+        for (int i = 0; i < distances.length; i++) {
+            int id = 2 * i + parity;
+            distances[i] = Math.log(stocks.getPrice(id) / stocks.getBasePrice(id));
+        }
+        return distances;
+    }
+}
@@ -0,0 +1,87 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PriceFormatTest {
+    private static final double[] EDGES = {
+        0, 0.001, 0.005, 0.015, 0.125, 0.5, 1, 1.005, 1.015, 2.675, 9.995, 99.995, 187.44, 1234.5,
+        999_999.995, 1e9 + 0.5, 123_456_789.123
+    };
+
+    private final char[] buf = new char[PriceFormat.BUFFER_SIZE];
+
+    @Test
+    void pricesMatchStringFormat() {
+        for (double value : values()) {
+            if (Double.doubleToRawLongBits(value) < 0) continue;
+            assertEquals("$" + format("%.2f", value), text(PriceFormat.formatPrice(value, buf)), "price " + value);
+        }
+    }
+
+    @Test
+    void negativePricesPutTheSignFirst() {
+        assertEquals("-$3.50", text(PriceFormat.formatPrice(-3.5, buf)));
+        assertEquals("-$0.00", text(PriceFormat.formatPrice(-0.001, buf)));
+    }
+
+    @Test
+    void decimalsMatchStringFormat() {
+        for (double value : values()) {
+            for (int decimals = 0; decimals <= 4; decimals++) {
+                assertEquals(format("%." + decimals + "f", value), text(PriceFormat.formatDecimal(value, decimals, buf)),
+                             decimals + " decimals of " + value);
+            }
+        }
+    }
+
+    @Test
+    void percentsMatchStringFormat() {
+        for (double value : values()) {
+            double fraction = value / 1000;
+            assertEquals(format("%.2f%%", fraction * 100), text(PriceFormat.formatPercent(fraction, 2, buf)),
+                         "percent " + fraction);
+        }
+    }
+
+    @Test
+    void groupedNumbersMatchStringFormat() {
+        long[] values = {0, 7, 999, 1_000, -1_000, 12_345, 1_234_567, -98_765_432, Integer.MAX_VALUE,
+                         Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            assertEquals(format("%,d", value), text(PriceFormat.formatGrouped(value, buf)), "grouped " + value);
+        }
+        Random random = new Random(5);
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextLong() >> random.nextInt(64);
+            assertEquals(format("%,d", value), text(PriceFormat.formatGrouped(value, buf)), "grouped " + value);
+        }
+    }
+
+    // The edge cases, their negatives and random prices across the range a market shows.
+    private static double[] values() {
+        Random random = new Random(3);
+        double[] values = new double[2 * EDGES.length + 20_000];
+        int count = 0;
+        for (double edge : EDGES) {
+            values[count++] = edge;
+            values[count++] = -edge;
+        }
+        while (count < values.length) {
+            values[count++] = (random.nextDouble() - 0.2) * Math.pow(10, random.nextInt(7));
+        }
+        return values;
+    }
+
+    private static String format(String pattern, Object value) {
+        return String.format(Locale.ENGLISH, pattern, value);
+    }
+
+    private String text(int start) {
+        return new String(buf, start, buf.length - start);
+    }
+}
@@ -0,0 +1,77 @@
+package stockmarket;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class PriceUpdateEngineTest {
+    // More symbols than a few chunks, with a short last chunk.
+    private static final int SYMBOLS = 5 * PriceUpdateEngine.CHUNK_SIZE + 123;
+    private static final int TICKS = 20;
+
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterAll
+    static void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void forkJoinAndSerialEnginesGiveTheSameMarket() {
+        for (String model : new String[] {"gbm", "ou", "jump", "correlated"}) {
+            StockStore serial = run(new SerialPriceUpdateEngine(42, PriceModel.named(model)), SYMBOLS);
+            StockStore parallel = run(new ForkJoinPriceUpdateEngine(pool, 42, PriceModel.named(model)), SYMBOLS);
+
+            assertArrayEquals(serial.prices(), parallel.prices(), model);
+            assertArrayEquals(serial.changes(), parallel.changes(), model);
+        }
+    }
+
+    @Test
+    void smallMarketsTakeTheSerialPathWithTheSameResult() {
+        StockStore serial = run(new SerialPriceUpdateEngine(7), 100);
+        StockStore parallel = run(new ForkJoinPriceUpdateEngine(pool, 7), 100);
+
+        assertArrayEquals(serial.prices(), parallel.prices());
+    }
+
+    @Test
+    void theSeedDecidesThePath() {
+        StockStore first = run(new ForkJoinPriceUpdateEngine(pool, 1), SYMBOLS);
+        StockStore again = run(new ForkJoinPriceUpdateEngine(pool, 1), SYMBOLS);
+        StockStore other = run(new ForkJoinPriceUpdateEngine(pool, 2), SYMBOLS);
+
+        assertArrayEquals(first.prices(), again.prices());
+        assertFalse(Arrays.equals(first.prices(), other.prices()));
+    }
+
+    @Test
+    void everyChunkMarksItsPricesForPublishing() {
+        StockStore stocks = MarketEngine.syntheticStocks(SYMBOLS);
+        MarketSnapshot before = stocks.publish();
+        new ForkJoinPriceUpdateEngine(pool, 3).update(stocks);
+
+        MarketSnapshot after = stocks.publishChanges();
+
+        int moved = 0;
+        for (int id = 0; id < SYMBOLS; id++) {
+            assertEquals(stocks.getPriceCents(id), after.getPriceCents(id));
+            if (before.getPriceCents(id) != after.getPriceCents(id)) moved++;
+        }
+        assertEquals(moved, after.getChangedCount());
+    }
+
+    private static StockStore run(PriceUpdateEngine engine, int symbols) {
+        StockStore stocks = MarketEngine.syntheticStocks(symbols);
+        for (int tick = 0; tick < TICKS; tick++) {
+            engine.update(stocks);
+        }
+        return stocks;
+    }
+}
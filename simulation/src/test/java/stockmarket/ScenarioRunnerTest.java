@@ -0,0 +1,71 @@
+package stockmarket;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScenarioRunnerTest {
+    private static final int SCENARIOS = 16;
+    private static final long SEED = 42;
+
+    // Two hours with a trade every five minutes, so most scenarios trade and hold positions.
+    private final ScenarioRunner runner = new ScenarioRunner(() -> MarketEngine.syntheticStocks(20), "jump", 7_200);
+
+    @BeforeAll
+    static void quiet() {
+        MarketLog.setLevel(MarketLog.Level.OFF);
+    }
+
+    @AfterAll
+    static void restore() {
+        MarketLog.setLevel(MarketLog.Level.INFO);
+    }
+
+    @Test
+    void resultsDoNotDependOnTheThreadCount() throws InterruptedException {
+        runner.setTradeInterval(300);
+        ScenarioReport serial = runner.run(SCENARIOS, SEED, 1);
+        ScenarioReport parallel = runner.run(SCENARIOS, SEED, 8);
+
+        assertEquals(SCENARIOS, serial.getScenarioCount());
+        assertEquals(20, serial.getSymbolCount());
+        for (int scenario = 0; scenario < SCENARIOS; scenario++) {
+            assertEquals(serial.getPnl(scenario), parallel.getPnl(scenario), 0, "P&L of " + scenario);
+        }
+        for (int symbol = 0; symbol < 20; symbol++) {
+            assertArrayEquals(serial.getReturns(symbol), parallel.getReturns(symbol), 0, "returns of " + symbol);
+        }
+        assertNotEquals(serial.getPnl(0), serial.getPnl(1));
+    }
+
+    @Test
+    void aScenarioReplaysAloneFromItsSeed() throws InterruptedException {
+        runner.setTradeInterval(300);
+        ScenarioReport report = runner.run(SCENARIOS, SEED, 4);
+
+        for (int scenario : new int[] {0, 5, SCENARIOS - 1}) {
+            long seed = ScenarioRunner.scenarioSeed(SEED, scenario);
+            ScenarioResult replay = runner.runScenario(seed);
+            assertEquals(seed, replay.getSeed());
+            assertTrue(replay.getTrades() > 0);
+            assertEquals(report.getPnl(scenario), replay.getPnl(), 0);
+            for (int symbol = 0; symbol < 20; symbol++) {
+                assertEquals(report.getReturn(scenario, symbol), replay.getReturns()[symbol], 0);
+            }
+        }
+    }
+
+    @Test
+    void runsTooLargeForOneReportFailBeforeStarting() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                                                      () -> runner.run(Integer.MAX_VALUE / 10, SEED, 1));
+        assertTrue(error.getMessage().contains("20 symbols"), error.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> runner.run(0, SEED, 1));
+    }
+}
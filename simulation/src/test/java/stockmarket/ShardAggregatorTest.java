@@ -0,0 +1,99 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ShardAggregatorTest {
+    @Test
+    void mergedShardFramesMatchTheUnshardedMarket() {
+        StockStore universe = MarketEngine.syntheticStocks(3_000);
+        universe.publish();
+        int[][] assignment = new SymbolPartitioner(4).assign(universe);
+        ShardAggregator aggregator = new ShardAggregator(universe, assignment);
+        StockStore[] shards = new StockStore[assignment.length];
+        MarketSnapshot[] reported = new MarketSnapshot[assignment.length];
+        for (int shard = 0; shard < shards.length; shard++) {
+            shards[shard] = universe.subset(assignment[shard]);
+            reported[shard] = shards[shard].publish();
+            aggregator.apply(shard, frame(reported[shard], null));
+        }
+        assertSameMarket(universe.publish(), aggregator.merge(1));
+
+        // The same moves made in the whole market and in the shards that own the symbols.
+        for (int step = 0; step < 3; step++) {
+            for (int shard = 0; shard < shards.length; shard++) {
+                StockStore stocks = shards[shard];
+                for (int i = step; i < stocks.size(); i += 7) {
+                    int id = assignment[shard][i];
+                    long price = stocks.getPriceCents(i) + (i % 5 - 2) * (long) stocks.getTickSize(i);
+                    int volume = stocks.getVolume(i) + 10 * step;
+                    stocks.setPriceCents(i, price);
+                    stocks.setVolume(i, volume);
+                    universe.setPriceCents(id, price);
+                    universe.setVolume(id, volume);
+                }
+                MarketSnapshot next = stocks.publishChanges();
+                aggregator.apply(shard, frame(next, reported[shard]));
+                reported[shard] = next;
+            }
+            assertSameMarket(universe.publishChanges(), aggregator.merge(2 + step));
+        }
+    }
+
+    @Test
+    void mergingWithoutChangesSharesTheColumns() {
+        StockStore universe = MarketEngine.syntheticStocks(100);
+        int[][] assignment = new SymbolPartitioner(2).assign(universe);
+        ShardAggregator aggregator = new ShardAggregator(universe, assignment);
+        for (int shard = 0; shard < 2; shard++) {
+            aggregator.apply(shard, frame(universe.subset(assignment[shard]).publish(), null));
+        }
+        MarketSnapshot first = aggregator.merge(1);
+        aggregator.apply(0, ByteBuffer.allocate(0));
+        MarketSnapshot second = aggregator.merge(2);
+
+        assertEquals(2, second.getEpoch());
+        assertSame(first.pricePages(), second.pricePages());
+        assertSame(first.volumePages(), second.volumePages());
+    }
+
+    @Test
+    void otherSymbolsAndMissingShardsAreRejected() {
+        StockStore universe = MarketEngine.syntheticStocks(200);
+        int[][] assignment = new SymbolPartitioner(2).assign(universe);
+        ShardAggregator aggregator = new ShardAggregator(universe, assignment);
+
+        assertThrows(IllegalStateException.class,
+                     () -> aggregator.apply(0, frame(universe.subset(assignment[1]).publish(), null)));
+        ShardAggregator partial = new ShardAggregator(universe, assignment);
+        partial.apply(1, frame(universe.subset(assignment[1]).publish(), null));
+        assertThrows(IllegalStateException.class, () -> partial.merge(1), "shard 0 has not reported");
+    }
+
+    // A snapshot frame when there is no base, else a delta from it.
+    private static ByteBuffer frame(MarketSnapshot snapshot, MarketSnapshot base) {
+        ByteBuffer frame = ByteBuffer.allocate(Math.max(MarketDataProtocol.maxSnapshotSize(snapshot),
+                                                        MarketDataProtocol.maxDeltaSize(snapshot)));
+        if (base == null) {
+            MarketDataProtocol.encodeSnapshot(snapshot, frame);
+        } else {
+            MarketDataProtocol.encodeDelta(base, snapshot, frame);
+        }
+        frame.flip();
+        return frame;
+    }
+
+    private static void assertSameMarket(MarketSnapshot expected, MarketSnapshot actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int id = 0; id < expected.size(); id++) {
+            assertEquals(expected.getSymbol(id), actual.getSymbol(id));
+            assertEquals(expected.getPriceCents(id), actual.getPriceCents(id), "price of " + id);
+            assertEquals(expected.getVolume(id), actual.getVolume(id), "volume of " + id);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package stockmarket;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardCoordinatorTest {
+    private static final int SYMBOLS = 400;
+    private static final int SHARDS = 3;
+
+    @BeforeAll
+    static void quiet() {
+        MarketLog.setLevel(MarketLog.Level.OFF);
+    }
+
+    @AfterAll
+    static void restore() {
+        MarketLog.setLevel(MarketLog.Level.INFO);
+    }
+
+    @Test
+    void aLoopbackRunRepeatsForTheSameSeed() throws Exception {
+        long[][] first = run(42);
+        long[][] second = run(42);
+        long[][] other = run(43);
+
+        for (int step = 0; step < first.length; step++) {
+            assertArrayEquals(first[step], second[step], "prices after step " + (step + 1));
+        }
+        assertFalse(Arrays.equals(first[first.length - 1], other[other.length - 1]));
+    }
+
+    @Test
+    void aShardReplyingOutOfStepFailsTheStep() throws Exception {
+        StockStore universe = MarketEngine.syntheticStocks(SYMBOLS);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ShardCoordinator coordinator = new ShardCoordinator(universe, 1, 1, EventCalendar.named("-", universe), 0)) {
+            Future<?> shard = executor.submit(() -> {
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), coordinator.getPort())) {
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                    OutputStream out = socket.getOutputStream();
+                    ByteBuffer frames = ByteBuffer.allocate(1024);
+                    int start = MarketDataProtocol.beginFrame(frames, ShardProtocol.HELLO);
+                    frames.putInt(0).putInt(1).putInt(SYMBOLS).putInt(SYMBOLS);
+                    MarketDataProtocol.endFrame(frames, start);
+                    ShardProtocol.send(frames, out);
+
+                    ByteBuffer step = ShardProtocol.expect(in, ByteBuffer.allocate(1024), ShardProtocol.STEP);
+                    frames.clear();
+                    start = MarketDataProtocol.beginFrame(frames, ShardProtocol.STEPPED);
+                    frames.putLong(step.getLong() + 1).putLong(0).putLong(0);
+                    MarketDataProtocol.endFrame(frames, start);
+                    ShardProtocol.send(frames, out);
+                    // Wait for the coordinator to hang up.
+                    while (in.read() >= 0) {
+                    }
+                }
+                return null;
+            });
+            coordinator.awaitShards(10, TimeUnit.SECONDS);
+
+            IllegalStateException error = assertThrows(IllegalStateException.class, coordinator::step);
+            assertTrue(error.getMessage().contains("out of step"), error.getMessage());
+            coordinator.close();
+            shard.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Prices of the merged market after each of a few steps, one event broadcast among them.
+    private static long[][] run(long seed) throws Exception {
+        StockStore universe = MarketEngine.syntheticStocks(SYMBOLS);
+        EventCalendar calendar = EventCalendar.named("-", universe);
+        PriceModel model = PriceModel.named("gbm");
+        ExecutorService executor = Executors.newFixedThreadPool(SHARDS);
+        List<MarketShard> shards = new ArrayList<>();
+        List<Future<?>> served = new ArrayList<>();
+        long[][] prices = new long[5][];
+        try (ShardCoordinator coordinator = new ShardCoordinator(universe, SHARDS, seed, calendar, 0)) {
+            for (int shard = 0; shard < SHARDS; shard++) {
+                MarketShard market = new MarketShard(universe, shard, SHARDS, seed, model, calendar);
+                shards.add(market);
+                served.add(executor.submit(() -> {
+                    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), coordinator.getPort())) {
+                        market.serve(socket);
+                    }
+                    return null;
+                }));
+            }
+            coordinator.awaitShards(10, TimeUnit.SECONDS);
+            for (int step = 0; step < prices.length; step++) {
+                if (step == 2) {
+                    coordinator.broadcastMarketEvent();
+                }
+                MarketSnapshot merged = coordinator.step();
+                assertEquals(step + 1, merged.getEpoch());
+                prices[step] = new long[merged.size()];
+                for (int id = 0; id < merged.size(); id++) {
+                    prices[step][id] = merged.getPriceCents(id);
+                }
+            }
+            assertEquals(1, coordinator.getBroadcastEvents());
+        } finally {
+            for (Future<?> future : served) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            for (MarketShard market : shards) {
+                market.getEngine().shutdown();
+            }
+            executor.shutdownNow();
+        }
+        for (MarketShard market : shards) {
+            assertEquals(prices.length, market.getSteps());
+        }
+        return prices;
+    }
+}
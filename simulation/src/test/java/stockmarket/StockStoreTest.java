@@ -0,0 +1,143 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StockStoreTest {
+    @Test
+    void addListsSymbolsUnderSequentialIds() {
+        StockStore stocks = new StockStore();
+        assertEquals(0, stocks.add("AAA", "Alpha", 10.004));
+        assertEquals(1, stocks.add("BBB", "Beta", 20.00, 500));
+        assertEquals(2, stocks.add("CCC", "Gamma", 30.00, 700, Sector.ENERGY));
+
+        assertEquals(3, stocks.size());
+        assertEquals(1, stocks.idOf("BBB"));
+        assertEquals(-1, stocks.idOf("DDD"));
+        assertEquals(1_000, stocks.getPriceCents(0));
+        assertEquals(10.00, stocks.getBasePrice(0));
+        assertEquals(Cents.DEFAULT_TICK, stocks.getTickSize(0));
+        assertEquals(StockStore.DEFAULT_VOLATILITY, stocks.getVolatility(0));
+        assertEquals(StockStore.defaultVolume("AAA"), stocks.getVolume(0));
+        assertEquals(Sector.TECHNOLOGY, stocks.getSector(1));
+        assertEquals(Sector.ENERGY, stocks.getSector(2));
+    }
+
+    @Test
+    void addRejectsDuplicatesAndUnknownSectors() {
+        StockStore stocks = new StockStore();
+        stocks.add("AAA", "Alpha", 10.00);
+
+        assertThrows(IllegalArgumentException.class, () -> stocks.add("AAA", "Again", 11.00));
+        assertThrows(IllegalArgumentException.class, () -> stocks.add("BBB", "Beta", 10.00, 100, -1));
+        assertThrows(IllegalArgumentException.class, () -> stocks.add("BBB", "Beta", 10.00, 100, Sector.COUNT));
+        assertEquals(1, stocks.size());
+        assertEquals(-1, stocks.idOf("BBB"));
+        assertEquals("Alpha", stocks.getName(0));
+    }
+
+    @Test
+    void adoptValidatesEveryListingBeforeTakingTheColumns() {
+        StockStore stocks = new StockStore();
+        assertThrows(IllegalArgumentException.class, () -> adopt(stocks, new String[] {"A", "B", "A"}, 0, 100));
+        assertThrows(IllegalArgumentException.class, () -> adopt(stocks, new String[] {"A", "B", "C"}, Sector.COUNT, 100));
+        assertThrows(IllegalArgumentException.class, () -> adopt(stocks, new String[] {"A", "B", "C"}, -1, 100));
+        // 101 cents is off a five-cent grid.
+        assertThrows(IllegalArgumentException.class, () -> adopt(stocks, new String[] {"A", "B", "C"}, 0, 101));
+        assertEquals(0, stocks.size());
+        assertEquals(-1, stocks.idOf("A"));
+
+        adopt(stocks, new String[] {"A", "B", "C"}, Sector.UTILITIES, 100);
+        assertEquals(3, stocks.size());
+        assertEquals(2, stocks.idOf("C"));
+        assertEquals(Sector.UTILITIES, stocks.getSector(1));
+        assertEquals(100, stocks.getPriceCents(2));
+        assertThrows(IllegalStateException.class, () -> adopt(stocks, new String[] {"D", "E", "F"}, 0, 100));
+
+        // Adopted columns exactly 'count' long still take further listings.
+        assertEquals(3, stocks.add("D", "D", 1.00));
+        assertEquals(100, stocks.publish().getPriceCents(3));
+    }
+
+    @Test
+    void ensureCapacityGrowsEveryColumnAndKeepsTheListings() {
+        StockStore stocks = new StockStore();
+        stocks.add("S0", "S0", 1.00, 10, Sector.MATERIALS);
+        stocks.setDrift(0, 0.01);
+        stocks.ensureCapacity(5_000);
+        stocks.ensureCapacity(10);
+        for (int id = 1; id < 6_000; id++) {
+            stocks.add("S" + id, "S" + id, 1.00 + id / 100.0, id);
+        }
+        stocks.publish();
+
+        assertEquals(6_000, stocks.size());
+        assertEquals(Sector.MATERIALS, stocks.getSector(0));
+        assertEquals(0.01, stocks.getDrift(0));
+        assertEquals(10, stocks.getVolume(0));
+        assertEquals(5_999, stocks.idOf("S5999"));
+        assertEquals(100 + 5_999, stocks.getPriceCents(5_999));
+        // Marks past the first capacity reach the published snapshot.
+        stocks.setPriceCents(5_999, 42);
+        stocks.setVolume(4_321, 7);
+        MarketSnapshot snapshot = stocks.publishChanges();
+        assertEquals(42, snapshot.getPriceCents(5_999));
+        assertEquals(7, snapshot.getVolume(4_321));
+        assertEquals(2, snapshot.getChangedCount());
+        assertEquals(100, snapshot.getPriceCents(0));
+    }
+
+    @Test
+    void subsetListsTheGivenIdsInOrderWithEveryColumn() {
+        StockStore stocks = MarketEngine.syntheticStocks(50);
+        stocks.setTickSize(7, 5);
+        stocks.setDrift(7, 0.04);
+        stocks.setPriceCents(7, stocks.getPriceCents(7) + 50);
+        stocks.setVolume(30, 12_345);
+        int[] ids = {30, 7, 0, 49};
+
+        StockStore subset = stocks.subset(ids);
+
+        assertEquals(ids.length, subset.size());
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i];
+            assertEquals(i, subset.idOf(stocks.getSymbol(id)));
+            assertEquals(stocks.getSymbol(id), subset.getSymbol(i));
+            assertEquals(stocks.getName(id), subset.getName(i));
+            assertEquals(stocks.getPriceCents(id), subset.getPriceCents(i));
+            assertEquals(stocks.getTickSize(id), subset.getTickSize(i));
+            assertEquals(stocks.getVolume(id), subset.getVolume(i));
+            assertEquals(stocks.getChange(id), subset.getChange(i));
+            assertEquals(stocks.getDrift(id), subset.getDrift(i));
+            assertEquals(stocks.getVolatility(id), subset.getVolatility(i));
+            assertEquals(stocks.getBasePrice(id), subset.getBasePrice(i));
+            assertEquals(stocks.getSector(id), subset.getSector(i));
+        }
+        assertEquals(-1, subset.idOf(stocks.getSymbol(1)));
+
+        // The subset owns its columns.
+        subset.setVolume(0, 1);
+        assertEquals(12_345, stocks.getVolume(30));
+        assertEquals(1, subset.publish().getVolume(0));
+        assertEquals(0, stocks.subset(new int[0]).size());
+        assertThrows(IndexOutOfBoundsException.class, () -> stocks.subset(new int[] {50}));
+        assertThrows(IllegalArgumentException.class, () -> stocks.subset(new int[] {3, 3}));
+    }
+
+    // Listings sharing one sector and one price on a five-cent grid.
+    private static void adopt(StockStore stocks, String[] symbols, int sector, long cents) {
+        int count = symbols.length;
+        long[] prices = new long[count];
+        int[] ticks = new int[count];
+        int[] sectors = new int[count];
+        Arrays.fill(prices, cents);
+        Arrays.fill(ticks, 5);
+        Arrays.fill(sectors, sector);
+        stocks.adopt(count, symbols, symbols.clone(), prices, ticks, new int[count], new double[count],
+                     new double[count], new double[count], prices.clone(), sectors);
+    }
+}
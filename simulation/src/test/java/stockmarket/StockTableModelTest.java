@@ -0,0 +1,123 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StockTableModelTest {
+    private final StockStore stocks = MarketEngine.syntheticStocks(200);
+    private final List<String> events = new ArrayList<>();
+
+    @Test
+    void priceAndVolumeChangesRepaintOnlyTheirRows() {
+        StockTableModel model = listen(new StockTableModel(stocks.publish()));
+
+        stocks.setPriceCents(10, stocks.getPriceCents(10) + 1);
+        stocks.setVolume(120, stocks.getVolume(120) + 1);
+        model.apply(stocks.publishChanges());
+
+        assertEquals(List.of("10-10", "120-120"), events);
+        assertEquals(200 + 2, model.getUpdatedRows());
+        assertEquals(stocks.getPrice(10), model.getValueAt(10, StockTableModel.PRICE_COLUMN));
+        assertEquals(stocks.getVolume(120), model.getValueAt(120, StockTableModel.VOLUME_COLUMN));
+    }
+
+    @Test
+    void rowsWithinTheMergeGapShareOneEvent() {
+        StockTableModel model = listen(new StockTableModel(stocks.publish()));
+
+        // 26 is 16 rows after 10, so merged; 43 is 17 after 26, so not.
+        for (int row : new int[] {10, 26, 43, 44}) {
+            stocks.setPriceCents(row, stocks.getPriceCents(row) + 1);
+        }
+        model.apply(stocks.publishChanges());
+
+        assertEquals(List.of("10-26", "43-44"), events);
+        assertEquals(200 + 4, model.getUpdatedRows());
+    }
+
+    @Test
+    void rowsWrittenBackOrClampedToTheirShownValueAreNotRepainted() {
+        stocks.setTickSize(7, 5);
+        stocks.setPriceCents(7, 5);
+        StockTableModel model = listen(new StockTableModel(stocks.publish()));
+        long price = stocks.getPriceCents(5);
+
+        stocks.setPriceCents(5, price + 1);
+        stocks.publishChanges();
+        stocks.setPriceCents(5, price);
+        // Already at its one-tick floor.
+        stocks.setPriceCents(7, 1);
+        stocks.setPriceCents(9, stocks.getPriceCents(9) + 1);
+        // Skipping an epoch, the change log lists row 5 though it is back where it was.
+        model.apply(stocks.publishChanges());
+
+        assertEquals(List.of("9-9"), events);
+        assertEquals(200 + 1, model.getUpdatedRows());
+    }
+
+    @Test
+    void analyticsUpdatesRepaintRowsWhosePriceStayedPut() {
+        MarketAnalytics analytics = new MarketAnalytics(200);
+        StockTableModel model = listen(new StockTableModel(stocks.publish(), analytics));
+
+        analytics.onFill(50, 10.0, 100);
+        analytics.onFill(199, 20.0, 100);
+        model.apply(stocks.publishChanges());
+        assertEquals(List.of("50-50", "199-199"), events);
+        assertEquals(10.0, model.getValueAt(50, StockTableModel.VWAP_COLUMN));
+
+        // A tick that moves every price, as far as the analytics know, is one merged event.
+        events.clear();
+        analytics.onPrices(0, stocks, true);
+        model.apply(stocks.publishChanges());
+        assertEquals(List.of("0-199"), events);
+
+        // Drained updates are not repainted again.
+        events.clear();
+        model.apply(stocks.publishChanges());
+        assertEquals(List.of(), events);
+    }
+
+    @Test
+    void snapshotsWithoutACommonChangeLogAreComparedRowByRow() {
+        StockTableModel model = listen(new StockTableModel(stocks.publish()));
+        StockStore other = MarketEngine.syntheticStocks(200);
+        other.setPriceCents(99, other.getPriceCents(99) + 1);
+
+        model.apply(other.publish());
+        assertEquals(List.of("99-99"), events);
+
+        // Going back to an older snapshot of the same store compares rows as well.
+        events.clear();
+        MarketSnapshot older = stocks.snapshot();
+        stocks.setPriceCents(3, stocks.getPriceCents(3) + 1);
+        model.apply(stocks.publishChanges());
+        model.apply(older);
+        assertEquals(List.of("3-3", "99-99", "3-3"), events);
+    }
+
+    @Test
+    void aSnapshotOfAnotherSizeReplacesTheWholeTable() {
+        StockTableModel model = listen(new StockTableModel(stocks.publish()));
+
+        stocks.add("NEW", "New listing", 10.00);
+        model.apply(stocks.publish());
+
+        assertEquals(List.of("all"), events);
+        assertEquals(201, model.getRowCount());
+        assertEquals(200 + 201, model.getUpdatedRows());
+    }
+
+    private StockTableModel listen(StockTableModel model) {
+        model.addTableModelListener(event -> {
+            assertEquals(TableModelEvent.UPDATE, event.getType());
+            events.add(event.getLastRow() == Integer.MAX_VALUE ? "all" : event.getFirstRow() + "-" + event.getLastRow());
+        });
+        return model;
+    }
+}
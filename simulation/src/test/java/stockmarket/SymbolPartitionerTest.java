@@ -0,0 +1,76 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SymbolPartitionerTest {
+    @Test
+    void aSymbolMapsToTheSameShardEveryTime() {
+        StockStore universe = MarketEngine.syntheticStocks(2_000);
+        SymbolPartitioner first = new SymbolPartitioner(6);
+        SymbolPartitioner second = new SymbolPartitioner(6);
+        for (int id = 0; id < universe.size(); id++) {
+            String symbol = universe.getSymbol(id);
+            int shard = first.shardOf(symbol);
+            assertTrue(shard >= 0 && shard < 6);
+            assertEquals(shard, first.shardOf(symbol));
+            assertEquals(shard, second.shardOf(symbol), symbol);
+        }
+        assertEquals(0, new SymbolPartitioner(1).shardOf("ANY"));
+    }
+
+    @Test
+    void addingAShardMovesAboutItsShareAndOnlyToIt() {
+        StockStore universe = MarketEngine.syntheticStocks(20_000);
+        for (int shards = 1; shards <= 7; shards++) {
+            SymbolPartitioner before = new SymbolPartitioner(shards);
+            SymbolPartitioner after = new SymbolPartitioner(shards + 1);
+            int moved = 0;
+            for (int id = 0; id < universe.size(); id++) {
+                String symbol = universe.getSymbol(id);
+                int from = before.shardOf(symbol);
+                int to = after.shardOf(symbol);
+                if (from != to) {
+                    assertEquals(shards, to, symbol + " moved between old shards");
+                    moved++;
+                }
+            }
+            double share = 1.0 / (shards + 1);
+            assertEquals(share, (double) moved / universe.size(), share * 0.25, "moved going to " + (shards + 1));
+        }
+    }
+
+    @Test
+    void assignListsEveryIdOnceInUniverseOrder() {
+        StockStore universe = MarketEngine.syntheticStocks(5_000);
+        SymbolPartitioner partitioner = new SymbolPartitioner(5);
+        int[][] assignment = partitioner.assign(universe);
+
+        assertEquals(5, assignment.length);
+        int[] seen = new int[universe.size()];
+        for (int shard = 0; shard < assignment.length; shard++) {
+            int previous = -1;
+            for (int id : assignment[shard]) {
+                assertTrue(id > previous, "ids of shard " + shard + " in universe order");
+                assertEquals(shard, partitioner.shardOf(universe.getSymbol(id)));
+                seen[id]++;
+                previous = id;
+            }
+            // With 256 points a shard each, no shard is far from an even share.
+            assertEquals(1_000, assignment[shard].length, 250);
+        }
+        for (int id = 0; id < seen.length; id++) {
+            assertEquals(1, seen[id], "times id " + id + " was assigned");
+        }
+    }
+
+    @Test
+    void rejectsImpossibleShardCounts() {
+        assertThrows(IllegalArgumentException.class, () -> new SymbolPartitioner(0));
+        assertThrows(IllegalArgumentException.class, () -> new SymbolPartitioner(0x10000));
+        assertThrows(IllegalArgumentException.class, () -> new SymbolPartitioner(2, 0));
+    }
+}
@@ -0,0 +1,183 @@
+package stockmarket;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickHistoryTest {
+    // Blocks of three records, so a few dozen appends already chain several blocks.
+    private static final int BLOCK_BYTES = 64;
+    private static final int SLAB_BYTES = 4096;
+
+    private final TickHistory history = new TickHistory(4, 1 << 20, BLOCK_BYTES, SLAB_BYTES);
+
+    @BeforeAll
+    static void quiet() {
+        MarketLog.setLevel(MarketLog.Level.OFF);
+    }
+
+    @AfterAll
+    static void restore() {
+        MarketLog.setLevel(MarketLog.Level.INFO);
+    }
+
+    @AfterEach
+    void close() {
+        history.close();
+    }
+
+    @Test
+    void queryReturnsTheRecordsInRangeOldestFirst() {
+        for (int i = 0; i < 50; i++) {
+            history.append(1, 1_000 + i * 100L, 10_000 + i, 500 + i);
+        }
+
+        long[] times = new long[100];
+        long[] prices = new long[100];
+        int[] volumes = new int[100];
+        int count = history.query(1, 2_000, 3_000, times, prices, volumes);
+
+        assertEquals(10, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(2_000 + i * 100L, times[i]);
+            assertEquals(10_010 + i, prices[i]);
+            assertEquals(510 + i, volumes[i]);
+        }
+        assertEquals(50, history.count(1));
+        assertEquals(0, history.count(0));
+        assertEquals(0, history.query(0, 0, Long.MAX_VALUE, times, prices, volumes));
+    }
+
+    @Test
+    void queryStopsWhenTheArraysAreFull() {
+        for (int i = 0; i < 20; i++) {
+            history.append(2, i, 100 + i, 1);
+        }
+        long[] times = new long[5];
+
+        assertEquals(5, history.query(2, 0, 100, times, new long[5], new int[5]));
+        assertArrayEquals(new long[] {0, 1, 2, 3, 4}, times);
+    }
+
+    @Test
+    void unchangedRecordsAreNotKept() {
+        history.append(0, 1, 100, 10);
+        history.append(0, 2, 100, 10);
+        history.append(0, 3, 101, 10);
+        history.append(0, 4, 101, 11);
+
+        assertEquals(3, history.count(0));
+        assertEquals(3, history.getRecords());
+    }
+
+    @Test
+    void largeJumpsInTimeAndPriceOpenNewBlocks() {
+        history.append(3, 0, 100, 1);
+        history.append(3, 1L << 40, Long.MAX_VALUE / 2, 2);
+        history.append(3, (1L << 40) + 1, 5, 3);
+
+        long[] times = new long[3];
+        long[] prices = new long[3];
+        int[] volumes = new int[3];
+        assertEquals(3, history.query(3, 0, Long.MAX_VALUE, times, prices, volumes));
+        assertArrayEquals(new long[] {0, 1L << 40, (1L << 40) + 1}, times);
+        assertArrayEquals(new long[] {100, Long.MAX_VALUE / 2, 5}, prices);
+        assertArrayEquals(new int[] {1, 2, 3}, volumes);
+    }
+
+    @Test
+    void downsampleBuildsOhlcBarsAlignedToTheRangeStart() {
+        long[] ticks = {105, 103, 108, 101, 104, 110, 107};
+        for (int i = 0; i < ticks.length; i++) {
+            history.append(0, 1_000 + i * 250L, ticks[i], 10 + i);
+        }
+
+        long[] starts = new long[10];
+        long[] opens = new long[10];
+        long[] highs = new long[10];
+        long[] lows = new long[10];
+        long[] closes = new long[10];
+        int[] volumes = new int[10];
+        int bars = history.downsample(0, 1_000, 3_000, 1_000, starts, opens, highs, lows, closes, volumes);
+
+        // Ticks at 1000..1750 fall in the first bar and 2000..2500 in the second.
+        assertEquals(2, bars);
+        assertEquals(1_000, starts[0]);
+        assertEquals(105, opens[0]);
+        assertEquals(108, highs[0]);
+        assertEquals(101, lows[0]);
+        assertEquals(101, closes[0]);
+        assertEquals(13, volumes[0]);
+        assertEquals(2_000, starts[1]);
+        assertEquals(104, opens[1]);
+        assertEquals(110, highs[1]);
+        assertEquals(104, lows[1]);
+        assertEquals(107, closes[1]);
+        assertEquals(16, volumes[1]);
+    }
+
+    @Test
+    void downsampleSkipsEmptyBucketsAndRejectsBadPeriods() {
+        history.append(1, 0, 100, 1);
+        history.append(1, 5_500, 120, 1);
+
+        long[] starts = new long[10];
+        long[] values = new long[10];
+        int bars = history.downsample(1, 0, 10_000, 1_000, starts, values, new long[10], new long[10],
+                                      new long[10], new int[10]);
+
+        assertEquals(2, bars);
+        assertEquals(0, starts[0]);
+        assertEquals(5_000, starts[1]);
+        assertThrows(IllegalArgumentException.class, () -> history.downsample(1, 0, 1, 0, starts, values, values,
+                                                                              values, values, new int[10]));
+    }
+
+    @Test
+    void appendAllAndAppendChangedFollowTheStore() {
+        StockStore stocks = MarketEngine.syntheticStocks(4);
+        stocks.publish();
+        history.appendAll(0, stocks);
+        stocks.setPriceCents(2, stocks.getPriceCents(2) + 10L * stocks.getTickSize(2));
+        history.appendChanged(1, stocks, stocks.publishChanges().changed());
+
+        assertEquals(1, history.count(0));
+        assertEquals(2, history.count(2));
+        long[] prices = new long[2];
+        history.query(2, 0, 2, new long[2], prices, new int[2]);
+        assertEquals(stocks.getPriceCents(2), prices[1]);
+    }
+
+    @Test
+    void recordsPastTheCapAreDroppedAndResetReusesTheSlabs() {
+        TickHistory small = new TickHistory(1, SLAB_BYTES, BLOCK_BYTES, SLAB_BYTES);
+        int kept = 0;
+        for (int i = 0; i < 1_000; i++) {
+            if (small.append(0, i, i, 1)) kept++;
+        }
+        assertEquals(SLAB_BYTES / BLOCK_BYTES * 3, kept);
+        assertEquals(1_000 - kept, small.getDroppedRecords());
+        assertEquals(SLAB_BYTES, small.getUsedBytes());
+
+        small.reset();
+        assertEquals(0, small.count(0));
+        assertEquals(0, small.getDroppedRecords());
+        assertTrue(small.append(0, 5, 5, 5));
+        assertEquals(SLAB_BYTES, small.getAllocatedBytes());
+
+        small.close();
+        assertThrows(IllegalStateException.class, () -> small.append(0, 6, 6, 6));
+    }
+
+    @Test
+    void symbolsBeyondTheHistoryAreIgnored() {
+        assertTrue(history.append(4, 0, 1, 1));
+        assertEquals(0, history.getRecords());
+    }
+}
@@ -0,0 +1,157 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickJournalTest {
+    private static final int SYMBOLS = 40;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsReadBackInOrderWithTheirFields() throws IOException {
+        try (TickJournal journal = new TickJournal(directory)) {
+            journal.append(1_000, 3, TickCause.PRICE_TICK, 12_345, 50_000);
+            journal.append(1_000, 4, TickCause.TRADE_VOLUME, 99, 1);
+            journal.append(2_000, 3, TickCause.MARKET_EVENT, 12_300, 70_000);
+        }
+
+        List<long[]> records = new ArrayList<>();
+        TickJournalReader reader = new TickJournalReader(directory);
+        assertEquals(3, reader.getRecordCount());
+        assertEquals(1_000, reader.getFirstTime());
+        assertEquals(2_000, reader.getLastTime());
+        reader.forEach((time, symbol, cause, price, volume) ->
+                records.add(new long[] {time, symbol, cause, price, volume}));
+        assertArrayEquals(new long[] {1_000, 3, TickCause.PRICE_TICK, 12_345, 50_000}, records.get(0));
+        assertArrayEquals(new long[] {1_000, 4, TickCause.TRADE_VOLUME, 99, 1}, records.get(1));
+        assertArrayEquals(new long[] {2_000, 3, TickCause.MARKET_EVENT, 12_300, 70_000}, records.get(2));
+    }
+
+    @Test
+    void replayVisitsOnlyTheRequestedTimeRange() throws IOException {
+        try (TickJournal journal = new TickJournal(directory, 64 << 10)) {
+            for (int i = 0; i < 3 * TickJournal.INDEX_INTERVAL; i++) {
+                journal.append(i / 10, i % SYMBOLS, TickCause.PRICE_TICK, i, i);
+            }
+        }
+
+        TickJournalReader reader = new TickJournalReader(directory);
+        long[] bounds = {Long.MAX_VALUE, Long.MIN_VALUE};
+        long visited = reader.replay(500, 799, (time, symbol, cause, price, volume) -> {
+            bounds[0] = Math.min(bounds[0], time);
+            bounds[1] = Math.max(bounds[1], time);
+        });
+        assertEquals(3_000, visited);
+        assertEquals(500, bounds[0]);
+        assertEquals(799, bounds[1]);
+    }
+
+    @Test
+    void restoreRebuildsTheStateAtAnyTimeFromKeyframes() throws IOException {
+        StockStore stocks = MarketEngine.syntheticStocks(SYMBOLS);
+        stocks.publish();
+        Random random = new Random(7);
+        List<long[]> prices = new ArrayList<>();
+        List<int[]> volumes = new ArrayList<>();
+        // Small segments, so the run spans several of them and each starts with a keyframe.
+        try (TickJournal journal = new TickJournal(directory, 32 << 10)) {
+            journal.appendAll(0, stocks, TickCause.INITIAL);
+            prices.add(Arrays.copyOf(stocks.prices(), SYMBOLS));
+            volumes.add(Arrays.copyOf(stocks.volumes(), SYMBOLS));
+            for (int time = 1; time < 2_000; time++) {
+                for (int k = 0; k < 5; k++) {
+                    int id = random.nextInt(SYMBOLS);
+                    if (random.nextBoolean()) {
+                        stocks.setPriceCents(id, stocks.getPriceCents(id) + (random.nextInt(21) - 10) * stocks.getTickSize(id));
+                    } else {
+                        stocks.setVolume(id, 10_000 + random.nextInt(100_000));
+                    }
+                }
+                MarketSnapshot snapshot = stocks.publishChanges();
+                journal.appendChanged(time, stocks, TickCause.PRICE_TICK, snapshot.changed());
+                prices.add(Arrays.copyOf(stocks.prices(), SYMBOLS));
+                volumes.add(Arrays.copyOf(stocks.volumes(), SYMBOLS));
+            }
+        }
+
+        TickJournalReader reader = new TickJournalReader(directory);
+        assertTrue(reader.getKeyframeCount() > 2, "keyframes at the start, per segment and per interval");
+        StockStore target = MarketEngine.syntheticStocks(SYMBOLS);
+        for (int time : new int[] {0, 1, 17, 640, 641, 1_234, 1_999}) {
+            reader.restore(time, target);
+            for (int id = 0; id < SYMBOLS; id++) {
+                assertEquals(prices.get(time)[id], target.getPriceCents(id), "price of " + id + " at " + time);
+                assertEquals(volumes.get(time)[id], target.getVolume(id), "volume of " + id + " at " + time);
+            }
+        }
+    }
+
+    @Test
+    void keyframesAreWrittenAtSegmentStartsAndIntervals() throws IOException {
+        StockStore stocks = MarketEngine.syntheticStocks(SYMBOLS);
+        try (TickJournal journal = new TickJournal(directory)) {
+            journal.appendAll(0, stocks, TickCause.INITIAL);
+            assertFalse(journal.isCheckpointDue(SYMBOLS));
+            for (int i = 0; i < TickJournal.INDEX_INTERVAL; i++) {
+                journal.append(1, i % SYMBOLS, TickCause.PRICE_TICK, i, i);
+            }
+            assertTrue(journal.isCheckpointDue(SYMBOLS));
+            assertTrue(journal.checkpoint(2, stocks));
+            assertFalse(journal.checkpoint(3, stocks));
+        }
+        TickJournalReader reader = new TickJournalReader(directory);
+        assertEquals(2, reader.getKeyframeCount());
+        int[] causes = new int[TickCause.CHECKPOINT + 1];
+        reader.forEach((time, symbol, cause, price, volume) -> causes[cause]++);
+        assertEquals(SYMBOLS, causes[TickCause.INITIAL]);
+        assertEquals(SYMBOLS, causes[TickCause.CHECKPOINT]);
+    }
+
+    @Test
+    void reopeningADirectoryKeepsTheOldJournalUnlessAskedToOverwrite() throws IOException {
+        try (TickJournal journal = new TickJournal(directory, 32 << 10)) {
+            for (int i = 0; i < 2_000; i++) {
+                journal.append(i, i % SYMBOLS, TickCause.PRICE_TICK, i, i);
+            }
+        }
+        List<Path> files = TickJournal.existingFiles(directory);
+        assertTrue(files.size() > 3, "index, keyframes and several segments");
+
+        assertThrows(FileAlreadyExistsException.class, () -> new TickJournal(directory));
+        assertEquals(files, TickJournal.existingFiles(directory));
+        assertEquals(2_000, new TickJournalReader(directory).getRecordCount());
+
+        try (TickJournal journal = new TickJournal(directory, 32 << 10, true)) {
+            journal.append(5, 1, TickCause.PRICE_TICK, 7, 8);
+        }
+        assertEquals(3, TickJournal.existingFiles(directory).size());
+        TickJournalReader reader = new TickJournalReader(directory);
+        assertEquals(1, reader.getRecordCount());
+        assertEquals(5, reader.getFirstTime());
+    }
+
+    @Test
+    void closedJournalRejectsAppends() throws IOException {
+        TickJournal journal = new TickJournal(directory);
+        journal.close();
+        assertThrows(IllegalStateException.class, () -> journal.append(0, 0, TickCause.PRICE_TICK, 1, 1));
+        assertTrue(Files.exists(TickJournal.keyframePath(directory)));
+    }
+}
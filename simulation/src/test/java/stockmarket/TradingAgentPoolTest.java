@@ -0,0 +1,109 @@
+package stockmarket;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradingAgentPoolTest {
+    private final VirtualTimeMarketScheduler scheduler = new VirtualTimeMarketScheduler(0);
+    private MarketEngine engine;
+    private TradingAgentPool pool;
+
+    @BeforeAll
+    static void quiet() {
+        MarketLog.setLevel(MarketLog.Level.OFF);
+    }
+
+    @AfterAll
+    static void restore() {
+        MarketLog.setLevel(MarketLog.Level.INFO);
+    }
+
+    @AfterEach
+    void shutdown() {
+        if (pool != null) pool.stop();
+        if (engine != null) engine.shutdown();
+    }
+
+    @Test
+    void watchlistsHoldDistinctSymbols() {
+        pool = pool(MarketEngine.defaultStocks());
+        List<TradingAgent> agents = pool.addAgents(50, TradingStrategy.named("noise"), 3, 5, 100, 1_000);
+
+        for (TradingAgent agent : agents) {
+            // Five wanted from a universe of three: each symbol exactly once.
+            assertEquals(3, agent.getWatchCount());
+            assertEquals(0 + 1 + 2, agent.getSymbol(0) + agent.getSymbol(1) + agent.getSymbol(2));
+            assertDistinct(agent);
+        }
+        assertThrows(IllegalArgumentException.class,
+                     () -> pool.addAgents(1, TradingStrategy.named("noise"), 3, 0, 100, 1_000));
+    }
+
+    @Test
+    void distinctPicksCoverTheUniverseEvenly() {
+        SplittableRandom random = new SplittableRandom(11);
+        int[] counts = new int[20];
+        for (int draw = 0; draw < 20_000; draw++) {
+            int[] picked = TradingAgentPool.pickDistinct(random, 5, 20);
+            for (int i = 0; i < picked.length; i++) {
+                assertTrue(picked[i] >= 0 && picked[i] < 20);
+                for (int j = 0; j < i; j++) {
+                    assertTrue(picked[i] != picked[j]);
+                }
+                counts[picked[i]]++;
+            }
+        }
+        for (int count : counts) {
+            assertEquals(5_000, count, 300);
+        }
+    }
+
+    @Test
+    void agentsTurnedAwayBackOffUntilTheQueueDrains() throws InterruptedException {
+        pool = pool(MarketEngine.syntheticStocks(50));
+        // Virtual time stands still, so the one trade the queue holds never leaves it.
+        engine.getTradingTimer().setCapacity(1);
+        pool.setThinkTime(1);
+        List<TradingAgent> agents = pool.addAgents(10, TradingStrategy.named("noise"), 5, 4, 100, 1_000);
+        pool.start();
+        Thread.sleep(400);
+
+        assertEquals(1, pool.getOrders());
+        long rejections = pool.getRejections();
+        assertTrue(rejections >= 9, "every other agent was turned away: " + rejections);
+        // Without backoff, agents thinking for 1 ms would have retried hundreds of times.
+        for (TradingAgent agent : agents) {
+            assertTrue(agent.getRejected() <= 12, "agent " + agent.getId() + " retried " + agent.getRejected() + " times");
+        }
+
+        // Stopped first, so no agent gets another order in while the batch runs.
+        pool.stop();
+        scheduler.advance(1, TimeUnit.SECONDS);
+        assertEquals(1, pool.getFills());
+        long traded = agents.stream().mapToInt(TradingAgent::getTrades).sum();
+        assertEquals(1, traded);
+    }
+
+    private TradingAgentPool pool(StockStore stocks) {
+        engine = new MarketEngine(stocks, scheduler, new SerialPriceUpdateEngine(1), 1);
+        return new TradingAgentPool(engine, 2);
+    }
+
+    private static void assertDistinct(TradingAgent agent) {
+        for (int i = 0; i < agent.getWatchCount(); i++) {
+            for (int j = 0; j < i; j++) {
+                assertTrue(agent.getSymbol(i) != agent.getSymbol(j), "agent " + agent.getId() + " watches a symbol twice");
+            }
+        }
+    }
+}
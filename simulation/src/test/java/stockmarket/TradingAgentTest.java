@@ -0,0 +1,101 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradingAgentTest {
+    @Test
+    void fillsBuildPositionsAndCashThatMarkToMarket() {
+        StockStore stocks = market(10.00, 20.00);
+        TradingAgent agent = agent(TradingStrategy.named("noise"), 1_000);
+
+        fill(agent, 0, 100, 10.00);
+        fill(agent, 0, -40, 12.00);
+        fill(agent, 1, -10, 20.50);
+
+        assertEquals(60, agent.getPosition(0));
+        assertEquals(-10, agent.getPosition(1));
+        assertEquals(-1_000 + 480 + 205, agent.getCash(), 1e-9);
+        assertEquals(3, agent.getTrades());
+        stocks.setPrice(0, 11.00);
+        stocks.setPrice(1, 19.00);
+        // -315 cash + 60 * 11 - 10 * 19
+        assertEquals(155, agent.markToMarket(stocks.publish()), 1e-9);
+    }
+
+    @Test
+    void ordersAreTrimmedToThePositionLimit() {
+        TradingAgent agent = agent(TradingStrategy.named("noise"), 100);
+        fill(agent, 0, 80, 10);
+
+        agent.order(0, 50);
+        assertEquals(20, agent.getOrderVolume());
+        agent.order(0, -500);
+        assertEquals(-180, agent.getOrderVolume());
+        fill(agent, 0, 20, 10);
+        agent.order(0, 1);
+        assertEquals(0, agent.getOrderVolume());
+    }
+
+    @Test
+    void noiseOrdersAWatchedSymbolWithinTheOrderSize() {
+        MarketSnapshot market = market(10, 20).publish();
+        TradingAgent agent = agent(TradingStrategy.named("noise"), 1_000_000);
+        boolean[] sides = new boolean[2];
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(agent.decide(market));
+            int volume = agent.getOrderVolume();
+            assertTrue(volume != 0 && Math.abs(volume) <= agent.getMaxOrderSize(), "volume " + volume);
+            assertTrue(agent.getOrderSymbol() == 0 || agent.getOrderSymbol() == 1);
+            sides[volume > 0 ? 0 : 1] = true;
+        }
+        assertTrue(sides[0] && sides[1], "buys and sells");
+    }
+
+    @Test
+    void momentumFollowsAndReversionFadesAMove() {
+        StockStore stocks = market(100, 100);
+        TradingAgent momentum = agent(TradingStrategy.named("momentum"), 1_000_000);
+        TradingAgent reversion = agent(TradingStrategy.named("reversion"), 1_000_000);
+        MarketSnapshot first = stocks.publish();
+        for (int i = 0; i < 20; i++) {
+            // The first look at each symbol only records its price.
+            momentum.decide(first);
+            reversion.decide(first);
+        }
+        assertFalse(momentum.decide(first), "no move, no order");
+
+        stocks.setPrice(0, 101);
+        stocks.setPrice(1, 101);
+        MarketSnapshot up = stocks.publish();
+        assertTrue(momentum.decide(up));
+        assertTrue(reversion.decide(up));
+        // A 1% move sizes the order at 1 + 50 * 0.01 * 20 shares.
+        assertEquals(11, momentum.getOrderVolume());
+        assertEquals(-11, reversion.getOrderVolume());
+        assertThrows(IllegalArgumentException.class, () -> TradingStrategy.named("random"));
+    }
+
+    private static StockStore market(double first, double second) {
+        StockStore stocks = new StockStore();
+        stocks.add("AAA", "A", first, 100_000);
+        stocks.add("BBB", "B", second, 100_000);
+        stocks.publish();
+        return stocks;
+    }
+
+    private static TradingAgent agent(TradingStrategy strategy, long maxPosition) {
+        return new TradingAgent(0, strategy, 7, new int[] {0, 1}, 50, maxPosition);
+    }
+
+    private static void fill(TradingAgent agent, int watched, int volume, double price) {
+        agent.order(watched, volume);
+        agent.filled(new TradeResult(1, volume, volume, price, 0));
+    }
+}
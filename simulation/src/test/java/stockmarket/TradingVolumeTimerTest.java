@@ -0,0 +1,214 @@
+package stockmarket;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradingVolumeTimerTest {
+    private final VirtualTimeMarketScheduler scheduler = new VirtualTimeMarketScheduler(0);
+    private MarketEngine engine;
+
+    @BeforeAll
+    static void quiet() {
+        MarketLog.setLevel(MarketLog.Level.OFF);
+    }
+
+    @AfterAll
+    static void restore() {
+        MarketLog.setLevel(MarketLog.Level.INFO);
+    }
+
+    @AfterEach
+    void shutdown() {
+        if (engine != null) engine.shutdown();
+    }
+
+    @Test
+    void tradesSubmittedTogetherCompleteInOneBatch() throws Exception {
+        TradingVolumeTimer timer = start(MarketEngine.syntheticStocks(20));
+        List<CompletableFuture<TradeResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(timer.executeTrade(i, i % 2 == 0 ? 500 : -500));
+        }
+        assertEquals(5, timer.getPendingTrades());
+        assertFalse(futures.get(0).isDone());
+
+        scheduler.advance(1, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, timer.getBatches());
+        assertEquals(0, timer.getPendingTrades());
+        assertEquals(5, timer.getCompletedTrades());
+        long previousId = 0;
+        for (int i = 0; i < 5; i++) {
+            TradeResult result = futures.get(i).get();
+            assertTrue(result.getTradeId() > previousId);
+            previousId = result.getTradeId();
+            assertEquals(i % 2 == 0 ? 500 : -500, result.getRequestedVolume());
+            assertTrue(Math.signum(result.getFilledVolume()) == Math.signum(result.getRequestedVolume())
+                       || result.getFilledVolume() == 0);
+        }
+    }
+
+    @Test
+    void laterTradesWaitForTheBatchPeriod() throws Exception {
+        TradingVolumeTimer timer = start(MarketEngine.syntheticStocks(20));
+        timer.executeTrade(0, 100);
+        scheduler.advance(1, TimeUnit.MILLISECONDS);
+        assertEquals(1, timer.getBatches());
+
+        CompletableFuture<TradeResult> second = timer.executeTrade(1, 100);
+        CompletableFuture<TradeResult> third = timer.executeTrade(2, -100);
+        scheduler.advance(20, TimeUnit.MILLISECONDS);
+        assertFalse(second.isDone());
+
+        scheduler.advance(40, TimeUnit.MILLISECONDS);
+        assertTrue(second.isDone());
+        assertTrue(third.isDone());
+        assertEquals(2, timer.getBatches());
+    }
+
+    @Test
+    void boundedSubmissionTurnsTradesAwayWhenFull() {
+        TradingVolumeTimer timer = start(MarketEngine.syntheticStocks(20));
+        timer.setCapacity(2);
+
+        assertNotNull(timer.tryExecuteTrade(0, 10));
+        assertNotNull(timer.tryExecuteTrade(1, 10));
+        assertNull(timer.tryExecuteTrade(2, 10));
+        assertEquals(1, timer.getRejectedTrades());
+
+        scheduler.advance(1, TimeUnit.MILLISECONDS);
+        assertNotNull(timer.tryExecuteTrade(2, 10));
+        assertThrows(IllegalArgumentException.class, () -> timer.tryExecuteTrade(20, 10));
+    }
+
+    @Test
+    void executeTradeFailsInsteadOfQueueingPastTheCapacity() {
+        TradingVolumeTimer timer = start(MarketEngine.syntheticStocks(20));
+        timer.setCapacity(2);
+
+        CompletableFuture<TradeResult> first = timer.executeTrade(0, 10);
+        CompletableFuture<TradeResult> spread = timer.executeTrade(-10);
+        CompletableFuture<TradeResult> turnedAway = timer.executeTrade(2, 10);
+        CompletableFuture<TradeResult> spreadTurnedAway = timer.executeTrade(10);
+
+        assertTrue(turnedAway.isCompletedExceptionally());
+        assertTrue(spreadTurnedAway.isCompletedExceptionally());
+        ExecutionException error = assertThrows(ExecutionException.class, turnedAway::get);
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        assertEquals(2, timer.getRejectedTrades());
+        assertEquals(2, timer.getPendingTrades());
+
+        scheduler.advance(1, TimeUnit.MILLISECONDS);
+        assertTrue(first.isDone() && !first.isCompletedExceptionally());
+        assertTrue(spread.isDone() && !spread.isCompletedExceptionally());
+        assertFalse(timer.executeTrade(2, 10).isCompletedExceptionally());
+    }
+
+    @Test
+    void stopCancelsTheTradesStillQueued() {
+        TradingVolumeTimer timer = start(MarketEngine.syntheticStocks(20));
+        CompletableFuture<TradeResult> queued = timer.executeTrade(3, 100);
+
+        timer.stop();
+        scheduler.advance(1, TimeUnit.SECONDS);
+
+        assertTrue(queued.isCancelled());
+        assertEquals(0, timer.getPendingTrades());
+        assertEquals(0, timer.getBatches());
+    }
+
+    @Test
+    void aFailedBatchFailsEveryTradeInIt() {
+        TradingVolumeTimer timer = start(MarketEngine.syntheticStocks(20));
+        IllegalStateException failure = new IllegalStateException("listener failed");
+        MarketListener failing = new MarketListener() {
+            @Override
+            public void onStocksUpdated(MarketSnapshot snapshot) {
+                throw failure;
+            }
+        };
+        engine.addListener(failing);
+        CompletableFuture<TradeResult> first = timer.executeTrade(0, 100);
+        CompletableFuture<TradeResult> second = timer.executeTrade(-100);
+
+        scheduler.advance(1, TimeUnit.MILLISECONDS);
+
+        for (CompletableFuture<TradeResult> future : List.of(first, second)) {
+            assertTrue(future.isCompletedExceptionally());
+            ExecutionException thrown = assertThrows(ExecutionException.class, future::get);
+            assertInstanceOf(IllegalStateException.class, thrown.getCause());
+        }
+        assertEquals(0, timer.getPendingTrades());
+
+        // The clock survives the failure and keeps batching.
+        engine.removeListener(failing);
+        CompletableFuture<TradeResult> next = timer.executeTrade(0, 100);
+        scheduler.advance(100, TimeUnit.MILLISECONDS);
+        assertTrue(next.isDone() && !next.isCompletedExceptionally());
+    }
+
+    @Test
+    void fillsOfAFailedBatchDoNotReachTheNextOne() {
+        TradingVolumeTimer timer = start(MarketEngine.syntheticStocks(20));
+        IllegalStateException failure = new IllegalStateException("analytics failed");
+        boolean[] failing = {true};
+        engine.setAnalytics(new MarketAnalytics(20) {
+            @Override
+            void onFill(int symbol, double price, long quantity) {
+                if (failing[0]) throw failure;
+                super.onFill(symbol, price, quantity);
+            }
+        });
+        scheduler.advance(1, TimeUnit.MILLISECONDS);
+        StockStore stocks = engine.getStocks();
+        int volume = stocks.getVolume(4);
+        long price = stocks.getPriceCents(4);
+
+        CompletableFuture<TradeResult> failed = timer.executeTrade(4, 5_000);
+        scheduler.advance(1, TimeUnit.MILLISECONDS);
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(volume, stocks.getVolume(4));
+        assertEquals(price, stocks.getPriceCents(4));
+
+        // A trade that fills nothing leaves the symbol as it was, rather than applying the
+        // failed batch's fills.
+        failing[0] = false;
+        CompletableFuture<TradeResult> next = timer.executeTrade(4, 0);
+        scheduler.advance(100, TimeUnit.MILLISECONDS);
+        assertTrue(next.isDone() && !next.isCompletedExceptionally());
+        assertEquals(volume, stocks.getVolume(4));
+        assertEquals(price, stocks.getPriceCents(4));
+    }
+
+    @Test
+    void marketWideTradesOnAnEmptyMarketFillNothing() throws Exception {
+        TradingVolumeTimer timer = start(new StockStore());
+        CompletableFuture<TradeResult> trade = timer.executeTrade(5_000);
+
+        scheduler.advance(1, TimeUnit.MILLISECONDS);
+
+        assertEquals(0, trade.get().getFilledVolume());
+    }
+
+    private TradingVolumeTimer start(StockStore stocks) {
+        engine = new MarketEngine(stocks, scheduler, new SerialPriceUpdateEngine(1), 1);
+        return engine.getTradingTimer();
+    }
+}
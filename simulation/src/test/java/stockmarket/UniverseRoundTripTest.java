@@ -0,0 +1,156 @@
+package stockmarket;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UniverseRoundTripTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void csvRoundTripKeepsEveryColumn() throws IOException {
+        StockStore stocks = universe();
+        StringWriter csv = new StringWriter();
+        UniverseCsv.write(stocks, csv);
+
+        StockStore loaded = UniverseCsv.read(new StringReader(csv.toString()));
+
+        assertSameListings(stocks, loaded);
+    }
+
+    @Test
+    void csvFilesRoundTripThroughDisk() throws IOException {
+        StockStore stocks = MarketEngine.syntheticStocks(500);
+        Path file = directory.resolve("universe.csv");
+        UniverseCsv.write(stocks, file);
+
+        assertSameListings(stocks, UniverseCsv.load(file));
+    }
+
+    @Test
+    void csvHeaderMayReorderAndOmitColumns() throws IOException {
+        String csv = "# a comment\n"
+                + "symbol,tick,sector,price\n"
+                + "\n"
+                + "\"AB,C\",0.05,Energy,101.07\n"
+                + "XYZ,0.01,3,20\n";
+
+        StockStore stocks = UniverseCsv.read(new StringReader(csv));
+
+        assertEquals(2, stocks.size());
+        assertEquals("AB,C", stocks.getSymbol(0));
+        assertEquals("AB,C", stocks.getName(0));
+        assertEquals(10_105, stocks.getPriceCents(0));
+        assertEquals(5, stocks.getTickSize(0));
+        assertEquals(Sector.ENERGY, stocks.getSector(0));
+        assertEquals(StockStore.defaultVolume("AB,C"), stocks.getVolume(0));
+        assertEquals(2_000, stocks.getPriceCents(1));
+        assertEquals(Sector.HEALTHCARE, stocks.getSector(1));
+    }
+
+    @Test
+    void csvErrorsNameTheLine() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> UniverseCsv.read(new StringReader("symbol,price\nAAA,1\nBBB,oops\n")));
+        assertTrue(error.getMessage().contains("line 3"), error.getMessage());
+    }
+
+    @Test
+    void numbersParseExactly() {
+        assertEquals(0.1, UniverseCsv.parseNumber("0.1"));
+        assertEquals(123.456, UniverseCsv.parseNumber("123.456"));
+        assertEquals(-42, UniverseCsv.parseNumber("-42"));
+        assertEquals(1e-7, UniverseCsv.parseNumber("1e-7"));
+    }
+
+    @Test
+    void snapshotRoundTripKeepsEveryColumnAndTheSaveTime() throws IOException {
+        StockStore stocks = universe();
+        stocks.setPriceCents(1, stocks.getPriceCents(1) + 40);
+        stocks.setVolume(2, 12_345);
+        stocks.publishChanges();
+        Path file = directory.resolve("market.snap");
+
+        UniverseSnapshot.save(stocks, file, 1_700_000_000_123L);
+
+        assertTrue(UniverseSnapshot.isSnapshot(file));
+        assertEquals(1_700_000_000_123L, UniverseSnapshot.savedAtMillis(file));
+        StockStore loaded = UniverseSnapshot.load(file);
+        assertSameListings(stocks, loaded);
+        for (int i = 0; i < stocks.size(); i++) {
+            assertEquals(stocks.getBasePrice(i), loaded.getBasePrice(i));
+            assertEquals(stocks.getChange(i), loaded.getChange(i));
+        }
+        assertEquals(1, loaded.idOf("MSFT"));
+    }
+
+    @Test
+    void snapshotOfALargeUniverseLoadsTheSameColumns() throws IOException {
+        StockStore stocks = MarketEngine.syntheticStocks(20_000);
+        Path file = directory.resolve("large.snap");
+        UniverseSnapshot.save(stocks, file, 0);
+
+        assertSameListings(stocks, UniverseSnapshot.load(file));
+    }
+
+    @Test
+    void csvIsNotASnapshotAndTruncatedSnapshotsAreRejected() throws IOException {
+        Path csv = directory.resolve("universe.csv");
+        UniverseCsv.write(universe(), csv);
+        assertFalse(UniverseSnapshot.isSnapshot(csv));
+
+        Path file = directory.resolve("market.snap");
+        UniverseSnapshot.save(universe(), file, 0);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(IOException.class, () -> UniverseSnapshot.load(file));
+    }
+
+    // Names that need quoting, non-ASCII text, every sector and a few tick sizes.
+    private static StockStore universe() {
+        StockStore stocks = new StockStore();
+        stocks.add("AAPL", "Apple Inc.", 187.44, 90_000, Sector.TECHNOLOGY);
+        stocks.add("MSFT", "Microsoft, \"the\" Corp", 402.1, 75_000, Sector.TECHNOLOGY);
+        stocks.add("XOM", "Exxon Mobil", 104.5, 60_000, Sector.ENERGY);
+        stocks.add("NESN", "Nestlé S.A.", 99.98, 40_000, Sector.CONSUMER);
+        stocks.add("#HASH", " padded name ", 12.5, 10_000, Sector.MATERIALS);
+        for (int sector = 0; sector < Sector.COUNT; sector++) {
+            stocks.add("S" + sector, "Sector " + sector, 10 + sector, 20_000 + sector, sector);
+        }
+        stocks.setTickSize(2, 5);
+        stocks.setTickSize(3, 25);
+        stocks.setVolatility(0, 0.31);
+        stocks.setDrift(0, 0.05);
+        stocks.setDrift(4, -0.02);
+        stocks.publish();
+        return stocks;
+    }
+
+    private static void assertSameListings(StockStore expected, StockStore actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            String at = " of " + expected.getSymbol(i);
+            assertEquals(expected.getSymbol(i), actual.getSymbol(i));
+            assertEquals(expected.getName(i), actual.getName(i), "name" + at);
+            assertEquals(expected.getPriceCents(i), actual.getPriceCents(i), "price" + at);
+            assertEquals(expected.getTickSize(i), actual.getTickSize(i), "tick" + at);
+            assertEquals(expected.getVolume(i), actual.getVolume(i), "volume" + at);
+            assertEquals(expected.getSector(i), actual.getSector(i), "sector" + at);
+            assertEquals(expected.getVolatility(i), actual.getVolatility(i), "volatility" + at);
+            assertEquals(expected.getDrift(i), actual.getDrift(i), "drift" + at);
+            assertEquals(i, actual.idOf(expected.getSymbol(i)));
+        }
+    }
+}